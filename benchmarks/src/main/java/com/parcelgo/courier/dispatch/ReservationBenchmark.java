@@ -0,0 +1,67 @@
+package com.parcelgo.courier.dispatch;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dispatchers racing for couriers: each op reserves a random courier and, if it won, releases it.
+ * {@code couriers} sets the contention; 8 is a hot zone where most attempts collide, 10000 shows
+ * whether uncontended reservations scale across threads. Order ids come from a per-thread counter so
+ * the benchmark itself adds no shared write to the path being measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class ReservationBenchmark {
+
+  @Param({"8", "10000"})
+  public int couriers;
+
+  private CourierReservations reservations;
+  private final AtomicInteger dispatchers = new AtomicInteger();
+
+  /** One dispatcher's order ids, disjoint from every other thread's. */
+  @State(Scope.Thread)
+  public static class Orders {
+    long next;
+
+    @Setup(Level.Trial)
+    public void setup(ReservationBenchmark b) {
+      next = (long) b.dispatchers.incrementAndGet() << 40;
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void setup() {
+    reservations = new CourierReservations(new SimpleMeterRegistry(), 30_000, 300_000);
+  }
+
+  @Benchmark
+  public boolean reserveRelease(Orders orders) {
+    long courier = ThreadLocalRandom.current().nextInt(couriers);
+    long order = ++orders.next;
+    CourierReservations.Result r = reservations.reserve(courier, order, null);
+    if (r.ok()) reservations.release(courier, order);
+    return r.ok();
+  }
+}
@@ -0,0 +1,78 @@
+package com.parcelgo.courier.geo;
+
+import com.parcelgo.courier.domain.CourierPosition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code /couriers/nearby} against 20k live couriers while location fixes stream in: dispatch-style
+ * k-nearest and radius queries on some threads, position updates on others. Sampled, so the report
+ * has the p99 and p99.9 of each query while writes are running, not only its mean; dispatch needs
+ * those under a millisecond.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CourierGeoIndexBenchmark {
+
+  private static final int COURIERS = 20_000;
+  private static final String[] VEHICLES = {"BIKE", "THREE_WHEELER", "MINI_TRUCK"};
+
+  private CourierGeoIndex index;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    index = new CourierGeoIndex(0.01, 120_000, 25, 64);
+    long now = System.currentTimeMillis();
+    ThreadLocalRandom r = ThreadLocalRandom.current();
+    for (long id = 0; id < COURIERS; id++) {
+      index.update(new CourierPosition(id, VEHICLES[(int) (id % 3)], 12.85 + r.nextDouble() * 0.25,
+          77.45 + r.nextDouble() * 0.30, now));
+    }
+  }
+
+  @Benchmark
+  @Group("dispatch")
+  @GroupThreads(3)
+  public List<CourierGeoIndex.Hit> nearest() {
+    ThreadLocalRandom r = ThreadLocalRandom.current();
+    return index.nearest(12.85 + r.nextDouble() * 0.25, 77.45 + r.nextDouble() * 0.30, 10, Set.of("BIKE"));
+  }
+
+  @Benchmark
+  @Group("dispatch")
+  @GroupThreads(1)
+  public List<CourierGeoIndex.Hit> radius() {
+    ThreadLocalRandom r = ThreadLocalRandom.current();
+    return index.withinRadius(12.85 + r.nextDouble() * 0.25, 77.45 + r.nextDouble() * 0.30, 3.0, null, 50);
+  }
+
+  @Benchmark
+  @Group("dispatch")
+  @GroupThreads(4)
+  public boolean update() {
+    ThreadLocalRandom r = ThreadLocalRandom.current();
+    long id = r.nextInt(COURIERS);
+    return index.update(new CourierPosition(id, VEHICLES[(int) (id % 3)], 12.85 + r.nextDouble() * 0.25,
+        77.45 + r.nextDouble() * 0.30, System.currentTimeMillis()));
+  }
+}
@@ -0,0 +1,123 @@
+package com.parcelgo.order.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.parcelgo.order.domain.Order;
+import com.parcelgo.order.quote.QuoteTokenVerifier;
+import com.parcelgo.order.repo.OrderRepository;
+import com.parcelgo.order.web.dto.CreateOrderRequest;
+import com.parcelgo.pricing.rates.Quote;
+import com.parcelgo.pricing.token.QuoteTokenSigner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@code POST /orders} without the database: request-to-entity mapping (the repository is a stub that
+ * assigns an id), the same with a signed quote to verify, and Jackson serialization of the created
+ * {@link Order} with the mapper settings Spring Boot uses.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderBenchmark {
+
+  private static final String SECRET = "benchmark-secret-benchmark-secret-benchmark";
+
+  private OrderController controller;
+  private CreateOrderRequest plain, quoted;
+  private ObjectMapper mapper;
+  private Order order;
+
+  @Setup
+  public void setup() {
+    AtomicLong ids = new AtomicLong();
+    OrderRepository repo = (OrderRepository) Proxy.newProxyInstance(OrderRepository.class.getClassLoader(),
+        new Class<?>[] {OrderRepository.class}, (proxy, method, args) -> {
+          if (method.getName().equals("save")) {
+            ((Order) args[0]).setId(ids.incrementAndGet());
+            return args[0];
+          }
+          throw new UnsupportedOperationException(method.getName());
+        });
+    controller = new OrderController(repo, new QuoteTokenVerifier(SECRET, ""), false, 250);
+
+    plain = request();
+    quoted = request();
+    long now = System.currentTimeMillis();
+    Quote q = new Quote("BIKE", "BLR", "INR", 5.2, 2.5, 33, 57.2, 13.75, 1.0, 103.95, 0, null, 103.95, "bench", null);
+    quoted.quoteToken = new QuoteTokenSigner(SECRET, Duration.ofDays(1)).sign(q, 12.971600, 77.594600, 12.930000, 77.620000, now);
+
+    mapper = Jackson2ObjectMapperBuilder.json().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+    order = controller.create(quoted).getBody();
+  }
+
+  private static CreateOrderRequest request() {
+    CreateOrderRequest r = new CreateOrderRequest();
+    r.userId = 42L;
+    r.fulfillment = new CreateOrderRequest.Fulfillment();
+    r.fulfillment.mode = "SCHEDULED";
+    r.fulfillment.scheduledAt = LocalDateTime.now().plusHours(3);
+    r.fulfillment.vehicleType = "BIKE";
+    r.pickup = address("Asha Rao", "12, MG Road", "Bengaluru", "560001", "12.971600", "77.594600");
+    r.dropoff = address("Vikram Shah", "221, 80 Feet Road, Koramangala", "Bengaluru", "560034", "12.930000", "77.620000");
+    r.pkg = new CreateOrderRequest.Pkg();
+    r.pkg.description = "Documents";
+    r.pkg.weightKg = new BigDecimal("2.50");
+    r.pkg.dimensionsCm = new CreateOrderRequest.DimensionsCm();
+    r.pkg.dimensionsCm.length = new BigDecimal("30");
+    r.pkg.dimensionsCm.width = new BigDecimal("22");
+    r.pkg.dimensionsCm.height = new BigDecimal("4");
+    r.pkg.declaredValue = new BigDecimal("1500.00");
+    r.paymentMethod = "card";
+    return r;
+  }
+
+  private static CreateOrderRequest.Address address(String name, String addr1, String city, String postal,
+                                                    String lat, String lng) {
+    CreateOrderRequest.Address a = new CreateOrderRequest.Address();
+    a.name = name;
+    a.phone = "+91 98450 00000";
+    a.addr1 = addr1;
+    a.city = city;
+    a.state = "Karnataka";
+    a.postal = postal;
+    a.lat = new BigDecimal(lat);
+    a.lng = new BigDecimal(lng);
+    return a;
+  }
+
+  @Benchmark
+  public ResponseEntity<Order> createMapping() {
+    return controller.create(plain);
+  }
+
+  @Benchmark
+  public ResponseEntity<Order> createWithQuoteToken() {
+    return controller.create(quoted);
+  }
+
+  @Benchmark
+  public byte[] serializeOrder() throws Exception {
+    return mapper.writeValueAsBytes(order);
+  }
+}
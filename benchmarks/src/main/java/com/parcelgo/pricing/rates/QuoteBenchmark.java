@@ -0,0 +1,105 @@
+package com.parcelgo.pricing.rates;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.parcelgo.pricing.token.QuoteTokenSigner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pricing: the original hard-coded {@code base + km * perKm + kg * perKg} as a floor, one quote on the
+ * compiled bundled rate card, a checkout-style quote of every vehicle, a 200-item partner batch, and
+ * the signing cost of a quote token. {@link #compile} is what a reload pays before the new card is
+ * swapped in.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuoteBenchmark {
+
+  private static final int TRIPS = 256;
+
+  private final double[] km = new double[TRIPS], kg = new double[TRIPS];
+  private final String[] city = new String[TRIPS];
+  private RateCardSpec spec;
+  private RateCard card;
+  private QuoteTokenSigner signer;
+  private Quote sample;
+  private long now;
+  private int i;
+
+  @Setup
+  public void setup() throws IOException {
+    ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    try (InputStream in = RateCards.class.getResourceAsStream("/rate-card.json")) {
+      spec = mapper.readValue(in, RateCardSpec.class);
+    }
+    card = RateCardCompiler.compile(spec);
+    signer = new QuoteTokenSigner("benchmark-secret-benchmark-secret-benchmark", Duration.ofMinutes(15));
+    SplittableRandom r = new SplittableRandom(3);
+    String[] cities = {null, "BLR", "MUM", "DEL"};
+    for (int k = 0; k < TRIPS; k++) {
+      km[k] = 0.5 + r.nextDouble() * 25;
+      kg[k] = 0.2 + r.nextDouble() * 15;
+      city[k] = cities[r.nextInt(cities.length)];
+    }
+    now = System.currentTimeMillis();
+    sample = card.quote(5.2, 2.5, "BIKE", "BLR", "FIRST50", 1.2, now);
+  }
+
+  @Benchmark
+  public double legacyFormula() {
+    int k = i++ & (TRIPS - 1);
+    return 30.0 + km[k] * 10.0 + kg[k] * 5.0;
+  }
+
+  @Benchmark
+  public Quote rateCard() {
+    int k = i++ & (TRIPS - 1);
+    return card.quote(km[k], kg[k], null, city[k], null, 1.0, now);
+  }
+
+  @Benchmark
+  public void checkoutAllVehicles(Blackhole bh) {
+    int k = i++ & (TRIPS - 1);
+    for (String v : card.vehicleTypes()) bh.consume(card.quote(km[k], kg[k], v, city[k], "FIRST50", 1.0, now));
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public void partnerBatch200(Blackhole bh) {
+    for (int n = 0; n < 200; n++) {
+      int k = i++ & (TRIPS - 1);
+      bh.consume(card.quote(km[k], kg[k], "THREE_WHEELER", city[k], null, 1.0, now));
+    }
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public RateCard compile() {
+    return RateCardCompiler.compile(spec);
+  }
+
+  @Benchmark
+  public String signToken() {
+    return signer.sign(sample, 12.9716, 77.5946, 12.93, 77.62, now);
+  }
+}
@@ -0,0 +1,85 @@
+package com.parcelgo.pricing.surge;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The surge path of a quote under a demand spike: quoting threads record demand into the same hot
+ * cells and read the published multiplier, while orders and courier heartbeats arrive concurrently.
+ * With {@code cells} 4 every signal lands in a few hot cells; with 2000 they are spread over a whole
+ * city of live cells, so the background recompute has that many rings to walk every tick.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SurgeBenchmark {
+
+  @Param({"4", "2000"})
+  public int cells;
+
+  private SurgeEngine engine;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    engine = new SurgeEngine(new SimpleMeterRegistry(), true, 0.02, Duration.ofSeconds(10), Duration.ofMinutes(5),
+        Duration.ofMillis(100), 0.2, 1.0, Duration.ofSeconds(30), 1.0, 0.5, 2.5, 0.3, 0.1, 1, 20_000);
+    engine.start();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    engine.stop();
+  }
+
+  /** The centre of a random one of {@code cells} 0.02-degree cells, 50 to a row. */
+  private double[] point() {
+    int c = ThreadLocalRandom.current().nextInt(cells);
+    return new double[] {12.95 + (c / 50) * 0.02 + 0.01, 77.09 + (c % 50) * 0.02 + 0.01};
+  }
+
+  @Benchmark
+  @Group("spike")
+  @GroupThreads(5)
+  public double quote() {
+    double[] p = point();
+    engine.record(Signal.QUOTE, p[0], p[1], 1);
+    return engine.multiplier(p[0], p[1]);
+  }
+
+  @Benchmark
+  @Group("spike")
+  @GroupThreads(1)
+  public void order() {
+    double[] p = point();
+    engine.record(Signal.ORDER, p[0], p[1], 1);
+  }
+
+  @Benchmark
+  @Group("spike")
+  @GroupThreads(2)
+  public void courierHeartbeat() {
+    double[] p = point();
+    engine.record(Signal.COURIER, p[0], p[1], 1);
+  }
+}
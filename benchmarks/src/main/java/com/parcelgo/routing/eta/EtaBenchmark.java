@@ -0,0 +1,93 @@
+package com.parcelgo.routing.eta;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The straight-line part of {@code /eta} and the learned correction applied on top of it. Points are
+ * drawn from a Bengaluru-sized box so the model sees a realistic number of cells.
+ *
+ * The model is trained on 100k trips that run longer than predicted by a factor varying smoothly
+ * across the city, with log-normal noise. Setup then prints, for 10k held-out trips of the same kind,
+ * the mean error with and without the correction and how many actuals fall inside its 90% interval,
+ * so a change to the model shows up in accuracy as well as in cost.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EtaBenchmark {
+
+  private static final int POINTS = 1024;
+
+  private final double[] lat = new double[POINTS], lng = new double[POINTS];
+  private EtaCorrectionModel model;
+  private long now;
+  private int i;
+
+  @Setup
+  public void setup() {
+    SplittableRandom r = new SplittableRandom(42);
+    for (int k = 0; k < POINTS; k++) {
+      lat[k] = 12.85 + r.nextDouble() * 0.25;
+      lng[k] = 77.45 + r.nextDouble() * 0.30;
+    }
+    model = new EtaCorrectionModel(new SimpleMeterRegistry(), 0.02, "+05:30", Duration.ofDays(14), 5, 1.645, 0.35);
+    now = System.currentTimeMillis();
+    for (int k = 0; k < 100_000; k++) {
+      int p = r.nextInt(POINTS);
+      model.observe(lat[p], lng[p], now - r.nextLong(30L * 86_400_000L), 20, actual(p, r));
+    }
+    double baseError = 0, correctedError = 0;
+    int covered = 0, heldOut = 10_000;
+    for (int k = 0; k < heldOut; k++) {
+      int p = r.nextInt(POINTS);
+      double actual = actual(p, r);
+      EtaCorrectionModel.Correction c = model.correct(20, lat[p], lng[p], now - r.nextLong(30L * 86_400_000L));
+      baseError += Math.abs(20 - actual);
+      correctedError += Math.abs(c.minutes() - actual);
+      if (actual >= c.lowMinutes() && actual <= c.highMinutes()) covered++;
+    }
+    System.out.printf("%nheld-out trips: mean error %.2f min uncorrected, %.2f corrected; %.1f%% inside the interval%n",
+        baseError / heldOut, correctedError / heldOut, 100.0 * covered / heldOut);
+  }
+
+  /** Minutes a trip from point {@code p} predicted at 20 actually takes. */
+  private double actual(int p, SplittableRandom r) {
+    double bias = Math.exp(0.1 + 0.15 * Math.sin(lat[p] * 30) + 0.15 * Math.cos(lng[p] * 30));
+    return 20 * bias * Math.exp(r.nextGaussian() * 0.2);
+  }
+
+  @Benchmark
+  public double haversine() {
+    int a = i++ & (POINTS - 1), b = (a + 517) & (POINTS - 1);
+    return EtaEstimator.haversineKm(lat[a], lng[a], lat[b], lng[b]);
+  }
+
+  @Benchmark
+  public EtaCorrectionModel.Correction correct() {
+    int a = i++ & (POINTS - 1);
+    return model.correct(24.0, lat[a], lng[a], now);
+  }
+
+  @Benchmark
+  public void observe() {
+    int a = i++ & (POINTS - 1);
+    model.observe(lat[a], lng[a], now, 20.0, 26.0);
+  }
+}
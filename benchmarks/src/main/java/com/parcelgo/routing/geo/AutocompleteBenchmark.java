@@ -0,0 +1,93 @@
+package com.parcelgo.routing.geo;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code /geo/search} answered locally: 200k synthetic addresses in the mapped snapshot plus a few
+ * thousand freshly learned ones still in the in-memory delta, queried by 3-6 character prefixes.
+ * {@link #coldStart} is what a restarted node pays before its first answer: mapping the snapshot file
+ * and one prefix lookup on it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AutocompleteBenchmark {
+
+  private static final String[] STREETS = {"MG Road", "Brigade Road", "Residency Road", "Church Street", "Infantry Road",
+      "Cunningham Road", "Lavelle Road", "Richmond Road", "Hosur Road", "Bannerghatta Road", "Old Airport Road",
+      "Sarjapur Road", "Outer Ring Road", "Bellary Road", "Tumkur Road", "Mysore Road", "Kanakapura Road"};
+  private static final String[] AREAS = {"Koramangala", "Indiranagar", "Jayanagar", "Whitefield", "Malleshwaram",
+      "Basavanagudi", "HSR Layout", "Hebbal", "Yelahanka", "Marathahalli", "Electronic City", "Banashankari"};
+  private static final int QUERIES = 1024;
+
+  private Path dir;
+  private AutocompleteIndex index;
+  private final String[] queries = new String[QUERIES];
+  private int i;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    dir = Files.createTempDirectory("pg-bench-ac");
+    index = new AutocompleteIndex(new SimpleMeterRegistry(), dir.toString(), 200_000, 6, 3, 2000, 1_000_000,
+        Duration.ofHours(1));
+    SplittableRandom r = new SplittableRandom(11);
+    for (int k = 0; k < 200_000; k++) index.learn(name(r, k), 12.9 + r.nextDouble() * 0.2, 77.5 + r.nextDouble() * 0.2,
+        1 + r.nextInt(50));
+    index.persist();
+    for (int k = 0; k < 5_000; k++) index.learn(name(r, 200_000 + k), 12.9, 77.5, 1);
+    for (int q = 0; q < QUERIES; q++) {
+      String word = (r.nextBoolean() ? STREETS[r.nextInt(STREETS.length)] : AREAS[r.nextInt(AREAS.length)]).toLowerCase();
+      queries[q] = word.substring(0, Math.min(word.length(), 3 + r.nextInt(4)));
+    }
+  }
+
+  private static String name(SplittableRandom r, int k) {
+    return (1 + r.nextInt(400)) + ", " + STREETS[r.nextInt(STREETS.length)] + ", " + AREAS[r.nextInt(AREAS.length)]
+        + ", Bengaluru " + (560001 + r.nextInt(100)) + " #" + k;
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    try (var files = Files.list(dir)) {
+      for (Path p : (Iterable<Path>) files::iterator) Files.deleteIfExists(p);
+    }
+    Files.deleteIfExists(dir);
+  }
+
+  @Benchmark
+  public List<Suggestion> search() {
+    return index.search(queries[i++ & (QUERIES - 1)], 8, 3);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  public int coldStart() throws IOException {
+    AutocompleteSnapshot snap = AutocompleteSnapshot.open(dir.resolve("places.pgac"));
+    int[] found = new int[1];
+    snap.search(AutocompleteSnapshot.key(AutocompleteIndex.fold(queries[i++ & (QUERIES - 1)])), 2000, id -> found[0]++);
+    return found[0];
+  }
+}
@@ -0,0 +1,109 @@
+package com.parcelgo.routing.graph;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ALT-guided A* on a synthetic 400 x 400 street grid (~100 m blocks, arterials every tenth street,
+ * some one-way and missing segments): city-trip queries of up to ~5 km, and cross-town queries. Setup
+ * prints how many of the 160k nodes each kind of query settles on average, which is what the landmarks
+ * buy. {@link #coldStart} maps the preprocessed file and answers one query, as a restarted node does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RouteSearchBenchmark {
+
+  private static final int W = 400;
+  private static final int QUERIES = 4096;
+
+  private Path dir;
+  private Path file;
+  private RouteSearch search;
+  private final int[] localFrom = new int[QUERIES], localTo = new int[QUERIES];
+  private final int[] farFrom = new int[QUERIES], farTo = new int[QUERIES];
+  private int i;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    dir = Files.createTempDirectory("pg-bench-graph");
+    Random r = new Random(7);
+    Path csv = dir.resolve("city.csv");
+    try (PrintWriter w = new PrintWriter(Files.newBufferedWriter(csv))) {
+      for (int y = 0; y < W; y++)
+        for (int x = 0; x < W; x++) w.println("N," + (y * W + x) + "," + (12.9 + y * 0.0009) + "," + (77.5 + x * 0.0009));
+      for (int y = 0; y < W; y++)
+        for (int x = 0; x < W; x++) {
+          int v = y * W + x;
+          double kmh = (x % 10 == 0 || y % 10 == 0) ? 50 : 20 + r.nextInt(15);
+          if (x + 1 < W && r.nextDouble() > 0.05) w.println("E," + v + "," + (v + 1) + ",," + kmh + "," + (r.nextDouble() < 0.1 ? 1 : 0));
+          if (y + 1 < W && r.nextDouble() > 0.05) w.println("E," + v + "," + (v + W) + ",," + kmh + "," + (r.nextDouble() < 0.1 ? 1 : 0));
+        }
+    }
+    file = dir.resolve("city.pgrg");
+    RoadGraphBuilder.build(csv, file, 16);
+    search = new RouteSearch(RoadGraph.open(file), 4);
+    for (int q = 0; q < QUERIES; q++) {
+      int y = r.nextInt(W - 60), x = r.nextInt(W - 60);
+      localFrom[q] = y * W + x;
+      localTo[q] = (y + r.nextInt(60)) * W + x + r.nextInt(60);
+      farFrom[q] = r.nextInt(W * W);
+      farTo[q] = r.nextInt(W * W);
+    }
+    long local = 0, far = 0;
+    for (int q = 0; q < QUERIES; q++) {
+      Route a = search.route(localFrom[q], localTo[q], false), b = search.route(farFrom[q], farTo[q], false);
+      if (a != null) local += a.settled();
+      if (b != null) far += b.settled();
+    }
+    System.out.printf("%nsettled per query: city trip %d, cross-town %d of %d nodes%n",
+        local / QUERIES, far / QUERIES, W * W);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    try (var files = Files.list(dir)) {
+      for (Path p : (Iterable<Path>) files::iterator) Files.deleteIfExists(p);
+    }
+    Files.deleteIfExists(dir);
+  }
+
+  @Benchmark
+  public Route cityTrip() {
+    int q = i++ & (QUERIES - 1);
+    return search.route(localFrom[q], localTo[q], true);
+  }
+
+  @Benchmark
+  public Route crossTown() {
+    int q = i++ & (QUERIES - 1);
+    return search.route(farFrom[q], farTo[q], false);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  public Route coldStart() throws IOException {
+    int q = i++ & (QUERIES - 1);
+    return new RouteSearch(RoadGraph.open(file), 4).route(localFrom[q], localTo[q], true);
+  }
+}
@@ -0,0 +1,86 @@
+package com.parcelgo.routing.matrix;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.parcelgo.routing.web.RoutingController;
+import com.parcelgo.routing.web.dto.MatrixRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code POST /matrix}: scalar vs Vector API kernel, sequential and fork/join sizes. {@link #endpoint}
+ * is the whole response as a client waits for it, distances and ETAs rounded and written as JSON;
+ * setup prints its size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class DistanceMatrixBenchmark {
+
+  @Param({"50", "1000"})
+  public int n;
+
+  @Param({"false", "true"})
+  public boolean vector;
+
+  private DistanceMatrix matrix;
+  private double[] origins, destinations;
+  private RoutingController controller;
+  private MatrixRequest request;
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  @Setup
+  public void setup() throws Exception {
+    matrix = new DistanceMatrix(new SimpleMeterRegistry(), vector, 65536);
+    SplittableRandom r = new SplittableRandom(7);
+    origins = points(r, n);
+    destinations = points(r, n);
+    controller = new RoutingController(matrix, null, null, 4_000_000);
+    request = new MatrixRequest();
+    request.origins = pairs(origins);
+    request.destinations = pairs(destinations);
+    System.out.printf("%nresponse: %d bytes%n", endpoint().length);
+  }
+
+  private static List<double[]> pairs(double[] flat) {
+    List<double[]> out = new ArrayList<>(flat.length / 2);
+    for (int i = 0; i < flat.length; i += 2) out.add(new double[] {flat[i], flat[i + 1]});
+    return out;
+  }
+
+  private static double[] points(SplittableRandom r, int n) {
+    double[] p = new double[2 * n];
+    for (int i = 0; i < n; i++) {
+      p[2 * i] = 12.85 + r.nextDouble() * 0.25;
+      p[2 * i + 1] = 77.45 + r.nextDouble() * 0.30;
+    }
+    return p;
+  }
+
+  @Benchmark
+  public float[] distances() {
+    return matrix.distancesKm(origins, destinations);
+  }
+
+  @Benchmark
+  public byte[] endpoint() throws Exception {
+    return mapper.writeValueAsBytes(controller.matrix(request));
+  }
+}
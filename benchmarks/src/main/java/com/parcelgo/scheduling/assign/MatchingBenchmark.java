@@ -0,0 +1,88 @@
+package com.parcelgo.scheduling.assign;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One zone's batch: {@code orders} pickups and {@code couriers} free couriers spread over a 25 km
+ * square, a fifth of them needing a van or over a bike's 20 kg. {@code optimal} is the batch matching,
+ * {@code greedy} the one-at-a-time nearest free courier it replaces. Setup prints the total pickup
+ * kilometres of both, which is the point of the exercise; the timings show the optimum is affordable
+ * within a 2 s window.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatchingBenchmark {
+
+  private static final double MAX_PICKUP_KM = 10;
+  private static final int CANDIDATES = 16;
+
+  @Param({"500", "2000"})
+  public int orders;
+
+  /** Couriers per order: below 1 is surge. */
+  @Param({"0.8", "1.5"})
+  public double supply;
+
+  private List<Job> jobs;
+  private List<Courier> couriers;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    SplittableRandom r = new SplittableRandom(42);
+    double lat0 = 12.85, lng0 = 77.50, span = 0.225;
+    jobs = new ArrayList<>(orders);
+    for (int i = 0; i < orders; i++) {
+      boolean heavy = r.nextInt(5) == 0;
+      jobs.add(new Job(i, lat0 + r.nextDouble(span), lng0 + r.nextDouble(span),
+          heavy && r.nextBoolean() ? "van" : null, heavy ? 20 + r.nextDouble(200) : r.nextDouble(15)));
+    }
+    int n = (int) Math.round(orders * supply);
+    couriers = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      boolean van = r.nextInt(4) == 0;
+      couriers.add(new Courier(i, van ? "van" : "bike", lat0 + r.nextDouble(span), lng0 + r.nextDouble(span),
+          van ? 500.0 : 20.0, 0L));
+    }
+    int[] opt = Matching.optimal(jobs, couriers, MAX_PICKUP_KM, CANDIDATES);
+    int[] gr = Matching.greedy(jobs, couriers, MAX_PICKUP_KM);
+    System.out.printf("%n%d orders, %d couriers: optimal %d assigned %.0f km, greedy %d assigned %.0f km%n",
+        orders, n, assigned(opt), Matching.totalKm(jobs, couriers, opt),
+        assigned(gr), Matching.totalKm(jobs, couriers, gr));
+  }
+
+  private static int assigned(int[] a) {
+    int n = 0;
+    for (int x : a) if (x >= 0) n++;
+    return n;
+  }
+
+  @Benchmark
+  public int[] optimal() {
+    return Matching.optimal(jobs, couriers, MAX_PICKUP_KM, CANDIDATES);
+  }
+
+  @Benchmark
+  public int[] greedy() {
+    return Matching.greedy(jobs, couriers, MAX_PICKUP_KM);
+  }
+}
@@ -0,0 +1,103 @@
+package com.parcelgo.scheduling.routes;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A day of scheduled deliveries in one city, generated from a fixed seed so every run solves the same
+ * instances: {@code orders} pickups in a 30 x 30 km square, a third of them in three dense clusters,
+ * each dropped anywhere in the square. Pickups are scheduled uniformly 08:00-18:00 with a window from
+ * 15 minutes before to 30 after, drops are due within 3 hours of the scheduled time; 1-10 kg each and
+ * 5 minutes at each door. One driver per 10 orders, on shift 08:00-20:00 carrying at most 40 kg at
+ * once, starting at home (anywhere) and ending at one of two hubs, driving at 25 km/h.
+ *
+ * {@code budgetMs} 0 is the insertion construction alone; otherwise the local search runs for the
+ * budget. Each run prints its kilometres, routes used and shipments left unassigned.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class RouteSolverBenchmark {
+
+  @Param({"1000", "4000"})
+  public int orders;
+
+  @Param({"0", "3000"})
+  public long budgetMs;
+
+  private RouteProblem problem;
+  private ForkJoinPool pool;
+  private RouteSolver solver;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    problem = instance(orders, 42);
+    pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    solver = new RouteSolver(pool, 12, 6, 25, 10);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    pool.shutdownNow();
+  }
+
+  @Benchmark
+  public RoutePlan solve() {
+    RoutePlan plan = solver.solve(problem, budgetMs);
+    long used = plan.routes().stream().filter(r -> !r.visits().isEmpty()).count();
+    System.out.printf("%n%d orders, budget %d ms: %.0f km, %d routes, %d unassigned, %d ms%n",
+        orders, budgetMs, plan.totalKm(), used, plan.unassigned().size(), plan.solveMillis());
+    return plan;
+  }
+
+  static RouteProblem instance(int orders, long seed) {
+    SplittableRandom r = new SplittableRandom(seed);
+    double lat0 = 12.85, lng0 = 77.45, span = 0.27;
+    double[][] clusters = new double[3][];
+    for (int c = 0; c < 3; c++) clusters[c] = new double[] {lat0 + r.nextDouble(span), lng0 + r.nextDouble(span)};
+    List<RouteProblem.Shipment> shipments = new ArrayList<>(orders);
+    for (int i = 0; i < orders; i++) {
+      double lat, lng;
+      if (r.nextInt(3) == 0) {
+        double[] c = clusters[r.nextInt(3)];
+        lat = c[0] + r.nextDouble(-0.02, 0.02);
+        lng = c[1] + r.nextDouble(-0.02, 0.02);
+      } else {
+        lat = lat0 + r.nextDouble(span);
+        lng = lng0 + r.nextDouble(span);
+      }
+      double at = 480 + r.nextDouble(600);
+      shipments.add(new RouteProblem.Shipment(i, 1 + r.nextDouble(9),
+          new RouteProblem.Stop(lat, lng, at - 15, at + 30, 5),
+          new RouteProblem.Stop(lat0 + r.nextDouble(span), lng0 + r.nextDouble(span), at - 15, at + 180, 5)));
+    }
+    double[][] hubs = {{lat0 + 0.08, lng0 + 0.08}, {lat0 + 0.19, lng0 + 0.19}};
+    List<RouteProblem.Vehicle> vehicles = new ArrayList<>();
+    for (int v = 0; v < orders / 10; v++) {
+      double[] hub = hubs[v % 2];
+      vehicles.add(new RouteProblem.Vehicle(v, lat0 + r.nextDouble(span), lng0 + r.nextDouble(span),
+          hub[0], hub[1], 40, 480, 1200));
+    }
+    return new RouteProblem(shipments, vehicles, 25);
+  }
+}
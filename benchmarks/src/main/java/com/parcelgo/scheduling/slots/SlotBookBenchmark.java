@@ -0,0 +1,103 @@
+package com.parcelgo.scheduling.slots;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evening rush: 16 threads booking {@code slots} slots of {@code capacity} places each. One slot is
+ * the hot-slot case where every booking contends on the same counter; a small capacity keeps it full,
+ * so most attempts are rejected. Write-behind runs as in the service (every 100 ms) into a store that
+ * discards the batch, so the cost of dirty tracking is included but not the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(16)
+public class SlotBookBenchmark {
+
+  @Param({"1", "64"})
+  public int slots;
+
+  @Param({"8", "100000"})
+  public int capacity;
+
+  private SlotBook book;
+  private String[] ids;
+  private ScheduledExecutorService flusher;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    SlotStore discard = new SlotStore() {
+      @Override public List<Slot> loadSlots(Instant endAfter) { return List.of(); }
+      @Override public List<Hold> loadHolds(Instant endAfter) { return List.of(); }
+      @Override public void write(List<Slot> slots, List<Hold> holds) {}
+    };
+    book = new SlotBook(discard, new SimpleMeterRegistry(), 300_000, 1_800_000, false, 2_000, 3_600_000, 100);
+    book.recover();
+    ids = new String[slots];
+    OffsetDateTime start = OffsetDateTime.parse("2026-01-01T18:00:00+05:30");
+    for (int i = 0; i < slots; i++) ids[i] = book.create("default", start, start.plusHours(2), capacity).id();
+    flusher = Executors.newSingleThreadScheduledExecutor();
+    flusher.scheduleWithFixedDelay(book::flush, 100, 100, TimeUnit.MILLISECONDS);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    flusher.shutdownNow();
+  }
+
+  private String slot() {
+    return ids[slots == 1 ? 0 : ThreadLocalRandom.current().nextInt(slots)];
+  }
+
+  /** Customer abandons checkout: hold, then release. */
+  @Benchmark
+  public boolean holdRelease() {
+    SlotBook.Result r = book.hold(slot(), null, null);
+    if (r.ok()) book.release(r.hold().id());
+    return r.ok();
+  }
+
+  /** Full booking then cancellation: hold, confirm, cancel. */
+  @Benchmark
+  public boolean holdConfirmCancel() {
+    SlotBook.Result r = book.hold(slot(), null, null);
+    if (!r.ok()) return false;
+    book.confirm(r.hold().id());
+    book.release(r.hold().id());
+    return true;
+  }
+
+  /** Same with an order id, which also goes through the per-order dedupe. */
+  @Benchmark
+  public boolean holdForOrder() {
+    long order = ThreadLocalRandom.current().nextLong(1_000_000_000L);
+    SlotBook.Result r = book.hold(slot(), order, null);
+    if (r.ok()) book.release(r.hold().id());
+    return r.ok();
+  }
+}
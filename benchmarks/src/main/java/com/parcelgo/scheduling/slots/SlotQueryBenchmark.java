@@ -0,0 +1,99 @@
+package com.parcelgo.scheduling.slots;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Slot listing against {@code days} of hourly slots in 20 zones, every other one full. The window
+ * queries cost the size of the answer; {@code fullListing} is what {@code GET /slots} used to do
+ * (every slot, filtered afterwards) and grows with history.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SlotQueryBenchmark {
+
+  private static final int ZONES = 20;
+
+  @Param({"30", "365"})
+  public int days;
+
+  private SlotBook book;
+  private final List<String> ids = new ArrayList<>();
+  private Instant from;
+  private Instant to;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    SlotStore none = new SlotStore() {
+      @Override public List<Slot> loadSlots(Instant endAfter) { return List.of(); }
+      @Override public List<Hold> loadHolds(Instant endAfter) { return List.of(); }
+      @Override public void write(List<Slot> slots, List<Hold> holds) {}
+    };
+    // retain everything: this is about history size
+    book = new SlotBook(none, new SimpleMeterRegistry(), 300_000, 1_800_000, false, 2_000, Long.MAX_VALUE / 2, 100);
+    OffsetDateTime t0 = OffsetDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.DAYS).minusDays(days - 2);
+    for (int h = 0; h < days * 24; h++) {
+      OffsetDateTime start = t0.plusHours(h);
+      for (int z = 0; z < ZONES; z++) {
+        Slot s = book.create("zone-" + z, start, start.plusHours(1), 2);
+        ids.add(s.id());
+        if ((h + z) % 2 == 0) {
+          book.hold(s.id(), null, null);
+          book.hold(s.id(), null, null);
+        }
+      }
+    }
+    from = t0.plusDays(days - 1).toInstant();
+    to = from.plus(1, ChronoUnit.DAYS);
+  }
+
+  @Benchmark
+  public List<SlotStatus> zoneDay() {
+    return book.query("zone-7", from, to, false, 200);
+  }
+
+  @Benchmark
+  public List<SlotStatus> zoneDayAvailable() {
+    return book.query("zone-7", from, to, true, 200);
+  }
+
+  @Benchmark
+  public List<SlotStatus> allZonesDay() {
+    return book.query(null, from, to, false, 200);
+  }
+
+  @Benchmark
+  public List<SlotStatus> fullListing() {
+    List<SlotStatus> all = new ArrayList<>(ids.size());
+    for (String id : ids) all.add(book.find(id));
+    List<SlotStatus> out = new ArrayList<>();
+    for (SlotStatus s : all) {
+      Instant start = s.start().toInstant();
+      if (s.zone().equals("zone-7") && !start.isBefore(from) && start.isBefore(to)) out.add(s);
+    }
+    return out;
+  }
+}
@@ -0,0 +1,92 @@
+package com.parcelgo.scheduling.timer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scheduled-order timers: {@code live} orders spread over the next 6 hours, as the dispatch wheel
+ * holds them. {@code wheelScheduleCancel} arms and cancels one more timer (a reschedule) and lets the
+ * driver apply both; {@code executorScheduleCancel} does the same against a
+ * ScheduledThreadPoolExecutor, the usual alternative, whose heap makes both O(log n) under one lock.
+ * {@code wheelDrainSixHours} fires every timer by ticking through the whole horizon.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TimingWheelBenchmark {
+
+  private static final long TICK = 100;
+  private static final long HORIZON = 6 * 3600_000L;
+
+  @Param({"100000", "1000000"})
+  public int live;
+
+  private final SplittableRandom random = new SplittableRandom(7);
+  private final long now = 1_750_000_000_000L;
+  private TimingWheel<Long> wheel;
+  private ScheduledThreadPoolExecutor executor;
+  private final Runnable noop = () -> {};
+
+  @Setup(Level.Trial)
+  public void setup() {
+    wheel = new TimingWheel<>(TICK, 8, 4, now);
+    for (long i = 0; i < live; i++) wheel.schedule(i, now + 1 + random.nextLong(HORIZON));
+    wheel.advance(now, id -> {});
+    executor = new ScheduledThreadPoolExecutor(1);
+    executor.setRemoveOnCancelPolicy(true);
+    for (int i = 0; i < live; i++) executor.schedule(noop, 1 + random.nextLong(HORIZON), TimeUnit.MILLISECONDS);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Benchmark
+  public int wheelScheduleCancel() {
+    TimingWheel.Timeout<Long> t = wheel.schedule(-1L, now + 1 + random.nextLong(HORIZON));
+    t.cancel();
+    return wheel.advance(now, id -> {});
+  }
+
+  @Benchmark
+  public boolean executorScheduleCancel() {
+    ScheduledFuture<?> f = executor.schedule(noop, 1 + random.nextLong(HORIZON), TimeUnit.MILLISECONDS);
+    return f.cancel(false);
+  }
+
+  /** Per timer: divide by {@code live}. */
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  @Warmup(iterations = 2)
+  @Measurement(iterations = 3)
+  public int wheelDrainSixHours(Blackhole bh) {
+    TimingWheel<Long> w = new TimingWheel<>(TICK, 8, 4, now);
+    SplittableRandom r = new SplittableRandom(11);
+    for (long i = 0; i < live; i++) w.schedule(i, now + 1 + r.nextLong(HORIZON));
+    int fired = 0;
+    for (long t = now; t <= now + HORIZON + TICK; t += 1000) fired += w.advance(t, bh::consume);
+    return fired;
+  }
+}
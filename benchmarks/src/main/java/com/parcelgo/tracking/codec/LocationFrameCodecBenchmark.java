@@ -0,0 +1,97 @@
+package com.parcelgo.tracking.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode cost of one courier position: the JSON body STOMP subscribers get versus a pgl1 frame
+ * (baseline every 64, deltas in between), plus the reference decoder a client runs. Setup prints the
+ * mean body bytes per update of each over the same 1024-fix track, so size and cost are compared on
+ * one run.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LocationFrameCodecBenchmark {
+
+  private static final int FIXES = 1024;
+
+  private final double[] lat = new double[FIXES], lng = new double[FIXES];
+  private final long[] ts = new long[FIXES];
+  private final byte[] out = new byte[LocationFrameCodec.MAX_FRAME_BYTES];
+  private ByteBuffer[] frames;
+  private ObjectMapper mapper;
+  private LocationFrameCodec.Encoder encoder;
+  private LocationFrameCodec.Decoder decoder;
+  private int i;
+
+  @Setup
+  public void setup() throws Exception {
+    double la = 12.9716, ln = 77.5946;
+    long t = System.currentTimeMillis();
+    for (int k = 0; k < FIXES; k++) {
+      la += 0.00004 * Math.sin(k / 50.0);
+      ln += 0.00004 * Math.cos(k / 70.0);
+      t += 1000;
+      lat[k] = la;
+      lng[k] = ln;
+      ts[k] = t;
+    }
+    mapper = new ObjectMapper();
+    encoder = new LocationFrameCodec.Encoder(64);
+    decoder = new LocationFrameCodec.Decoder();
+    LocationFrameCodec.Encoder e = new LocationFrameCodec.Encoder(64);
+    frames = new ByteBuffer[FIXES];
+    long jsonBytes = 0, pgl1Bytes = 0;
+    for (int k = 0; k < FIXES; k++) {
+      frames[k] = ByteBuffer.wrap(e.encode(ts[k], lat[k], lng[k]));
+      pgl1Bytes += frames[k].remaining();
+      jsonBytes += json(k).length;
+    }
+    System.out.printf("%nbytes per update: json %.1f, pgl1 %.1f%n", (double) jsonBytes / FIXES, (double) pgl1Bytes / FIXES);
+  }
+
+  @Benchmark
+  public byte[] json() throws Exception {
+    return json(i++ & (FIXES - 1));
+  }
+
+  private byte[] json(int k) throws Exception {
+    Map<String, Object> msg = new LinkedHashMap<>();
+    msg.put("orderId", "184467");
+    msg.put("lat", lat[k]);
+    msg.put("lng", lng[k]);
+    msg.put("ts", ts[k]);
+    return mapper.writeValueAsBytes(msg);
+  }
+
+  @Benchmark
+  public int pgl1() {
+    int k = i++ & (FIXES - 1);
+    return encoder.encode(ts[k], lat[k], lng[k], out, 0);
+  }
+
+  @Benchmark
+  public boolean pgl1Decode() {
+    ByteBuffer f = frames[i++ & (FIXES - 1)];
+    f.rewind();
+    return decoder.decode(f);
+  }
+}
@@ -0,0 +1,98 @@
+package com.parcelgo.tracking.fanout;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fan-out of one order's position to its viewers on the flush thread: serialize once, one STOMP frame,
+ * enqueue on every bounded session. With {@code slow} viewers that take 50 ms per send, the flush cost
+ * must stay flat (they shed stale frames instead of stalling it). Run with {@code -prof gc} for the
+ * per-broadcast allocation.
+ *
+ * {@link #convertAndSend} is the broker path it replaced ({@link BrokerNode}), for comparison; its channels
+ * run on the caller, so with a slow viewer it pays the 50 ms send in full. {@link #broadcastPgl1} is the
+ * same fan-out to viewers that opted into pgl1, which encode per subscription instead of sharing a frame.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BroadcastBenchmark {
+
+  private static final String DESTINATION = LocationCoalescer.ORDER_TOPIC_PREFIX + "184467";
+
+  @Param({"1", "100"})
+  public int viewers;
+
+  @Param({"0", "1"})
+  public int slow;
+
+  private TrackingNode node;
+  private TrackingNode binaryNode;
+  private BrokerNode brokerNode;
+  private Map<String, Object> payload;
+  private long ts;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    node = new TrackingNode("bench", null, 0);
+    for (int v = 0; v < viewers; v++) node.connect("viewer-" + v, DESTINATION, 0);
+    for (int s = 0; s < slow; s++) node.connect("slow-" + s, DESTINATION, 50);
+    binaryNode = new TrackingNode("bench-pgl1", null, 0);
+    for (int v = 0; v < viewers; v++) binaryNode.connectBinary("viewer-" + v, DESTINATION, 0);
+    for (int s = 0; s < slow; s++) binaryNode.connectBinary("slow-" + s, DESTINATION, 50);
+    brokerNode = new BrokerNode();
+    for (int v = 0; v < viewers; v++) brokerNode.connect("viewer-" + v, DESTINATION, 0);
+    for (int s = 0; s < slow; s++) brokerNode.connect("slow-" + s, DESTINATION, 50);
+    payload = new HashMap<>();
+    payload.put("orderId", "184467");
+    payload.put("lat", 12.9716);
+    payload.put("lng", 77.5946);
+    ts = System.currentTimeMillis();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    System.out.printf("%ndelivered: broadcaster %d, pgl1 %d, broker %d%n",
+        node.delivered.get(), binaryNode.delivered.get(), brokerNode.delivered.get());
+    node.close();
+    binaryNode.close();
+    brokerNode.close();
+  }
+
+  @Benchmark
+  public int broadcast() {
+    payload.put("ts", ++ts);
+    return node.broadcaster.broadcast(DESTINATION, payload);
+  }
+
+  @Benchmark
+  public int broadcastPgl1() {
+    payload.put("ts", ++ts);
+    return binaryNode.broadcaster.broadcast(DESTINATION, payload);
+  }
+
+  @Benchmark
+  public long convertAndSend() {
+    payload.put("ts", ++ts);
+    brokerNode.template.convertAndSend(DESTINATION, payload);
+    return brokerNode.delivered.get();
+  }
+}
@@ -0,0 +1,61 @@
+package com.parcelgo.tracking.fanout;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.messaging.StompSubProtocolHandler;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The path location updates took before {@link TopicBroadcaster}: {@code SimpMessagingTemplate.convertAndSend}
+ * into the simple broker, which copies the message per subscriber onto the client outbound channel, where
+ * the STOMP handler encodes a frame per session. Channels run on the caller so a benchmark sees the whole
+ * fan-out; the in-memory sessions are the same as {@link TrackingNode}'s.
+ */
+final class BrokerNode {
+
+  final SimpMessagingTemplate template;
+  final AtomicLong delivered = new AtomicLong();
+  private final SimpleBrokerMessageHandler broker;
+  private final SubProtocolWebSocketHandler handler;
+
+  BrokerNode() {
+    ExecutorSubscribableChannel inbound = new ExecutorSubscribableChannel();
+    ExecutorSubscribableChannel outbound = new ExecutorSubscribableChannel();
+    ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+    broker = new SimpleBrokerMessageHandler(inbound, outbound, brokerChannel, List.of("/topic"));
+    broker.start();
+    handler = new SubProtocolWebSocketHandler(inbound, outbound);
+    handler.addProtocolHandler(new StompSubProtocolHandler());
+    handler.start();
+    template = new SimpMessagingTemplate(brokerChannel);
+    template.setMessageConverter(new MappingJackson2MessageConverter());
+  }
+
+  /** Opens a session subscribed to {@code destination} at the broker; each send takes {@code sendMillis}. */
+  void connect(String sessionId, String destination, long sendMillis) throws Exception {
+    handler.afterConnectionEstablished(TrackingNode.session(sessionId, sendMillis, delivered));
+    StompHeaderAccessor c = StompHeaderAccessor.create(StompCommand.CONNECT);
+    c.setSessionId(sessionId);
+    broker.handleMessage(MessageBuilder.createMessage(new byte[0], c.getMessageHeaders()));
+    StompHeaderAccessor h = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+    h.setSessionId(sessionId);
+    h.setSubscriptionId("sub-0");
+    h.setDestination(destination);
+    Message<byte[]> subscribe = MessageBuilder.createMessage(new byte[0], h.getMessageHeaders());
+    broker.handleMessage(subscribe);
+  }
+
+  void close() {
+    handler.stop();
+    broker.stop();
+  }
+}
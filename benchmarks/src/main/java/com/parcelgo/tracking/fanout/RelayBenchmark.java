@@ -0,0 +1,124 @@
+package com.parcelgo.tracking.fanout;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.parcelgo.tracking.relay.InJvmLocationRelay;
+import com.parcelgo.tracking.relay.LocationRelay;
+import com.parcelgo.tracking.relay.RelayBatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Two tracking nodes on one relay channel: couriers post to node A, viewers watch on node B. One op is
+ * a coalescing interval's worth of positions for 500 orders, flushed on A and counted as delivered
+ * on B's sessions, so it covers batching, relay hand-off and remote fan-out end to end. It fails
+ * loudly if any position is lost between the nodes.
+ *
+ * With {@code wire} each batch also makes the JSON round trip {@code RedisLocationRelay} does, so the
+ * result is the Redis path minus the network; teardown prints the mean bytes per relay message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RelayBenchmark {
+
+  private static final int ORDERS = 500;
+  private static final long HOUR = 3_600_000;
+
+  @Param({"false", "true"})
+  public boolean wire;
+
+  private TrackingNode a, b;
+  private WireRelay wireA;
+  private long ts;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    String channel = "bench-" + System.nanoTime();
+    LocationRelay relayA = new InJvmLocationRelay(channel);
+    if (wire) relayA = wireA = new WireRelay(relayA);
+    a = new TrackingNode("node-a", relayA, HOUR);
+    b = new TrackingNode("node-b", new InJvmLocationRelay(channel), HOUR);
+    for (int o = 0; o < ORDERS; o++) b.connect("viewer-" + o, LocationCoalescer.ORDER_TOPIC_PREFIX + o, 0);
+    ts = System.currentTimeMillis();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    if (wireA != null && wireA.messages.get() > 0) {
+      System.out.printf("%nrelay message: %d bytes%n", wireA.bytes.get() / wireA.messages.get());
+    }
+    a.close();
+    b.close();
+  }
+
+  @Benchmark
+  public long flushAcrossNodes() throws InterruptedException {
+    long target = b.delivered.get() + ORDERS;
+    ts++;
+    for (int o = 0; o < ORDERS; o++) {
+      Map<String, Object> msg = new HashMap<>(8);
+      msg.put("orderId", String.valueOf(o));
+      msg.put("lat", 12.9716 + o * 1e-5);
+      msg.put("lng", 77.5946);
+      msg.put("ts", ts);
+      a.coalescer.submit(String.valueOf(o), msg);
+    }
+    a.coalescer.flush();
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (b.delivered.get() < target) {
+      if (System.nanoTime() > deadline)
+        throw new IllegalStateException("node B got " + (b.delivered.get() - target + ORDERS) + " of " + ORDERS);
+      Thread.onSpinWait();
+    }
+    return b.delivered.get();
+  }
+
+  /** Serializes each published batch and reads it back before handing it on, as the Redis relay does. */
+  private static final class WireRelay implements LocationRelay {
+
+    private final LocationRelay delegate;
+    private final ObjectMapper mapper = new ObjectMapper();
+    final AtomicLong messages = new AtomicLong();
+    final AtomicLong bytes = new AtomicLong();
+
+    WireRelay(LocationRelay delegate) { this.delegate = delegate; }
+
+    @Override
+    public void publish(RelayBatch batch) {
+      try {
+        byte[] body = mapper.writeValueAsBytes(batch);
+        messages.incrementAndGet();
+        bytes.addAndGet(body.length);
+        delegate.publish(mapper.readValue(body, RelayBatch.class));
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    @Override
+    public void subscribe(Consumer<RelayBatch> sink) {
+      delegate.subscribe(sink);
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package com.parcelgo.tracking.fanout;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.parcelgo.tracking.codec.BinaryLocationInterceptor;
+import com.parcelgo.tracking.codec.LocationFrameCodec;
+import com.parcelgo.tracking.codec.RawWebSocketHandshakeInterceptor;
+import com.parcelgo.tracking.relay.LocationRelay;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One tracking-service node wired by hand, without Spring or a servlet container: subscriptions,
+ * bounded sessions, broadcaster and coalescer, with in-memory WebSocket sessions that count the frames
+ * they are sent and can be made slow.
+ */
+final class TrackingNode {
+
+  final TopicSubscriptions subscriptions = new TopicSubscriptions();
+  final WebSocketSessions sessions;
+  final BinaryLocationInterceptor binary;
+  final TopicBroadcaster broadcaster;
+  final LocationCoalescer coalescer;
+  final AtomicLong delivered = new AtomicLong();
+  private final WebSocketHandler handler;
+
+  /** {@code flushIntervalMillis} as in {@code parcelgo.tracking.coalesce}; callers may also flush by hand. */
+  TrackingNode(String nodeId, LocationRelay relay, long flushIntervalMillis) {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    sessions = new WebSocketSessions(registry, 64, 512 * 1024, 10_000, 15_000);
+    binary = new BinaryLocationInterceptor(registry, 64);
+    broadcaster = new TopicBroadcaster(new ObjectMapper(), subscriptions, sessions, binary, registry);
+    StaticListableBeanFactory beans = new StaticListableBeanFactory();
+    if (relay != null) beans.addBean("relay", relay);
+    coalescer = new LocationCoalescer(broadcaster, subscriptions, registry, beans.getBeanProvider(LocationRelay.class),
+        flushIntervalMillis, nodeId, 500);
+    coalescer.start();
+    handler = sessions.decorate(new AbstractWebSocketHandler() {});
+  }
+
+  /** Opens a session subscribed to {@code destination}; each send takes {@code sendMillis}. */
+  void connect(String sessionId, String destination, long sendMillis) throws Exception {
+    WebSocketSession ws = session(sessionId, sendMillis, delivered);
+    handler.afterConnectionEstablished(ws);
+    StompHeaderAccessor h = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+    h.setSessionId(sessionId);
+    h.setSubscriptionId("sub-0");
+    h.setDestination(destination);
+    Message<byte[]> subscribe = MessageBuilder.createMessage(new byte[0], h.getMessageHeaders());
+    subscriptions.onSubscribe(new SessionSubscribeEvent(this, subscribe));
+  }
+
+  /** As {@link #connect}, for a raw-WebSocket client that asked for pgl1 frames on CONNECT. */
+  void connectBinary(String sessionId, String destination, long sendMillis) throws Exception {
+    StompHeaderAccessor h = StompHeaderAccessor.create(StompCommand.CONNECT);
+    h.setSessionId(sessionId);
+    h.setNativeHeader(BinaryLocationInterceptor.FORMAT_HEADER, LocationFrameCodec.FORMAT);
+    Map<String, Object> attributes = new HashMap<>();
+    attributes.put(RawWebSocketHandshakeInterceptor.RAW_WEBSOCKET_ATTR, Boolean.TRUE);
+    h.setSessionAttributes(attributes);
+    binary.preSend(MessageBuilder.createMessage(new byte[0], h.getMessageHeaders()), null);
+    connect(sessionId, destination, sendMillis);
+  }
+
+  void close() throws Exception {
+    coalescer.stop();
+    sessions.stop();
+  }
+
+  /** An open in-memory session that counts the messages sent to it; each send takes {@code sendMillis}. */
+  static WebSocketSession session(String sessionId, long sendMillis, AtomicLong delivered) {
+    AtomicBoolean open = new AtomicBoolean(true);
+    Map<String, Object> attributes = new HashMap<>();
+    return (WebSocketSession) Proxy.newProxyInstance(WebSocketSession.class.getClassLoader(),
+        new Class<?>[] {WebSocketSession.class}, (proxy, m, args) -> switch (m.getName()) {
+          case "getId" -> sessionId;
+          case "isOpen" -> open.get();
+          case "getAttributes" -> attributes;
+          case "sendMessage" -> {
+            if (sendMillis > 0) Thread.sleep(sendMillis);
+            delivered.incrementAndGet();
+            yield null;
+          }
+          case "close" -> {
+            open.set(false);
+            yield null;
+          }
+          case "hashCode" -> System.identityHashCode(proxy);
+          case "equals" -> proxy == args[0];
+          case "toString" -> "bench-session-" + sessionId;
+          default -> m.getReturnType() == int.class ? 0 : m.getReturnType() == boolean.class ? false : null;
+        });
+  }
+}
@@ -0,0 +1,91 @@
+package com.parcelgo.user.service;
+
+import com.parcelgo.user.domain.AddressComponent;
+import com.parcelgo.user.domain.Driver;
+import com.parcelgo.user.domain.DriverSchedule;
+import com.parcelgo.user.repo.DriverRepo;
+import com.parcelgo.user.repo.DriverScheduleRepo;
+import com.parcelgo.user.web.dto.DriverResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code GET /drivers/{id}} minus the database: stub repositories hand back a driver with both
+ * addresses and a full week of schedule rows, so the time is {@code DriverService.toResponse}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DriverServiceBenchmark {
+
+  private DriverService service;
+
+  @Setup
+  public void setup() {
+    Driver d = new Driver();
+    d.setId(7L);
+    d.setName("Ravi Kumar");
+    d.setEmail("ravi.kumar@example.com");
+    d.setPhone("+91 98450 12345");
+    d.setVehicleRegistration("KA01AB1234");
+    d.setMaxWeightKg(20);
+    d.setStartAddress(address("12, MG Road", 12.9716, 77.5946));
+    d.setEndAddress(address("221, 80 Feet Road", 12.93, 77.62));
+    List<DriverSchedule> rows = new ArrayList<>();
+    for (int day = 1; day <= 7; day++) {
+      DriverSchedule s = new DriverSchedule();
+      s.setDriver(d);
+      s.setDayOfWeek(day);
+      s.setEnabled(day < 7);
+      s.setStartTime(LocalTime.of(9, 0));
+      s.setEndTime(LocalTime.of(18, 30));
+      rows.add(s);
+    }
+    DriverRepo drivers = stub(DriverRepo.class, "findById", Optional.of(d));
+    DriverScheduleRepo schedules = stub(DriverScheduleRepo.class, "findByDriverId", rows);
+    service = new DriverService(drivers, schedules);
+  }
+
+  private static AddressComponent address(String line1, double lat, double lng) {
+    AddressComponent a = new AddressComponent();
+    a.setLine1(line1);
+    a.setCity("Bengaluru");
+    a.setState("Karnataka");
+    a.setPostalCode("560001");
+    a.setCountry("IN");
+    a.setLatitude(lat);
+    a.setLongitude(lng);
+    return a;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T stub(Class<T> type, String method, Object result) {
+    return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, m, args) -> {
+      if (m.getName().equals(method)) return result;
+      throw new UnsupportedOperationException(m.getName());
+    });
+  }
+
+  @Benchmark
+  public DriverResponse toResponse() {
+    return service.get(7L);
+  }
+}
@@ -1,2 +1,3 @@
 CREATE DATABASE userdb;
 CREATE DATABASE orderdb;
+CREATE DATABASE schedulingdb;
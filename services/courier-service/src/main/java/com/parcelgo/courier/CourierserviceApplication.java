@@ -2,8 +2,10 @@ package com.parcelgo.courier;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class CourierserviceApplication {
   public static void main(String[] args) { SpringApplication.run(CourierserviceApplication.class, args); }
 }
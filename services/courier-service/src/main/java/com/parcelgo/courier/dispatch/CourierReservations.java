@@ -0,0 +1,127 @@
+package com.parcelgo.courier.dispatch;
+
+import com.parcelgo.courier.domain.CourierAvailability;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.parcelgo.courier.domain.CourierAvailability.*;
+
+/**
+ * Per-courier availability state machine for dispatch.
+ *
+ * Every courier has its own {@link AtomicReference} holding a {@link Reservation} snapshot, and all
+ * transitions are compare-and-set loops on that reference. Two dispatchers racing for the same courier
+ * contend only on that courier's reference: exactly one CAS wins, the other sees RESERVED and gets a
+ * conflict. Reservations carry a lease; an expired lease is treated as AVAILABLE and can be taken
+ * over without waiting for the sweeper.
+ */
+@Component
+public class CourierReservations {
+
+  /** Outcome of a transition attempt, with the snapshot current after it. */
+  public record Result(boolean ok, Reservation current) {}
+
+  private final ConcurrentHashMap<Long, AtomicReference<Reservation>> states = new ConcurrentHashMap<>();
+  private final long defaultLeaseMillis;
+  private final long maxLeaseMillis;
+
+  private final Counter reserved;
+  private final Counter conflicts;
+  private final Counter expired;
+
+  public CourierReservations(MeterRegistry registry,
+                             @Value("${parcelgo.courier.dispatch.default-lease-ms:30000}") long defaultLeaseMillis,
+                             @Value("${parcelgo.courier.dispatch.max-lease-ms:300000}") long maxLeaseMillis) {
+    this.defaultLeaseMillis = defaultLeaseMillis;
+    this.maxLeaseMillis = maxLeaseMillis;
+    this.reserved = Counter.builder("courier.reservations").tag("result", "reserved").register(registry);
+    this.conflicts = Counter.builder("courier.reservations").tag("result", "conflict").register(registry);
+    this.expired = Counter.builder("courier.reservations").tag("result", "expired").register(registry);
+  }
+
+  public Reservation get(long courierId) {
+    AtomicReference<Reservation> ref = states.get(courierId);
+    return ref == null ? Reservation.available(courierId) : ref.get();
+  }
+
+  public boolean isAvailable(long courierId) {
+    return get(courierId).effectiveState(System.currentTimeMillis()) == AVAILABLE;
+  }
+
+  /**
+   * AVAILABLE (or RESERVED with a lapsed lease) -> RESERVED for {@code orderId}. Re-reserving for the
+   * same order extends the lease.
+   */
+  public Result reserve(long courierId, long orderId, Long leaseMillis) {
+    long lease = (leaseMillis == null || leaseMillis <= 0) ? defaultLeaseMillis : Math.min(leaseMillis, maxLeaseMillis);
+    AtomicReference<Reservation> ref = ref(courierId);
+    while (true) {
+      Reservation cur = ref.get();
+      long now = System.currentTimeMillis();
+      boolean free = cur.effectiveState(now) == AVAILABLE;
+      boolean renew = cur.state() == RESERVED && Objects.equals(cur.orderId(), orderId);
+      if (!free && !renew) {
+        conflicts.increment();
+        return new Result(false, cur);
+      }
+      Reservation next = new Reservation(courierId, RESERVED, orderId, now + lease);
+      if (ref.compareAndSet(cur, next)) {
+        reserved.increment();
+        return new Result(true, next);
+      }
+    }
+  }
+
+  /** RESERVED for {@code orderId} with a live lease -> ON_TRIP. */
+  public Result startTrip(long courierId, long orderId) {
+    AtomicReference<Reservation> ref = ref(courierId);
+    while (true) {
+      Reservation cur = ref.get();
+      if (cur.state() == ON_TRIP && Objects.equals(cur.orderId(), orderId)) return new Result(true, cur);
+      if (cur.effectiveState(System.currentTimeMillis()) != RESERVED || !Objects.equals(cur.orderId(), orderId)) {
+        return new Result(false, cur);
+      }
+      Reservation next = new Reservation(courierId, ON_TRIP, orderId, 0L);
+      if (ref.compareAndSet(cur, next)) return new Result(true, next);
+    }
+  }
+
+  /** RESERVED or ON_TRIP for {@code orderId} -> AVAILABLE (cancel, or trip completed). */
+  public Result release(long courierId, long orderId) {
+    AtomicReference<Reservation> ref = ref(courierId);
+    while (true) {
+      Reservation cur = ref.get();
+      if (cur.state() == AVAILABLE || !Objects.equals(cur.orderId(), orderId)) return new Result(false, cur);
+      Reservation next = Reservation.available(courierId);
+      if (ref.compareAndSet(cur, next)) return new Result(true, next);
+    }
+  }
+
+  /** Resets lapsed leases so state reads and metrics reflect reality even if nobody re-reserves. */
+  @Scheduled(fixedDelayString = "${parcelgo.courier.dispatch.sweep-interval-ms:5000}")
+  public void sweepExpired() {
+    long now = System.currentTimeMillis();
+    for (AtomicReference<Reservation> ref : states.values()) {
+      Reservation cur = ref.get();
+      if (cur.state() == RESERVED && cur.leaseExpiresAtMillis() <= now
+          && ref.compareAndSet(cur, Reservation.available(cur.courierId()))) {
+        expired.increment();
+      }
+    }
+  }
+
+  public CourierAvailability state(long courierId) {
+    return get(courierId).effectiveState(System.currentTimeMillis());
+  }
+
+  private AtomicReference<Reservation> ref(long courierId) {
+    return states.computeIfAbsent(courierId, id -> new AtomicReference<>(Reservation.available(id)));
+  }
+}
@@ -0,0 +1,19 @@
+package com.parcelgo.courier.dispatch;
+
+import com.parcelgo.courier.domain.CourierAvailability;
+
+/**
+ * Immutable snapshot of one courier's dispatch state. Transitions swap whole snapshots with CAS, so
+ * state, order and lease always change together.
+ */
+public record Reservation(long courierId, CourierAvailability state, Long orderId, long leaseExpiresAtMillis) {
+
+  static Reservation available(long courierId) {
+    return new Reservation(courierId, CourierAvailability.AVAILABLE, null, 0L);
+  }
+
+  /** A RESERVED lease that ran out counts as AVAILABLE. */
+  public CourierAvailability effectiveState(long now) {
+    return (state == CourierAvailability.RESERVED && leaseExpiresAtMillis <= now) ? CourierAvailability.AVAILABLE : state;
+  }
+}
@@ -0,0 +1,8 @@
+package com.parcelgo.courier.domain;
+
+/** Dispatch state of a courier: AVAILABLE -> RESERVED -> ON_TRIP -> AVAILABLE. */
+public enum CourierAvailability {
+  AVAILABLE,
+  RESERVED,
+  ON_TRIP
+}
@@ -0,0 +1,4 @@
+package com.parcelgo.courier.domain;
+
+/** Last known position of a courier. Immutable so index readers never see a half-written fix. */
+public record CourierPosition(long courierId, String vehicle, double lat, double lng, long updatedAtMillis) {}
@@ -0,0 +1,227 @@
+package com.parcelgo.courier.geo;
+
+import com.parcelgo.courier.domain.CourierPosition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongPredicate;
+
+/**
+ * In-memory uniform-grid index of live courier positions.
+ *
+ * Couriers are bucketed into square cells of {@code cellDeg} degrees. Writers for the same courier are
+ * serialized on a striped lock so a move between cells is never interleaved with another ping of that
+ * courier; writers for different couriers and all readers run in parallel. Readers are lock-free and
+ * may briefly see a moving courier in both cells, so every hit is checked against {@code byId} and
+ * deduplicated by construction.
+ */
+@Component
+public class CourierGeoIndex {
+
+  public record Hit(CourierPosition position, double distanceKm) {}
+
+  private static final Comparator<Hit> BY_DISTANCE = Comparator.comparingDouble(Hit::distanceKm);
+
+  private final double cellDeg;
+  private final long staleAfterMillis;
+  private final double maxRadiusKm;
+  private final Object[] stripes;
+
+  private final ConcurrentHashMap<Long, CourierPosition> byId = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<Long, Map<Long, CourierPosition>> cells = new ConcurrentHashMap<>();
+
+  public CourierGeoIndex(@Value("${parcelgo.courier.geo.cell-deg:0.01}") double cellDeg,
+                         @Value("${parcelgo.courier.geo.stale-after-ms:120000}") long staleAfterMillis,
+                         @Value("${parcelgo.courier.geo.max-radius-km:25}") double maxRadiusKm,
+                         @Value("${parcelgo.courier.geo.lock-stripes:64}") int lockStripes) {
+    if (cellDeg <= 0 || maxRadiusKm <= 0 || lockStripes <= 0) {
+      throw new IllegalArgumentException("cell-deg, max-radius-km and lock-stripes must be positive");
+    }
+    this.cellDeg = cellDeg;
+    this.staleAfterMillis = staleAfterMillis;
+    this.maxRadiusKm = maxRadiusKm;
+    this.stripes = new Object[Integer.highestOneBit(Math.max(1, lockStripes - 1)) << 1];
+    for (int i = 0; i < stripes.length; i++) stripes[i] = new Object();
+  }
+
+  // ---------- writes ----------
+
+  /** Applies a position fix. Returns false when the fix is older than the one already indexed. */
+  public boolean update(CourierPosition p) {
+    long id = p.courierId();
+    CourierPosition next = new CourierPosition(id, normalizeVehicle(p.vehicle()), p.lat(), p.lng(), p.updatedAtMillis());
+    synchronized (stripe(id)) {
+      CourierPosition prev = byId.get(id);
+      if (prev != null && prev.updatedAtMillis() > next.updatedAtMillis()) return false;
+      long cell = cellKey(next.lat(), next.lng());
+      if (prev != null) {
+        long prevCell = cellKey(prev.lat(), prev.lng());
+        if (prevCell != cell) removeFromCell(prevCell, id);
+      }
+      cells.compute(cell, (k, m) -> {
+        if (m == null) m = new ConcurrentHashMap<>();
+        m.put(id, next);
+        return m;
+      });
+      byId.put(id, next);
+      return true;
+    }
+  }
+
+  public void remove(long courierId) {
+    synchronized (stripe(courierId)) {
+      CourierPosition prev = byId.remove(courierId);
+      if (prev != null) removeFromCell(cellKey(prev.lat(), prev.lng()), courierId);
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${parcelgo.courier.geo.evict-interval-ms:30000}")
+  public void evictStale() {
+    long cutoff = System.currentTimeMillis() - staleAfterMillis;
+    for (CourierPosition p : byId.values()) {
+      if (p.updatedAtMillis() >= cutoff) continue;
+      synchronized (stripe(p.courierId())) {
+        if (byId.get(p.courierId()) == p) {
+          byId.remove(p.courierId());
+          removeFromCell(cellKey(p.lat(), p.lng()), p.courierId());
+        }
+      }
+    }
+  }
+
+  // ---------- reads ----------
+
+  public CourierPosition get(long courierId) { return byId.get(courierId); }
+
+  public int size() { return byId.size(); }
+
+  /** All live couriers within {@code radiusKm}, nearest first, at most {@code limit} of them. */
+  public List<Hit> withinRadius(double lat, double lng, double radiusKm, Collection<String> vehicles, int limit) {
+    return withinRadius(lat, lng, radiusKm, vehicles, null, limit);
+  }
+
+  /** As above, additionally keeping only couriers whose id passes {@code courierFilter} (may be null). */
+  public List<Hit> withinRadius(double lat, double lng, double radiusKm, Collection<String> vehicles,
+                                LongPredicate courierFilter, int limit) {
+    double r = Math.min(radiusKm, maxRadiusKm);
+    Set<String> filter = normalizeFilter(vehicles);
+    long cutoff = System.currentTimeMillis() - staleAfterMillis;
+
+    double dLat = r / GeoMath.KM_PER_DEG_LAT;
+    double dLng = r / GeoMath.kmPerDegLng(Math.abs(lat) + dLat);
+    int latLo = index(lat - dLat), latHi = index(lat + dLat);
+    int lngLo = index(lng - dLng), lngHi = index(lng + dLng);
+
+    List<Hit> out = new ArrayList<>();
+    for (int i = latLo; i <= latHi; i++) {
+      for (int j = lngLo; j <= lngHi; j++) {
+        Map<Long, CourierPosition> cell = cells.get(pack(i, j));
+        if (cell == null) continue;
+        for (CourierPosition p : cell.values()) {
+          if (!accept(p, filter, courierFilter, cutoff)) continue;
+          double d = GeoMath.haversineKm(lat, lng, p.lat(), p.lng());
+          if (d <= r) out.add(new Hit(p, d));
+        }
+      }
+    }
+    out.sort(BY_DISTANCE);
+    return out.size() > limit ? new ArrayList<>(out.subList(0, limit)) : out;
+  }
+
+  /**
+   * The {@code k} nearest live couriers within the configured max radius, nearest first.
+   * Searches rings of cells outwards from the query cell and stops as soon as no unvisited ring
+   * can hold anything closer than the current k-th hit.
+   */
+  public List<Hit> nearest(double lat, double lng, int k, Collection<String> vehicles) {
+    return nearest(lat, lng, k, vehicles, null);
+  }
+
+  public List<Hit> nearest(double lat, double lng, int k, Collection<String> vehicles, LongPredicate courierFilter) {
+    Set<String> filter = normalizeFilter(vehicles);
+    long cutoff = System.currentTimeMillis() - staleAfterMillis;
+
+    // conservative (smallest) cell edge in km over the whole search area
+    double cellKm = cellDeg * Math.min(GeoMath.KM_PER_DEG_LAT,
+        GeoMath.kmPerDegLng(Math.abs(lat) + maxRadiusKm / GeoMath.KM_PER_DEG_LAT));
+    int maxRing = (int) Math.ceil(maxRadiusKm / cellKm) + 1;
+    int ci = index(lat), cj = index(lng);
+
+    PriorityQueue<Hit> heap = new PriorityQueue<>(k + 1, BY_DISTANCE.reversed());
+    for (int ring = 0; ring <= maxRing; ring++) {
+      if (heap.size() == k && (ring - 1) * cellKm > heap.peek().distanceKm()) break;
+      for (int i = ci - ring; i <= ci + ring; i++) {
+        boolean edgeRow = i == ci - ring || i == ci + ring;
+        int step = edgeRow ? 1 : Math.max(1, 2 * ring);
+        for (int j = cj - ring; j <= cj + ring; j += step) {
+          Map<Long, CourierPosition> cell = cells.get(pack(i, j));
+          if (cell == null) continue;
+          for (CourierPosition p : cell.values()) {
+            if (!accept(p, filter, courierFilter, cutoff)) continue;
+            double d = GeoMath.haversineKm(lat, lng, p.lat(), p.lng());
+            if (d > maxRadiusKm) continue;
+            if (heap.size() < k) {
+              heap.add(new Hit(p, d));
+            } else if (d < heap.peek().distanceKm()) {
+              heap.poll();
+              heap.add(new Hit(p, d));
+            }
+          }
+        }
+      }
+    }
+    List<Hit> out = new ArrayList<>(heap);
+    out.sort(BY_DISTANCE);
+    return out;
+  }
+
+  // ---- helpers ----
+
+  private boolean accept(CourierPosition p, Set<String> filter, LongPredicate courierFilter, long cutoff) {
+    if (p.updatedAtMillis() < cutoff) return false;
+    if (filter != null && !filter.contains(p.vehicle())) return false;
+    // the cell copy may be a stale leftover of an in-flight move
+    if (byId.get(p.courierId()) != p) return false;
+    return courierFilter == null || courierFilter.test(p.courierId());
+  }
+
+  private void removeFromCell(long cell, long courierId) {
+    cells.computeIfPresent(cell, (k, m) -> {
+      m.remove(courierId);
+      return m.isEmpty() ? null : m;
+    });
+  }
+
+  private Object stripe(long courierId) {
+    int h = Long.hashCode(courierId * 0x9E3779B97F4A7C15L);
+    return stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+  }
+
+  private int index(double deg) { return (int) Math.floor(deg / cellDeg); }
+
+  private long cellKey(double lat, double lng) { return pack(index(lat), index(lng)); }
+
+  private static long pack(int latIdx, int lngIdx) { return ((long) latIdx << 32) | (lngIdx & 0xffffffffL); }
+
+  static String normalizeVehicle(String v) {
+    return (v == null || v.isBlank()) ? "unknown" : v.trim().toLowerCase(Locale.ROOT);
+  }
+
+  private static Set<String> normalizeFilter(Collection<String> vehicles) {
+    if (vehicles == null || vehicles.isEmpty()) return null;
+    Set<String> out = new HashSet<>();
+    for (String v : vehicles) if (v != null && !v.isBlank()) out.add(normalizeVehicle(v));
+    return out.isEmpty() ? null : out;
+  }
+}
@@ -0,0 +1,22 @@
+package com.parcelgo.courier.geo;
+
+public final class GeoMath {
+  public static final double EARTH_RADIUS_KM = 6371.0;
+  public static final double KM_PER_DEG_LAT = 111.32;
+
+  private GeoMath() {}
+
+  public static double haversineKm(double lat1, double lng1, double lat2, double lng2) {
+    double dLat = Math.toRadians(lat2 - lat1);
+    double dLon = Math.toRadians(lng2 - lng1);
+    double sLat = Math.sin(dLat / 2);
+    double sLon = Math.sin(dLon / 2);
+    double a = sLat * sLat + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * sLon * sLon;
+    return 2 * EARTH_RADIUS_KM * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+  }
+
+  /** Km covered by one degree of longitude at the given latitude (never below a small floor near the poles). */
+  public static double kmPerDegLng(double lat) {
+    return Math.max(KM_PER_DEG_LAT * Math.cos(Math.toRadians(Math.min(Math.abs(lat), 89.0))), 0.01);
+  }
+}
@@ -0,0 +1,154 @@
+package com.parcelgo.courier.ingest;
+
+import com.parcelgo.courier.domain.CourierPosition;
+import com.parcelgo.courier.geo.CourierGeoIndex;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Decouples HTTP ping ingestion from index updates.
+ *
+ * Request threads only validate and enqueue into one of {@code workers} ring buffers, sharded by
+ * courier id so pings of one courier stay ordered. Each shard has a dedicated worker thread that drains
+ * up to {@code batchSize} pings at a time, keeps only the newest fix per courier in the batch and
+ * applies the survivors to {@link CourierGeoIndex}. A full ring rejects instead of blocking, so a
+ * burst never ties up servlet threads.
+ */
+@Component
+public class LocationIngestor {
+
+  private static final Logger log = LoggerFactory.getLogger(LocationIngestor.class);
+  /**
+   * An idle worker sleeps until {@link #offer} unparks it; the timeout is only a backstop should a wakeup
+   * ever be lost, not a polling interval.
+   */
+  private static final long IDLE_PARK_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private final CourierGeoIndex index;
+  private final int batchSize;
+  private final Shard[] shards;
+
+  private final Counter received;
+  private final Counter droppedFull;
+  private final Counter applied;
+  private final Counter coalesced;
+  private final Counter outOfOrder;
+  private final DistributionSummary batchSizes;
+
+  private volatile boolean running;
+
+  public LocationIngestor(CourierGeoIndex index, MeterRegistry registry,
+                          @Value("${parcelgo.courier.ingest.workers:2}") int workers,
+                          @Value("${parcelgo.courier.ingest.ring-capacity:65536}") int ringCapacity,
+                          @Value("${parcelgo.courier.ingest.batch-size:512}") int batchSize) {
+    if (workers <= 0 || batchSize <= 0) throw new IllegalArgumentException("workers and batch-size must be positive");
+    this.index = index;
+    this.batchSize = batchSize;
+    this.shards = new Shard[workers];
+    for (int i = 0; i < workers; i++) {
+      Shard s = new Shard(i, new MpscRingBuffer<>(ringCapacity));
+      shards[i] = s;
+      Gauge.builder("courier.ingest.queue.depth", s.ring, MpscRingBuffer::size)
+          .tag("shard", Integer.toString(i))
+          .description("Pings waiting to be applied")
+          .register(registry);
+    }
+    Gauge.builder("courier.ingest.queue.depth.total", this, LocationIngestor::queueDepth).register(registry);
+    Gauge.builder("courier.index.size", index, CourierGeoIndex::size)
+        .description("Live couriers in the geo index").register(registry);
+
+    this.received = Counter.builder("courier.ingest.pings").tag("result", "accepted").register(registry);
+    this.droppedFull = Counter.builder("courier.ingest.pings").tag("result", "dropped_full").register(registry);
+    this.applied = Counter.builder("courier.ingest.applied").tag("result", "applied").register(registry);
+    this.coalesced = Counter.builder("courier.ingest.applied").tag("result", "coalesced").register(registry);
+    this.outOfOrder = Counter.builder("courier.ingest.applied").tag("result", "out_of_order").register(registry);
+    this.batchSizes = DistributionSummary.builder("courier.ingest.batch.size").register(registry);
+  }
+
+  /** Enqueues one ping. Returns false when the owning shard is full and the ping was shed. */
+  public boolean offer(CourierPosition p) {
+    Shard s = shards[Math.floorMod(Long.hashCode(p.courierId()), shards.length)];
+    if (!s.ring.offer(p)) {
+      droppedFull.increment();
+      return false;
+    }
+    received.increment();
+    if (s.idle) LockSupport.unpark(s.thread);
+    return true;
+  }
+
+  public int queueDepth() {
+    int n = 0;
+    for (Shard s : shards) n += s.ring.size();
+    return n;
+  }
+
+  @PostConstruct
+  void start() {
+    running = true;
+    for (Shard s : shards) {
+      s.thread = new Thread(() -> runShard(s), "loc-ingest-" + s.id);
+      s.thread.setDaemon(true);
+      s.thread.start();
+    }
+  }
+
+  @PreDestroy
+  void stop() throws InterruptedException {
+    running = false;
+    for (Shard s : shards) {
+      LockSupport.unpark(s.thread);
+      s.thread.join(TimeUnit.SECONDS.toMillis(5));
+    }
+  }
+
+  private void runShard(Shard s) {
+    Map<Long, CourierPosition> latest = new HashMap<>();
+    while (running || s.ring.size() > 0) {
+      int n;
+      try {
+        n = s.ring.drain(p -> latest.merge(p.courierId(), p,
+            (a, b) -> a.updatedAtMillis() >= b.updatedAtMillis() ? a : b), batchSize);
+        if (n > 0) {
+          for (CourierPosition p : latest.values()) {
+            if (index.update(p)) applied.increment(); else outOfOrder.increment();
+          }
+          coalesced.increment(n - latest.size());
+          batchSizes.record(n);
+        }
+      } catch (RuntimeException e) {
+        log.warn("location batch failed on shard {}", s.id, e);
+        n = 0;
+      } finally {
+        latest.clear();
+      }
+      if (n == 0) {
+        s.idle = true;
+        if (s.ring.size() == 0 && running) LockSupport.parkNanos(IDLE_PARK_NANOS);
+        s.idle = false;
+      }
+    }
+  }
+
+  private static final class Shard {
+    final int id;
+    final MpscRingBuffer<CourierPosition> ring;
+    volatile boolean idle;
+    Thread thread;
+
+    Shard(int id, MpscRingBuffer<CourierPosition> ring) { this.id = id; this.ring = ring; }
+  }
+}
@@ -0,0 +1,59 @@
+package com.parcelgo.courier.ingest;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Bounded multi-producer / single-consumer ring buffer.
+ *
+ * Producers claim a slot by CAS on {@code tail} and then publish the element into it; the single
+ * consumer walks from {@code head} and stops at the first slot that is claimed but not yet published.
+ * {@link #offer} never blocks: a full ring is reported to the caller so it can shed load.
+ */
+final class MpscRingBuffer<E> {
+
+  private final AtomicReferenceArray<E> slots;
+  private final int mask;
+  private final AtomicLong tail = new AtomicLong();
+  private final AtomicLong head = new AtomicLong();
+
+  MpscRingBuffer(int capacity) {
+    if (capacity < 2) throw new IllegalArgumentException("capacity must be >= 2");
+    int size = Integer.highestOneBit(capacity - 1) << 1;
+    this.slots = new AtomicReferenceArray<>(size);
+    this.mask = size - 1;
+  }
+
+  boolean offer(E e) {
+    while (true) {
+      long t = tail.get();
+      if (t - head.get() > mask) return false;
+      if (tail.compareAndSet(t, t + 1)) {
+        slots.lazySet((int) t & mask, e);
+        return true;
+      }
+    }
+  }
+
+  /** Consumer only. Hands at most {@code max} elements to {@code sink} and returns how many it took. */
+  int drain(Consumer<? super E> sink, int max) {
+    long h = head.get();
+    int n = 0;
+    while (n < max) {
+      int i = (int) h & mask;
+      E e = slots.get(i);
+      if (e == null) break;
+      slots.lazySet(i, null);
+      h++;
+      n++;
+      sink.accept(e);
+    }
+    if (n > 0) head.lazySet(h);
+    return n;
+  }
+
+  int size() { return (int) Math.max(0, tail.get() - head.get()); }
+
+  int capacity() { return mask + 1; }
+}
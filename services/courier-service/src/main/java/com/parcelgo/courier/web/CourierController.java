@@ -1,22 +1,70 @@
 package com.parcelgo.courier.web;
 
+import com.parcelgo.courier.dispatch.CourierReservations;
+import com.parcelgo.courier.geo.CourierGeoIndex;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.LongPredicate;
+
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
 
 @RestController
 @RequestMapping("/couriers")
 public class CourierController {
 
+  private static final int MAX_LIMIT = 100;
+
+  private final CourierGeoIndex index;
+  private final CourierReservations reservations;
+  public CourierController(CourierGeoIndex index, CourierReservations reservations){
+    this.index = index;
+    this.reservations = reservations;
+  }
+
+  /**
+   * Live couriers around a point, nearest first. With {@code radiusKm} every courier inside the
+   * radius is returned (capped at {@code limit}); without it the {@code limit} nearest ones are.
+   * {@code availableOnly} skips couriers that are reserved or on a trip.
+   */
   @GetMapping("/nearby")
-  public List<Map<String,Object>> nearby(@RequestParam double lat, @RequestParam double lng){
-    return List.of(
-      Map.of("id", 1, "vehicle", "bike", "lat", lat+0.001, "lng", lng+0.001),
-      Map.of("id", 2, "vehicle", "car", "lat", lat-0.001, "lng", lng-0.001)
-    );
+  public List<Map<String,Object>> nearby(@RequestParam double lat, @RequestParam double lng,
+                                         @RequestParam(required = false) Double radiusKm,
+                                         @RequestParam(defaultValue = "10") int limit,
+                                         @RequestParam(required = false) List<String> vehicle,
+                                         @RequestParam(defaultValue = "false") boolean availableOnly){
+    if (lat < -90 || lat > 90 || lng < -180 || lng > 180) {
+      throw new ResponseStatusException(BAD_REQUEST, "lat/lng out of range");
+    }
+    if (limit < 1 || limit > MAX_LIMIT) {
+      throw new ResponseStatusException(BAD_REQUEST, "limit must be between 1 and " + MAX_LIMIT);
+    }
+    if (radiusKm != null && radiusKm <= 0) {
+      throw new ResponseStatusException(BAD_REQUEST, "radiusKm must be positive");
+    }
+
+    LongPredicate filter = availableOnly ? reservations::isAvailable : null;
+    List<CourierGeoIndex.Hit> hits = (radiusKm != null)
+        ? index.withinRadius(lat, lng, radiusKm, vehicle, filter, limit)
+        : index.nearest(lat, lng, limit, vehicle, filter);
+
+    List<Map<String,Object>> out = new ArrayList<>(hits.size());
+    for (CourierGeoIndex.Hit h : hits) {
+      out.add(Map.of(
+        "id", h.position().courierId(),
+        "vehicle", h.position().vehicle(),
+        "lat", h.position().lat(),
+        "lng", h.position().lng(),
+        "distanceKm", h.distanceKm(),
+        "updatedAt", h.position().updatedAtMillis()
+      ));
+    }
+    return out;
   }
 }
@@ -0,0 +1,49 @@
+package com.parcelgo.courier.web;
+
+import com.parcelgo.courier.dispatch.CourierReservations;
+import com.parcelgo.courier.dispatch.Reservation;
+import com.parcelgo.courier.web.dto.ReservationRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.CONFLICT;
+
+@RestController
+@RequestMapping("/couriers/{id}")
+public class DispatchController {
+
+  private final CourierReservations reservations;
+  public DispatchController(CourierReservations reservations){ this.reservations = reservations; }
+
+  @GetMapping("/availability")
+  public Reservation availability(@PathVariable long id){
+    return reservations.get(id);
+  }
+
+  /** 200 with the reservation, or 409 with the holder's snapshot when someone else got there first. */
+  @PostMapping("/reserve")
+  public ResponseEntity<Reservation> reserve(@PathVariable long id, @RequestBody ReservationRequest req){
+    return toResponse(reservations.reserve(id, orderId(req), req.leaseMs));
+  }
+
+  @PostMapping("/start")
+  public ResponseEntity<Reservation> start(@PathVariable long id, @RequestBody ReservationRequest req){
+    return toResponse(reservations.startTrip(id, orderId(req)));
+  }
+
+  @PostMapping("/release")
+  public ResponseEntity<Reservation> release(@PathVariable long id, @RequestBody ReservationRequest req){
+    return toResponse(reservations.release(id, orderId(req)));
+  }
+
+  private static long orderId(ReservationRequest req){
+    if (req == null || req.orderId == null) throw new ResponseStatusException(BAD_REQUEST, "orderId is required");
+    return req.orderId;
+  }
+
+  private static ResponseEntity<Reservation> toResponse(CourierReservations.Result r){
+    return r.ok() ? ResponseEntity.ok(r.current()) : ResponseEntity.status(CONFLICT).body(r.current());
+  }
+}
@@ -0,0 +1,60 @@
+package com.parcelgo.courier.web;
+
+import com.parcelgo.courier.domain.CourierPosition;
+import com.parcelgo.courier.ingest.LocationIngestor;
+import com.parcelgo.courier.web.dto.LocationPing;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+
+@RestController
+@RequestMapping("/couriers")
+public class LocationController {
+
+  private static final int MAX_BATCH = 5000;
+
+  private final LocationIngestor ingestor;
+  public LocationController(LocationIngestor ingestor){ this.ingestor = ingestor; }
+
+  // ---------- BATCH (gateways / device buffers) ----------
+  @PostMapping("/locations")
+  @ResponseStatus(HttpStatus.ACCEPTED)
+  public Map<String,Object> ingestBatch(@RequestBody List<LocationPing> pings){
+    if (pings.size() > MAX_BATCH) {
+      throw new ResponseStatusException(BAD_REQUEST, "at most " + MAX_BATCH + " pings per batch");
+    }
+    long now = System.currentTimeMillis();
+    int accepted = 0, invalid = 0, dropped = 0;
+    for (LocationPing p : pings) {
+      if (p == null || p.courierId == null || !valid(p)) { invalid++; continue; }
+      if (ingestor.offer(toPosition(p.courierId, p, now))) accepted++; else dropped++;
+    }
+    return Map.of("accepted", accepted, "invalid", invalid, "dropped", dropped);
+  }
+
+  // ---------- SINGLE PING ----------
+  @PostMapping("/{id}/location")
+  @ResponseStatus(HttpStatus.ACCEPTED)
+  public void ingestOne(@PathVariable long id, @RequestBody LocationPing p){
+    if (!valid(p)) throw new ResponseStatusException(BAD_REQUEST, "lat/lng missing or out of range");
+    if (!ingestor.offer(toPosition(id, p, System.currentTimeMillis()))) {
+      throw new ResponseStatusException(SERVICE_UNAVAILABLE, "location queue full, retry later");
+    }
+  }
+
+  private static boolean valid(LocationPing p){
+    return p.lat != null && p.lng != null
+        && p.lat >= -90 && p.lat <= 90 && p.lng >= -180 && p.lng <= 180;
+  }
+
+  private static CourierPosition toPosition(long courierId, LocationPing p, long now){
+    long ts = (p.ts == null || p.ts > now) ? now : p.ts;
+    return new CourierPosition(courierId, p.vehicle, p.lat, p.lng, ts);
+  }
+}
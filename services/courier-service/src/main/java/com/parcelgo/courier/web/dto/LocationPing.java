@@ -0,0 +1,9 @@
+package com.parcelgo.courier.web.dto;
+
+public class LocationPing {
+  public Long courierId;
+  public String vehicle;   // bike|scooter|car|van...
+  public Double lat;
+  public Double lng;
+  public Long ts;          // epoch millis from the device; server time when absent
+}
@@ -0,0 +1,6 @@
+package com.parcelgo.courier.web.dto;
+
+public class ReservationRequest {
+  public Long orderId;
+  public Long leaseMs;   // optional; server default when absent
+}
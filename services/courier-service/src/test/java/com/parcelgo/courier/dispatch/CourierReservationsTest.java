@@ -0,0 +1,100 @@
+package com.parcelgo.courier.dispatch;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Many dispatchers racing over a handful of couriers: every won reservation is recorded as the
+ * courier's holder, and a second holder at any moment is a double booking.
+ */
+class CourierReservationsTest {
+
+  private static final int THREADS = 16;
+  private static final int COURIERS = 4;
+  private static final int ATTEMPTS_PER_THREAD = 50_000;
+
+  @Test
+  void neverDoubleBooksACourier() throws Exception {
+    CourierReservations reservations = new CourierReservations(new SimpleMeterRegistry(), 60_000, 300_000);
+    // 0 = free, otherwise the order currently holding the courier
+    AtomicLongArray holder = new AtomicLongArray(COURIERS);
+    AtomicLong doubleBooked = new AtomicLong();
+    AtomicLong lostTransitions = new AtomicLong();
+    AtomicLong trips = new AtomicLong();
+    AtomicLong nextOrder = new AtomicLong(1);
+
+    ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<?>> workers = new ArrayList<>();
+    for (int t = 0; t < THREADS; t++) {
+      workers.add(pool.submit(() -> {
+        start.await();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+          int c = random.nextInt(COURIERS);
+          long order = nextOrder.getAndIncrement();
+          if (!reservations.reserve(c, order, null).ok()) continue;
+          if (!holder.compareAndSet(c, 0, order)) {
+            doubleBooked.incrementAndGet();
+            continue;
+          }
+          if (!reservations.startTrip(c, order).ok()) lostTransitions.incrementAndGet();
+          trips.incrementAndGet();
+          // step down before releasing: the next winner may take the courier the moment it is free
+          holder.compareAndSet(c, order, 0);
+          if (!reservations.release(c, order).ok()) lostTransitions.incrementAndGet();
+        }
+        return null;
+      }));
+    }
+    start.countDown();
+    for (Future<?> w : workers) w.get(2, TimeUnit.MINUTES);
+    pool.shutdown();
+
+    assertEquals(0, doubleBooked.get(), "courier held by two orders at once");
+    assertEquals(0, lostTransitions.get(), "a holder's start or release was refused");
+    assertTrue(trips.get() > 0, "no reservation ever won");
+    for (int c = 0; c < COURIERS; c++) assertTrue(reservations.isAvailable(c), "courier " + c + " left reserved");
+  }
+
+  @Test
+  void losersSeeTheWinnersOrder() throws Exception {
+    CourierReservations reservations = new CourierReservations(new SimpleMeterRegistry(), 60_000, 300_000);
+    int contenders = 64;
+    ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<CourierReservations.Result>> results = new ArrayList<>();
+    for (int o = 1; o <= contenders; o++) {
+      long order = o;
+      results.add(pool.submit(() -> {
+        start.await();
+        return reservations.reserve(7L, order, null);
+      }));
+    }
+    start.countDown();
+    List<CourierReservations.Result> done = new ArrayList<>();
+    for (Future<CourierReservations.Result> f : results) done.add(f.get(1, TimeUnit.MINUTES));
+    pool.shutdown();
+    Long winner = reservations.get(7L).orderId();
+    int winners = 0;
+    for (CourierReservations.Result r : done) {
+      if (r.ok()) winners++;
+      assertEquals(winner, r.current().orderId());
+    }
+    assertEquals(1, winners);
+  }
+}
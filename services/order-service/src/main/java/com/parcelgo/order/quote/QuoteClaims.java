@@ -0,0 +1,16 @@
+package com.parcelgo.order.quote;
+
+import java.math.BigDecimal;
+
+/** What pricing signed into a quote token. Coordinates are null when the quote had none. */
+public record QuoteClaims(long expiresAtEpochSecond,
+                          BigDecimal amount,
+                          String currency,
+                          double distanceKm,
+                          double weightKg,
+                          Double pickupLat, Double pickupLng,
+                          Double dropLat, Double dropLng,
+                          String vehicleType,
+                          String city,
+                          String promoCode) {
+}
@@ -0,0 +1,110 @@
+package com.parcelgo.order.quote;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.math.BigDecimal;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Verifies pricing-service quote tokens locally, so creating an order needs no call to pricing or
+ * routing. The layout is documented on pricing's {@code QuoteTokenSigner}; the MAC is the first 16
+ * bytes of HMAC-SHA256 over the payload. {@code previous-secret} keeps tokens signed before a secret
+ * rotation valid until they expire.
+ */
+@Component
+public class QuoteTokenVerifier {
+
+    private static final byte VERSION = 1;
+    private static final int MAC_BYTES = 16;
+
+    private final List<SecretKeySpec> keys = new ArrayList<>();
+
+    public QuoteTokenVerifier(@Value("${parcelgo.order.quote-token.secret}") String secret,
+                              @Value("${parcelgo.order.quote-token.previous-secret:}") String previousSecret) {
+        keys.add(key("parcelgo.order.quote-token.secret", secret));
+        if (!previousSecret.isBlank()) keys.add(key("parcelgo.order.quote-token.previous-secret", previousSecret));
+    }
+
+    /** Same floor as pricing's signer: a short secret makes forging a token a brute-force job. */
+    private static SecretKeySpec key(String property, String secret) {
+        if (secret.length() < 32) throw new IllegalArgumentException(property + " must be at least 32 characters");
+        return new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+    }
+
+    /** Claims of a genuine, unexpired token; 400 for anything forged or malformed, 422 once expired. */
+    public QuoteClaims verify(String token, long nowMillis) {
+        int dot = token.indexOf('.');
+        byte[] payload, tag;
+        try {
+            if (dot < 0) throw new IllegalArgumentException();
+            Base64.Decoder dec = Base64.getUrlDecoder();
+            payload = dec.decode(token.substring(0, dot));
+            tag = dec.decode(token.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "malformed quoteToken");
+        }
+        if (tag.length != MAC_BYTES || !authentic(payload, tag))
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "quoteToken signature invalid");
+
+        QuoteClaims claims;
+        try {
+            claims = decode(ByteBuffer.wrap(payload));
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "malformed quoteToken");
+        }
+        if (nowMillis / 1000 >= claims.expiresAtEpochSecond())
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, "quote expired, please re-quote");
+        return claims;
+    }
+
+    private boolean authentic(byte[] payload, byte[] tag) {
+        for (SecretKeySpec key : keys) {
+            try {
+                Mac mac = Mac.getInstance("HmacSHA256");
+                mac.init(key);
+                if (MessageDigest.isEqual(Arrays.copyOf(mac.doFinal(payload), MAC_BYTES), tag)) return true;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return false;
+    }
+
+    private static QuoteClaims decode(ByteBuffer b) {
+        if (b.get() != VERSION) throw new IllegalArgumentException("version");
+        long expires = Integer.toUnsignedLong(b.getInt());
+        BigDecimal amount = BigDecimal.valueOf(b.getLong(), 2);
+        byte[] cur = new byte[3];
+        b.get(cur);
+        double distanceKm = b.getInt() / 1000.0;
+        double weightKg = b.getInt() / 1000.0;
+        int flags = b.get();
+        Double pLat = null, pLng = null, dLat = null, dLng = null;
+        if ((flags & 1) != 0) { pLat = b.getInt() / 1e6; pLng = b.getInt() / 1e6; }
+        if ((flags & 2) != 0) { dLat = b.getInt() / 1e6; dLng = b.getInt() / 1e6; }
+        String vehicle = str(b), city = str(b), promo = str(b);
+        return new QuoteClaims(expires, amount, new String(cur, StandardCharsets.US_ASCII), distanceKm, weightKg,
+                pLat, pLng, dLat, dLng, vehicle, city, promo);
+    }
+
+    private static String str(ByteBuffer b) {
+        int len = Byte.toUnsignedInt(b.get());
+        if (len == 0) return null;
+        byte[] a = new byte[len];
+        b.get(a);
+        return new String(a, StandardCharsets.US_ASCII);
+    }
+}
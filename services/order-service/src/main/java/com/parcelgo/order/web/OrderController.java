@@ -1,14 +1,19 @@
 package com.parcelgo.order.web;
 
 import com.parcelgo.order.domain.Order;
+import com.parcelgo.order.quote.QuoteClaims;
+import com.parcelgo.order.quote.QuoteTokenVerifier;
 import com.parcelgo.order.repo.OrderRepository;
 import com.parcelgo.order.web.dto.CreateOrderRequest;
 import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
 import java.net.URI;
@@ -19,7 +24,18 @@ import java.util.Optional;
 public class OrderController {
 
     private final OrderRepository repo;
-    public OrderController(OrderRepository repo){ this.repo = repo; }
+    private final QuoteTokenVerifier quotes;
+    private final boolean quoteRequired;
+    private final double maxPointDriftM;
+
+    public OrderController(OrderRepository repo, QuoteTokenVerifier quotes,
+                           @Value("${parcelgo.order.quote-token.required:false}") boolean quoteRequired,
+                           @Value("${parcelgo.order.quote-token.max-point-drift-m:250}") double maxPointDriftM) {
+        this.repo = repo;
+        this.quotes = quotes;
+        this.quoteRequired = quoteRequired;
+        this.maxPointDriftM = maxPointDriftM;
+    }
 
     // ---------- CREATE ----------
     @PostMapping
@@ -67,6 +83,8 @@ public class OrderController {
         }
         o.setPaymentMethod(req.paymentMethod);
         o.setPromoCode(req.promoCode);
+        if (req.quoteToken != null) applyQuote(o, quotes.verify(req.quoteToken, System.currentTimeMillis()));
+        else if (quoteRequired) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "quoteToken is required");
 
         Order saved = repo.save(o);
         return ResponseEntity
@@ -95,5 +113,51 @@ public class OrderController {
                     .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    /**
+     * Takes the price from a verified quote token instead of asking pricing again, after checking the
+     * order is the trip that was quoted: same vehicle, a package weight no heavier than quoted, pickup and
+     * drop within {@code max-point-drift-m} of the quoted points, and a quoted distance no shorter than
+     * the straight line between the order's points (less {@code max-point-drift-m} for rounding). Tokens
+     * without both points can't be checked and are refused. The promo code becomes the one priced in.
+     */
+    private void applyQuote(Order o, QuoteClaims q) {
+        if (q.pickupLat() == null || q.dropLat() == null)
+            throw mismatch("quote has no pickup or dropoff point");
+        if (o.getVehicleType() == null) o.setVehicleType(q.vehicleType());
+        else if (q.vehicleType() != null && !o.getVehicleType().equalsIgnoreCase(q.vehicleType()))
+            throw mismatch("quote is for " + q.vehicleType() + ", order is for " + o.getVehicleType());
+        if (o.getWeightKg() == null)
+            throw mismatch("package weight required with this quote");
+        if (o.getWeightKg().doubleValue() > q.weightKg() + 0.001)
+            throw mismatch("package is heavier than quoted (" + q.weightKg() + " kg)");
+        checkPoint("pickup", q.pickupLat(), q.pickupLng(), o.getPickupLat(), o.getPickupLng());
+        checkPoint("dropoff", q.dropLat(), q.dropLng(), o.getDropLat(), o.getDropLng());
+        double straightM = metres(o.getPickupLat().doubleValue(), o.getPickupLng().doubleValue(),
+                o.getDropLat().doubleValue(), o.getDropLng().doubleValue());
+        if (straightM > q.distanceKm() * 1000 + maxPointDriftM)
+            throw mismatch("trip is longer than quoted (" + q.distanceKm() + " km)");
+        o.setPromoCode(q.promoCode());
+        o.setCurrency(q.currency());
+        o.setQuotedAmount(q.amount());
+    }
+
+    private void checkPoint(String which, double quotedLat, double quotedLng, BigDecimal lat, BigDecimal lng) {
+        if (lat == null || lng == null) throw mismatch(which + " coordinates required with this quote");
+        if (metres(quotedLat, quotedLng, lat.doubleValue(), lng.doubleValue()) > maxPointDriftM)
+            throw mismatch(which + " is not where it was quoted");
+    }
+
+    /** Great-circle (haversine) distance. */
+    private static double metres(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1), dLng = Math.toRadians(lng2 - lng1);
+        double h = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * 6_371_000 * Math.asin(Math.min(1, Math.sqrt(h)));
+    }
+
+    private static ResponseStatusException mismatch(String reason) {
+        return new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, reason + "; please re-quote");
+    }
+
     private BigDecimal n(BigDecimal v){ return v == null ? null : v; }
 }
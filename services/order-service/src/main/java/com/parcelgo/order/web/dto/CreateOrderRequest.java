@@ -42,4 +42,5 @@ public class CreateOrderRequest {
 
     public String paymentMethod; // cod|wallet|card
     public String promoCode;
+    public String quoteToken;    // from pricing's /quote; sets quoted_amount without calling pricing again
 }
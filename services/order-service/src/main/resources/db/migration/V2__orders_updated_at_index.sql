@@ -0,0 +1,2 @@
+-- scheduling-service follows order changes by updated_at
+CREATE INDEX idx_orders_updated_at ON orders(updated_at, id);
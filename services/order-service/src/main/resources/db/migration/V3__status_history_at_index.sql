@@ -0,0 +1,2 @@
+-- routing-adapter's ETA learning follows delivery transitions by at
+CREATE INDEX idx_order_status_history_at ON order_status_history(at, id);
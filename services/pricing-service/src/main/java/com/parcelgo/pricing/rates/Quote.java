@@ -0,0 +1,27 @@
+package com.parcelgo.pricing.rates;
+
+/**
+ * One priced trip; amounts in {@code currency}, rounded to 0.01. {@code token} is the signed quote to
+ * hand to order creation (null until signed, and for quotes without both pickup and drop points).
+ */
+public record Quote(String vehicleType,
+                    String city,
+                    String currency,
+                    double distanceKm,
+                    double weightKg,
+                    double base,
+                    double distanceFare,
+                    double weightFare,
+                    double surge,
+                    double subtotal,
+                    double discount,
+                    String promoCode,
+                    double amount,
+                    String rateCard,
+                    String token) {
+
+  public Quote withToken(String token) {
+    return new Quote(vehicleType, city, currency, distanceKm, weightKg, base, distanceFare, weightFare, surge,
+        subtotal, discount, promoCode, amount, rateCard, token);
+  }
+}
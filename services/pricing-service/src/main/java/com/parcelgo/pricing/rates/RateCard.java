@@ -0,0 +1,143 @@
+package com.parcelgo.pricing.rates;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A compiled, immutable rate card. Vehicle and city names resolve to small ints once per quote; the
+ * tariff for (city, vehicle) is one array lookup, and a slab fare is a binary search over that tariff's
+ * slab starts plus a precomputed prefix sum, so a quote allocates nothing but its result.
+ *
+ * Tariff {@code t}'s distance slabs occupy {@code [distFrom[t], distFrom[t + 1])} of the shared
+ * {@code distStart}/{@code distCum}/{@code distRate} arrays (likewise for weight): slab i starts at
+ * {@code distStart[i]}, costs {@code distRate[i]} per km and everything below its start costs
+ * {@code distCum[i]}.
+ */
+public final class RateCard {
+
+  /** Row 0 of {@link #tariffOf} holds the default tariffs; city {@code c} is row {@code c + 1}. */
+  final String version;
+  final String currency;
+  final int defaultVehicle;
+  final String[] vehicleNames;
+  final Map<String, Integer> vehicleIndex;
+  final String[] cityNames;
+  final Map<String, Integer> cityIndex;
+  final int[] tariffOf;
+  final double[] base, minFare, maxKm, maxWeightKg, multiplier;
+  final int[] distFrom, weightFrom;
+  final double[] distStart, distCum, distRate;
+  final double[] weightStart, weightCum, weightRate;
+  final Map<String, CompiledPromo> promos;
+
+  record CompiledPromo(String code, double percentOff, double flatOff, double maxOff, double minSubtotal,
+                       boolean[] vehicles, boolean[] cities, long validFrom, long validUntil) {
+    boolean applies(int vehicle, int city, double subtotal, long now) {
+      return (vehicles == null || vehicles[vehicle])
+          && (cities == null || (city >= 0 && cities[city]))
+          && subtotal >= minSubtotal && now >= validFrom && now < validUntil;
+    }
+  }
+
+  RateCard(String version, String currency, int defaultVehicle,
+           String[] vehicleNames, Map<String, Integer> vehicleIndex,
+           String[] cityNames, Map<String, Integer> cityIndex, int[] tariffOf,
+           double[] base, double[] minFare, double[] maxKm, double[] maxWeightKg, double[] multiplier,
+           int[] distFrom, double[] distStart, double[] distCum, double[] distRate,
+           int[] weightFrom, double[] weightStart, double[] weightCum, double[] weightRate,
+           Map<String, CompiledPromo> promos) {
+    this.version = version;
+    this.currency = currency;
+    this.defaultVehicle = defaultVehicle;
+    this.vehicleNames = vehicleNames;
+    this.vehicleIndex = vehicleIndex;
+    this.cityNames = cityNames;
+    this.cityIndex = cityIndex;
+    this.tariffOf = tariffOf;
+    this.base = base;
+    this.minFare = minFare;
+    this.maxKm = maxKm;
+    this.maxWeightKg = maxWeightKg;
+    this.multiplier = multiplier;
+    this.distFrom = distFrom;
+    this.distStart = distStart;
+    this.distCum = distCum;
+    this.distRate = distRate;
+    this.weightFrom = weightFrom;
+    this.weightStart = weightStart;
+    this.weightCum = weightCum;
+    this.weightRate = weightRate;
+    this.promos = promos;
+  }
+
+  public String version() { return version; }
+
+  public List<String> vehicleTypes() { return List.of(vehicleNames); }
+
+  /**
+   * Prices one trip. {@code vehicleType} null = the card's default vehicle; {@code city} null or unknown
+   * = default tariffs. Unknown vehicles, vehicles not offered in the city and trips beyond a tariff's
+   * limits are rejected with a 4xx; an inapplicable promo code is ignored (no discount). {@code surge}
+   * scales the fare (after the minimum fare, before promos).
+   */
+  public Quote quote(double distanceKm, double weightKg, String vehicleType, String city, String promoCode,
+                     double surge, long now) {
+    if (!(distanceKm >= 0) || !(weightKg >= 0))
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "distanceKm and weightKg must be >= 0");
+    int v = vehicleType == null ? defaultVehicle : vehicle(vehicleType);
+    Integer c = city == null ? null : cityIndex.get(city.toUpperCase(Locale.ROOT));
+    int ci = c == null ? -1 : c;
+    int t = tariffOf[(ci + 1) * vehicleNames.length + v];
+    if (t < 0)
+      throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, vehicleNames[v] + " not offered in " + city);
+    if (distanceKm > maxKm[t])
+      throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+          vehicleNames[v] + " takes trips up to " + maxKm[t] + " km");
+    if (weightKg > maxWeightKg[t])
+      throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+          vehicleNames[v] + " carries up to " + maxWeightKg[t] + " kg");
+
+    double m = ci < 0 ? 1.0 : multiplier[ci];
+    double b = base[t] * m;
+    double d = slabFare(distStart, distCum, distRate, distFrom[t], distFrom[t + 1], distanceKm) * m;
+    double w = slabFare(weightStart, weightCum, weightRate, weightFrom[t], weightFrom[t + 1], weightKg) * m;
+    double subtotal = Math.max(b + d + w, minFare[t] * m) * surge;
+
+    double discount = 0;
+    String applied = null;
+    if (promoCode != null) {
+      CompiledPromo p = promos.get(promoCode.toUpperCase(Locale.ROOT));
+      if (p != null && p.applies(v, ci, subtotal, now)) {
+        discount = Math.min(p.maxOff(), p.flatOff() + subtotal * p.percentOff() / 100.0);
+        discount = Math.min(discount, subtotal);
+        applied = p.code();
+      }
+    }
+    return new Quote(vehicleNames[v], ci < 0 ? null : cityNames[ci], currency, distanceKm, weightKg,
+        round(b), round(d), round(w), surge, round(subtotal), round(discount), applied, round(subtotal - discount), version, null);
+  }
+
+  private int vehicle(String name) {
+    Integer v = vehicleIndex.get(name.toUpperCase(Locale.ROOT));
+    if (v == null) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "unknown vehicleType " + name);
+    return v;
+  }
+
+  /** Incremental slab fare for {@code x}: cumulative cost below the slab containing x, plus the rest at its rate. */
+  static double slabFare(double[] start, double[] cum, double[] rate, int from, int to, double x) {
+    if (from == to) return 0;
+    int i = Arrays.binarySearch(start, from, to, x);
+    if (i < 0) i = -i - 2; // slab starting below x
+    if (i < from) return 0;
+    return cum[i] + rate[i] * (x - start[i]);
+  }
+
+  static double round(double v) {
+    return Math.round(v * 100.0) / 100.0;
+  }
+}
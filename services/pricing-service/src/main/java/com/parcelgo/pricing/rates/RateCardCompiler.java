@@ -0,0 +1,175 @@
+package com.parcelgo.pricing.rates;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Turns a {@link RateCardSpec} into a {@link RateCard}: resolves city overrides against the default
+ * tariffs, validates slabs, and lays everything out in flat sorted arrays. Any problem is an
+ * {@link IllegalArgumentException} naming the offending entry, so a bad card never replaces a good one.
+ */
+public final class RateCardCompiler {
+
+  private RateCardCompiler() {}
+
+  public static RateCard compile(RateCardSpec spec) {
+    if (spec.vehicles() == null || spec.vehicles().isEmpty())
+      throw new IllegalArgumentException("rate card has no vehicles");
+
+    List<String> vehicles = new ArrayList<>();
+    Map<String, Integer> vehicleIndex = new HashMap<>();
+    for (String name : spec.vehicles().keySet()) {
+      vehicleIndex.put(key(name), vehicles.size());
+      vehicles.add(key(name));
+    }
+    Map<String, RateCardSpec.City> citySpecs = spec.cities() == null ? Map.of() : spec.cities();
+    List<String> cities = new ArrayList<>();
+    Map<String, Integer> cityIndex = new HashMap<>();
+    for (String name : citySpecs.keySet()) {
+      cityIndex.put(key(name), cities.size());
+      cities.add(key(name));
+    }
+    String defaultVehicle = spec.defaultVehicle() == null ? vehicles.get(0) : key(spec.defaultVehicle());
+    if (!vehicleIndex.containsKey(defaultVehicle))
+      throw new IllegalArgumentException("defaultVehicle " + defaultVehicle + " is not a vehicle");
+
+    int V = vehicles.size(), C = cities.size();
+    int[] tariffOf = new int[(C + 1) * V];
+    Tables t = new Tables();
+    double[] multiplier = new double[C];
+    for (String name : spec.vehicles().keySet()) {
+      RateCardSpec.Tariff tariff = spec.vehicles().get(name);
+      tariffOf[vehicleIndex.get(key(name))] = t.add(name, tariff, null);
+    }
+    for (var e : citySpecs.entrySet()) {
+      int c = cityIndex.get(key(e.getKey()));
+      RateCardSpec.City city = e.getValue() == null ? new RateCardSpec.City(null, null) : e.getValue();
+      multiplier[c] = city.multiplier() == null ? 1.0 : positive(city.multiplier(), e.getKey() + ".multiplier");
+      Map<String, RateCardSpec.Tariff> overrides = new HashMap<>();
+      if (city.vehicles() != null)
+        for (var o : city.vehicles().entrySet()) {
+          if (!vehicleIndex.containsKey(key(o.getKey())))
+            throw new IllegalArgumentException(e.getKey() + ": unknown vehicle " + o.getKey());
+          overrides.put(key(o.getKey()), o.getValue());
+        }
+      for (String name : spec.vehicles().keySet()) {
+        RateCardSpec.Tariff o = overrides.get(key(name));
+        int v = vehicleIndex.get(key(name));
+        tariffOf[(c + 1) * V + v] = o == null ? tariffOf[v] : t.add(e.getKey() + "." + name, o, spec.vehicles().get(name));
+      }
+    }
+
+    Map<String, RateCard.CompiledPromo> promos = new HashMap<>();
+    if (spec.promos() != null)
+      for (RateCardSpec.Promo p : spec.promos()) {
+        if (p.code() == null || p.code().isBlank()) throw new IllegalArgumentException("promo without code");
+        String code = key(p.code());
+        double pct = p.percentOff() == null ? 0 : p.percentOff();
+        if (pct < 0 || pct > 100) throw new IllegalArgumentException(code + ": percentOff must be 0..100");
+        RateCard.CompiledPromo compiled = new RateCard.CompiledPromo(code, pct,
+            nonNegative(p.flatOff(), 0, code + ".flatOff"),
+            nonNegative(p.maxOff(), Double.POSITIVE_INFINITY, code + ".maxOff"),
+            nonNegative(p.minSubtotal(), 0, code + ".minSubtotal"),
+            mask(p.vehicles(), vehicleIndex, V, code + ".vehicles"),
+            mask(p.cities(), cityIndex, C, code + ".cities"),
+            p.validFrom() == null ? Long.MIN_VALUE : p.validFrom().toEpochMilli(),
+            p.validUntil() == null ? Long.MAX_VALUE : p.validUntil().toEpochMilli());
+        if (promos.put(code, compiled) != null) throw new IllegalArgumentException("duplicate promo " + code);
+      }
+
+    return new RateCard(spec.version() == null ? Instant.now().toString() : spec.version(),
+        spec.currency() == null ? "INR" : spec.currency(), vehicleIndex.get(defaultVehicle),
+        vehicles.toArray(String[]::new), Map.copyOf(vehicleIndex), cities.toArray(String[]::new), Map.copyOf(cityIndex),
+        tariffOf, t.base.toArray(), t.minFare.toArray(), t.maxKm.toArray(), t.maxWeightKg.toArray(), multiplier,
+        t.dist.from(), t.dist.start.toArray(), t.dist.cum.toArray(), t.dist.rate.toArray(),
+        t.weight.from(), t.weight.start.toArray(), t.weight.cum.toArray(), t.weight.rate.toArray(),
+        Map.copyOf(promos));
+  }
+
+  /** Growing column store for tariffs; index of a tariff is its position in every column. */
+  private static final class Tables {
+    final Doubles base = new Doubles(), minFare = new Doubles(), maxKm = new Doubles(), maxWeightKg = new Doubles();
+    final SlabTable dist = new SlabTable(), weight = new SlabTable();
+
+    /** Adds {@code tariff} (fields missing from it taken from {@code parent}); -1 if it is disabled. */
+    int add(String name, RateCardSpec.Tariff tariff, RateCardSpec.Tariff parent) {
+      if (tariff == null) tariff = new RateCardSpec.Tariff(null, null, null, null, null, null, null);
+      if (parent == null) parent = new RateCardSpec.Tariff(null, null, null, null, null, null, null);
+      Boolean enabled = tariff.enabled() != null ? tariff.enabled() : parent.enabled();
+      if (enabled != null && !enabled) return -1;
+      int t = base.size();
+      base.add(nonNegative(or(tariff.base(), parent.base()), 0, name + ".base"));
+      minFare.add(nonNegative(or(tariff.minFare(), parent.minFare()), 0, name + ".minFare"));
+      maxKm.add(nonNegative(or(tariff.maxKm(), parent.maxKm()), Double.POSITIVE_INFINITY, name + ".maxKm"));
+      maxWeightKg.add(nonNegative(or(tariff.maxWeightKg(), parent.maxWeightKg()), Double.POSITIVE_INFINITY,
+          name + ".maxWeightKg"));
+      dist.add(tariff.distanceSlabs() != null ? tariff.distanceSlabs() : parent.distanceSlabs(), name + ".distanceSlabs");
+      weight.add(tariff.weightSlabs() != null ? tariff.weightSlabs() : parent.weightSlabs(), name + ".weightSlabs");
+      return t;
+    }
+  }
+
+  private static final class SlabTable {
+    final Doubles start = new Doubles(), cum = new Doubles(), rate = new Doubles();
+    final List<Integer> from = new ArrayList<>(List.of(0));
+
+    void add(List<RateCardSpec.Slab> slabs, String name) {
+      double lo = 0, total = 0;
+      if (slabs != null)
+        for (int i = 0; i < slabs.size(); i++) {
+          RateCardSpec.Slab s = slabs.get(i);
+          double hi = s.upTo() == null ? Double.POSITIVE_INFINITY : s.upTo();
+          if (!(hi > lo)) throw new IllegalArgumentException(name + "[" + i + "]: upTo must increase");
+          if (s.upTo() == null && i != slabs.size() - 1)
+            throw new IllegalArgumentException(name + "[" + i + "]: only the last slab may be unbounded");
+          start.add(lo);
+          cum.add(total);
+          rate.add(nonNegative(s.rate(), 0, name + "[" + i + "].rate"));
+          total += s.rate() * (hi - lo);
+          lo = hi;
+        }
+      from.add(start.size());
+    }
+
+    int[] from() { return from.stream().mapToInt(Integer::intValue).toArray(); }
+  }
+
+  private static final class Doubles {
+    private double[] a = new double[16];
+    private int n;
+    void add(double v) { if (n == a.length) a = Arrays.copyOf(a, n * 2); a[n++] = v; }
+    int size() { return n; }
+    double[] toArray() { return Arrays.copyOf(a, n); }
+  }
+
+  private static boolean[] mask(List<String> names, Map<String, Integer> index, int size, String field) {
+    if (names == null || names.isEmpty()) return null;
+    boolean[] m = new boolean[size];
+    for (String n : names) {
+      Integer i = index.get(key(n));
+      if (i == null) throw new IllegalArgumentException(field + ": unknown " + n);
+      m[i] = true;
+    }
+    return m;
+  }
+
+  private static Double or(Double a, Double b) { return a != null ? a : b; }
+
+  private static double nonNegative(Double v, double dflt, String field) {
+    if (v == null) return dflt;
+    if (!(v >= 0)) throw new IllegalArgumentException(field + " must be >= 0");
+    return v;
+  }
+
+  private static double positive(double v, String field) {
+    if (!(v > 0)) throw new IllegalArgumentException(field + " must be > 0");
+    return v;
+  }
+
+  private static String key(String name) { return name.strip().toUpperCase(Locale.ROOT); }
+}
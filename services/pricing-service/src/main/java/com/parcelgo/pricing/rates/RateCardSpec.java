@@ -0,0 +1,44 @@
+package com.parcelgo.pricing.rates;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rate card as authored (JSON). Everything is resolved by {@link RateCardCompiler}; nothing here is
+ * read on the quote path.
+ *
+ * A city entry overrides individual fields of the default tariffs for that city; a vehicle set to
+ * {@code "enabled": false} there is not offered in the city.
+ */
+public record RateCardSpec(String version,
+                           String currency,
+                           String defaultVehicle,
+                           Map<String, Tariff> vehicles,
+                           Map<String, City> cities,
+                           List<Promo> promos) {
+
+  /** {@code upTo} null = unbounded; slabs are priced incrementally, like tax brackets. */
+  public record Slab(Double upTo, double rate) {}
+
+  public record Tariff(Boolean enabled,
+                       Double base,
+                       Double minFare,
+                       Double maxKm,
+                       Double maxWeightKg,
+                       List<Slab> distanceSlabs,
+                       List<Slab> weightSlabs) {}
+
+  public record City(Double multiplier, Map<String, Tariff> vehicles) {}
+
+  /** Empty {@code vehicles}/{@code cities} = any. */
+  public record Promo(String code,
+                      Double percentOff,
+                      Double flatOff,
+                      Double maxOff,
+                      Double minSubtotal,
+                      List<String> vehicles,
+                      List<String> cities,
+                      Instant validFrom,
+                      Instant validUntil) {}
+}
@@ -0,0 +1,105 @@
+package com.parcelgo.pricing.rates;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Holder of the current {@link RateCard}. Loads {@code parcelgo.pricing.rates.file} (the bundled
+ * {@code rate-card.json} when blank), compiles it, and swaps it in with a single volatile write, so a
+ * quote sees either the old card or the new one in full. The file is re-checked every
+ * {@code check-interval}; a card that fails to parse or compile is logged and the current one kept.
+ */
+@Component
+public class RateCards {
+
+  private static final Logger log = LoggerFactory.getLogger(RateCards.class);
+  private static final String BUNDLED = "/rate-card.json";
+
+  private final ObjectMapper mapper;
+  private final String file;
+  private final Duration checkInterval;
+  private final Counter reloads;
+  private final Counter failures;
+  private volatile RateCard current;
+  private volatile long loadedMtime;
+  private volatile boolean running;
+  private Thread watcher;
+
+  public RateCards(ObjectMapper mapper, MeterRegistry registry,
+                   @Value("${parcelgo.pricing.rates.file:}") String file,
+                   @Value("${parcelgo.pricing.rates.check-interval:30s}") Duration checkInterval) {
+    this.mapper = mapper;
+    this.file = file;
+    this.checkInterval = checkInterval;
+    this.reloads = Counter.builder("pricing.ratecard.reloads").tag("result", "ok").register(registry);
+    this.failures = Counter.builder("pricing.ratecard.reloads").tag("result", "failed").register(registry);
+  }
+
+  public RateCard current() {
+    return current;
+  }
+
+  /** Fails startup on a bad card: there is nothing older to fall back to. */
+  @PostConstruct
+  void start() throws IOException {
+    if (file.isBlank()) {
+      try (InputStream in = RateCards.class.getResourceAsStream(BUNDLED)) {
+        if (in == null) throw new IOException(BUNDLED + " missing from the classpath");
+        swap(RateCardCompiler.compile(mapper.readValue(in, RateCardSpec.class)));
+      }
+      return;
+    }
+    Path path = Path.of(file);
+    long mtime = Files.getLastModifiedTime(path).toMillis();
+    swap(RateCardCompiler.compile(mapper.readValue(path.toFile(), RateCardSpec.class)));
+    loadedMtime = mtime;
+    running = true;
+    watcher = new Thread(this::watch, "pricing-ratecard-watch");
+    watcher.setDaemon(true);
+    watcher.start();
+  }
+
+  @PreDestroy
+  void stop() {
+    running = false;
+    if (watcher != null) watcher.interrupt();
+  }
+
+  private void watch() {
+    Path path = Path.of(file);
+    while (running) {
+      try {
+        Thread.sleep(checkInterval.toMillis());
+        long mtime = Files.getLastModifiedTime(path).toMillis();
+        if (mtime == loadedMtime) continue;
+        loadedMtime = mtime;
+        swap(RateCardCompiler.compile(mapper.readValue(path.toFile(), RateCardSpec.class)));
+        reloads.increment();
+      } catch (InterruptedException e) {
+        return;
+      } catch (IOException | IllegalArgumentException e) {
+        failures.increment();
+        log.warn("rate card {} not reloaded, keeping {}: {}", file, current.version(), e.toString());
+      }
+    }
+  }
+
+  private void swap(RateCard card) {
+    current = card;
+    log.info("rate card {} active: {} vehicles, {} cities, {} promos", card.version(),
+        card.vehicleNames.length, card.cityNames.length, card.promos.size());
+  }
+}
@@ -0,0 +1,11 @@
+package com.parcelgo.pricing.surge;
+
+/** What a surge signal counts: demand ({@code QUOTE}, {@code ORDER}) or supply ({@code COURIER}). */
+public enum Signal {
+  /** A price was asked for a pickup in the cell (recorded by pricing itself). */
+  QUOTE,
+  /** An order was placed for a pickup in the cell. */
+  ORDER,
+  /** An available courier reported from the cell (one per location heartbeat). */
+  COURIER
+}
@@ -0,0 +1,61 @@
+package com.parcelgo.pricing.surge;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Sliding-window event counts for one cell: a ring of time buckets, each holding one counter per
+ * {@link Signal} kind, the whole ring striped so concurrent writers on different threads rarely share a
+ * cache line. Each stripe is a contiguous [bucket][kind] block followed by one line of padding, so a
+ * cell costs {@code STRIPES * (buckets * KINDS + PAD)} longs (about 6 KB for a 5 minute window of 10 s
+ * buckets) rather than a padded line per counter. Writers only do an atomic add; the bucket that rolls
+ * over is reset by whichever writer wins the CAS on its epoch. A few increments racing with that reset
+ * can be lost, which is fine for a demand estimate and keeps the write path lock-free.
+ */
+final class SignalRing {
+
+  static final int KINDS = Signal.values().length;
+  private static final int STRIPES = 8;          // power of two
+  private static final int PAD = 8;              // longs between stripes: one 64-byte line
+
+  private final int buckets;
+  private final int stride;
+  private final AtomicLongArray epochs;
+  private final AtomicLongArray counts;          // [stripe][bucket][kind], stripes PAD longs apart
+  volatile long lastTouchedEpoch;
+
+  SignalRing(int buckets) {
+    this.buckets = buckets;
+    this.stride = buckets * KINDS + PAD;
+    this.epochs = new AtomicLongArray(buckets);
+    this.counts = new AtomicLongArray(STRIPES * stride);
+  }
+
+  void add(Signal kind, long epoch, long n) {
+    int b = (int) Math.floorMod(epoch, (long) buckets);
+    long seen = epochs.get(b);
+    if (seen > epoch) return; // the slot already holds a newer bucket: too old to count
+    if (seen < epoch && epochs.compareAndSet(b, seen, epoch)) {
+      for (int s = 0; s < STRIPES; s++) {
+        int from = s * stride + b * KINDS;
+        for (int k = 0; k < KINDS; k++) counts.set(from + k, 0);
+      }
+    }
+    int stripe = (int) (Thread.currentThread().threadId() & (STRIPES - 1));
+    counts.getAndAdd(stripe * stride + b * KINDS + kind.ordinal(), n);
+    if (lastTouchedEpoch < epoch) lastTouchedEpoch = epoch;
+  }
+
+  /** Totals per kind over the {@code buckets} epochs ending at {@code epoch}. */
+  long[] window(long epoch) {
+    long[] sum = new long[KINDS];
+    for (int b = 0; b < buckets; b++) {
+      long e = epochs.get(b);
+      if (e > epoch || e <= epoch - buckets) continue;
+      for (int s = 0; s < STRIPES; s++) {
+        int base = s * stride + b * KINDS;
+        for (int k = 0; k < KINDS; k++) sum[k] += counts.get(base + k);
+      }
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,178 @@
+package com.parcelgo.pricing.surge;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-cell surge multiplier from streaming supply and demand.
+ *
+ * Signals land in a {@link SignalRing} per geo cell (lock-free, O(1)). A ticker thread recomputes every
+ * active cell each {@code tick}: demand is the weighted count of quotes and orders in the window,
+ * supply the courier heartbeats in the window divided by the heartbeats one courier sends in it. The
+ * raw multiplier {@code 1 + sensitivity * (demand / supply - target)}, clamped to [1, max], is smoothed
+ * (EWMA) and rounded to {@code step} so prices don't flicker, then published into a map that
+ * {@link #multiplier} reads without touching the rings. Cells idle for a whole window are dropped.
+ * A cell with no courier signal in the window stays at 1.0: without a supply feed there is no ratio to
+ * price on, and quotes alone must not be able to surge it.
+ *
+ * Only real coordinates ({@link #validPoint}) get a cell, and at most {@code max-cells} cells are live at
+ * once: signals for a new cell beyond that are dropped (and counted) until idle cells age out.
+ */
+@Component
+public class SurgeEngine {
+
+  public record CellState(double multiplier, double demand, double supply) {}
+
+  private final Map<Long, SignalRing> rings = new ConcurrentHashMap<>();
+  private final Map<Long, CellState> published = new ConcurrentHashMap<>();
+  /** Unrounded EWMA per cell; ticker thread only. */
+  private final Map<Long, Double> smoothed = new HashMap<>();
+
+  private final boolean enabled;
+  private final double cellDeg;
+  private final long bucketMs;
+  private final int buckets;
+  private final Duration tick;
+  private final double quoteWeight, orderWeight;
+  private final double heartbeatsPerCourier;
+  private final double target, sensitivity, max, alpha, step, minSupply;
+  private final int maxCells;
+  private final Counter droppedCellLimit;
+
+  private volatile boolean running;
+  private Thread ticker;
+
+  public SurgeEngine(MeterRegistry registry,
+                     @Value("${parcelgo.pricing.surge.enabled:true}") boolean enabled,
+                     @Value("${parcelgo.pricing.surge.cell-deg:0.02}") double cellDeg,
+                     @Value("${parcelgo.pricing.surge.bucket:10s}") Duration bucket,
+                     @Value("${parcelgo.pricing.surge.window:5m}") Duration window,
+                     @Value("${parcelgo.pricing.surge.tick:5s}") Duration tick,
+                     @Value("${parcelgo.pricing.surge.quote-weight:0.2}") double quoteWeight,
+                     @Value("${parcelgo.pricing.surge.order-weight:1.0}") double orderWeight,
+                     @Value("${parcelgo.pricing.surge.courier-heartbeat:30s}") Duration courierHeartbeat,
+                     @Value("${parcelgo.pricing.surge.target-ratio:1.0}") double target,
+                     @Value("${parcelgo.pricing.surge.sensitivity:0.5}") double sensitivity,
+                     @Value("${parcelgo.pricing.surge.max:2.5}") double max,
+                     @Value("${parcelgo.pricing.surge.smoothing:0.3}") double alpha,
+                     @Value("${parcelgo.pricing.surge.step:0.1}") double step,
+                     @Value("${parcelgo.pricing.surge.min-supply:1}") double minSupply,
+                     @Value("${parcelgo.pricing.surge.max-cells:20000}") int maxCells) {
+    this.enabled = enabled;
+    this.cellDeg = cellDeg;
+    this.bucketMs = bucket.toMillis();
+    this.buckets = (int) Math.max(1, window.toMillis() / bucketMs);
+    this.tick = tick;
+    this.quoteWeight = quoteWeight;
+    this.orderWeight = orderWeight;
+    this.heartbeatsPerCourier = Math.max(1.0, (double) buckets * bucketMs / courierHeartbeat.toMillis());
+    this.target = target;
+    this.sensitivity = sensitivity;
+    this.max = max;
+    this.alpha = alpha;
+    this.step = step;
+    this.minSupply = minSupply;
+    this.maxCells = maxCells;
+    this.droppedCellLimit = Counter.builder("pricing.surge.signals.dropped").tag("reason", "cell_limit").register(registry);
+    Gauge.builder("pricing.surge.cells", rings, Map::size).register(registry);
+    Gauge.builder("pricing.surge.cells.surging", published,
+        m -> m.values().stream().filter(s -> s.multiplier() > 1.0).count()).register(registry);
+    Gauge.builder("pricing.surge.multiplier.max", published,
+        m -> m.values().stream().mapToDouble(CellState::multiplier).max().orElse(1.0)).register(registry);
+  }
+
+  @PostConstruct
+  void start() {
+    if (!enabled) return;
+    running = true;
+    ticker = new Thread(this::run, "pricing-surge-tick");
+    ticker.setDaemon(true);
+    ticker.start();
+  }
+
+  @PreDestroy
+  void stop() {
+    running = false;
+    if (ticker != null) ticker.interrupt();
+  }
+
+  /** Finite latitude in [-90, 90] and longitude in [-180, 180]. */
+  public static boolean validPoint(double lat, double lng) {
+    return lat >= -90 && lat <= 90 && lng >= -180 && lng <= 180;
+  }
+
+  /** Counts {@code n} events of {@code kind} at the point, now; ignored for invalid points. */
+  public void record(Signal kind, double lat, double lng, long n) {
+    if (!enabled || n <= 0 || !validPoint(lat, lng)) return;
+    long key = cellKey(lat, lng);
+    SignalRing ring = rings.get(key);
+    if (ring == null) {
+      if (rings.size() >= maxCells) {
+        droppedCellLimit.increment();
+        return;
+      }
+      ring = rings.computeIfAbsent(key, k -> new SignalRing(buckets));
+    }
+    ring.add(kind, System.currentTimeMillis() / bucketMs, n);
+  }
+
+  /** Current multiplier for a pickup at the point; 1.0 where nothing is surging. */
+  public double multiplier(double lat, double lng) {
+    CellState s = published.get(cellKey(lat, lng));
+    return s == null ? 1.0 : s.multiplier();
+  }
+
+  public CellState state(double lat, double lng) {
+    CellState s = published.get(cellKey(lat, lng));
+    return s == null ? new CellState(1.0, 0, 0) : s;
+  }
+
+  private void run() {
+    while (running) {
+      try {
+        Thread.sleep(tick.toMillis());
+      } catch (InterruptedException e) {
+        return;
+      }
+      recompute(System.currentTimeMillis() / bucketMs);
+    }
+  }
+
+  void recompute(long epoch) {
+    for (var e : rings.entrySet()) {
+      SignalRing ring = e.getValue();
+      if (ring.lastTouchedEpoch <= epoch - buckets) {
+        rings.remove(e.getKey(), ring);
+        published.remove(e.getKey());
+        smoothed.remove(e.getKey());
+        continue;
+      }
+      long[] w = ring.window(epoch);
+      double demand = w[Signal.QUOTE.ordinal()] * quoteWeight + w[Signal.ORDER.ordinal()] * orderWeight;
+      double supply = w[Signal.COURIER.ordinal()] / heartbeatsPerCourier;
+      double raw = supply == 0 ? 1.0 : 1.0 + sensitivity * (demand / Math.max(supply, minSupply) - target);
+      raw = Math.min(max, Math.max(1.0, raw));
+      Double prev = smoothed.get(e.getKey());
+      double m = prev == null ? raw : prev + alpha * (raw - prev);
+      smoothed.put(e.getKey(), m);
+      double rounded = Math.min(max, Math.max(1.0, Math.round(Math.round(m / step) * step * 1000) / 1000.0));
+      published.put(e.getKey(), new CellState(rounded, demand, supply));
+    }
+  }
+
+  /** The cell a point falls in, for callers that count something once per cell. */
+  public long cellKey(double lat, double lng) {
+    long y = (long) Math.floor(lat / cellDeg), x = (long) Math.floor(lng / cellDeg);
+    return (y << 32) | (x & 0xffffffffL);
+  }
+}
@@ -0,0 +1,91 @@
+package com.parcelgo.pricing.token;
+
+import com.parcelgo.pricing.rates.Quote;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Signs quotes so order creation can trust the price without asking pricing (or routing) again.
+ *
+ * Token = base64url(payload) "." base64url(first 16 bytes of HMAC-SHA256(secret, payload)), where the
+ * payload is, big-endian:
+ * <pre>
+ *   u8  version (1)       u32 expires (epoch s)   i64 amount (paise)   3 x u8 currency
+ *   i32 distance (m)      i32 weight (g)          u8  flags (1 = pickup, 2 = drop)
+ *   [i32 pickup lat e6, i32 pickup lng e6]        [i32 drop lat e6, i32 drop lng e6]
+ *   u8 len + vehicle type   u8 len + city   u8 len + applied promo code   (ASCII, len 0 = none)
+ * </pre>
+ * order-service's {@code QuoteTokenVerifier} reads the same layout; change both together.
+ *
+ * Only a quote with both pickup and drop points is signed (the flags are then always 3): order-service
+ * needs them to check the order is the quoted trip, distance included. Others get a null token.
+ */
+@Component
+public class QuoteTokenSigner {
+
+  static final byte VERSION = 1;
+  static final int MAC_BYTES = 16;
+
+  private final SecretKeySpec key;
+  private final long ttlSeconds;
+
+  public QuoteTokenSigner(@Value("${parcelgo.pricing.quote-token.secret}") String secret,
+                          @Value("${parcelgo.pricing.quote-token.ttl:15m}") Duration ttl) {
+    if (secret.length() < 32)
+      throw new IllegalArgumentException("parcelgo.pricing.quote-token.secret must be at least 32 characters");
+    this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+    this.ttlSeconds = ttl.toSeconds();
+  }
+
+  public String sign(Quote q, Double fromLat, Double fromLng, Double toLat, Double toLng, long nowMillis) {
+    boolean pickup = fromLat != null && fromLng != null, drop = toLat != null && toLng != null;
+    if (!pickup || !drop) return null;
+    byte[] vehicle = ascii(q.vehicleType()), city = ascii(q.city()), promo = ascii(q.promoCode());
+    ByteBuffer b = ByteBuffer.allocate(1 + 4 + 8 + 3 + 4 + 4 + 1 + (pickup ? 8 : 0) + (drop ? 8 : 0)
+        + 3 + vehicle.length + city.length + promo.length);
+    b.put(VERSION);
+    b.putInt((int) (nowMillis / 1000 + ttlSeconds));
+    b.putLong(Math.round(q.amount() * 100));
+    b.put(Arrays.copyOf(ascii(q.currency()), 3));
+    b.putInt((int) Math.round(q.distanceKm() * 1000));
+    b.putInt((int) Math.round(q.weightKg() * 1000));
+    b.put((byte) ((pickup ? 1 : 0) | (drop ? 2 : 0)));
+    if (pickup) { b.putInt(e6(fromLat)); b.putInt(e6(fromLng)); }
+    if (drop) { b.putInt(e6(toLat)); b.putInt(e6(toLng)); }
+    b.put((byte) vehicle.length).put(vehicle);
+    b.put((byte) city.length).put(city);
+    b.put((byte) promo.length).put(promo);
+    byte[] payload = b.array();
+    Base64.Encoder enc = Base64.getUrlEncoder().withoutPadding();
+    return enc.encodeToString(payload) + "." + enc.encodeToString(Arrays.copyOf(mac(payload), MAC_BYTES));
+  }
+
+  private byte[] mac(byte[] payload) {
+    try {
+      Mac mac = Mac.getInstance("HmacSHA256");
+      mac.init(key);
+      return mac.doFinal(payload);
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static byte[] ascii(String s) {
+    if (s == null) return new byte[0];
+    byte[] a = s.getBytes(StandardCharsets.US_ASCII);
+    return a.length > 255 ? Arrays.copyOf(a, 255) : a;
+  }
+
+  private static int e6(double deg) {
+    return (int) Math.round(deg * 1e6);
+  }
+}
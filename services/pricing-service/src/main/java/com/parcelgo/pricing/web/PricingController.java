@@ -1,23 +1,148 @@
 package com.parcelgo.pricing.web;
 
+import com.parcelgo.pricing.rates.Quote;
+import com.parcelgo.pricing.rates.RateCard;
+import com.parcelgo.pricing.rates.RateCards;
+import com.parcelgo.pricing.surge.Signal;
+import com.parcelgo.pricing.surge.SurgeEngine;
+import com.parcelgo.pricing.token.QuoteTokenSigner;
+import com.parcelgo.pricing.web.dto.QuoteBatchRequest;
+import com.parcelgo.pricing.web.dto.QuoteRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping({"/pricing","/quotes"})
 public class PricingController {
 
+  private final RateCards rateCards;
+  private final SurgeEngine surge;
+  private final QuoteTokenSigner signer;
+  private final int maxBatch;
+
+  public PricingController(RateCards rateCards, SurgeEngine surge, QuoteTokenSigner signer,
+                           @Value("${parcelgo.pricing.quotes.max-batch:1000}") int maxBatch) {
+    this.rateCards = rateCards;
+    this.surge = surge;
+    this.signer = signer;
+    this.maxBatch = maxBatch;
+  }
+
+  /**
+   * One trip on the current rate card; {@code vehicleType} defaults to the card's default vehicle. With
+   * the pickup point ({@code fromLat}/{@code fromLng}) the quote counts as demand there and carries that
+   * cell's surge multiplier. With the drop point ({@code toLat}/{@code toLng}) as well, the returned
+   * {@code token} carries the price to {@code POST /orders}.
+   */
   @GetMapping("/quote")
-  public Map<String, Object> quote(@RequestParam double distanceKm,
-                                   @RequestParam double weightKg) {
-    double base = 30.0;
-    double perKm = 10.0;
-    double perKg = 5.0;
-    double total = base + distanceKm * perKm + weightKg * perKg;
-    return Map.of("currency", "INR", "amount", total, "distanceKm", distanceKm, "weightKg", weightKg);
+  public Quote quote(@RequestParam double distanceKm,
+                     @RequestParam double weightKg,
+                     @RequestParam(required = false) String vehicleType,
+                     @RequestParam(required = false) String city,
+                     @RequestParam(required = false) String promoCode,
+                     @RequestParam(required = false) Double fromLat,
+                     @RequestParam(required = false) Double fromLng,
+                     @RequestParam(required = false) Double toLat,
+                     @RequestParam(required = false) Double toLng) {
+    if (!validPickup(fromLat, fromLng))
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "fromLat/fromLng must be a valid point");
+    long now = System.currentTimeMillis();
+    Quote q = rateCards.current().quote(distanceKm, weightKg, vehicleType, city, promoCode,
+        surgeAt(fromLat, fromLng), now);
+    return q.withToken(signer.sign(q, fromLat, fromLng, toLat, toLng, now));
+  }
+
+  /**
+   * Many trips in one call, all priced on the same rate card. An item without {@code vehicleType}
+   * expands to one quote per vehicle that can take it (the checkout page); an item that can't be priced
+   * (by any vehicle, when none is named) gets an {@code error} entry instead of failing the batch. Results carry the index of their item.
+   * A batch counts as one quote of demand per pickup cell, however many of its items start there.
+   */
+  @PostMapping("/quotes")
+  public Map<String, Object> quotes(@RequestBody QuoteBatchRequest req) {
+    if (req.items == null || req.items.isEmpty())
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "items must not be empty");
+    if (req.items.size() > maxBatch)
+      throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "at most " + maxBatch + " items per batch");
+    RateCard card = rateCards.current();
+    long now = System.currentTimeMillis();
+    List<Map<String, Object>> out = new ArrayList<>(req.items.size());
+    Set<Long> counted = new HashSet<>();
+    for (int i = 0; i < req.items.size(); i++) {
+      QuoteRequest q = req.items.get(i);
+      if (q == null || q.distanceKm == null || q.weightKg == null) {
+        out.add(error(i, null, "distanceKm and weightKg are required"));
+        continue;
+      }
+      if (!validPickup(q.fromLat, q.fromLng)) {
+        out.add(error(i, null, "fromLat/fromLng must be a valid point"));
+        continue;
+      }
+      if (q.fromLat != null && counted.add(surge.cellKey(q.fromLat, q.fromLng)))
+        surge.record(Signal.QUOTE, q.fromLat, q.fromLng, 1);
+      double m = q.fromLat == null ? 1.0 : surge.multiplier(q.fromLat, q.fromLng);
+      if (q.vehicleType != null) {
+        out.add(priced(card, i, q, q.vehicleType, m, now));
+        continue;
+      }
+      int before = out.size();
+      for (String v : card.vehicleTypes()) {
+        Map<String, Object> r = priced(card, i, q, v, m, now);
+        if (!r.containsKey("error")) out.add(r);
+      }
+      if (out.size() == before) out.add(error(i, null, "no vehicle can take this item"));
+    }
+    Map<String, Object> body = new LinkedHashMap<>();
+    body.put("rateCard", card.version());
+    body.put("quotes", out);
+    return body;
+  }
+
+  /** No pickup point at all is fine (no surge); half of one, or one off the globe, is not. */
+  private static boolean validPickup(Double lat, Double lng) {
+    if (lat == null && lng == null) return true;
+    return lat != null && lng != null && SurgeEngine.validPoint(lat, lng);
+  }
+
+  /** Records the quote as demand at the pickup and returns the surge there; 1.0 without a pickup point. */
+  private double surgeAt(Double lat, Double lng) {
+    if (lat == null || lng == null) return 1.0;
+    surge.record(Signal.QUOTE, lat, lng, 1);
+    return surge.multiplier(lat, lng);
+  }
+
+  private Map<String, Object> priced(RateCard card, int index, QuoteRequest q, String vehicleType,
+                                     double surge, long now) {
+    try {
+      Quote quote = card.quote(q.distanceKm, q.weightKg, vehicleType, q.city, q.promoCode, surge, now);
+      Map<String, Object> r = new LinkedHashMap<>();
+      r.put("index", index);
+      r.put("quote", quote.withToken(signer.sign(quote, q.fromLat, q.fromLng, q.toLat, q.toLng, now)));
+      return r;
+    } catch (ResponseStatusException e) {
+      return error(index, vehicleType, e.getReason());
+    }
+  }
+
+  private static Map<String, Object> error(int index, String vehicleType, String reason) {
+    Map<String, Object> r = new LinkedHashMap<>();
+    r.put("index", index);
+    if (vehicleType != null) r.put("vehicleType", vehicleType);
+    r.put("error", reason);
+    return r;
   }
 }
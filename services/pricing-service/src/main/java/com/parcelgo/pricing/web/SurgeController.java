@@ -0,0 +1,66 @@
+package com.parcelgo.pricing.web;
+
+import com.parcelgo.pricing.surge.Signal;
+import com.parcelgo.pricing.surge.SurgeEngine;
+import com.parcelgo.pricing.web.dto.SurgeSignalsRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Locale;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/pricing/surge")
+public class SurgeController {
+
+  private final SurgeEngine surge;
+  private final long maxSignalCount;
+
+  public SurgeController(SurgeEngine surge,
+                         @Value("${parcelgo.pricing.surge.max-signal-count:100}") long maxSignalCount) {
+    this.surge = surge;
+    this.maxSignalCount = maxSignalCount;
+  }
+
+  @GetMapping
+  public SurgeEngine.CellState state(@RequestParam double lat, @RequestParam double lng) {
+    if (!SurgeEngine.validPoint(lat, lng))
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "lat/lng must be a valid point");
+    return surge.state(lat, lng);
+  }
+
+  /**
+   * Demand and supply feed from the other services, batched: placed orders (ORDER) at their pickup
+   * and location heartbeats of available couriers (COURIER). Quotes are counted by pricing itself. An
+   * item's {@code count} must be 1..{@code max-signal-count}; anything else is rejected.
+   */
+  @PostMapping("/signals")
+  @ResponseStatus(HttpStatus.ACCEPTED)
+  public Map<String, Object> signals(@RequestBody SurgeSignalsRequest req) {
+    if (req.signals == null || req.signals.isEmpty())
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "signals must not be empty");
+    int accepted = 0;
+    for (SurgeSignalsRequest.Item s : req.signals) {
+      if (s == null || s.kind == null || s.lat == null || s.lng == null || !SurgeEngine.validPoint(s.lat, s.lng)) continue;
+      Signal kind;
+      try {
+        kind = Signal.valueOf(s.kind.toUpperCase(Locale.ROOT));
+      } catch (IllegalArgumentException e) {
+        continue;
+      }
+      long count = s.count == null ? 1 : s.count;
+      if (kind == Signal.QUOTE || count < 1 || count > maxSignalCount) continue;
+      surge.record(kind, s.lat, s.lng, count);
+      accepted++;
+    }
+    return Map.of("accepted", accepted, "rejected", req.signals.size() - accepted);
+  }
+}
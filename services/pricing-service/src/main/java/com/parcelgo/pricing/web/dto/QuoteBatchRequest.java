@@ -0,0 +1,7 @@
+package com.parcelgo.pricing.web.dto;
+
+import java.util.List;
+
+public class QuoteBatchRequest {
+  public List<QuoteRequest> items;
+}
@@ -0,0 +1,18 @@
+package com.parcelgo.pricing.web.dto;
+
+/**
+ * One trip to price; {@code vehicleType} omitted in a batch = every vehicle that can take it. The
+ * pickup point, when given, applies that area's surge; pickup and drop points are bound into the
+ * quote token.
+ */
+public class QuoteRequest {
+  public Double distanceKm;
+  public Double weightKg;
+  public String vehicleType;
+  public String city;
+  public String promoCode;
+  public Double fromLat;
+  public Double fromLng;
+  public Double toLat;
+  public Double toLng;
+}
@@ -0,0 +1,15 @@
+package com.parcelgo.pricing.web.dto;
+
+import java.util.List;
+
+public class SurgeSignalsRequest {
+  public List<Item> signals;
+
+  /** {@code kind}: ORDER or COURIER; {@code count} defaults to 1. */
+  public static class Item {
+    public String kind;
+    public Double lat;
+    public Double lng;
+    public Long count;
+  }
+}
@@ -0,0 +1,209 @@
+package com.parcelgo.routing.eta;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams completed trips from orderdb into the {@link EtaCorrectionModel}.
+ *
+ * Follows {@code order_status_history} by {@code at}: a picked-up transition remembers the order's pickup time, the
+ * matching delivered transition turns it into an actual duration, which is compared with the uncorrected
+ * {@link EtaEstimator} prediction for the same trip and departure. On startup the last {@code backfill}
+ * of history is replayed through the same path, so the model is warm without a snapshot of its own.
+ * Disabled unless {@code parcelgo.routing.eta-learning.jdbc-url} is set; like the autocomplete seeder
+ * it uses a plain read-only JDBC connection.
+ *
+ * {@code at} and the id are both assigned before the inserting transaction commits, so a row can become
+ * visible after rows with higher ids and later times were read. Each sweep therefore starts
+ * {@code change-lag} before the newest transition seen and re-reads that overlap; history ids already
+ * applied are skipped, as the scheduling service does for order changes.
+ */
+@Component
+public class DeliveryDurationFeed {
+
+  private static final Logger log = LoggerFactory.getLogger(DeliveryDurationFeed.class);
+
+  private static final String SQL = """
+      SELECT h.id, h.order_id, h.status, h.at, o.pickup_lat, o.pickup_lng, o.drop_lat, o.drop_lng
+        FROM order_status_history h
+        JOIN orders o ON o.id = h.order_id
+       WHERE (h.at, h.id) > (?, ?) AND UPPER(h.status) IN (?, ?)
+       ORDER BY h.at, h.id
+       LIMIT ?""";
+
+  private final EtaEstimator estimator;
+  private final EtaCorrectionModel model;
+  private final String jdbcUrl;
+  private final String username;
+  private final String password;
+  private final String pickedUpStatus;
+  private final String deliveredStatus;
+  private final Duration pollInterval;
+  private final Duration backfill;
+  private final Duration changeLag;
+  private final int batchSize;
+  private final ZoneOffset dbOffset;
+
+  /** Pickup times of orders in transit, oldest dropped first so abandoned orders can't pile up. */
+  private final Map<Long, Long> pickedUp;
+  private final AtomicLong lastId = new AtomicLong();
+  /** Newest {@code at} read so far; null until the first row. Only touched by the feed thread. */
+  private LocalDateTime changedAt;
+  private LocalDateTime sweepAt;
+  private long sweepId;
+  /** History ids applied within {@code change-lag} of {@link #changedAt}, and their {@code at}. */
+  private final Map<Long, LocalDateTime> applied = new HashMap<>();
+  private volatile boolean running;
+  private Thread thread;
+
+  public DeliveryDurationFeed(EtaEstimator estimator, EtaCorrectionModel model, MeterRegistry registry,
+                              @Value("${parcelgo.routing.eta-learning.jdbc-url:}") String jdbcUrl,
+                              @Value("${parcelgo.routing.eta-learning.username:postgres}") String username,
+                              @Value("${parcelgo.routing.eta-learning.password:postgres}") String password,
+                              @Value("${parcelgo.routing.eta-learning.picked-up-status:PICKED_UP}") String pickedUpStatus,
+                              @Value("${parcelgo.routing.eta-learning.delivered-status:DELIVERED}") String deliveredStatus,
+                              @Value("${parcelgo.routing.eta-learning.poll-interval:15s}") Duration pollInterval,
+                              @Value("${parcelgo.routing.eta-learning.backfill:30d}") Duration backfill,
+                              @Value("${parcelgo.routing.eta-learning.change-lag:60s}") Duration changeLag,
+                              @Value("${parcelgo.routing.eta-learning.batch-size:5000}") int batchSize,
+                              @Value("${parcelgo.routing.eta-learning.max-in-transit:100000}") int maxInTransit,
+                              @Value("${parcelgo.routing.speed.utc-offset:+05:30}") String dbOffset){
+    this.estimator = estimator;
+    this.model = model;
+    this.jdbcUrl = jdbcUrl;
+    this.username = username;
+    this.password = password;
+    this.pickedUpStatus = pickedUpStatus.toUpperCase(Locale.ROOT);
+    this.deliveredStatus = deliveredStatus.toUpperCase(Locale.ROOT);
+    this.pollInterval = pollInterval;
+    this.backfill = backfill;
+    this.changeLag = changeLag;
+    this.batchSize = batchSize;
+    this.dbOffset = ZoneOffset.of(dbOffset);
+    this.pickedUp = new LinkedHashMap<>(1024, 0.75f, false) {
+      @Override protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest){
+        return size() > maxInTransit;
+      }
+    };
+    Gauge.builder("routing.eta.learning.in-transit", this, f -> f.inTransit()).register(registry);
+    Gauge.builder("routing.eta.learning.last-id", lastId, AtomicLong::get).register(registry);
+  }
+
+  @PostConstruct
+  void start(){
+    if (jdbcUrl.isBlank()) return;
+    running = true;
+    thread = new Thread(this::run, "eta-learning-feed");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  @PreDestroy
+  void stop(){
+    running = false;
+    if (thread != null) thread.interrupt();
+  }
+
+  private void run(){
+    LocalDateTime since = LocalDateTime.now(dbOffset).minus(backfill);
+    Connection c = null;
+    while (running) {
+      try {
+        if (c == null || !c.isValid(2)) {
+          if (c != null) c.close();
+          c = DriverManager.getConnection(jdbcUrl, username, password);
+          c.setReadOnly(true);
+        }
+        // a full batch means we're behind (or backfilling): go again without sleeping
+        if (poll(c, since) < batchSize) Thread.sleep(pollInterval.toMillis());
+      } catch (InterruptedException e) {
+        break;
+      } catch (SQLException | RuntimeException e) {
+        log.warn("eta learning poll of {} failed: {}", jdbcUrl, e.toString());
+        try { if (c != null) c.close(); } catch (SQLException ignored) {}
+        c = null;
+        try { Thread.sleep(pollInterval.toMillis()); } catch (InterruptedException ie) { break; }
+      }
+    }
+    try { if (c != null) c.close(); } catch (SQLException ignored) {}
+  }
+
+  /**
+   * Applies the next page of transitions, starting a sweep {@code change-lag} before the newest one seen
+   * (or at {@code since} on the first) and skipping history ids already applied; returns how many rows
+   * were read. A short page ends the sweep and the next call starts a new one.
+   */
+  int poll(Connection c, LocalDateTime since) throws SQLException {
+    if (sweepAt == null) {
+      sweepAt = changedAt == null ? since : changedAt.minus(changeLag);
+      sweepId = -1;
+    }
+    int rows = 0;
+    try (PreparedStatement ps = c.prepareStatement(SQL)) {
+      ps.setTimestamp(1, Timestamp.valueOf(sweepAt));
+      ps.setLong(2, sweepId);
+      ps.setString(3, pickedUpStatus);
+      ps.setString(4, deliveredStatus);
+      ps.setInt(5, batchSize);
+      ps.setFetchSize(1000);
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          rows++;
+          long id = rs.getLong(1);
+          LocalDateTime stamped = rs.getTimestamp(4).toLocalDateTime();
+          sweepAt = stamped;
+          sweepId = id;
+          if (changedAt == null || stamped.isAfter(changedAt)) changedAt = stamped;
+          if (id > lastId.get()) lastId.set(id);
+          if (applied.put(id, stamped) != null) continue;
+          long orderId = rs.getLong(2);
+          String status = rs.getString(3).toUpperCase(Locale.ROOT);
+          long at = stamped.toInstant(dbOffset).toEpochMilli();
+          if (status.equals(pickedUpStatus)) {
+            synchronized (pickedUp) { pickedUp.put(orderId, at); }
+            continue;
+          }
+          Long pickedAt;
+          synchronized (pickedUp) { pickedAt = pickedUp.remove(orderId); }
+          if (pickedAt == null || at <= pickedAt) continue;
+          if (rs.getObject(5) == null || rs.getObject(6) == null || rs.getObject(7) == null || rs.getObject(8) == null) continue;
+          double fromLat = rs.getDouble(5), fromLng = rs.getDouble(6), toLat = rs.getDouble(7), toLng = rs.getDouble(8);
+          EtaEstimator.Estimate predicted = estimator.estimate(fromLat, fromLng, toLat, toLng, pickedAt);
+          model.observe(fromLat, fromLng, pickedAt, predicted.minutes(), (at - pickedAt) / 60_000.0);
+        }
+      }
+    }
+    if (rows < batchSize) sweepAt = null;
+    // no later sweep starts before changedAt - change-lag, so older ids can't come back
+    if (changedAt != null) {
+      LocalDateTime forgetBefore = changedAt.minus(changeLag);
+      applied.values().removeIf(at -> at.isBefore(forgetBefore));
+    }
+    return rows;
+  }
+
+  private int inTransit(){
+    synchronized (pickedUp) { return pickedUp.size(); }
+  }
+}
@@ -0,0 +1,150 @@
+package com.parcelgo.routing.eta;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Online correction of ETAs from observed delivery durations.
+ *
+ * Each observation is {@code x = ln(actual / predicted)} for a trip, filed under the pickup cell and the
+ * local hour of the pickup. Per (cell, hour), per cell and globally the model keeps an exponentially
+ * time-decayed weight, mean and variance of x (weighted Welford update; weights halve every
+ * {@code half-life}), so recent deliveries count most and every update is O(1).
+ *
+ * A prediction is corrected with the most specific level that has at least {@code min-weight} of
+ * evidence: {@code minutes * e^mean}, with an interval {@code minutes * e^(mean +- z * sd)}.
+ */
+@Component
+public class EtaCorrectionModel {
+
+  public static final int HOURS = 24;
+  private static final double MAX_ABS_LOG_RATIO = 2.0;
+
+  public record Correction(double minutes, double lowMinutes, double highMinutes, double weight, String level) {}
+
+  /** Decayed weight/mean/variance accumulator; guarded by its own monitor. */
+  static final class Stats {
+    private double weight, mean, m2;
+    private long lastMillis;
+
+    synchronized void add(double x, long atMillis, double lambdaPerMs) {
+      if (weight > 0 && atMillis > lastMillis) {
+        double decay = Math.exp(-lambdaPerMs * (atMillis - lastMillis));
+        weight *= decay;
+        m2 *= decay;
+      }
+      lastMillis = Math.max(lastMillis, atMillis);
+      weight += 1;
+      double delta = x - mean;
+      mean += delta / weight;
+      m2 += delta * (x - mean);
+    }
+
+    /** {weight, mean, variance} as of now. */
+    synchronized double[] snapshot(long nowMillis, double lambdaPerMs) {
+      double decay = nowMillis > lastMillis ? Math.exp(-lambdaPerMs * (nowMillis - lastMillis)) : 1;
+      double w = weight * decay;
+      return new double[] { w, mean, weight > 1 ? m2 / (weight - 1) : 0 };
+    }
+  }
+
+  private static final class Cell {
+    final Stats all = new Stats();
+    final Stats[] byHour = new Stats[HOURS];
+    Cell() { for (int h = 0; h < HOURS; h++) byHour[h] = new Stats(); }
+  }
+
+  private final Map<Long, Cell> cells = new ConcurrentHashMap<>();
+  private final Stats global = new Stats();
+  private final double cellDeg;
+  private final long utcOffsetMillis;
+  private final double lambdaPerMs;
+  private final double minWeight;
+  private final double z;
+  private final double priorSd;
+
+  private final Counter observations;
+  private final Counter rejected;
+  private final Map<String, Counter> corrections = new ConcurrentHashMap<>();
+  private final MeterRegistry registry;
+
+  public EtaCorrectionModel(MeterRegistry registry,
+                            @Value("${parcelgo.routing.eta-learning.cell-deg:0.02}") double cellDeg,
+                            @Value("${parcelgo.routing.speed.utc-offset:+05:30}") String utcOffset,
+                            @Value("${parcelgo.routing.eta-learning.half-life:14d}") Duration halfLife,
+                            @Value("${parcelgo.routing.eta-learning.min-weight:5}") double minWeight,
+                            @Value("${parcelgo.routing.eta-learning.z:1.645}") double z,
+                            @Value("${parcelgo.routing.eta-learning.prior-sd:0.35}") double priorSd) {
+    this.registry = registry;
+    this.cellDeg = cellDeg;
+    this.utcOffsetMillis = ZoneOffset.of(utcOffset).getTotalSeconds() * 1000L;
+    this.lambdaPerMs = Math.log(2) / halfLife.toMillis();
+    this.minWeight = minWeight;
+    this.z = z;
+    this.priorSd = priorSd;
+    this.observations = Counter.builder("routing.eta.learning.observations").tag("result", "applied").register(registry);
+    this.rejected = Counter.builder("routing.eta.learning.observations").tag("result", "rejected").register(registry);
+    Gauge.builder("routing.eta.learning.cells", cells, Map::size).register(registry);
+  }
+
+  /** Folds one completed trip into the model. */
+  public void observe(double pickupLat, double pickupLng, long pickedUpMillis, double predictedMinutes, double actualMinutes) {
+    if (!(predictedMinutes > 0) || !(actualMinutes > 0)) {
+      rejected.increment();
+      return;
+    }
+    double x = Math.log(actualMinutes / predictedMinutes);
+    if (Math.abs(x) > MAX_ABS_LOG_RATIO) { // > 7x off: a data problem, not traffic
+      rejected.increment();
+      return;
+    }
+    Cell c = cells.computeIfAbsent(cellKey(pickupLat, pickupLng), k -> new Cell());
+    c.byHour[hour(pickedUpMillis)].add(x, pickedUpMillis, lambdaPerMs);
+    c.all.add(x, pickedUpMillis, lambdaPerMs);
+    global.add(x, pickedUpMillis, lambdaPerMs);
+    observations.increment();
+  }
+
+  /** Corrected minutes and interval for a prediction departing from the given point at the given time. */
+  public Correction correct(double minutes, double lat, double lng, long departMillis) {
+    long now = System.currentTimeMillis();
+    Cell c = cells.get(cellKey(lat, lng));
+    double[] s = null;
+    String level = "none";
+    if (c != null) {
+      double[] h = c.byHour[hour(departMillis)].snapshot(now, lambdaPerMs);
+      double[] a = c.all.snapshot(now, lambdaPerMs);
+      if (h[0] >= minWeight) { s = h; level = "cell-hour"; }
+      else if (a[0] >= minWeight) { s = a; level = "cell"; }
+    }
+    if (s == null) {
+      double[] g = global.snapshot(now, lambdaPerMs);
+      if (g[0] >= minWeight) { s = g; level = "global"; }
+    }
+    corrections.computeIfAbsent(level,
+        l -> Counter.builder("routing.eta.corrections").tag("level", l).register(registry)).increment();
+    if (s == null) {
+      return new Correction(minutes, minutes * Math.exp(-z * priorSd), minutes * Math.exp(z * priorSd), 0, level);
+    }
+    double sd = Math.sqrt(s[2]);
+    return new Correction(minutes * Math.exp(s[1]), minutes * Math.exp(s[1] - z * sd), minutes * Math.exp(s[1] + z * sd),
+        s[0], level);
+  }
+
+  private int hour(long epochMillis) {
+    return (int) Math.floorMod(Math.floorDiv(epochMillis + utcOffsetMillis, 3_600_000L), HOURS);
+  }
+
+  private long cellKey(double lat, double lng) {
+    long y = (long) Math.floor(lat / cellDeg), x = (long) Math.floor(lng / cellDeg);
+    return (y << 32) | (x & 0xffffffffL);
+  }
+}
@@ -0,0 +1,47 @@
+package com.parcelgo.routing.eta;
+
+import com.parcelgo.routing.graph.RoadRouter;
+import com.parcelgo.routing.graph.Route;
+import com.parcelgo.routing.speed.SpeedProfiles;
+import org.springframework.stereotype.Component;
+
+/**
+ * Uncorrected ETA: road route when the graph covers both points, straight line otherwise, timed by the
+ * speed profile when one is loaded. Shared by {@code /eta} and the correction learner so the learner
+ * compares actual durations against exactly what was predicted.
+ */
+@Component
+public class EtaEstimator {
+
+  public record Estimate(double distanceKm, double minutes, String source, boolean profiled) {}
+
+  private final RoadRouter router;
+  private final SpeedProfiles speeds;
+
+  public EtaEstimator(RoadRouter router, SpeedProfiles speeds){
+    this.router = router;
+    this.speeds = speeds;
+  }
+
+  public Estimate estimate(double fromLat, double fromLng, double toLat, double toLng, long departMillis){
+    boolean profiled = speeds.available();
+    Route route = router.route(fromLat, fromLng, toLat, toLng, profiled);
+    if (route != null) {
+      double minutes = speeds.roadMinutes(router.graph(), route.edges(), route.minutes(), departMillis);
+      return new Estimate(route.distanceKm(), minutes, "road", profiled);
+    }
+    double km = haversineKm(fromLat, fromLng, toLat, toLng);
+    return new Estimate(km, speeds.lineMinutes(fromLat, fromLng, toLat, toLng, km, departMillis), "haversine", profiled);
+  }
+
+  static double haversineKm(double fromLat, double fromLng, double toLat, double toLng){
+    double R = 6371.0;
+    double dLat = Math.toRadians(toLat - fromLat);
+    double dLon = Math.toRadians(toLng - fromLng);
+    double a = Math.sin(dLat/2)*Math.sin(dLat/2) +
+               Math.cos(Math.toRadians(fromLat))*Math.cos(Math.toRadians(toLat)) *
+               Math.sin(dLon/2)*Math.sin(dLon/2);
+    double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1-a));
+    return R * c;
+  }
+}
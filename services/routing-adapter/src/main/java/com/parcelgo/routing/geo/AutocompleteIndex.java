@@ -0,0 +1,298 @@
+package com.parcelgo.routing.geo;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Local address autocomplete, ranked by popularity, consulted by {@code /geo/search} before Nominatim.
+ *
+ * Places come from geocode results the service has already fetched and from order pickup/drop
+ * addresses ({@link OrderAddressSeeder}). New places go to an in-memory delta (a skip list of
+ * word-boundary terms); every {@code persist-interval} the delta is merged with the current
+ * {@link AutocompleteSnapshot}, written to disk and the new file is memory-mapped in its place, so a
+ * restart starts from the last snapshot instead of an empty index. At most {@code max-entries} of the
+ * most popular places are kept.
+ */
+@Component
+public class AutocompleteIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(AutocompleteIndex.class);
+
+    private record Pending(String displayName, double lat, double lon, AtomicInteger weight) {}
+
+    /** Places learned since the last snapshot, keyed by folded name, and their terms ("term\0name"). */
+    private static final class Delta {
+        final Map<String, Pending> entries = new ConcurrentHashMap<>();
+        final ConcurrentSkipListMap<String, Pending> terms = new ConcurrentSkipListMap<>();
+    }
+
+    private final Path file;
+    private final int maxEntries;
+    private final int termsPerEntry;
+    private final int minPrefix;
+    private final int maxScan;
+    private final int maxPending;
+    private final Duration persistInterval;
+
+    private volatile AutocompleteSnapshot snapshot = AutocompleteSnapshot.EMPTY;
+    private volatile Delta active = new Delta();
+    private volatile Delta merging;
+    private ScheduledExecutorService persister;
+    /** Set while an early persist is queued, so a burst of learns past {@code max-pending} queues one. */
+    private final AtomicBoolean persistQueued = new AtomicBoolean();
+
+    private final Counter localHits;
+    private final Counter misses;
+    private final Counter rebuilds;
+
+    public AutocompleteIndex(MeterRegistry registry,
+                             @Value("${parcelgo.geo.autocomplete.dir:data/autocomplete}") String dir,
+                             @Value("${parcelgo.geo.autocomplete.max-entries:200000}") int maxEntries,
+                             @Value("${parcelgo.geo.autocomplete.terms-per-entry:6}") int termsPerEntry,
+                             @Value("${parcelgo.geo.autocomplete.min-prefix:3}") int minPrefix,
+                             @Value("${parcelgo.geo.autocomplete.max-scan:2000}") int maxScan,
+                             @Value("${parcelgo.geo.autocomplete.max-pending:50000}") int maxPending,
+                             @Value("${parcelgo.geo.autocomplete.persist-interval:5m}") Duration persistInterval) {
+        this.file = Path.of(dir).resolve("places.pgac");
+        this.maxEntries = maxEntries;
+        this.termsPerEntry = termsPerEntry;
+        this.minPrefix = minPrefix;
+        this.maxScan = maxScan;
+        this.maxPending = maxPending;
+        this.persistInterval = persistInterval;
+        this.localHits = Counter.builder("geo.autocomplete.lookups").tag("result", "local").register(registry);
+        this.misses = Counter.builder("geo.autocomplete.lookups").tag("result", "upstream").register(registry);
+        this.rebuilds = Counter.builder("geo.autocomplete.rebuilds").register(registry);
+        Gauge.builder("geo.autocomplete.entries", this, i -> i.snapshot.entryCount()).register(registry);
+        Gauge.builder("geo.autocomplete.pending", this, i -> i.active.entries.size()).register(registry);
+    }
+
+    @PostConstruct
+    void start() {
+        if (Files.exists(file)) {
+            try {
+                snapshot = AutocompleteSnapshot.open(file);
+                log.info("autocomplete index loaded: {} places from {}", snapshot.entryCount(), file);
+            } catch (IOException | RuntimeException e) {
+                log.warn("ignoring unreadable autocomplete index {}: {}", file, e.toString());
+            }
+        }
+        persister = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "geo-autocomplete-persist");
+            t.setDaemon(true);
+            return t;
+        });
+        long every = persistInterval.toMillis();
+        persister.scheduleWithFixedDelay(this::persistQuietly, every, every, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (persister != null) persister.shutdownNow();
+        persistQuietly();
+    }
+
+    /**
+     * Best {@code limit} places whose name has a word starting with {@code query}. Counts as a local hit
+     * when at least {@code minResults} come back; callers fall back to upstream otherwise.
+     */
+    public List<Suggestion> search(String query, int limit, int minResults) {
+        String folded = fold(query);
+        if (folded.length() < minPrefix || limit <= 0) {
+            misses.increment();
+            return List.of();
+        }
+        byte[] prefix = AutocompleteSnapshot.key(folded);
+        // terms are cut to MAX_TERM_BYTES; longer queries match on the cut and are verified on the name
+        boolean verify = folded.getBytes(StandardCharsets.UTF_8).length > prefix.length;
+        String termPrefix = verify ? new String(prefix, StandardCharsets.UTF_8) : folded;
+
+        Map<String, Suggestion> found = new HashMap<>();
+        AutocompleteSnapshot snap = snapshot;
+        Set<Integer> ids = new HashSet<>();
+        snap.search(prefix, maxScan, ids::add);
+        // rank on the mapped weights first and only decode the names of the best candidates
+        PriorityQueue<Integer> best = new PriorityQueue<>(Comparator.comparingInt(snap::weight));
+        int keep = verify ? maxScan : limit * 2;
+        for (int id : ids) {
+            best.add(id);
+            if (best.size() > keep) best.poll();
+        }
+        for (int id : best) add(found, snap.entry(id), folded, verify);
+        for (Delta d : new Delta[] { merging, active }) {
+            if (d == null) continue;
+            Set<Pending> seen = new HashSet<>();
+            for (Pending p : d.terms.subMap(termPrefix, true, termPrefix + Character.MAX_VALUE, true).values()) {
+                if (!seen.add(p)) continue;
+                add(found, new Suggestion(p.displayName(), p.lat(), p.lon(), p.weight().get()), folded, verify);
+                if (seen.size() >= maxScan) break;
+            }
+        }
+
+        List<Suggestion> out = new ArrayList<>(found.values());
+        out.sort(Comparator.comparingInt(Suggestion::weight).reversed().thenComparing(Suggestion::displayName));
+        if (out.size() > limit) out = out.subList(0, limit);
+        if (out.size() >= Math.min(limit, minResults)) localHits.increment();
+        else misses.increment();
+        return out;
+    }
+
+    private static void add(Map<String, Suggestion> found, Suggestion s, String folded, boolean verify) {
+        String key = fold(s.displayName());
+        if (verify && !(key.startsWith(folded) || key.contains(" " + folded))) return;
+        // the same place can sit in the snapshot and in a delta: weights add up
+        found.merge(key, s, (a, b) -> new Suggestion(b.displayName(), b.lat(), b.lon(), saturatedAdd(a.weight(), b.weight())));
+    }
+
+    /** Records a place as seen {@code weight} more times. */
+    public void learn(String displayName, double lat, double lon, int weight) {
+        if (displayName == null || displayName.isBlank() || !Double.isFinite(lat) || !Double.isFinite(lon)) return;
+        String key = fold(displayName);
+        if (key.length() < minPrefix) return;
+        Delta d = active;
+        Pending p = d.entries.computeIfAbsent(key, k -> {
+            Pending n = new Pending(displayName.strip(), lat, lon, new AtomicInteger());
+            for (byte[] term : AutocompleteSnapshot.terms(k, termsPerEntry)) {
+                d.terms.put(new String(term, StandardCharsets.UTF_8) + '\0' + k, n);
+            }
+            return n;
+        });
+        p.weight().addAndGet(weight);
+        if (d.entries.size() >= maxPending && persister != null && persistQueued.compareAndSet(false, true)) {
+            persister.execute(() -> {
+                persistQueued.set(false);
+                persistQuietly();
+            });
+        }
+    }
+
+    /** Places in the current snapshot, not counting those learned since. */
+    public int entryCount() {
+        return snapshot.entryCount();
+    }
+
+    /** Learns from Nominatim jsonv2 results ({@code display_name}, {@code lat}, {@code lon}). */
+    public void learnAll(List<Map<String, Object>> results) {
+        for (Map<String, Object> r : results) learn(r);
+    }
+
+    public void learn(Map<String, Object> result) {
+        if (result == null || !(result.get("display_name") instanceof String name)) return;
+        Double lat = number(result.get("lat"));
+        Double lon = number(result.get("lon"));
+        if (lat != null && lon != null) learn(name, lat, lon, 1);
+    }
+
+    /** Merges the pending places into a new snapshot file and maps it. */
+    public synchronized void persist() throws IOException {
+        Delta d = active;
+        if (d.entries.isEmpty()) return;
+        merging = d;
+        active = new Delta();
+        try {
+            AutocompleteSnapshot old = snapshot;
+            Map<String, Suggestion> all = new HashMap<>(old.entryCount() + d.entries.size());
+            for (int id = 0; id < old.entryCount(); id++) {
+                Suggestion s = old.entry(id);
+                all.put(fold(s.displayName()), s);
+            }
+            for (Map.Entry<String, Pending> e : d.entries.entrySet()) {
+                Pending p = e.getValue();
+                all.merge(e.getKey(), new Suggestion(p.displayName(), p.lat(), p.lon(), p.weight().get()),
+                        (a, b) -> new Suggestion(b.displayName(), b.lat(), b.lon(), saturatedAdd(a.weight(), b.weight())));
+            }
+            List<Suggestion> entries = new ArrayList<>(all.values());
+            if (entries.size() > maxEntries) {
+                entries.sort(Comparator.comparingInt(Suggestion::weight).reversed());
+                entries = new ArrayList<>(entries.subList(0, maxEntries));
+            }
+            AutocompleteSnapshot.write(file, entries, termsPerEntry);
+            snapshot = AutocompleteSnapshot.open(file);
+            rebuilds.increment();
+            log.debug("autocomplete index rebuilt: {} places", entries.size());
+        } catch (IOException | RuntimeException e) {
+            // keep what was learned; it is merged again next time
+            Delta current = active;
+            d.entries.forEach((k, p) -> {
+                Pending kept = current.entries.putIfAbsent(k, p);
+                if (kept != null) kept.weight().addAndGet(p.weight().get());
+            });
+            d.terms.forEach(current.terms::putIfAbsent);
+            throw e;
+        } finally {
+            merging = null;
+        }
+    }
+
+    private void persistQuietly() {
+        try {
+            persist();
+        } catch (IOException | RuntimeException e) {
+            log.warn("autocomplete index persist failed: {}", e.toString());
+        }
+    }
+
+    /** Lower-cased, NFKC-normalized, punctuation-free, single-spaced form names and queries are matched on. */
+    static String fold(String s) {
+        String n = Normalizer.normalize(s, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        StringBuilder b = new StringBuilder(n.length());
+        boolean space = true;
+        for (int i = 0; i < n.length(); ) {
+            int cp = n.codePointAt(i);
+            i += Character.charCount(cp);
+            if (Character.isLetterOrDigit(cp)) {
+                b.appendCodePoint(cp);
+                space = false;
+            } else if (!space) {
+                b.append(' ');
+                space = true;
+            }
+        }
+        int len = b.length();
+        if (len > 0 && b.charAt(len - 1) == ' ') b.setLength(len - 1);
+        return b.toString();
+    }
+
+    private static int saturatedAdd(int a, int b) {
+        long s = (long) a + b;
+        return s > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) s;
+    }
+
+    private static Double number(Object v) {
+        if (v instanceof Number n) return n.doubleValue();
+        if (v instanceof String s) {
+            try { return Double.parseDouble(s); } catch (NumberFormatException e) { return null; }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,230 @@
+package com.parcelgo.routing.geo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable, memory-mapped prefix index over {@link Suggestion}s.
+ *
+ * Every entry is indexed under the suffixes of its folded name that start at a word boundary (so
+ * "road" finds "mg road, bengaluru"), each cut to {@link #MAX_TERM_BYTES} UTF-8 bytes. The terms are
+ * sorted by unsigned byte order and front-coded in blocks of {@link #BLOCK} (shared-prefix length +
+ * suffix), with a block index for binary search; a prefix query seeks to its block and scans forward
+ * while terms still start with the prefix. Nothing is decoded onto the heap at load time.
+ *
+ * <pre>
+ * header  magic "PGAC", version, entryCount, termCount, blockCount, entryIndexPos, blockIndexPos, 0
+ * entries per entry: lat f64, lon f64, weight i32, nameLen u16, name utf-8
+ * terms   per term: shared varint, suffixLen varint, suffix, entryId varint (shared = 0 at block starts)
+ * index   entry offsets i32[entryCount], block offsets i32[blockCount]
+ * </pre>
+ */
+final class AutocompleteSnapshot {
+
+    static final int MAX_TERM_BYTES = 64;
+    static final int BLOCK = 16;
+    private static final int MAGIC = 0x50474143;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int WEIGHT_OFFSET = 16;
+
+    static final AutocompleteSnapshot EMPTY = new AutocompleteSnapshot(ByteBuffer.allocate(HEADER_BYTES)
+            .putInt(MAGIC).putInt(VERSION).putInt(0).putInt(0).putInt(0).putInt(HEADER_BYTES).putInt(HEADER_BYTES).putInt(0)
+            .flip());
+
+    private final ByteBuffer buf;
+    private final int entryCount;
+    private final int termCount;
+    private final int blockCount;
+    private final int entryIndexPos;
+    private final int blockIndexPos;
+
+    private AutocompleteSnapshot(ByteBuffer buf) {
+        if (buf.limit() < HEADER_BYTES || buf.getInt(0) != MAGIC) throw new IllegalArgumentException("not an autocomplete index");
+        if (buf.getInt(4) != VERSION) throw new IllegalArgumentException("unsupported autocomplete index version " + buf.getInt(4));
+        this.buf = buf;
+        this.entryCount = buf.getInt(8);
+        this.termCount = buf.getInt(12);
+        this.blockCount = buf.getInt(16);
+        this.entryIndexPos = buf.getInt(20);
+        this.blockIndexPos = buf.getInt(24);
+    }
+
+    static AutocompleteSnapshot open(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new AutocompleteSnapshot(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+        }
+    }
+
+    int entryCount() { return entryCount; }
+
+    Suggestion entry(int id) {
+        int pos = buf.getInt(entryIndexPos + 4 * id);
+        int len = Short.toUnsignedInt(buf.getShort(pos + 20));
+        byte[] name = new byte[len];
+        buf.get(pos + 22, name, 0, len);
+        return new Suggestion(new String(name, StandardCharsets.UTF_8), buf.getDouble(pos), buf.getDouble(pos + 8), weight(id));
+    }
+
+    int weight(int id) {
+        return buf.getInt(buf.getInt(entryIndexPos + 4 * id) + WEIGHT_OFFSET);
+    }
+
+    /**
+     * Feeds the entry id of every term starting with {@code prefix} (already folded and cut to
+     * {@link #MAX_TERM_BYTES}) to {@code ids}, scanning at most {@code maxTerms} matching terms.
+     */
+    void search(byte[] prefix, int maxTerms, IntConsumer ids) {
+        if (blockCount == 0) return;
+        int lo = 0, hi = blockCount - 1;
+        byte[] term = new byte[MAX_TERM_BYTES];
+        while (lo < hi) { // last block whose first term is <= prefix
+            int mid = (lo + hi + 1) >>> 1;
+            int pos = buf.getInt(blockIndexPos + 4 * mid);
+            pos = skipVarint(pos);
+            int len = readVarint(pos);
+            pos = skipVarint(pos);
+            buf.get(pos, term, 0, len);
+            if (Arrays.compareUnsigned(term, 0, len, prefix, 0, prefix.length) <= 0) lo = mid;
+            else hi = mid - 1;
+        }
+        int pos = buf.getInt(blockIndexPos + 4 * lo);
+        int termLen = 0;
+        int matched = 0;
+        for (int t = lo * BLOCK; t < termCount; t++) {
+            int shared = readVarint(pos);
+            pos = skipVarint(pos);
+            int suffix = readVarint(pos);
+            pos = skipVarint(pos);
+            buf.get(pos, term, shared, suffix);
+            pos += suffix;
+            termLen = shared + suffix;
+            int id = readVarint(pos);
+            pos = skipVarint(pos);
+            if (termLen >= prefix.length && Arrays.equals(term, 0, prefix.length, prefix, 0, prefix.length)) {
+                ids.accept(id);
+                if (++matched >= maxTerms) return;
+            } else if (Arrays.compareUnsigned(term, 0, termLen, prefix, 0, prefix.length) > 0) {
+                return;
+            }
+        }
+    }
+
+    private int readVarint(int pos) {
+        int v = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buf.get(pos++);
+            v |= (b & 0x7f) << shift;
+            if (b >= 0) return v;
+        }
+    }
+
+    private int skipVarint(int pos) {
+        while (buf.get(pos++) < 0) { }
+        return pos;
+    }
+
+    /** Writes {@code entries} (entry id = list position) atomically to {@code file}. */
+    static void write(Path file, List<Suggestion> entries, int termsPerEntry) throws IOException {
+        record Term(byte[] key, int id) {}
+        List<Term> terms = new ArrayList<>();
+        for (int id = 0; id < entries.size(); id++) {
+            for (byte[] key : terms(AutocompleteIndex.fold(entries.get(id).displayName()), termsPerEntry)) {
+                terms.add(new Term(key, id));
+            }
+        }
+        terms.sort((a, b) -> {
+            int c = Arrays.compareUnsigned(a.key(), b.key());
+            return c != 0 ? c : Integer.compare(a.id(), b.id());
+        });
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(HEADER_BYTES + entries.size() * 64 + terms.size() * 16);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.write(new byte[HEADER_BYTES]);
+        int[] entryPos = new int[entries.size()];
+        for (int id = 0; id < entries.size(); id++) {
+            Suggestion s = entries.get(id);
+            byte[] name = s.displayName().getBytes(StandardCharsets.UTF_8);
+            int len = Math.min(name.length, 0xffff);
+            entryPos[id] = out.size();
+            out.writeDouble(s.lat());
+            out.writeDouble(s.lon());
+            out.writeInt(s.weight());
+            out.writeShort(len);
+            out.write(name, 0, len);
+        }
+        int blockCount = (terms.size() + BLOCK - 1) / BLOCK;
+        int[] blockPos = new int[blockCount];
+        byte[] prev = new byte[0];
+        for (int t = 0; t < terms.size(); t++) {
+            byte[] key = terms.get(t).key();
+            int shared = 0;
+            if (t % BLOCK == 0) {
+                blockPos[t / BLOCK] = out.size();
+            } else {
+                int max = Math.min(prev.length, key.length);
+                while (shared < max && prev[shared] == key[shared]) shared++;
+            }
+            writeVarint(out, shared);
+            writeVarint(out, key.length - shared);
+            out.write(key, shared, key.length - shared);
+            writeVarint(out, terms.get(t).id());
+            prev = key;
+        }
+        int entryIndexPos = out.size();
+        for (int p : entryPos) out.writeInt(p);
+        int blockIndexPos = out.size();
+        for (int p : blockPos) out.writeInt(p);
+        out.flush();
+
+        ByteBuffer data = ByteBuffer.wrap(bytes.toByteArray());
+        data.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, entries.size()).putInt(12, terms.size())
+                .putInt(16, blockCount).putInt(20, entryIndexPos).putInt(24, blockIndexPos);
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (data.hasRemaining()) ch.write(data);
+            ch.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Word-boundary suffixes of a folded name, as truncated UTF-8 keys. */
+    static List<byte[]> terms(String folded, int maxTerms) {
+        List<byte[]> out = new ArrayList<>(Math.min(maxTerms, 8));
+        int start = 0;
+        while (start < folded.length() && out.size() < maxTerms) {
+            out.add(key(folded.substring(start)));
+            int sp = folded.indexOf(' ', start);
+            if (sp < 0) break;
+            start = sp + 1;
+        }
+        return out;
+    }
+
+    static byte[] key(String folded) {
+        byte[] b = folded.getBytes(StandardCharsets.UTF_8);
+        return b.length <= MAX_TERM_BYTES ? b : Arrays.copyOf(b, MAX_TERM_BYTES);
+    }
+
+    private static void writeVarint(DataOutputStream out, int v) throws IOException {
+        while ((v & ~0x7f) != 0) {
+            out.writeByte((v & 0x7f) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+}
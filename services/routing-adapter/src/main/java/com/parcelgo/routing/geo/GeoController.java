@@ -1,15 +1,19 @@
 package com.parcelgo.routing.geo;
 
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
-import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.core.ParameterizedTypeReference;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
 
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -20,43 +24,65 @@ import reactor.core.publisher.Mono;
 // otherwise you’ll get “Access-Control-Allow-Origin header contains multiple values”.
 public class GeoController {
 
-    private final WebClient nominatim;
+    private final NominatimClient nominatim;
+    private final GeocodeCache<List<Map<String, Object>>> searches;
+    private final GeocodeCache<Map<String, Object>> reverses;
+    private final double reverseScale;
+    private final AutocompleteIndex autocomplete;
+    private final int localMinResults;
 
-    public GeoController(@Qualifier("nominatim") WebClient nominatim) {
+    public GeoController(NominatimClient nominatim, MeterRegistry registry, AutocompleteIndex autocomplete,
+                         @Value("${parcelgo.geo.cache.max-entries:10000}") int maxEntries,
+                         @Value("${parcelgo.geo.cache.search-ttl:6h}") Duration searchTtl,
+                         @Value("${parcelgo.geo.cache.reverse-ttl:24h}") Duration reverseTtl,
+                         @Value("${parcelgo.geo.cache.reverse-decimals:4}") int reverseDecimals,
+                         @Value("${parcelgo.geo.autocomplete.min-results:3}") int localMinResults) {
         this.nominatim = nominatim;
+        this.autocomplete = autocomplete;
+        this.localMinResults = localMinResults;
+        this.searches = new GeocodeCache<>("search", maxEntries, searchTtl, registry);
+        this.reverses = new GeocodeCache<>("reverse", maxEntries, reverseTtl, registry);
+        this.reverseScale = Math.pow(10, reverseDecimals);
     }
 
-    /** Forward geocoding / search (autocomplete). */
+    /**
+     * Forward geocoding / search (autocomplete). Answered from the local {@link AutocompleteIndex} when it
+     * has enough matches, otherwise from Nominatim, cached per normalized query + limit.
+     */
     @GetMapping(value = "/search", produces = MediaType.APPLICATION_JSON_VALUE)
     public Flux<Map<String, Object>> search(
             @RequestParam("q") String q,
             @RequestParam(value = "limit", defaultValue = "5") int limit) {
 
-        return nominatim.get()
-                .uri(uri -> uri.path("/search")
-                        .queryParam("format", "jsonv2")
-                        .queryParam("addressdetails", "1")
-                        .queryParam("limit", limit)
-                        .queryParam("q", q)
-                        .build())
-                .retrieve()
-                .bodyToFlux(new ParameterizedTypeReference<Map<String, Object>>() {});
+        List<Suggestion> local = autocomplete.search(q, limit, localMinResults);
+        if (!local.isEmpty() && local.size() >= Math.min(limit, localMinResults)) {
+            return Flux.fromIterable(local).map(Suggestion::toJson);
+        }
+        String query = normalize(q);
+        return searches.get(limit + "|" + query, () -> nominatim.search(query, limit).doOnNext(autocomplete::learnAll))
+                // upstream busy or throttled: whatever the local index has beats an error
+                .onErrorResume(ResponseStatusException.class, e -> local.isEmpty() ? Mono.error(e) : Mono.just(
+                        local.stream().map(Suggestion::toJson).toList()))
+                .flatMapMany(Flux::fromIterable);
     }
 
-    /** Reverse geocoding (lat/lon -> address & display_name). */
+    /**
+     * Reverse geocoding (lat/lon -> address & display_name). Coordinates are rounded to
+     * {@code reverse-decimals} (4 = ~11 m) before the upstream call, so nearby clicks share an entry.
+     */
     @GetMapping(value = "/reverse", produces = MediaType.APPLICATION_JSON_VALUE)
     public Mono<Map<String, Object>> reverse(
             @RequestParam("lat") double lat,
             @RequestParam("lon") double lon) {
 
-        return nominatim.get()
-                .uri(uri -> uri.path("/reverse")
-                        .queryParam("format", "jsonv2")
-                        .queryParam("addressdetails", "1")
-                        .queryParam("lat", lat)
-                        .queryParam("lon", lon)
-                        .build())
-                .retrieve()
-                .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {});
+        double rLat = Math.round(lat * reverseScale) / reverseScale;
+        double rLon = Math.round(lon * reverseScale) / reverseScale;
+        return reverses.get(rLat + "," + rLon, () -> nominatim.reverse(rLat, rLon).doOnNext(autocomplete::learn));
+    }
+
+    /** Case-folded, NFKC-normalized, whitespace-collapsed query; what the cache is keyed on. */
+    static String normalize(String q) {
+        String s = Normalizer.normalize(q, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT).trim();
+        return s.replaceAll("\\s+", " ");
     }
 }
@@ -0,0 +1,111 @@
+package com.parcelgo.routing.geo;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+/**
+ * Bounded LRU cache with a per-entry TTL in front of a reactive loader.
+ *
+ * Lookups and inserts take one short lock on an access-ordered {@link LinkedHashMap}; the eldest entry
+ * is evicted once {@code maxEntries} is exceeded. Concurrent misses for the same key share one upstream
+ * call (single-flight): the first caller's load is published with {@code publish().refCount()} and later
+ * callers join it until it terminates, after which they find the value in the cache. When every caller
+ * has cancelled, the load is cancelled too, so the upstream client can drop it. Failed or empty loads are
+ * not cached.
+ */
+public class GeocodeCache<V> {
+
+    private record Entry<V>(V value, long expiresAtNanos) {}
+
+    private final long ttlNanos;
+    private final Map<String, Entry<V>> entries;
+    private final Map<String, Mono<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter coalesced;
+    private final Counter evictions;
+
+    public GeocodeCache(String name, int maxEntries, Duration ttl, MeterRegistry registry) {
+        this.ttlNanos = ttl.toNanos();
+        this.hits = Counter.builder("geo.cache.requests").tag("cache", name).tag("result", "hit").register(registry);
+        this.misses = Counter.builder("geo.cache.requests").tag("cache", name).tag("result", "miss").register(registry);
+        this.coalesced = Counter.builder("geo.cache.requests").tag("cache", name).tag("result", "coalesced").register(registry);
+        this.evictions = Counter.builder("geo.cache.evictions").tag("cache", name).register(registry);
+        this.entries = new LinkedHashMap<>(Math.min(maxEntries, 1 << 16), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<V>> eldest) {
+                if (size() <= maxEntries) return false;
+                evictions.increment();
+                return true;
+            }
+        };
+        Gauge.builder("geo.cache.size", this, GeocodeCache::size).tag("cache", name).register(registry);
+        Gauge.builder("geo.cache.inflight", inFlight, Map::size).tag("cache", name).register(registry);
+    }
+
+    public Mono<V> get(String key, Supplier<Mono<V>> loader) {
+        return Mono.defer(() -> {
+            V cached = lookup(key);
+            if (cached != null) {
+                hits.increment();
+                return Mono.just(cached);
+            }
+            Mono<V> existing = inFlight.get(key);
+            if (existing != null) {
+                coalesced.increment();
+                return existing;
+            }
+            @SuppressWarnings("unchecked")
+            Mono<V>[] self = new Mono[1];
+            self[0] = Mono.defer(loader)
+                    .doOnNext(v -> put(key, v))
+                    .doFinally(s -> inFlight.remove(key, self[0]))
+                    .flux()
+                    .publish()
+                    .refCount()
+                    .next();
+            existing = inFlight.putIfAbsent(key, self[0]);
+            if (existing != null) {
+                coalesced.increment();
+                return existing;
+            }
+            misses.increment();
+            return self[0];
+        });
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private V lookup(String key) {
+        long now = System.nanoTime();
+        synchronized (entries) {
+            Entry<V> e = entries.get(key);
+            if (e == null) return null;
+            if (now - e.expiresAtNanos() >= 0) {
+                entries.remove(key);
+                return null;
+            }
+            return e.value();
+        }
+    }
+
+    private void put(String key, V value) {
+        Entry<V> e = new Entry<>(value, System.nanoTime() + ttlNanos);
+        synchronized (entries) {
+            entries.put(key, e);
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package com.parcelgo.routing.geo;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ResponseStatusException;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+/**
+ * The only way out to Nominatim: every call is queued and released at a governed rate.
+ *
+ * A token bucket ({@code rate-per-second}, {@code burst}) paces dispatches and at most
+ * {@code max-in-flight} calls run at once. The queue is bounded and ordered by priority (reverse
+ * lookups, which answer a map click, before speculative autocomplete searches) and then by age; a full
+ * queue evicts its least important request for a more important one or rejects the newcomer. Requests
+ * whose deadline passed while queued, or whose caller went away (the user typed the next character),
+ * are dropped without spending a token or a permit, including when that happened while the dispatcher
+ * was waiting for one. A 429/503 from upstream pauses dispatching for its
+ * {@code Retry-After}. Callers get a 503 {@link ResponseStatusException} instead of an error storm.
+ */
+@Component
+public class NominatimClient {
+
+    private static final Logger log = LoggerFactory.getLogger(NominatimClient.class);
+    private static final ParameterizedTypeReference<Map<String, Object>> JSON_OBJECT = new ParameterizedTypeReference<>() {};
+
+    public enum Priority { REVERSE, SEARCH }
+
+    private final class Pending implements Comparable<Pending> {
+        final Priority priority;
+        final long seq = sequence.incrementAndGet();
+        final long deadlineNanos;
+        final Supplier<Mono<Object>> call;
+        final MonoSink<Object> sink;
+        volatile boolean cancelled;
+
+        Pending(Priority priority, long deadlineNanos, Supplier<Mono<Object>> call, MonoSink<Object> sink) {
+            this.priority = priority;
+            this.deadlineNanos = deadlineNanos;
+            this.call = call;
+            this.sink = sink;
+        }
+
+        @Override
+        public int compareTo(Pending o) {
+            int c = priority.compareTo(o.priority);
+            return c != 0 ? c : Long.compare(seq, o.seq);
+        }
+    }
+
+    private final WebClient nominatim;
+    private final int capacity;
+    private final double ratePerSecond;
+    private final double burst;
+    private final Duration searchDeadline;
+    private final Duration reverseDeadline;
+    private final Semaphore inFlight;
+
+    private final PriorityQueue<Pending> queue = new PriorityQueue<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private double tokens;
+    private long refilledAtNanos = System.nanoTime();
+    private volatile long pausedUntilNanos;
+    private volatile boolean running = true;
+    private Thread dispatcher;
+
+    private final MeterRegistry registry;
+    private final Timer latency;
+
+    public NominatimClient(@Qualifier("nominatim") WebClient nominatim, MeterRegistry registry,
+                           @Value("${parcelgo.geo.nominatim.rate-per-second:1}") double ratePerSecond,
+                           @Value("${parcelgo.geo.nominatim.burst:2}") double burst,
+                           @Value("${parcelgo.geo.nominatim.max-in-flight:4}") int maxInFlight,
+                           @Value("${parcelgo.geo.nominatim.queue-capacity:64}") int capacity,
+                           @Value("${parcelgo.geo.nominatim.search-deadline:2s}") Duration searchDeadline,
+                           @Value("${parcelgo.geo.nominatim.reverse-deadline:5s}") Duration reverseDeadline) {
+        this.nominatim = nominatim;
+        this.registry = registry;
+        this.ratePerSecond = ratePerSecond;
+        this.burst = Math.max(1, burst);
+        this.tokens = this.burst;
+        this.inFlight = new Semaphore(Math.max(1, maxInFlight));
+        this.capacity = capacity;
+        this.searchDeadline = searchDeadline;
+        this.reverseDeadline = reverseDeadline;
+        this.latency = Timer.builder("geo.upstream.latency").register(registry);
+        Gauge.builder("geo.upstream.queue.depth", this, NominatimClient::queueDepth).register(registry);
+    }
+
+    public Mono<List<Map<String, Object>>> search(String q, int limit) {
+        return submit(Priority.SEARCH, searchDeadline, () -> nominatim.get()
+                .uri(uri -> uri.path("/search")
+                        .queryParam("format", "jsonv2")
+                        .queryParam("addressdetails", "1")
+                        .queryParam("limit", limit)
+                        .queryParam("q", q)
+                        .build())
+                .retrieve()
+                .bodyToFlux(JSON_OBJECT)
+                .collectList());
+    }
+
+    public Mono<Map<String, Object>> reverse(double lat, double lon) {
+        return submit(Priority.REVERSE, reverseDeadline, () -> nominatim.get()
+                .uri(uri -> uri.path("/reverse")
+                        .queryParam("format", "jsonv2")
+                        .queryParam("addressdetails", "1")
+                        .queryParam("lat", lat)
+                        .queryParam("lon", lon)
+                        .build())
+                .retrieve()
+                .bodyToMono(JSON_OBJECT));
+    }
+
+    public int queueDepth() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Mono<T> submit(Priority priority, Duration deadline, Supplier<Mono<T>> call) {
+        return Mono.create(sink -> {
+            Pending p = new Pending(priority, System.nanoTime() + deadline.toNanos(), (Supplier<Mono<Object>>) (Supplier<?>) call,
+                    (MonoSink<Object>) (MonoSink<?>) sink);
+            sink.onCancel(() -> p.cancelled = true);
+            Pending evicted = null;
+            synchronized (queue) {
+                if (queue.size() >= capacity) {
+                    evicted = worst();
+                    if (evicted == null || evicted.compareTo(p) < 0) {
+                        evicted = null;
+                        count("rejected_full");
+                        sink.error(unavailable("geocoding queue full"));
+                        return;
+                    }
+                    queue.remove(evicted);
+                }
+                queue.add(p);
+                queue.notifyAll();
+            }
+            if (evicted != null) {
+                count("evicted");
+                evicted.sink.error(unavailable("geocoding queue full"));
+            }
+        });
+    }
+
+    /** Least important queued request (lowest priority, newest). */
+    private Pending worst() {
+        Pending w = null;
+        for (Pending p : queue) if (w == null || p.compareTo(w) > 0) w = p;
+        return w;
+    }
+
+    @PostConstruct
+    void start() {
+        dispatcher = new Thread(this::dispatchLoop, "nominatim-dispatch");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        dispatcher.interrupt();
+        synchronized (queue) {
+            for (Pending p : queue) p.sink.error(unavailable("shutting down"));
+            queue.clear();
+        }
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            try {
+                Pending p = nextLive();
+                awaitToken();
+                inFlight.acquire();
+                // waiting for the token (up to a whole Retry-After pause) or a permit may have outlived the caller
+                if (stale(p)) {
+                    inFlight.release();
+                    tokens = Math.min(burst, tokens + 1);
+                    continue;
+                }
+                dispatch(p);
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                log.warn("nominatim dispatcher error", e);
+            }
+        }
+    }
+
+    /** Blocks for the most important request that is still wanted. */
+    private Pending nextLive() throws InterruptedException {
+        while (true) {
+            Pending p;
+            synchronized (queue) {
+                while (queue.isEmpty()) queue.wait();
+                p = queue.poll();
+            }
+            if (!stale(p)) return p;
+        }
+    }
+
+    /** Counts and fails (if still wanted) a request that was cancelled or whose deadline passed. */
+    private boolean stale(Pending p) {
+        if (p.cancelled) {
+            count("cancelled");
+            return true;
+        }
+        if (System.nanoTime() - p.deadlineNanos > 0) {
+            count("dropped_stale");
+            p.sink.error(unavailable("geocoding request expired in queue"));
+            return true;
+        }
+        return false;
+    }
+
+    private void awaitToken() throws InterruptedException {
+        while (true) {
+            long now = System.nanoTime();
+            long paused = pausedUntilNanos - now;
+            if (paused > 0) {
+                Thread.sleep(Math.max(1, paused / 1_000_000));
+                continue;
+            }
+            tokens = Math.min(burst, tokens + (now - refilledAtNanos) * ratePerSecond / 1e9);
+            refilledAtNanos = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return;
+            }
+            Thread.sleep(Math.max(1, (long) Math.ceil((1 - tokens) * 1000 / ratePerSecond)));
+        }
+    }
+
+    private void dispatch(Pending p) {
+        count("sent");
+        long start = System.nanoTime();
+        Disposable d = Mono.defer(p.call)
+                .doFinally(s -> {
+                    inFlight.release();
+                    latency.record(Duration.ofNanos(System.nanoTime() - start));
+                })
+                .subscribe(p.sink::success, e -> {
+                    count("failed");
+                    p.sink.error(translate(e));
+                }, p.sink::success);
+        p.sink.onDispose(d);
+    }
+
+    private Throwable translate(Throwable e) {
+        if (e instanceof WebClientResponseException r
+                && (r.getStatusCode().value() == 429 || r.getStatusCode().value() == 503)) {
+            long retryAfter = 30;
+            String h = r.getHeaders().getFirst("Retry-After");
+            if (h != null) {
+                try { retryAfter = Long.parseLong(h.trim()); } catch (NumberFormatException ignored) { }
+            }
+            pausedUntilNanos = System.nanoTime() + Duration.ofSeconds(Math.max(1, retryAfter)).toNanos();
+            count("throttled");
+            log.warn("nominatim throttled us ({}); pausing {}s", r.getStatusCode().value(), retryAfter);
+            return unavailable("geocoding upstream throttled");
+        }
+        return unavailable("geocoding upstream failed: " + e.getMessage());
+    }
+
+    private void count(String result) {
+        Counter.builder("geo.upstream.requests").tag("result", result).register(registry).increment();
+    }
+
+    private static ResponseStatusException unavailable(String reason) {
+        return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, reason);
+    }
+}
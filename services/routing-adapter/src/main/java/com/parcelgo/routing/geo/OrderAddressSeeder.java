@@ -0,0 +1,128 @@
+package com.parcelgo.routing.geo;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.StringJoiner;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Import of recent pickup and drop addresses from the orderdb {@code orders} table into the
+ * {@link AutocompleteIndex}, on a background thread at startup. Disabled unless
+ * {@code parcelgo.geo.autocomplete.seed.jdbc-url} is set; this service has no datasource of its own,
+ * so a plain read-only JDBC connection is used. Ordered-to addresses weigh more than places that were
+ * merely returned by a search.
+ *
+ * The highest order id imported is written next to the index once the index has been persisted, and
+ * later starts import only newer orders, so a restart does not add the same addresses' weight again.
+ * The mark is ignored while the index is empty (first start, or its file was lost).
+ */
+@Component
+public class OrderAddressSeeder {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderAddressSeeder.class);
+
+    private static final String SQL = """
+            SELECT id,
+                   pickup_addr1, pickup_addr2, pickup_city, pickup_state, pickup_postal, pickup_lat, pickup_lng,
+                   drop_addr1, drop_addr2, drop_city, drop_state, drop_postal, drop_lat, drop_lng
+              FROM orders
+             WHERE id > ?
+             ORDER BY id DESC
+             LIMIT ?""";
+
+    private final AutocompleteIndex index;
+    private final Path markFile;
+    private final String jdbcUrl;
+    private final String username;
+    private final String password;
+    private final int maxOrders;
+    private final int weight;
+
+    public OrderAddressSeeder(AutocompleteIndex index,
+                              @Value("${parcelgo.geo.autocomplete.dir:data/autocomplete}") String dir,
+                              @Value("${parcelgo.geo.autocomplete.seed.jdbc-url:}") String jdbcUrl,
+                              @Value("${parcelgo.geo.autocomplete.seed.username:postgres}") String username,
+                              @Value("${parcelgo.geo.autocomplete.seed.password:postgres}") String password,
+                              @Value("${parcelgo.geo.autocomplete.seed.max-orders:50000}") int maxOrders,
+                              @Value("${parcelgo.geo.autocomplete.seed.weight:5}") int weight) {
+        this.index = index;
+        this.markFile = Path.of(dir).resolve("seeded-order-id");
+        this.jdbcUrl = jdbcUrl;
+        this.username = username;
+        this.password = password;
+        this.maxOrders = maxOrders;
+        this.weight = weight;
+    }
+
+    @PostConstruct
+    void start() {
+        if (jdbcUrl.isBlank()) return;
+        Thread t = new Thread(this::seed, "geo-autocomplete-seed");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    void seed() {
+        int places = 0;
+        try (Connection c = DriverManager.getConnection(jdbcUrl, username, password)) {
+            c.setReadOnly(true);
+            long after = index.entryCount() == 0 ? 0 : readMark();
+            long highest = after;
+            try (PreparedStatement ps = c.prepareStatement(SQL)) {
+                ps.setLong(1, after);
+                ps.setInt(2, maxOrders);
+                ps.setFetchSize(1000);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        highest = Math.max(highest, rs.getLong(1));
+                        places += learn(rs, 2) + learn(rs, 9);
+                    }
+                }
+            }
+            index.persist();
+            if (highest > after) {
+                Files.createDirectories(markFile.getParent());
+                Files.writeString(markFile, Long.toString(highest), StandardCharsets.US_ASCII);
+            }
+            log.info("autocomplete seeded with {} addresses from orders after id {}", places, after);
+        } catch (SQLException | IOException | RuntimeException e) {
+            log.warn("autocomplete seeding from {} failed: {}", jdbcUrl, e.toString());
+        }
+    }
+
+    private long readMark() {
+        try {
+            return Files.exists(markFile) ? Long.parseLong(Files.readString(markFile, StandardCharsets.US_ASCII).strip()) : 0;
+        } catch (IOException | NumberFormatException e) {
+            log.warn("ignoring unreadable seed mark {}: {}", markFile, e.toString());
+            return 0;
+        }
+    }
+
+    /** Learns the address in the seven columns starting at {@code col}; 1 if it had coordinates. */
+    private int learn(ResultSet rs, int col) throws SQLException {
+        double lat = rs.getDouble(col + 5);
+        if (rs.wasNull()) return 0;
+        double lng = rs.getDouble(col + 6);
+        if (rs.wasNull()) return 0;
+        StringJoiner name = new StringJoiner(", ");
+        for (int i = col; i < col + 5; i++) {
+            String part = rs.getString(i);
+            if (part != null && !part.isBlank()) name.add(part.strip());
+        }
+        index.learn(name.toString(), lat, lng, weight);
+        return 1;
+    }
+}
@@ -0,0 +1,18 @@
+package com.parcelgo.routing.geo;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** A place the autocomplete index can offer, ranked by {@code weight} (how often it was seen or ordered to). */
+public record Suggestion(String displayName, double lat, double lon, int weight) {
+
+    /** Same shape as a Nominatim jsonv2 result as far as the web app reads it. */
+    public Map<String, Object> toJson() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("display_name", displayName);
+        m.put("lat", Double.toString(lat));
+        m.put("lon", Double.toString(lon));
+        m.put("source", "parcelgo");
+        return m;
+    }
+}
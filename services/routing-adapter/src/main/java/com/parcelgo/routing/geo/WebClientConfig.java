@@ -1,18 +1,44 @@
 package com.parcelgo.routing.geo;
 
+import java.time.Duration;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 @Configuration
 public class WebClientConfig {
 
     @Bean("nominatim")
-    public WebClient nominatim() {
+    public WebClient nominatim(@Value("${parcelgo.geo.nominatim.base-url:https://nominatim.openstreetmap.org}") String baseUrl,
+                               @Value("${parcelgo.geo.nominatim.user-agent:ParcelGo/1.0 (dev) contact: you@example.com}") String userAgent,
+                               @Value("${parcelgo.geo.nominatim.max-connections:4}") int maxConnections,
+                               @Value("${parcelgo.geo.nominatim.connect-timeout:2s}") Duration connectTimeout,
+                               @Value("${parcelgo.geo.nominatim.response-timeout:5s}") Duration responseTimeout) {
+        // a small keep-alive pool: NominatimClient never has more than max-in-flight calls open, and idle
+        // connections are closed before the server's keep-alive timeout would reset them under us
+        ConnectionProvider pool = ConnectionProvider.builder("nominatim")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(maxConnections * 4)
+                .pendingAcquireTimeout(responseTimeout)
+                .maxIdleTime(Duration.ofSeconds(30))
+                .maxLifeTime(Duration.ofMinutes(5))
+                .evictInBackground(Duration.ofSeconds(30))
+                .build();
+        HttpClient http = HttpClient.create(pool)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .responseTimeout(responseTimeout)
+                .compress(true);
         // Nominatim requires a valid, descriptive UA string
         return WebClient.builder()
-                .baseUrl("https://nominatim.openstreetmap.org")
-                .defaultHeader("User-Agent", "ParcelGo/1.0 (dev) contact: you@example.com")
+                .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(http))
+                .defaultHeader("User-Agent", userAgent)
                 .build();
     }
 }
@@ -0,0 +1,91 @@
+package com.parcelgo.routing.graph;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of node ids keyed by int, with decrease-key through a position index. Sized for a
+ * whole graph once and reused: {@link #clear()} only resets the nodes that were actually pushed.
+ */
+final class IntMinHeap {
+
+  private final int[] nodes;
+  private final int[] keys;
+  private final int[] pos; // index in the heap, -1 when absent
+  private int size;
+
+  IntMinHeap(int capacity) {
+    nodes = new int[capacity];
+    keys = new int[capacity];
+    pos = new int[capacity];
+    Arrays.fill(pos, -1);
+  }
+
+  boolean isEmpty() { return size == 0; }
+
+  int peekKey() { return keys[0]; }
+
+  /** Inserts {@code v} or lowers its key; a higher key is ignored. */
+  void push(int v, int key) {
+    int i = pos[v];
+    if (i < 0) {
+      i = size++;
+      nodes[i] = v;
+      keys[i] = key;
+      pos[v] = i;
+    } else if (key < keys[i]) {
+      keys[i] = key;
+    } else {
+      return;
+    }
+    siftUp(i);
+  }
+
+  int pop() {
+    int top = nodes[0];
+    pos[top] = -1;
+    if (--size > 0) {
+      nodes[0] = nodes[size];
+      keys[0] = keys[size];
+      pos[nodes[0]] = 0;
+      siftDown(0);
+    }
+    return top;
+  }
+
+  void clear() {
+    for (int i = 0; i < size; i++) pos[nodes[i]] = -1;
+    size = 0;
+  }
+
+  private void siftUp(int i) {
+    int v = nodes[i], k = keys[i];
+    while (i > 0) {
+      int p = (i - 1) >>> 1;
+      if (keys[p] <= k) break;
+      nodes[i] = nodes[p];
+      keys[i] = keys[p];
+      pos[nodes[i]] = i;
+      i = p;
+    }
+    nodes[i] = v;
+    keys[i] = k;
+    pos[v] = i;
+  }
+
+  private void siftDown(int i) {
+    int v = nodes[i], k = keys[i];
+    int half = size >>> 1;
+    while (i < half) {
+      int c = 2 * i + 1;
+      if (c + 1 < size && keys[c + 1] < keys[c]) c++;
+      if (k <= keys[c]) break;
+      nodes[i] = nodes[c];
+      keys[i] = keys[c];
+      pos[nodes[i]] = i;
+      i = c;
+    }
+    nodes[i] = v;
+    keys[i] = k;
+    pos[v] = i;
+  }
+}
@@ -0,0 +1,75 @@
+package com.parcelgo.routing.graph;
+
+import java.util.Arrays;
+
+/**
+ * Snaps coordinates to the nearest graph node through a uniform lat/lng grid: node ids sorted by cell,
+ * with the sorted distinct cell keys binary-searched per probe. Built once when a graph is opened.
+ */
+final class NodeLocator {
+
+  private final RoadGraph graph;
+  private final double cellDeg;
+  private final long[] cellKeys;
+  private final int[] cellStart;
+  private final int[] nodeIds;
+
+  NodeLocator(RoadGraph graph, double cellDeg) {
+    this.graph = graph;
+    this.cellDeg = cellDeg;
+    int n = graph.nodes();
+    Integer[] order = new Integer[n];
+    long[] keys = new long[n];
+    for (int v = 0; v < n; v++) {
+      order[v] = v;
+      keys[v] = key(cell(graph.lat(v)), cell(graph.lng(v)));
+    }
+    Arrays.sort(order, (a, b) -> Long.compare(keys[a], keys[b]));
+    nodeIds = new int[n];
+    long[] distinct = new long[n];
+    int[] start = new int[n + 1];
+    int cells = 0;
+    for (int i = 0; i < n; i++) {
+      int v = order[i];
+      nodeIds[i] = v;
+      if (cells == 0 || distinct[cells - 1] != keys[v]) {
+        distinct[cells] = keys[v];
+        start[cells++] = i;
+      }
+    }
+    start[cells] = n;
+    cellKeys = Arrays.copyOf(distinct, cells);
+    cellStart = Arrays.copyOf(start, cells + 1);
+  }
+
+  /** Nearest node within {@code maxMeters}, or -1. */
+  int nearest(double lat, double lng, double maxMeters) {
+    double kmPerDegLng = 111.32 * Math.cos(Math.toRadians(lat));
+    double cellMeters = cellDeg * 111_320 * Math.max(0.1, Math.cos(Math.toRadians(lat)));
+    int rings = (int) Math.ceil(maxMeters / cellMeters);
+    int cy = cell(lat), cx = cell(lng);
+    int best = -1;
+    double bestSq = maxMeters * maxMeters;
+    for (int dy = -rings; dy <= rings; dy++) {
+      for (int dx = -rings; dx <= rings; dx++) {
+        int c = Arrays.binarySearch(cellKeys, key(cy + dy, cx + dx));
+        if (c < 0) continue;
+        for (int i = cellStart[c]; i < cellStart[c + 1]; i++) {
+          int v = nodeIds[i];
+          double y = (graph.lat(v) - lat) * 111_320;
+          double x = (graph.lng(v) - lng) * kmPerDegLng * 1000;
+          double sq = x * x + y * y;
+          if (sq <= bestSq) {
+            bestSq = sq;
+            best = v;
+          }
+        }
+      }
+    }
+    return best;
+  }
+
+  private int cell(double deg) { return (int) Math.floor(deg / cellDeg); }
+
+  private static long key(int y, int x) { return ((long) y << 32) | (x & 0xffffffffL); }
+}
@@ -0,0 +1,106 @@
+package com.parcelgo.routing.graph;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Preprocessed road graph in compressed-sparse-row form, read straight from a memory-mapped file.
+ *
+ * Outgoing edges of node {@code v} are {@code [first(v), first(v + 1))}; per edge the head node, the
+ * travel time in milliseconds and the length in decimetres. Node coordinates are stored as
+ * microdegrees. For ALT, {@code landmarks} x {@code nodes} tables hold the travel time from each
+ * landmark to every node and from every node back to the landmark ({@link #UNREACHABLE} if none).
+ *
+ * <pre>
+ * header   magic "PGRG", version, nodes, edges, landmarks, 3 x reserved   (int32, little endian)
+ * first    int32[nodes + 1]
+ * head     int32[edges]
+ * timeMs   int32[edges]
+ * lengthDm int32[edges]
+ * latE6    int32[nodes]
+ * lngE6    int32[nodes]
+ * fromLm   int32[landmarks * nodes]
+ * toLm     int32[landmarks * nodes]
+ * </pre>
+ *
+ * All sections are exposed as {@link IntBuffer} views of the one mapping, so opening a graph costs no
+ * parsing and no heap beyond the views.
+ */
+public final class RoadGraph {
+
+  public static final int UNREACHABLE = Integer.MAX_VALUE;
+  private static final int MAGIC = 0x50475247;
+  private static final int VERSION = 1;
+  private static final int HEADER_INTS = 8;
+
+  private final int nodes;
+  private final int edges;
+  private final int landmarks;
+  private final IntBuffer first, head, timeMs, lengthDm, latE6, lngE6, fromLm, toLm;
+
+  private RoadGraph(ByteBuffer buf) {
+    IntBuffer ints = buf.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    if (ints.limit() < HEADER_INTS || ints.get(0) != MAGIC) throw new IllegalArgumentException("not a road graph file");
+    if (ints.get(1) != VERSION) throw new IllegalArgumentException("unsupported road graph version " + ints.get(1));
+    nodes = ints.get(2);
+    edges = ints.get(3);
+    landmarks = ints.get(4);
+    int at = HEADER_INTS;
+    first = ints.slice(at, nodes + 1); at += nodes + 1;
+    head = ints.slice(at, edges); at += edges;
+    timeMs = ints.slice(at, edges); at += edges;
+    lengthDm = ints.slice(at, edges); at += edges;
+    latE6 = ints.slice(at, nodes); at += nodes;
+    lngE6 = ints.slice(at, nodes); at += nodes;
+    fromLm = ints.slice(at, landmarks * nodes); at += landmarks * nodes;
+    toLm = ints.slice(at, landmarks * nodes);
+  }
+
+  public static RoadGraph open(Path file) throws IOException {
+    try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+      return new RoadGraph(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+    }
+  }
+
+  public int nodes() { return nodes; }
+  public int edges() { return edges; }
+  public int landmarks() { return landmarks; }
+
+  public int first(int v) { return first.get(v); }
+  public int head(int e) { return head.get(e); }
+  public int timeMs(int e) { return timeMs.get(e); }
+  public int lengthDm(int e) { return lengthDm.get(e); }
+  public double lat(int v) { return latE6.get(v) / 1e6; }
+  public double lng(int v) { return lngE6.get(v) / 1e6; }
+  int fromLandmark(int l, int v) { return fromLm.get(l * nodes + v); }
+  int toLandmark(int l, int v) { return toLm.get(l * nodes + v); }
+
+  /** Writes a graph atomically; array arguments follow the layout above. */
+  static void write(Path file, int[] first, int[] head, int[] timeMs, int[] lengthDm, int[] latE6, int[] lngE6,
+                    int landmarks, int[] fromLm, int[] toLm) throws IOException {
+    Files.createDirectories(file.toAbsolutePath().getParent());
+    Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+    try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16)) {
+      DataOutputStream out = new DataOutputStream(os);
+      int[] header = { MAGIC, VERSION, latE6.length, head.length, landmarks, 0, 0, 0 };
+      for (int[] section : new int[][] { header, first, head, timeMs, lengthDm, latE6, lngE6, fromLm, toLm }) {
+        for (int v : section) out.writeInt(Integer.reverseBytes(v));
+      }
+      out.flush();
+    }
+    try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+      ch.force(true);
+    }
+    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+}
@@ -0,0 +1,159 @@
+package com.parcelgo.routing.graph;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Turns an edge-list road extract into a preprocessed {@link RoadGraph} file.
+ *
+ * Input is UTF-8 CSV, one record per line ({@code #} comments allowed):
+ * <pre>
+ * N,&lt;nodeId&gt;,&lt;lat&gt;,&lt;lng&gt;
+ * E,&lt;fromId&gt;,&lt;toId&gt;,&lt;lengthM or empty&gt;,&lt;speedKmh&gt;[,&lt;oneway 0|1&gt;]
+ * </pre>
+ * An empty length is taken as the straight line between the nodes; two-way edges (the default) are
+ * stored once per direction. ALT preprocessing picks {@code landmarks} nodes by farthest-point
+ * selection on travel time and stores one forward and one backward Dijkstra table per landmark.
+ */
+final class RoadGraphBuilder {
+
+  private RoadGraphBuilder() {}
+
+  static void build(Path edgeList, Path out, int landmarks) throws IOException {
+    Map<Long, Integer> ids = new HashMap<>();
+    IntList lat = new IntList(), lng = new IntList();
+    IntList tail = new IntList(), head = new IntList(), time = new IntList(), len = new IntList();
+    try (BufferedReader r = Files.newBufferedReader(edgeList)) {
+      String line;
+      int no = 0;
+      while ((line = r.readLine()) != null) {
+        no++;
+        line = line.strip();
+        if (line.isEmpty() || line.startsWith("#")) continue;
+        String[] f = line.split(",", -1);
+        try {
+          if (f[0].equals("N")) {
+            ids.put(Long.parseLong(f[1]), lat.size());
+            lat.add((int) Math.round(Double.parseDouble(f[2]) * 1e6));
+            lng.add((int) Math.round(Double.parseDouble(f[3]) * 1e6));
+          } else if (f[0].equals("E")) {
+            Integer a = ids.get(Long.parseLong(f[1])), b = ids.get(Long.parseLong(f[2]));
+            if (a == null || b == null) throw new IllegalArgumentException("edge before its nodes");
+            double meters = f[3].isBlank()
+                ? haversineM(lat.get(a) / 1e6, lng.get(a) / 1e6, lat.get(b) / 1e6, lng.get(b) / 1e6)
+                : Double.parseDouble(f[3]);
+            double kmh = Double.parseDouble(f[4]);
+            if (!(kmh > 0) || !(meters >= 0)) throw new IllegalArgumentException("bad length or speed");
+            int ms = (int) Math.max(1, Math.round(meters / (kmh / 3.6) * 1000));
+            int dm = (int) Math.round(meters * 10);
+            boolean oneway = f.length > 5 && f[5].strip().equals("1");
+            tail.add(a); head.add(b); time.add(ms); len.add(dm);
+            if (!oneway) { tail.add(b); head.add(a); time.add(ms); len.add(dm); }
+          } else {
+            throw new IllegalArgumentException("unknown record type " + f[0]);
+          }
+        } catch (RuntimeException e) {
+          throw new IOException(edgeList + ":" + no + ": " + e.getMessage(), e);
+        }
+      }
+    }
+
+    int n = lat.size(), m = tail.size();
+    int[] first = new int[n + 1];
+    for (int i = 0; i < m; i++) first[tail.get(i) + 1]++;
+    for (int v = 0; v < n; v++) first[v + 1] += first[v];
+    int[] fill = Arrays.copyOf(first, n);
+    int[] h = new int[m], t = new int[m], d = new int[m];
+    for (int i = 0; i < m; i++) {
+      int e = fill[tail.get(i)]++;
+      h[e] = head.get(i); t[e] = time.get(i); d[e] = len.get(i);
+    }
+
+    // reverse CSR, only needed for the backward landmark tables
+    int[] rFirst = new int[n + 1];
+    for (int e = 0; e < m; e++) rFirst[h[e] + 1]++;
+    for (int v = 0; v < n; v++) rFirst[v + 1] += rFirst[v];
+    int[] rFill = Arrays.copyOf(rFirst, n);
+    int[] rHead = new int[m], rTime = new int[m];
+    for (int v = 0; v < n; v++) {
+      for (int e = first[v]; e < first[v + 1]; e++) {
+        int r = rFill[h[e]]++;
+        rHead[r] = v;
+        rTime[r] = t[e];
+      }
+    }
+
+    int k = Math.min(landmarks, n);
+    int[] fromLm = new int[k * n], toLm = new int[k * n];
+    int[] dist = new int[n];
+    int[] minToSet = new int[n];
+    Arrays.fill(minToSet, RoadGraph.UNREACHABLE);
+    IntMinHeap heap = new IntMinHeap(n);
+    int next = 0;
+    for (int l = 0; l < k; l++) {
+      dijkstra(first, h, t, next, dist, heap);
+      System.arraycopy(dist, 0, fromLm, l * n, n);
+      dijkstra(rFirst, rHead, rTime, next, dist, heap);
+      System.arraycopy(dist, 0, toLm, l * n, n);
+      // next landmark: the node farthest (reachable) from all chosen so far
+      int best = -1, bestDist = -1;
+      for (int v = 0; v < n; v++) {
+        int dv = fromLm[l * n + v];
+        if (dv != RoadGraph.UNREACHABLE && dv < minToSet[v]) minToSet[v] = dv;
+        if (minToSet[v] != RoadGraph.UNREACHABLE && minToSet[v] > bestDist) { bestDist = minToSet[v]; best = v; }
+      }
+      if (best < 0 || bestDist == 0) { k = l + 1; break; }
+      next = best;
+    }
+    if (k * n < fromLm.length) {
+      fromLm = Arrays.copyOf(fromLm, k * n);
+      toLm = Arrays.copyOf(toLm, k * n);
+    }
+    RoadGraph.write(out, first, h, t, d, lat.toArray(), lng.toArray(), k, fromLm, toLm);
+  }
+
+  private static void dijkstra(int[] first, int[] head, int[] time, int source, int[] dist, IntMinHeap heap) {
+    Arrays.fill(dist, RoadGraph.UNREACHABLE);
+    dist[source] = 0;
+    heap.push(source, 0);
+    while (!heap.isEmpty()) {
+      int u = heap.pop();
+      int du = dist[u];
+      for (int e = first[u]; e < first[u + 1]; e++) {
+        int v = head[e];
+        int nd = du + time[e];
+        if (nd < dist[v]) {
+          dist[v] = nd;
+          heap.push(v, nd);
+        }
+      }
+    }
+  }
+
+  static double haversineM(double lat1, double lng1, double lat2, double lng2) {
+    double dLat = Math.toRadians(lat2 - lat1), dLng = Math.toRadians(lng2 - lng1);
+    double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+        + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+    return 2 * 6_371_000.0 * Math.asin(Math.sqrt(Math.min(1.0, a)));
+  }
+
+  /** Growable int array, to parse without boxing. */
+  private static final class IntList {
+    private int[] a = new int[1024];
+    private int size;
+
+    void add(int v) {
+      if (size == a.length) a = Arrays.copyOf(a, size * 2);
+      a[size++] = v;
+    }
+
+    int get(int i) { return a[i]; }
+    int size() { return size; }
+    int[] toArray() { return Arrays.copyOf(a, size); }
+  }
+}
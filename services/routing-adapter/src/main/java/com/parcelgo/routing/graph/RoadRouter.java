@@ -0,0 +1,132 @@
+package com.parcelgo.routing.graph;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Embedded road routing: loads the preprocessed graph file (building it from the edge-list
+ * {@code source} first when the file is missing or older), snaps query points to the nearest node and
+ * runs {@link RouteSearch}. Loading happens on a background thread; until a graph is available
+ * {@link #route} returns null and callers fall back to straight-line estimates.
+ *
+ * The legs between a query point and its snapped node are added as straight lines at
+ * {@code access-kmh}.
+ */
+@Component
+public class RoadRouter {
+
+  private static final Logger log = LoggerFactory.getLogger(RoadRouter.class);
+
+  private record Loaded(RoadGraph graph, NodeLocator locator, ThreadLocal<RouteSearch> searches) {}
+
+  private final String source;
+  private final Path file;
+  private final int landmarks;
+  private final int activeLandmarks;
+  private final double maxSnapMeters;
+  private final double accessKmh;
+  private final double cellDeg;
+  private volatile Loaded loaded;
+
+  private final MeterRegistry registry;
+  private final Timer queryTimer;
+
+  public RoadRouter(MeterRegistry registry,
+                    @Value("${parcelgo.routing.graph.source:}") String source,
+                    @Value("${parcelgo.routing.graph.file:data/road-graph.pgrg}") String file,
+                    @Value("${parcelgo.routing.graph.landmarks:16}") int landmarks,
+                    @Value("${parcelgo.routing.graph.active-landmarks:4}") int activeLandmarks,
+                    @Value("${parcelgo.routing.graph.max-snap-m:500}") double maxSnapMeters,
+                    @Value("${parcelgo.routing.graph.access-kmh:15}") double accessKmh,
+                    @Value("${parcelgo.routing.graph.cell-deg:0.005}") double cellDeg) {
+    this.registry = registry;
+    this.source = source;
+    this.file = Path.of(file);
+    this.landmarks = landmarks;
+    this.activeLandmarks = activeLandmarks;
+    this.maxSnapMeters = maxSnapMeters;
+    this.accessKmh = accessKmh;
+    this.cellDeg = cellDeg;
+    this.queryTimer = Timer.builder("routing.graph.query").register(registry);
+    Gauge.builder("routing.graph.nodes", this, r -> r.loaded == null ? 0 : r.loaded.graph().nodes()).register(registry);
+  }
+
+  @PostConstruct
+  void start() {
+    if (source.isBlank() && !Files.exists(file)) return;
+    Thread t = new Thread(this::load, "road-graph-load");
+    t.setDaemon(true);
+    t.start();
+  }
+
+  void load() {
+    try {
+      long t0 = System.nanoTime();
+      if (!source.isBlank()) {
+        Path src = Path.of(source);
+        if (!Files.exists(file) || Files.getLastModifiedTime(file).compareTo(Files.getLastModifiedTime(src)) < 0) {
+          log.info("preprocessing road graph {} -> {} ({} landmarks)", src, file, landmarks);
+          RoadGraphBuilder.build(src, file, landmarks);
+        }
+      }
+      RoadGraph g = RoadGraph.open(file);
+      NodeLocator locator = new NodeLocator(g, cellDeg);
+      loaded = new Loaded(g, locator, ThreadLocal.withInitial(() -> new RouteSearch(g, activeLandmarks)));
+      log.info("road graph ready: {} nodes, {} edges, {} landmarks in {} ms", g.nodes(), g.edges(), g.landmarks(),
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0));
+    } catch (IOException | RuntimeException e) {
+      log.error("road graph unavailable, ETAs stay straight-line: {}", e.toString());
+    }
+  }
+
+  public boolean available() { return loaded != null; }
+
+  /** The graph currently served, or null; edge ids in {@link Route#edges()} refer to it. */
+  public RoadGraph graph() {
+    Loaded l = loaded;
+    return l == null ? null : l.graph();
+  }
+
+  /** Fastest road route between two points, or null (no graph, point off the network, unreachable). */
+  public Route route(double fromLat, double fromLng, double toLat, double toLng, boolean withPath) {
+    Loaded l = loaded;
+    if (l == null) return null;
+    long t0 = System.nanoTime();
+    try {
+      int s = l.locator().nearest(fromLat, fromLng, maxSnapMeters);
+      int t = l.locator().nearest(toLat, toLng, maxSnapMeters);
+      if (s < 0 || t < 0) {
+        count("unsnapped");
+        return null;
+      }
+      Route r = l.searches().get().route(s, t, withPath);
+      if (r == null) {
+        count("unreachable");
+        return null;
+      }
+      count("routed");
+      RoadGraph g = l.graph();
+      double accessKm = (RoadGraphBuilder.haversineM(fromLat, fromLng, g.lat(s), g.lng(s))
+          + RoadGraphBuilder.haversineM(toLat, toLng, g.lat(t), g.lng(t))) / 1000.0;
+      return new Route(r.distanceKm() + accessKm, r.minutes() + accessKm / accessKmh * 60.0, r.edges(), r.settled());
+    } finally {
+      queryTimer.record(System.nanoTime() - t0, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private void count(String result) {
+    Counter.builder("routing.graph.queries").tag("result", result).register(registry).increment();
+  }
+}
@@ -0,0 +1,7 @@
+package com.parcelgo.routing.graph;
+
+/**
+ * A road route between two snapped points. {@code edges} are the graph edge ids along the path (only
+ * filled when asked for); {@code settled} is how many nodes the search had to settle.
+ */
+public record Route(double distanceKm, double minutes, int[] edges, int settled) {}
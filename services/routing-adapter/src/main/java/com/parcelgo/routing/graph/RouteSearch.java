@@ -0,0 +1,117 @@
+package com.parcelgo.routing.graph;
+
+import java.util.Arrays;
+
+/**
+ * A* over a {@link RoadGraph} with ALT lower bounds, minimising travel time. One instance per thread:
+ * the per-node arrays are allocated once and invalidated by bumping a generation stamp rather than
+ * cleared, so a query touches only the nodes it explores.
+ *
+ * For each query the {@code active} landmarks giving the best bound at the source are used; the bound
+ * at v is the max over them of {@code d(L,t) - d(L,v)} and {@code d(v,L) - d(t,L)}, which is
+ * consistent, so the target is final as soon as it is popped.
+ */
+final class RouteSearch {
+
+  private final RoadGraph g;
+  private final int[] dist;
+  private final int[] lenDm;
+  private final int[] parentEdge;
+  private final int[] parent;
+  private final int[] stamp;
+  private final IntMinHeap heap;
+  private final int[] active;
+  private final long[] scored;
+  private int activeCount;
+  private int gen;
+  private int target;
+
+  RouteSearch(RoadGraph g, int activeLandmarks) {
+    this.g = g;
+    int n = g.nodes();
+    dist = new int[n];
+    lenDm = new int[n];
+    parentEdge = new int[n];
+    parent = new int[n];
+    stamp = new int[n];
+    heap = new IntMinHeap(n);
+    active = new int[Math.max(1, Math.min(activeLandmarks, g.landmarks()))];
+    scored = new long[g.landmarks()];
+  }
+
+  /** Fastest route from node {@code s} to node {@code t}, or null if unreachable. */
+  Route route(int s, int t, boolean withPath) {
+    if (++gen == 0) {
+      Arrays.fill(stamp, 0);
+      gen = 1;
+    }
+    target = t;
+    chooseLandmarks(s);
+    heap.clear();
+    visit(s, 0, 0, -1, -1);
+    heap.push(s, bound(s));
+    int settled = 0;
+    while (!heap.isEmpty()) {
+      int u = heap.pop();
+      settled++;
+      if (u == t) return result(s, t, settled, withPath);
+      int du = dist[u], lu = lenDm[u];
+      for (int e = g.first(u), end = g.first(u + 1); e < end; e++) {
+        int v = g.head(e);
+        int nd = du + g.timeMs(e);
+        if (stamp[v] == gen && nd >= dist[v]) continue;
+        visit(v, nd, lu + g.lengthDm(e), e, u);
+        int h = bound(v);
+        if (h == RoadGraph.UNREACHABLE) continue;
+        heap.push(v, nd + h);
+      }
+    }
+    return null;
+  }
+
+  private void visit(int v, int d, int len, int edge, int from) {
+    stamp[v] = gen;
+    dist[v] = d;
+    lenDm[v] = len;
+    parentEdge[v] = edge;
+    parent[v] = from;
+  }
+
+  private Route result(int s, int t, int settled, boolean withPath) {
+    int[] edges = null;
+    if (withPath) {
+      int count = 0;
+      for (int v = t; v != s; v = parent[v]) count++;
+      edges = new int[count];
+      for (int v = t; v != s; v = parent[v]) edges[--count] = parentEdge[v];
+    }
+    return new Route(lenDm[t] / 10_000.0, dist[t] / 60_000.0, edges, settled);
+  }
+
+  private void chooseLandmarks(int s) {
+    int k = g.landmarks();
+    for (int l = 0; l < k; l++) scored[l] = ((long) landmarkBound(l, s) << 32) | l;
+    Arrays.sort(scored, 0, k);
+    activeCount = Math.min(active.length, k);
+    for (int i = 0; i < activeCount; i++) active[i] = (int) scored[k - 1 - i];
+  }
+
+  private int bound(int v) {
+    int best = 0;
+    for (int i = 0; i < activeCount; i++) {
+      int b = landmarkBound(active[i], v);
+      if (b > best) best = b;
+    }
+    return best;
+  }
+
+  private int landmarkBound(int l, int v) {
+    int best = 0;
+    int lt = g.fromLandmark(l, target), lv = g.fromLandmark(l, v);
+    if (lt != RoadGraph.UNREACHABLE && lv != RoadGraph.UNREACHABLE) best = Math.max(best, lt - lv);
+    else if (lv != RoadGraph.UNREACHABLE) best = RoadGraph.UNREACHABLE; // L reaches v but not t: v cannot reach t
+    int vl = g.toLandmark(l, v), tl = g.toLandmark(l, target);
+    if (best != RoadGraph.UNREACHABLE && vl != RoadGraph.UNREACHABLE && tl != RoadGraph.UNREACHABLE) best = Math.max(best, vl - tl);
+    return best;
+  }
+}
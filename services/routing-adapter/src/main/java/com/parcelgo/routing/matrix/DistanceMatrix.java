@@ -0,0 +1,112 @@
+package com.parcelgo.routing.matrix;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Many-to-many great-circle distance matrix over primitive arrays.
+ *
+ * Coordinates are converted once to radians plus cos(lat), then each origin row is filled by a
+ * {@link HaversineKernel}: the Vector API one when {@code jdk.incubator.vector} is present (run with
+ * {@code --add-modules jdk.incubator.vector}), the scalar one otherwise. Matrices above
+ * {@code parallel-threshold} cells are split by rows with fork/join on the common pool. The result is a
+ * row-major {@code float[]} (origins x destinations) in km.
+ */
+@Component
+public class DistanceMatrix {
+
+  private static final Logger log = LoggerFactory.getLogger(DistanceMatrix.class);
+
+  private final HaversineKernel kernel;
+  private final int parallelThreshold;
+  private final Timer timer;
+
+  public DistanceMatrix(MeterRegistry registry,
+                        @Value("${parcelgo.routing.matrix.vector:true}") boolean vector,
+                        @Value("${parcelgo.routing.matrix.parallel-threshold:65536}") int parallelThreshold) {
+    this.kernel = vector ? bestKernel() : new ScalarHaversine();
+    this.parallelThreshold = Math.max(1, parallelThreshold);
+    this.timer = Timer.builder("routing.matrix.compute").tag("kernel", kernel.name()).register(registry);
+    log.info("distance matrix kernel: {}", kernel.name());
+  }
+
+  public String kernel() { return kernel.name(); }
+
+  /** {@code origins} and {@code destinations} are {@code [lat0, lng0, lat1, lng1, ...]} in degrees. */
+  public float[] distancesKm(double[] origins, double[] destinations) {
+    Points o = new Points(origins);
+    Points d = origins == destinations ? o : new Points(destinations);
+    float[] out = new float[o.size() * d.size()];
+    long start = System.nanoTime();
+    if ((long) o.size() * d.size() <= parallelThreshold) {
+      fill(o, d, 0, o.size(), out);
+    } else {
+      ForkJoinPool.commonPool().invoke(new Rows(o, d, 0, o.size(), out));
+    }
+    timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    return out;
+  }
+
+  private void fill(Points o, Points d, int fromRow, int toRow, float[] out) {
+    int cols = d.size();
+    for (int i = fromRow; i < toRow; i++) {
+      kernel.row(o.lat[i], o.lng[i], o.cosLat[i], d.lat, d.lng, d.cosLat, 0, cols, out, i * cols);
+    }
+  }
+
+  private final class Rows extends RecursiveAction {
+    private final Points o, d;
+    private final int from, to;
+    private final float[] out;
+
+    Rows(Points o, Points d, int from, int to, float[] out) {
+      this.o = o; this.d = d; this.from = from; this.to = to; this.out = out;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= 1 || (long) (to - from) * d.size() <= parallelThreshold) {
+        fill(o, d, from, to, out);
+        return;
+      }
+      int mid = (from + to) >>> 1;
+      invokeAll(new Rows(o, d, from, mid, out), new Rows(o, d, mid, to, out));
+    }
+  }
+
+  private static final class Points {
+    final double[] lat, lng, cosLat;
+
+    Points(double[] latLng) {
+      int n = latLng.length / 2;
+      lat = new double[n];
+      lng = new double[n];
+      cosLat = new double[n];
+      for (int i = 0; i < n; i++) {
+        lat[i] = Math.toRadians(latLng[2 * i]);
+        lng[i] = Math.toRadians(latLng[2 * i + 1]);
+        cosLat[i] = Math.cos(lat[i]);
+      }
+    }
+
+    int size() { return lat.length; }
+  }
+
+  private static HaversineKernel bestKernel() {
+    if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) return new ScalarHaversine();
+    try {
+      return new VectorHaversine();
+    } catch (LinkageError e) {
+      log.warn("vector kernel unavailable, using scalar: {}", e.toString());
+      return new ScalarHaversine();
+    }
+  }
+}
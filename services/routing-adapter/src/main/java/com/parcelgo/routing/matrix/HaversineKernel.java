@@ -0,0 +1,16 @@
+package com.parcelgo.routing.matrix;
+
+/**
+ * Great-circle distances from one origin to a run of destinations. Inputs are pre-converted: latitudes
+ * and longitudes in radians and the cosine of each latitude, so the kernel does no per-pair trig setup.
+ */
+interface HaversineKernel {
+
+  double EARTH_RADIUS_KM = 6371.0;
+
+  /** {@code out[outOffset + j - from] = km(origin, dest[j])} for {@code j in [from, to)}. */
+  void row(double lat, double lng, double cosLat, double[] lats, double[] lngs, double[] cosLats,
+           int from, int to, float[] out, int outOffset);
+
+  String name();
+}
@@ -0,0 +1,19 @@
+package com.parcelgo.routing.matrix;
+
+/** Plain loop; used when the Vector API module is not available. */
+final class ScalarHaversine implements HaversineKernel {
+
+  @Override
+  public void row(double lat, double lng, double cosLat, double[] lats, double[] lngs, double[] cosLats,
+                  int from, int to, float[] out, int outOffset) {
+    for (int j = from; j < to; j++) {
+      double sLat = Math.sin((lats[j] - lat) * 0.5);
+      double sLng = Math.sin((lngs[j] - lng) * 0.5);
+      double a = sLat * sLat + cosLat * cosLats[j] * sLng * sLng;
+      out[outOffset + j - from] = (float) (2 * EARTH_RADIUS_KM * Math.asin(Math.sqrt(Math.min(1.0, a))));
+    }
+  }
+
+  @Override
+  public String name() { return "scalar"; }
+}
@@ -0,0 +1,35 @@
+package com.parcelgo.routing.matrix;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD version of {@link ScalarHaversine} on the JDK Vector API (preferred species width), with a
+ * scalar tail. Only loaded when {@code jdk.incubator.vector} is in the boot layer.
+ */
+final class VectorHaversine implements HaversineKernel {
+
+  private static final VectorSpecies<Double> D = DoubleVector.SPECIES_PREFERRED;
+  private static final ScalarHaversine TAIL = new ScalarHaversine();
+
+  @Override
+  public void row(double lat, double lng, double cosLat, double[] lats, double[] lngs, double[] cosLats,
+                  int from, int to, float[] out, int outOffset) {
+    int j = from;
+    int upper = from + D.loopBound(to - from);
+    double[] lane = new double[D.length()];
+    for (; j < upper; j += D.length()) {
+      DoubleVector sLat = DoubleVector.fromArray(D, lats, j).sub(lat).mul(0.5).lanewise(VectorOperators.SIN);
+      DoubleVector sLng = DoubleVector.fromArray(D, lngs, j).sub(lng).mul(0.5).lanewise(VectorOperators.SIN);
+      DoubleVector a = sLng.mul(sLng).mul(DoubleVector.fromArray(D, cosLats, j)).mul(cosLat).add(sLat.mul(sLat)).min(1.0);
+      DoubleVector km = a.sqrt().lanewise(VectorOperators.ASIN).mul(2 * EARTH_RADIUS_KM);
+      km.intoArray(lane, 0);
+      for (int k = 0, o = outOffset + j - from; k < lane.length; k++) out[o + k] = (float) lane[k];
+    }
+    if (j < to) TAIL.row(lat, lng, cosLat, lats, lngs, cosLats, j, to, out, outOffset + j - from);
+  }
+
+  @Override
+  public String name() { return "vector-" + D.length() + "x64"; }
+}
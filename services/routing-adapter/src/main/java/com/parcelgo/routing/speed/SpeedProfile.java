@@ -0,0 +1,118 @@
+package com.parcelgo.routing.speed;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Immutable speed table: km/h per geo cell x day-of-week x 15-minute bucket, in one flat
+ * {@code float[]} ({@code speeds[cell * BUCKETS + bucket]}). Cells are found by binary search over
+ * sorted packed cell keys, so lookups allocate nothing. Buckets without enough data were already
+ * filled by the builder; points outside every cell use the all-cells average of their bucket.
+ *
+ * Each cell also has a reference (free-flow) speed, its fastest bucket, so {@link #factor} can scale
+ * per-edge road-graph times by how congested a cell is at a given time.
+ */
+public final class SpeedProfile {
+
+  public static final int BUCKETS_PER_DAY = 96;
+  public static final int BUCKETS = 7 * BUCKETS_PER_DAY;
+  private static final int MAGIC = 0x50475350;
+  private static final int VERSION = 1;
+  private static final long BUCKET_MS = 15 * 60_000L;
+
+  private final double cellDeg;
+  private final long[] cellKeys;
+  private final float[] speeds;
+  private final float[] reference;
+  private final float[] global;
+  private final float globalReference;
+
+  SpeedProfile(double cellDeg, long[] cellKeys, float[] speeds, float[] reference, float[] global) {
+    this.cellDeg = cellDeg;
+    this.cellKeys = cellKeys;
+    this.speeds = speeds;
+    this.reference = reference;
+    this.global = global;
+    float max = 0;
+    for (float g : global) max = Math.max(max, g);
+    this.globalReference = max;
+  }
+
+  public double cellDeg() { return cellDeg; }
+  public int cells() { return cellKeys.length; }
+
+  /** Bucket index (Monday 00:00 = 0) of an instant at a fixed UTC offset. */
+  public static int bucket(long epochMillis, long utcOffsetMillis) {
+    long local = Math.floorDiv(epochMillis + utcOffsetMillis, BUCKET_MS);
+    long day = Math.floorDiv(local, BUCKETS_PER_DAY);
+    int dow = (int) Math.floorMod(day + 3, 7); // 1970-01-01 was a Thursday
+    return dow * BUCKETS_PER_DAY + (int) Math.floorMod(local, BUCKETS_PER_DAY);
+  }
+
+  /** Cell index of a point, or -1 when the profile has no data there. */
+  public int cell(double lat, double lng) {
+    return Arrays.binarySearch(cellKeys, cellKey(lat, lng, cellDeg));
+  }
+
+  public float speedKmh(int cell, int bucket) {
+    return cell < 0 ? global[bucket] : speeds[cell * BUCKETS + bucket];
+  }
+
+  /** Speed relative to the cell's free-flow speed, 1.0 = uncongested. */
+  public float factor(int cell, int bucket) {
+    float ref = cell < 0 ? globalReference : reference[cell];
+    return ref > 0 ? speedKmh(cell, bucket) / ref : 1f;
+  }
+
+  static long cellKey(double lat, double lng, double cellDeg) {
+    long y = (long) Math.floor(lat / cellDeg), x = (long) Math.floor(lng / cellDeg);
+    return (y << 32) | (x & 0xffffffffL);
+  }
+
+  public void write(Path file) throws IOException {
+    Files.createDirectories(file.toAbsolutePath().getParent());
+    Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeDouble(cellDeg);
+      out.writeInt(cellKeys.length);
+      for (long k : cellKeys) out.writeLong(k);
+      for (float s : speeds) out.writeFloat(s);
+      for (float r : reference) out.writeFloat(r);
+      for (float g : global) out.writeFloat(g);
+    }
+    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  public static SpeedProfile read(Path file) throws IOException {
+    try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()).order(ByteOrder.BIG_ENDIAN);
+      if (buf.getInt() != MAGIC) throw new IOException(file + " is not a speed profile");
+      if (buf.getInt() != VERSION) throw new IOException(file + ": unsupported speed profile version");
+      double cellDeg = buf.getDouble();
+      int cells = buf.getInt();
+      long[] keys = new long[cells];
+      buf.asLongBuffer().get(keys);
+      buf.position(buf.position() + cells * 8);
+      float[] speeds = new float[cells * BUCKETS];
+      buf.asFloatBuffer().get(speeds);
+      buf.position(buf.position() + speeds.length * 4);
+      float[] reference = new float[cells];
+      buf.asFloatBuffer().get(reference);
+      buf.position(buf.position() + cells * 4);
+      float[] global = new float[BUCKETS];
+      buf.asFloatBuffer().get(global);
+      return new SpeedProfile(cellDeg, keys, speeds, reference, global);
+    }
+  }
+}
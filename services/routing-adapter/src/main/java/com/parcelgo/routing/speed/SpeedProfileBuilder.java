@@ -0,0 +1,102 @@
+package com.parcelgo.routing.speed;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Builds a {@link SpeedProfile} from historical trips.
+ *
+ * CSV, one trip per line, header optional:
+ * {@code departedAt,fromLat,fromLng,toLat,toLng,distanceKm,durationMin} where {@code departedAt} is
+ * ISO-8601 or epoch millis. Each trip is walked along its straight line in steps of half a cell; every
+ * step credits its share of the distance and duration to the cell and 15-minute bucket it falls in.
+ * A bucket with fewer than {@code minSamples} steps takes its cell's all-week average, and a cell with
+ * too little data overall takes the all-cells average of the bucket; {@code defaultKmh} is the last
+ * resort.
+ */
+public final class SpeedProfileBuilder {
+
+  private SpeedProfileBuilder() {}
+
+  public static SpeedProfile fromTripsCsv(Path csv, double cellDeg, long utcOffsetMillis, int minSamples,
+                                          double defaultKmh) throws IOException {
+    // per cell: km[BUCKETS], hours[BUCKETS], samples[BUCKETS]
+    Map<Long, double[]> acc = new HashMap<>();
+    double[] globalAcc = new double[3 * SpeedProfile.BUCKETS];
+    try (BufferedReader r = Files.newBufferedReader(csv)) {
+      String line;
+      int no = 0;
+      while ((line = r.readLine()) != null) {
+        no++;
+        String[] f = line.split(",");
+        if (f.length < 7 || line.isBlank() || line.startsWith("#")) continue;
+        long departed;
+        double fromLat, fromLng, toLat, toLng, km, minutes;
+        try {
+          departed = f[0].strip().chars().allMatch(Character::isDigit)
+              ? Long.parseLong(f[0].strip()) : Instant.parse(f[0].strip()).toEpochMilli();
+          fromLat = Double.parseDouble(f[1]); fromLng = Double.parseDouble(f[2]);
+          toLat = Double.parseDouble(f[3]); toLng = Double.parseDouble(f[4]);
+          km = Double.parseDouble(f[5]); minutes = Double.parseDouble(f[6]);
+        } catch (RuntimeException e) {
+          if (no == 1) continue; // header
+          throw new IOException(csv + ":" + no + ": " + e.getMessage(), e);
+        }
+        if (!(km > 0) || !(minutes > 0) || km / (minutes / 60) > 150) continue;
+        double spanDeg = Math.max(Math.abs(toLat - fromLat), Math.abs(toLng - fromLng));
+        int steps = Math.max(1, (int) Math.ceil(spanDeg / (cellDeg / 2)));
+        double stepKm = km / steps, stepH = minutes / 60 / steps;
+        for (int i = 0; i < steps; i++) {
+          double t = (i + 0.5) / steps;
+          long key = SpeedProfile.cellKey(fromLat + (toLat - fromLat) * t, fromLng + (toLng - fromLng) * t, cellDeg);
+          int b = SpeedProfile.bucket(departed + (long) (minutes * 60_000 * t), utcOffsetMillis);
+          double[] a = acc.computeIfAbsent(key, k -> new double[3 * SpeedProfile.BUCKETS]);
+          add(a, b, stepKm, stepH);
+          add(globalAcc, b, stepKm, stepH);
+        }
+      }
+    }
+
+    int B = SpeedProfile.BUCKETS;
+    double allKm = 0, allH = 0;
+    for (int b = 0; b < B; b++) { allKm += globalAcc[b]; allH += globalAcc[B + b]; }
+    float overall = allH > 0 ? (float) (allKm / allH) : (float) defaultKmh;
+    float[] global = new float[B];
+    for (int b = 0; b < B; b++) global[b] = speed(globalAcc, b, minSamples, overall);
+
+    long[] keys = acc.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+    float[] speeds = new float[keys.length * B];
+    float[] reference = new float[keys.length];
+    for (int c = 0; c < keys.length; c++) {
+      double[] a = acc.get(keys[c]);
+      double km = 0, h = 0, n = 0;
+      for (int b = 0; b < B; b++) { km += a[b]; h += a[B + b]; n += a[2 * B + b]; }
+      boolean enough = n >= minSamples && h > 0;
+      float cellAvg = enough ? (float) (km / h) : Float.NaN;
+      float ref = 0;
+      for (int b = 0; b < B; b++) {
+        float s = enough ? speed(a, b, minSamples, cellAvg) : global[b];
+        speeds[c * B + b] = s;
+        ref = Math.max(ref, s);
+      }
+      reference[c] = ref;
+    }
+    return new SpeedProfile(cellDeg, keys, speeds, reference, global);
+  }
+
+  private static void add(double[] a, int b, double km, double h) {
+    a[b] += km;
+    a[SpeedProfile.BUCKETS + b] += h;
+    a[2 * SpeedProfile.BUCKETS + b] += 1;
+  }
+
+  private static float speed(double[] a, int b, int minSamples, float fallback) {
+    int B = SpeedProfile.BUCKETS;
+    return a[2 * B + b] >= minSamples && a[B + b] > 0 ? (float) (a[b] / a[B + b]) : fallback;
+  }
+}
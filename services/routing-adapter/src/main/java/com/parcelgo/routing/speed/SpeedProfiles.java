@@ -0,0 +1,147 @@
+package com.parcelgo.routing.speed;
+
+import com.parcelgo.routing.graph.RoadGraph;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the current {@link SpeedProfile} and swaps it without a restart.
+ *
+ * Every {@code check-interval} the trips CSV and the compiled profile file are checked: a newer CSV is
+ * rebuilt into the file, a newer file is loaded, and the new table replaces the old one with a single
+ * volatile write. Readers take one snapshot of the reference per ETA, so a swap never mixes tables.
+ *
+ * ETAs integrate along the path as time advances from the departure: road routes scale each edge's
+ * free-flow time by its cell's {@link SpeedProfile#factor}, straight lines are walked in half-cell
+ * steps at each cell's profile speed.
+ */
+@Component
+public class SpeedProfiles {
+
+  private static final Logger log = LoggerFactory.getLogger(SpeedProfiles.class);
+  private static final float MIN_FACTOR = 0.1f;
+
+  private final Path tripsCsv;
+  private final Path file;
+  private final double cellDeg;
+  private final long utcOffsetMillis;
+  private final int minSamples;
+  private final double defaultKmh;
+  private final Duration checkInterval;
+  private final Counter swaps;
+
+  private volatile SpeedProfile current;
+  private FileTime loadedFileTime;
+  private ScheduledExecutorService watcher;
+
+  public SpeedProfiles(MeterRegistry registry,
+                       @Value("${parcelgo.routing.speed.trips-csv:}") String tripsCsv,
+                       @Value("${parcelgo.routing.speed.file:data/speed-profile.pgsp}") String file,
+                       @Value("${parcelgo.routing.speed.cell-deg:0.01}") double cellDeg,
+                       @Value("${parcelgo.routing.speed.utc-offset:+05:30}") String utcOffset,
+                       @Value("${parcelgo.routing.speed.min-samples:5}") int minSamples,
+                       @Value("${parcelgo.routing.speed.default-kmh:30}") double defaultKmh,
+                       @Value("${parcelgo.routing.speed.check-interval:30s}") Duration checkInterval) {
+    this.tripsCsv = tripsCsv.isBlank() ? null : Path.of(tripsCsv);
+    this.file = Path.of(file);
+    this.cellDeg = cellDeg;
+    this.utcOffsetMillis = ZoneOffset.of(utcOffset).getTotalSeconds() * 1000L;
+    this.minSamples = minSamples;
+    this.defaultKmh = defaultKmh;
+    this.checkInterval = checkInterval;
+    this.swaps = Counter.builder("routing.speed.profile.swaps").register(registry);
+    Gauge.builder("routing.speed.profile.cells", this, p -> p.current == null ? 0 : p.current.cells()).register(registry);
+  }
+
+  @PostConstruct
+  void start() {
+    refresh();
+    watcher = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "speed-profile-watch");
+      t.setDaemon(true);
+      return t;
+    });
+    long every = checkInterval.toMillis();
+    watcher.scheduleWithFixedDelay(this::refresh, every, every, TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  void stop() {
+    if (watcher != null) watcher.shutdownNow();
+  }
+
+  /** Rebuilds and/or reloads when the CSV or the compiled file changed. */
+  public synchronized void refresh() {
+    try {
+      if (tripsCsv != null && Files.exists(tripsCsv)
+          && (!Files.exists(file) || Files.getLastModifiedTime(file).compareTo(Files.getLastModifiedTime(tripsCsv)) < 0)) {
+        long t0 = System.nanoTime();
+        SpeedProfileBuilder.fromTripsCsv(tripsCsv, cellDeg, utcOffsetMillis, minSamples, defaultKmh).write(file);
+        log.info("speed profile rebuilt from {} in {} ms", tripsCsv, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0));
+      }
+      if (!Files.exists(file)) return;
+      FileTime mtime = Files.getLastModifiedTime(file);
+      if (mtime.equals(loadedFileTime)) return;
+      SpeedProfile p = SpeedProfile.read(file);
+      current = p;
+      loadedFileTime = mtime;
+      swaps.increment();
+      log.info("speed profile loaded: {} cells", p.cells());
+    } catch (IOException | RuntimeException e) {
+      log.warn("speed profile refresh failed, keeping the current one: {}", e.toString());
+    }
+  }
+
+  public boolean available() { return current != null; }
+
+  /**
+   * Profile-adjusted minutes for a road route: {@code routeMinutes} minus the free-flow time of
+   * {@code edges} plus their time at the profile speed for when each edge is reached.
+   */
+  public double roadMinutes(RoadGraph g, int[] edges, double routeMinutes, long departMillis) {
+    SpeedProfile p = current;
+    if (p == null || edges == null) return routeMinutes;
+    double freeMs = 0, elapsedMs = 0;
+    for (int e : edges) {
+      int v = g.head(e);
+      int bucket = SpeedProfile.bucket(departMillis + (long) elapsedMs, utcOffsetMillis);
+      float f = Math.max(MIN_FACTOR, p.factor(p.cell(g.lat(v), g.lng(v)), bucket));
+      freeMs += g.timeMs(e);
+      elapsedMs += g.timeMs(e) / f;
+    }
+    return routeMinutes + (elapsedMs - freeMs) / 60_000.0;
+  }
+
+  /** Minutes along the straight line, walked in half-cell steps at each cell's profile speed. */
+  public double lineMinutes(double fromLat, double fromLng, double toLat, double toLng, double km, long departMillis) {
+    SpeedProfile p = current;
+    if (p == null) return km / defaultKmh * 60.0;
+    double spanDeg = Math.max(Math.abs(toLat - fromLat), Math.abs(toLng - fromLng));
+    int steps = Math.max(1, (int) Math.ceil(spanDeg / (p.cellDeg() / 2)));
+    double stepKm = km / steps, elapsedH = 0;
+    for (int i = 0; i < steps; i++) {
+      double t = (i + 0.5) / steps;
+      int cell = p.cell(fromLat + (toLat - fromLat) * t, fromLng + (toLng - fromLng) * t);
+      float kmh = p.speedKmh(cell, SpeedProfile.bucket(departMillis + (long) (elapsedH * 3_600_000), utcOffsetMillis));
+      elapsedH += stepKm / Math.max(1f, kmh);
+    }
+    return elapsedH * 60.0;
+  }
+}
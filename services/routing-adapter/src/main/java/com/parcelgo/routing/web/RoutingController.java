@@ -1,29 +1,110 @@
 package com.parcelgo.routing.web;
 
+import com.parcelgo.routing.eta.EtaCorrectionModel;
+import com.parcelgo.routing.eta.EtaEstimator;
+import com.parcelgo.routing.matrix.DistanceMatrix;
+import com.parcelgo.routing.web.dto.MatrixRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
 @RequestMapping({"/routing","/eta"})
 public class RoutingController {
+  private final DistanceMatrix matrix;
+  private final EtaEstimator estimator;
+  private final EtaCorrectionModel correction;
+  private final int maxCells;
+  public RoutingController(DistanceMatrix matrix, EtaEstimator estimator, EtaCorrectionModel correction,
+                           @Value("${parcelgo.routing.matrix.max-cells:4000000}") int maxCells){
+    this.matrix = matrix;
+    this.estimator = estimator;
+    this.correction = correction;
+    this.maxCells = maxCells;
+  }
 
+  /**
+   * Road-network ETA when a graph is loaded and both points are on it, straight line otherwise. With a
+   * speed profile loaded the time follows the profile for the departure time ({@code departAt}, epoch
+   * ms, default now); without one the straight line is taken at 30 km/h. The result is then corrected
+   * by what recent deliveries from the same area and hour actually took, with a 90% interval
+   * ({@code etaLowMinutes}..{@code etaHighMinutes}); {@code baseEtaMinutes} is the uncorrected figure.
+   */
   @GetMapping("/eta")
   public Map<String,Object> eta(@RequestParam double fromLat, @RequestParam double fromLng,
-                                @RequestParam double toLat, @RequestParam double toLng){
-    double R = 6371.0;
-    double dLat = Math.toRadians(toLat - fromLat);
-    double dLon = Math.toRadians(toLng - fromLng);
-    double a = Math.sin(dLat/2)*Math.sin(dLat/2) +
-               Math.cos(Math.toRadians(fromLat))*Math.cos(Math.toRadians(toLat)) *
-               Math.sin(dLon/2)*Math.sin(dLon/2);
-    double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1-a));
-    double km = R * c;
-    double avgKmh = 30.0;
-    double minutes = (km / avgKmh) * 60.0;
-    return Map.of("distanceKm", km, "etaMinutes", minutes);
+                                @RequestParam double toLat, @RequestParam double toLng,
+                                @RequestParam(required = false) Long departAt){
+    long depart = departAt == null ? System.currentTimeMillis() : departAt;
+    EtaEstimator.Estimate base = estimator.estimate(fromLat, fromLng, toLat, toLng, depart);
+    EtaCorrectionModel.Correction c = correction.correct(base.minutes(), fromLat, fromLng, depart);
+    Map<String,Object> out = new LinkedHashMap<>();
+    out.put("distanceKm", base.distanceKm());
+    out.put("etaMinutes", c.minutes());
+    out.put("etaLowMinutes", c.lowMinutes());
+    out.put("etaHighMinutes", c.highMinutes());
+    out.put("baseEtaMinutes", base.minutes());
+    out.put("source", base.source());
+    out.put("profiled", base.profiled());
+    out.put("correction", c.level());
+    out.put("correctionWeight", c.weight());
+    return out;
+  }
+
+  /**
+   * N x M distances (and ETAs at {@code avgKmh}, default 30) in one call. The response is compact:
+   * flat row-major arrays, {@code distanceKm[i * cols + j]} from origin i to destination j.
+   */
+  @PostMapping("/matrix")
+  public Map<String,Object> matrix(@RequestBody MatrixRequest req){
+    double[] origins = flatten(req.origins, "origins");
+    double[] destinations = req.destinations == null ? origins : flatten(req.destinations, "destinations");
+    int rows = origins.length / 2, cols = destinations.length / 2;
+    if ((long) rows * cols > maxCells)
+      throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "matrix exceeds " + maxCells + " cells");
+    double avgKmh = req.avgKmh == null ? 30.0 : req.avgKmh;
+    if (!(avgKmh > 0)) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "avgKmh must be positive");
+
+    float[] km = matrix.distancesKm(origins, destinations);
+    Map<String,Object> out = new LinkedHashMap<>();
+    out.put("rows", rows);
+    out.put("cols", cols);
+    out.put("distanceKm", round(km, 1000f));
+    if (req.eta == null || req.eta) {
+      float[] minutes = new float[km.length];
+      float perKm = (float) (60.0 / avgKmh);
+      for (int i = 0; i < km.length; i++) minutes[i] = km[i] * perKm;
+      out.put("etaMinutes", round(minutes, 10f));
+    }
+    return out;
+  }
+
+  private static double[] flatten(List<double[]> points, String field){
+    if (points == null || points.isEmpty())
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, field + " must not be empty");
+    double[] flat = new double[points.size() * 2];
+    for (int i = 0; i < points.size(); i++) {
+      double[] p = points.get(i);
+      if (p == null || p.length != 2 || !(Math.abs(p[0]) <= 90) || !(Math.abs(p[1]) <= 180))
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, field + "[" + i + "] must be [lat, lng]");
+      flat[2 * i] = p[0];
+      flat[2 * i + 1] = p[1];
+    }
+    return flat;
+  }
+
+  /** Fewer digits on the wire: 1 m for distances, 6 s for ETAs. */
+  private static float[] round(float[] v, float scale){
+    for (int i = 0; i < v.length; i++) v[i] = Math.round(v[i] * scale) / scale;
+    return v;
   }
 }
@@ -0,0 +1,14 @@
+package com.parcelgo.routing.web.dto;
+
+import java.util.List;
+
+/**
+ * Body of {@code POST /routing/matrix}: points as {@code [lat, lng]} pairs. Without {@code destinations}
+ * the matrix is origins x origins.
+ */
+public class MatrixRequest {
+  public List<double[]> origins;
+  public List<double[]> destinations;
+  public Double avgKmh;
+  public Boolean eta;
+}
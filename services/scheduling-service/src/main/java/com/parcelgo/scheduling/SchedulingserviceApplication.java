@@ -2,8 +2,10 @@ package com.parcelgo.scheduling;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class SchedulingserviceApplication {
   public static void main(String[] args) { SpringApplication.run(SchedulingserviceApplication.class, args); }
 }
@@ -0,0 +1,255 @@
+package com.parcelgo.scheduling.assign;
+
+import com.parcelgo.scheduling.dispatch.ScheduledOrder;
+import com.parcelgo.scheduling.dispatch.ScheduledOrderDispatcher;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Assigns orders to couriers in batches rather than one at a time.
+ *
+ * Orders queue up for {@code window-ms}; then the batch and the free couriers are split into zones
+ * (grid cells of {@code zone-cell-deg} by pickup) and every zone's matching is solved at once, zones in
+ * parallel on a fork/join pool, so that one order taking the courier another needed more is priced in
+ * (see {@link Matching}). A courier joins every zone whose cell comes within {@code max-pickup-km} of
+ * them, so orders near a cell edge still see the couriers just across it; when two zones pick the same
+ * courier the roster claim settles it and the loser waits. Matched couriers are claimed on the roster;
+ * an order left without one, or whose courier was claimed meanwhile, waits for the next batch, up to
+ * {@code max-rounds} batches. Scheduled orders coming due join the same batches and are only marked
+ * dispatched once assigned (otherwise {@link ScheduledOrderDispatcher#dispatch} fails and they retry).
+ *
+ * Batching is off unless {@code enabled}: it needs couriers pushed to {@link CourierRoster}, and until
+ * something feeds that, {@code /assign} answers {@code tbd} at once and due orders are only logged.
+ */
+@Component
+public class BatchAssigner implements ScheduledOrderDispatcher {
+
+  private static final Logger log = LoggerFactory.getLogger(BatchAssigner.class);
+  /** A little under the true km per degree, so the halo errs on the wide side. */
+  private static final double KM_PER_DEG_LAT = 110.0;
+
+  /** Outcome for one order: the courier, or none with {@code courierId} null. */
+  public record Assignment(long orderId, Long courierId, Double pickupKm, Instant eta, String zone, int rounds) {
+    public boolean assigned() { return courierId != null; }
+  }
+
+  private static final class Pending {
+    final Job job;
+    final CompletableFuture<Assignment> result = new CompletableFuture<>();
+    int rounds;
+
+    Pending(Job job) { this.job = job; }
+  }
+
+  private record Zone(String key, List<Pending> orders, List<Courier> couriers) {}
+
+  private final CourierRoster roster;
+  private final boolean enabled;
+  private final long windowMillis;
+  private final double zoneCellDeg;
+  private final double maxPickupKm;
+  private final int candidates;
+  private final int maxRounds;
+  private final int maxPending;
+  private final double speedKmph;
+  private final ForkJoinPool pool;
+
+  private final Queue<Pending> queue = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger queued = new AtomicInteger();
+  private volatile boolean running;
+  private Thread batcher;
+
+  private final Counter assigned;
+  private final Counter unassigned;
+  private final Counter requeued;
+  private final Timer solve;
+  private final DistributionSummary pickupKm;
+
+  public BatchAssigner(CourierRoster roster, MeterRegistry registry,
+                       @Value("${parcelgo.scheduling.assign.enabled:false}") boolean enabled,
+                       @Value("${parcelgo.scheduling.assign.window-ms:2000}") long windowMillis,
+                       @Value("${parcelgo.scheduling.assign.zone-cell-deg:0.25}") double zoneCellDeg,
+                       @Value("${parcelgo.scheduling.assign.max-pickup-km:10}") double maxPickupKm,
+                       @Value("${parcelgo.scheduling.assign.candidates:16}") int candidates,
+                       @Value("${parcelgo.scheduling.assign.max-rounds:3}") int maxRounds,
+                       @Value("${parcelgo.scheduling.assign.max-pending:50000}") int maxPending,
+                       @Value("${parcelgo.scheduling.assign.speed-kmph:20}") double speedKmph,
+                       @Value("${parcelgo.scheduling.assign.parallelism:0}") int parallelism) {
+    this.roster = roster;
+    this.enabled = enabled;
+    this.windowMillis = windowMillis;
+    this.zoneCellDeg = zoneCellDeg;
+    this.maxPickupKm = maxPickupKm;
+    this.candidates = candidates;
+    this.maxRounds = maxRounds;
+    this.maxPending = maxPending;
+    this.speedKmph = speedKmph;
+    this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    this.assigned = Counter.builder("scheduling.assign.orders").tag("result", "assigned").register(registry);
+    this.unassigned = Counter.builder("scheduling.assign.orders").tag("result", "unassigned").register(registry);
+    this.requeued = Counter.builder("scheduling.assign.orders").tag("result", "requeued").register(registry);
+    this.solve = Timer.builder("scheduling.assign.solve").register(registry);
+    this.pickupKm = DistributionSummary.builder("scheduling.assign.pickup.km").register(registry);
+    Gauge.builder("scheduling.assign.pending", queued, AtomicInteger::get).register(registry);
+  }
+
+  @PostConstruct
+  void start() {
+    if (!enabled) return;
+    running = true;
+    batcher = new Thread(this::loop, "assign-batcher");
+    batcher.setDaemon(true);
+    batcher.start();
+  }
+
+  @PreDestroy
+  void stop() {
+    running = false;
+    if (batcher != null) batcher.interrupt();
+    pool.shutdownNow();
+  }
+
+  /** Whether orders are batched at all; when not, {@link #submit} refuses them. */
+  public boolean enabled() {
+    return enabled;
+  }
+
+  /** Queues an order for the next batch; the future completes once it is assigned or given up on. */
+  public CompletableFuture<Assignment> submit(Job job) {
+    if (!enabled) throw new RejectedExecutionException("batch assignment is disabled");
+    if (queued.incrementAndGet() > maxPending) {
+      queued.decrementAndGet();
+      throw new RejectedExecutionException("assignment queue is full");
+    }
+    Pending p = new Pending(job);
+    queue.add(p);
+    return p.result;
+  }
+
+  @Override
+  public void dispatch(ScheduledOrder o) {
+    if (!enabled) {
+      log.info("scheduled order {} due for dispatch (scheduled at {})", o.id(), o.scheduledAt());
+      return;
+    }
+    if (o.pickupLat() == null || o.pickupLng() == null) {
+      log.warn("scheduled order {} has no pickup coordinates, not assigning", o.id());
+      return;
+    }
+    Assignment a;
+    try {
+      a = submit(new Job(o.id(), o.pickupLat(), o.pickupLng(), o.vehicleType(), o.weightKg())).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("interrupted waiting for assignment of order " + o.id());
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("assignment of order " + o.id() + " failed", e.getCause());
+    }
+    if (!a.assigned()) {
+      // the caller re-arms the order and tries again later
+      throw new IllegalStateException("scheduled order " + o.id() + " unassigned after " + a.rounds()
+          + " rounds: no free courier within " + maxPickupKm + " km");
+    }
+    log.info("scheduled order {} assigned to courier {} ({} km to pickup)", a.orderId(), a.courierId(), a.pickupKm());
+  }
+
+  private void loop() {
+    while (running) {
+      try {
+        Thread.sleep(windowMillis);
+      } catch (InterruptedException e) {
+        break;
+      }
+      try {
+        runBatch();
+      } catch (RuntimeException e) {
+        log.warn("assignment batch failed", e);
+      }
+    }
+  }
+
+  /** Assigns everything queued so far. */
+  void runBatch() {
+    List<Pending> batch = new ArrayList<>();
+    for (Pending p; (p = queue.poll()) != null; ) batch.add(p);
+    if (batch.isEmpty()) return;
+    queued.addAndGet(-batch.size());
+    long now = System.currentTimeMillis();
+
+    Map<String, Zone> zones = new HashMap<>();
+    for (Pending p : batch) {
+      zones.computeIfAbsent(zone(cell(p.job.pickupLat()), cell(p.job.pickupLng())),
+          k -> new Zone(k, new ArrayList<>(), new ArrayList<>())).orders().add(p);
+    }
+    double haloLat = maxPickupKm / KM_PER_DEG_LAT;
+    for (Courier c : roster.free(now)) {
+      double haloLng = maxPickupKm / (KM_PER_DEG_LAT * Math.max(0.01, Math.cos(Math.toRadians(c.lat()))));
+      for (int y = cell(c.lat() - haloLat), y1 = cell(c.lat() + haloLat); y <= y1; y++) {
+        for (int x = cell(c.lng() - haloLng), x1 = cell(c.lng() + haloLng); x <= x1; x++) {
+          Zone z = zones.get(zone(y, x));
+          if (z != null) z.couriers().add(c);
+        }
+      }
+    }
+
+    List<Callable<Void>> tasks = new ArrayList<>(zones.size());
+    for (Zone z : zones.values()) tasks.add(() -> { settle(z, now); return null; });
+    solve.record(() -> pool.invokeAll(tasks));
+  }
+
+  private void settle(Zone z, long now) {
+    List<Job> jobs = new ArrayList<>(z.orders().size());
+    for (Pending p : z.orders()) jobs.add(p.job);
+    int[] match = Matching.optimal(jobs, z.couriers(), maxPickupKm, candidates);
+    for (int i = 0; i < match.length; i++) {
+      Pending p = z.orders().get(i);
+      p.rounds++;
+      Courier c = match[i] >= 0 ? z.couriers().get(match[i]) : null;
+      if (c != null && roster.claim(c.id(), now)) {
+        double km = Matching.km(p.job, c);
+        assigned.increment();
+        pickupKm.record(km);
+        Instant eta = Instant.ofEpochMilli(now + Math.round(km / speedKmph * 3_600_000));
+        p.result.complete(new Assignment(p.job.orderId(), c.id(), km, eta, z.key(), p.rounds));
+      } else if (p.rounds < maxRounds) {
+        requeued.increment();
+        queued.incrementAndGet();
+        queue.add(p);
+      } else {
+        unassigned.increment();
+        p.result.complete(new Assignment(p.job.orderId(), null, null, null, z.key(), p.rounds));
+      }
+    }
+  }
+
+  private int cell(double deg) {
+    return (int) Math.floor(deg / zoneCellDeg);
+  }
+
+  private static String zone(int y, int x) {
+    return y + ":" + x;
+  }
+}
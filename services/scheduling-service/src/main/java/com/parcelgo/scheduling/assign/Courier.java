@@ -0,0 +1,7 @@
+package com.parcelgo.scheduling.assign;
+
+/**
+ * A courier as the assigner sees it: where they are, what they drive and how much they may carry
+ * ({@code maxWeightKg} null when unknown, which rules nothing out).
+ */
+public record Courier(long id, String vehicle, double lat, double lng, Double maxWeightKg, long updatedAtMillis) {}
@@ -0,0 +1,90 @@
+package com.parcelgo.scheduling.assign;
+
+import com.parcelgo.scheduling.drivers.DriverDirectory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Couriers free to take work, as pushed by the services that see their heartbeats (like pricing's
+ * surge signals, nothing here calls out for them). A courier taken by an assignment is claimed and
+ * left out of later batches until released or {@code claim-ttl-ms} passes; one not heard from within
+ * {@code stale-after-ms} is left out too. When a push carries no weight limit the driver's
+ * {@code max_weight_kg} from userdb is used.
+ */
+@Component
+public class CourierRoster {
+
+  private record Entry(Courier courier, boolean available, long claimedUntil) {}
+
+  private final DriverDirectory drivers;
+  private final long staleAfterMillis;
+  private final long claimTtlMillis;
+  private final Map<Long, Entry> couriers = new ConcurrentHashMap<>();
+
+  public CourierRoster(DriverDirectory drivers, MeterRegistry registry,
+                       @Value("${parcelgo.scheduling.assign.stale-after-ms:120000}") long staleAfterMillis,
+                       @Value("${parcelgo.scheduling.assign.claim-ttl-ms:1200000}") long claimTtlMillis) {
+    this.drivers = drivers;
+    this.staleAfterMillis = staleAfterMillis;
+    this.claimTtlMillis = claimTtlMillis;
+    Gauge.builder("scheduling.assign.couriers", couriers, Map::size).register(registry);
+  }
+
+  /** Records a courier's position and availability; a claim on them survives the update. */
+  public void update(long id, String vehicle, double lat, double lng, Double maxWeightKg, boolean available,
+                     long atMillis) {
+    String v = (vehicle == null || vehicle.isBlank()) ? null : vehicle.strip().toLowerCase(Locale.ROOT);
+    Courier c = new Courier(id, v, lat, lng, maxWeightKg, atMillis);
+    couriers.merge(id, new Entry(c, available, 0L),
+        (cur, next) -> cur.courier().updatedAtMillis() > atMillis ? cur
+            : new Entry(c, available, cur.claimedUntil()));
+  }
+
+  /** Takes the courier for one assignment; false when someone else got them first or they went off. */
+  public boolean claim(long id, long nowMillis) {
+    boolean[] ok = new boolean[1];
+    couriers.computeIfPresent(id, (k, e) -> {
+      if (!free(e, nowMillis)) return e;
+      ok[0] = true;
+      return new Entry(e.courier(), e.available(), nowMillis + claimTtlMillis);
+    });
+    return ok[0];
+  }
+
+  /** Ends a claim early, e.g. once the delivery is done. */
+  public boolean release(long id) {
+    return couriers.computeIfPresent(id, (k, e) -> new Entry(e.courier(), e.available(), 0L)) != null;
+  }
+
+  /** Couriers that are available, fresh and unclaimed right now. */
+  public List<Courier> free(long nowMillis) {
+    couriers.values().removeIf(e -> e.courier().updatedAtMillis() < nowMillis - staleAfterMillis
+        && e.claimedUntil() < nowMillis);
+    List<Courier> out = new ArrayList<>();
+    for (Entry e : couriers.values()) {
+      if (!free(e, nowMillis)) continue;
+      Courier c = e.courier();
+      if (c.maxWeightKg() == null) {
+        DriverDirectory.Driver d = drivers.get(c.id());
+        if (d != null && d.maxWeightKg() != null) {
+          c = new Courier(c.id(), c.vehicle(), c.lat(), c.lng(), d.maxWeightKg(), c.updatedAtMillis());
+        }
+      }
+      out.add(c);
+    }
+    return out;
+  }
+
+  private boolean free(Entry e, long nowMillis) {
+    return e.available() && e.claimedUntil() < nowMillis
+        && e.courier().updatedAtMillis() >= nowMillis - staleAfterMillis;
+  }
+}
@@ -0,0 +1,4 @@
+package com.parcelgo.scheduling.assign;
+
+/** An order waiting for a courier: its pickup, the vehicle type it asked for (null for any) and its weight. */
+public record Job(long orderId, double pickupLat, double pickupLng, String vehicleType, Double weightKg) {}
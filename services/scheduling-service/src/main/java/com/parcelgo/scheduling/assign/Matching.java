@@ -0,0 +1,105 @@
+package com.parcelgo.scheduling.assign;
+
+import com.parcelgo.scheduling.geo.Haversine;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Matches one zone's jobs to its couriers. A courier can take a job when the vehicle type matches (a
+ * job without one takes any), the weight is within the courier's {@code max_weight_kg} and the pickup
+ * is within {@code maxPickupKm}. Each job keeps only its {@code candidates} nearest such couriers,
+ * which keeps the problem sparse; the matching over that graph minimises total pickup distance.
+ */
+public final class Matching {
+
+  private Matching() {}
+
+  /** Per job, the index of its courier or -1; minimum total pickup metres (see {@link MinCostAssignment}). */
+  public static int[] optimal(List<Job> jobs, List<Courier> couriers, double maxPickupKm, int candidates) {
+    int n = jobs.size();
+    int[][] cand = new int[n][];
+    long[][] cost = new long[n][];
+    for (int i = 0; i < n; i++) nearest(jobs.get(i), couriers, maxPickupKm, candidates, i, cand, cost);
+    // leaving a job over is dearer than any single pickup, so it only happens when couriers run out
+    long unassigned = 2 * metres(maxPickupKm) + 1;
+    return MinCostAssignment.solve(couriers.size(), cand, cost, unassigned);
+  }
+
+  /** The one-at-a-time baseline: each job in turn takes the nearest courier still free. */
+  public static int[] greedy(List<Job> jobs, List<Courier> couriers, double maxPickupKm) {
+    int[] out = new int[jobs.size()];
+    boolean[] taken = new boolean[couriers.size()];
+    for (int i = 0; i < jobs.size(); i++) {
+      Job j = jobs.get(i);
+      int best = -1;
+      double bestKm = maxPickupKm;
+      for (int c = 0; c < couriers.size(); c++) {
+        if (taken[c] || !fits(j, couriers.get(c))) continue;
+        double km = km(j, couriers.get(c));
+        if (km <= bestKm) {
+          bestKm = km;
+          best = c;
+        }
+      }
+      out[i] = best;
+      if (best >= 0) taken[best] = true;
+    }
+    return out;
+  }
+
+  /** Total pickup kilometres of an assignment. */
+  public static double totalKm(List<Job> jobs, List<Courier> couriers, int[] assigned) {
+    double sum = 0;
+    for (int i = 0; i < assigned.length; i++) if (assigned[i] >= 0) sum += km(jobs.get(i), couriers.get(assigned[i]));
+    return sum;
+  }
+
+  public static boolean fits(Job j, Courier c) {
+    if (j.vehicleType() != null && !j.vehicleType().isBlank()
+        && (c.vehicle() == null || !j.vehicleType().strip().toLowerCase(Locale.ROOT).equals(c.vehicle()))) {
+      return false;
+    }
+    return j.weightKg() == null || c.maxWeightKg() == null || j.weightKg() <= c.maxWeightKg();
+  }
+
+  public static double km(Job j, Courier c) {
+    return Haversine.km(c.lat(), c.lng(), j.pickupLat(), j.pickupLng());
+  }
+
+  /** Fills row {@code i} with the job's k nearest feasible couriers, nearest first. */
+  private static void nearest(Job j, List<Courier> couriers, double maxPickupKm, int k, int i,
+                              int[][] cand, long[][] cost) {
+    int[] idx = new int[k];
+    long[] m = new long[k];
+    int size = 0;
+    long limit = metres(maxPickupKm);
+    // a degree of latitude is at least 110.5 km; skip the far ones before any trigonometry
+    double dLat = maxPickupKm / 110.5;
+    double dLng = dLat / Math.max(0.01, Math.cos(Math.toRadians(Math.abs(j.pickupLat()) + dLat)));
+    for (int c = 0; c < couriers.size(); c++) {
+      Courier courier = couriers.get(c);
+      if (Math.abs(courier.lat() - j.pickupLat()) > dLat || Math.abs(courier.lng() - j.pickupLng()) > dLng
+          || !fits(j, courier)) {
+        continue;
+      }
+      long d = metres(km(j, courier));
+      if (d > limit || (size == k && d >= m[k - 1])) continue;
+      int at = size < k ? size++ : k - 1;
+      while (at > 0 && m[at - 1] > d) {
+        m[at] = m[at - 1];
+        idx[at] = idx[at - 1];
+        at--;
+      }
+      m[at] = d;
+      idx[at] = c;
+    }
+    cand[i] = Arrays.copyOf(idx, size);
+    cost[i] = Arrays.copyOf(m, size);
+  }
+
+  private static long metres(double km) {
+    return Math.round(km * 1000);
+  }
+}
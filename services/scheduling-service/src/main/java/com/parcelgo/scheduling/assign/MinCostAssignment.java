@@ -0,0 +1,143 @@
+package com.parcelgo.scheduling.assign;
+
+import java.util.Arrays;
+
+/**
+ * Min-cost assignment of orders to couriers on a sparse candidate graph: the Hungarian method in its
+ * shortest-augmenting-path form (Jonker-Volgenant), with Dijkstra over the candidate edges only.
+ *
+ * Order {@code i} may take any courier in {@code candidates[i]} at {@code costs[i][k]}, or stay
+ * unassigned at {@code unassignedCost} (a private dummy courier, so every order can always be placed
+ * and more orders than couriers needs no special case). Orders are added one at a time; each addition
+ * finds the cheapest way to make room for it by re-seating already placed orders along an alternating
+ * path. Potentials on both sides keep reduced costs non-negative, so that path is a Dijkstra search which
+ * stops at the first free courier, usually after a handful of nodes. The result is optimal.
+ */
+public final class MinCostAssignment {
+
+  private MinCostAssignment() {}
+
+  /**
+   * Returns, per order, the index of its courier in {@code [0, couriers)} or -1 when it stays
+   * unassigned. Costs must be non-negative.
+   */
+  public static int[] solve(int couriers, int[][] candidates, long[][] costs, long unassignedCost) {
+    int n = candidates.length;
+    // right side: couriers, then order i's dummy at couriers + i
+    int right = couriers + n;
+    long[] u = new long[n];
+    long[] v = new long[right];
+    int[] matchL = new int[n];
+    int[] matchR = new int[right];
+    Arrays.fill(matchL, -1);
+    Arrays.fill(matchR, -1);
+
+    long[] dist = new long[right];
+    int[] prev = new int[right];
+    int[] seen = new int[right];
+    int[] done = new int[right];
+    int[] popped = new int[right];
+    LongHeap heap = new LongHeap();
+
+    for (int s = 0; s < n; s++) {
+      int stamp = s + 1;
+      heap.clear();
+      int poppedCount = 0;
+      relax(s, 0, couriers, candidates, costs, unassignedCost, u, v, dist, prev, seen, done, stamp, heap);
+      int free = -1;
+      long d = 0;
+      while (!heap.isEmpty()) {
+        long top = heap.poll();
+        int j = (int) (top & NODE_MASK);
+        if (done[j] == stamp) continue;
+        done[j] = stamp;
+        popped[poppedCount++] = j;
+        d = dist[j];
+        int i = matchR[j];
+        if (i < 0) {
+          free = j;
+          break;
+        }
+        relax(i, d, couriers, candidates, costs, unassignedCost, u, v, dist, prev, seen, done, stamp, heap);
+      }
+      // s's own dummy is always reachable, so a free node is always found
+      u[s] += d;
+      for (int k = 0; k < poppedCount; k++) {
+        int j = popped[k];
+        long slack = d - dist[j];
+        v[j] -= slack;
+        int i = matchR[j];
+        if (i >= 0) u[i] += slack;
+      }
+      for (int j = free; ; ) {
+        int i = prev[j];
+        int next = matchL[i];
+        matchL[i] = j;
+        matchR[j] = i;
+        if (i == s) break;
+        j = next;
+      }
+    }
+    for (int i = 0; i < n; i++) if (matchL[i] >= couriers) matchL[i] = -1;
+    return matchL;
+  }
+
+  private static final int NODE_BITS = 24;
+  private static final long NODE_MASK = (1L << NODE_BITS) - 1;
+
+  private static void relax(int i, long base, int couriers, int[][] candidates, long[][] costs, long unassignedCost,
+                            long[] u, long[] v, long[] dist, int[] prev, int[] seen, int[] done, int stamp,
+                            LongHeap heap) {
+    int[] cand = candidates[i];
+    for (int k = 0; k <= cand.length; k++) {
+      int j = k < cand.length ? cand[k] : couriers + i;
+      if (done[j] == stamp) continue;
+      long c = k < cand.length ? costs[i][k] : unassignedCost;
+      long nd = base + c - u[i] - v[j];
+      if (seen[j] != stamp || nd < dist[j]) {
+        seen[j] = stamp;
+        dist[j] = nd;
+        prev[j] = i;
+        heap.add((nd << NODE_BITS) | j);
+      }
+    }
+  }
+
+  /** Binary min-heap of longs (distance in the high bits, node in the low ones). */
+  private static final class LongHeap {
+    private long[] a = new long[64];
+    private int size;
+
+    void clear() { size = 0; }
+
+    boolean isEmpty() { return size == 0; }
+
+    void add(long x) {
+      if (size == a.length) a = Arrays.copyOf(a, size * 2);
+      int i = size++;
+      while (i > 0) {
+        int p = (i - 1) >>> 1;
+        if (a[p] <= x) break;
+        a[i] = a[p];
+        i = p;
+      }
+      a[i] = x;
+    }
+
+    long poll() {
+      long top = a[0];
+      long x = a[--size];
+      int i = 0;
+      while (true) {
+        int c = 2 * i + 1;
+        if (c >= size) break;
+        if (c + 1 < size && a[c + 1] < a[c]) c++;
+        if (a[c] >= x) break;
+        a[i] = a[c];
+        i = c;
+      }
+      a[i] = x;
+      return top;
+    }
+  }
+}
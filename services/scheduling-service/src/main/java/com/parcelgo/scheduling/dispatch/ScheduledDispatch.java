@@ -0,0 +1,322 @@
+package com.parcelgo.scheduling.dispatch;
+
+import com.parcelgo.scheduling.timer.TimingWheel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Wakes scheduled orders up for dispatch {@code lead-time} before their {@code scheduled_at}.
+ *
+ * Every order due within {@code lookahead} sits as one timer in a {@link TimingWheel}. The wheel is
+ * filled a window at a time: each poll extends the loaded horizon by reading just the slice of
+ * {@code idx_orders_scheduled} between the old and new horizon, and follows orders changed since the
+ * last poll (by {@code updated_at}) to arm, move or disarm their timers. Nothing scans for "what is
+ * due now"; the wheel knows.
+ *
+ * order-service stamps {@code updated_at} before its transaction commits, so changes can become visible
+ * out of order: a row stamped earlier may commit after a later one was already read. Each sweep of the
+ * change feed therefore starts {@code change-lag} before the newest change seen and re-reads that
+ * overlap; rows already applied with the same {@code updated_at} are skipped. On startup orders that
+ * should have fired within {@code missed-grace} fire right away (so a restart may dispatch those a
+ * second time; dispatchers must tolerate that).
+ *
+ * A firing timer hands the order to a virtual thread, which reads the row once more so a cancellation
+ * or reschedule the poll hasn't seen yet still counts, then calls the {@link ScheduledOrderDispatcher}.
+ * A failed dispatch is retried every {@code retry} up to {@code max-attempts} times, then given up on
+ * (and counted) until the order is rescheduled.
+ */
+@Component
+public class ScheduledDispatch {
+
+  private static final Logger log = LoggerFactory.getLogger(ScheduledDispatch.class);
+
+  private final ScheduledOrderSource source;
+  private final ScheduledOrderDispatcher dispatcher;
+  private final long leadMillis;
+  private final long lookaheadMillis;
+  private final long missedGraceMillis;
+  private final long pollMillis;
+  private final long retryMillis;
+  private final int maxAttempts;
+  private final long tickMillis;
+  private final int batchSize;
+  private final Set<String> statuses;
+
+  private final TimingWheel<ScheduledOrder> wheel;
+  private final Map<Long, TimingWheel.Timeout<ScheduledOrder>> timers = new ConcurrentHashMap<>();
+  private ExecutorService callbacks;
+  private volatile boolean running;
+  private Thread ticker;
+  private Thread poller;
+
+  /** Window keyset: every order up to (loadedAt, loadedId) in (scheduled_at, id) order is loaded. */
+  private volatile Instant loadedAt;
+  private long loadedId;
+  /** Newest updated_at applied from the change feed. */
+  private Instant changedAt;
+  /** Keyset of the current sweep of the change feed; null between sweeps. */
+  private Instant sweepAt;
+  private long sweepId;
+  /** updated_at last applied per order within the overlap, so a re-read row isn't applied twice. */
+  private final Map<Long, Instant> changesSeen = new HashMap<>();
+  private final long changeLagMillis;
+  /** Dispatched orders and the scheduled_at they went out for, so a later change event doesn't re-arm them. */
+  private final Map<Long, Instant> done = new ConcurrentHashMap<>();
+  /** Failed dispatches so far per order being retried. */
+  private final Map<Long, Integer> attempts = new ConcurrentHashMap<>();
+
+  private final Counter fired;
+  private final Counter dispatched;
+  private final Counter dropped;
+  private final Counter rearmed;
+  private final Counter abandoned;
+  private final Timer lateness;
+
+  public ScheduledDispatch(ScheduledOrderSource source, ScheduledOrderDispatcher dispatcher, MeterRegistry registry,
+                           @Value("${parcelgo.scheduling.dispatch.lead-time-ms:2700000}") long leadMillis,
+                           @Value("${parcelgo.scheduling.dispatch.lookahead-ms:21600000}") long lookaheadMillis,
+                           @Value("${parcelgo.scheduling.dispatch.missed-grace-ms:1800000}") long missedGraceMillis,
+                           @Value("${parcelgo.scheduling.dispatch.poll-interval-ms:15000}") long pollMillis,
+                           @Value("${parcelgo.scheduling.dispatch.retry-ms:5000}") long retryMillis,
+                           @Value("${parcelgo.scheduling.dispatch.max-attempts:12}") int maxAttempts,
+                           @Value("${parcelgo.scheduling.dispatch.tick-ms:100}") long tickMillis,
+                           @Value("${parcelgo.scheduling.dispatch.batch-size:5000}") int batchSize,
+                           @Value("${parcelgo.scheduling.dispatch.change-lag-ms:60000}") long changeLagMillis,
+                           @Value("${parcelgo.scheduling.dispatch.statuses:CREATED}") List<String> statuses) {
+    this.source = source;
+    this.dispatcher = dispatcher;
+    this.leadMillis = leadMillis;
+    this.lookaheadMillis = lookaheadMillis;
+    this.missedGraceMillis = missedGraceMillis;
+    this.pollMillis = pollMillis;
+    this.retryMillis = retryMillis;
+    this.maxAttempts = maxAttempts;
+    this.tickMillis = tickMillis;
+    this.batchSize = batchSize;
+    this.changeLagMillis = changeLagMillis;
+    this.statuses = statuses.stream().map(s -> s.strip().toUpperCase(Locale.ROOT)).collect(Collectors.toSet());
+    // 256 buckets x 4 levels of 100 ms ticks reach 13 years out
+    this.wheel = new TimingWheel<>(tickMillis, 8, 4, System.currentTimeMillis());
+    this.fired = Counter.builder("scheduling.dispatch.timers").tag("result", "fired").register(registry);
+    this.dispatched = Counter.builder("scheduling.dispatch.timers").tag("result", "dispatched").register(registry);
+    this.dropped = Counter.builder("scheduling.dispatch.timers").tag("result", "dropped").register(registry);
+    this.rearmed = Counter.builder("scheduling.dispatch.timers").tag("result", "rearmed").register(registry);
+    this.abandoned = Counter.builder("scheduling.dispatch.timers").tag("result", "abandoned").register(registry);
+    this.lateness = Timer.builder("scheduling.dispatch.lateness").register(registry);
+    Gauge.builder("scheduling.dispatch.pending", wheel, TimingWheel::size).register(registry);
+  }
+
+  @PostConstruct
+  void start() {
+    if (!source.enabled()) return;
+    Instant now = Instant.now();
+    loadedAt = now.plusMillis(leadMillis - missedGraceMillis);
+    loadedId = -1;
+    changedAt = now;
+    callbacks = Executors.newVirtualThreadPerTaskExecutor();
+    running = true;
+    ticker = new Thread(this::tick, "dispatch-wheel");
+    ticker.setDaemon(true);
+    ticker.start();
+    poller = new Thread(this::poll, "dispatch-orders-feed");
+    poller.setDaemon(true);
+    poller.start();
+  }
+
+  @PreDestroy
+  void stop() {
+    running = false;
+    if (ticker != null) ticker.interrupt();
+    if (poller != null) poller.interrupt();
+    if (callbacks != null) callbacks.shutdownNow();
+  }
+
+  /** Number of armed timers. */
+  public int pending() {
+    return wheel.size();
+  }
+
+  private void tick() {
+    while (running) {
+      long now = System.currentTimeMillis();
+      try {
+        wheel.advance(now, o -> {
+          fired.increment();
+          callbacks.execute(() -> due(o));
+        });
+      } catch (RuntimeException e) {
+        log.warn("dispatch wheel tick failed", e);
+      }
+      try {
+        Thread.sleep(tickMillis - now % tickMillis);
+      } catch (InterruptedException e) {
+        break;
+      }
+    }
+  }
+
+  private void poll() {
+    while (running) {
+      try {
+        // a full page means there is more: go again without sleeping
+        if (loadWindow() + loadChanges() < batchSize) Thread.sleep(pollMillis);
+      } catch (InterruptedException e) {
+        break;
+      } catch (SQLException | RuntimeException e) {
+        log.warn("scheduled order poll of {} failed: {}", source.url(), e.toString());
+        try { Thread.sleep(pollMillis); } catch (InterruptedException ie) { break; }
+      }
+    }
+  }
+
+  /** Extends the loaded horizon towards now + lookahead by at most one page; returns the rows read. */
+  int loadWindow() throws SQLException {
+    Instant to = Instant.now().plusMillis(lookaheadMillis);
+    if (!to.isAfter(loadedAt)) return 0;
+    List<ScheduledOrderSource.Row> rows = source.window(loadedAt, loadedId, to, batchSize);
+    for (ScheduledOrderSource.Row r : rows) apply(r);
+    if (rows.size() < batchSize) {
+      // everything before to is in; id -1 keeps orders at exactly to for the next window
+      loadedId = -1;
+      loadedAt = to;
+    } else {
+      ScheduledOrder last = rows.get(rows.size() - 1).order();
+      loadedId = last.id();
+      loadedAt = last.scheduledAt();
+    }
+    Instant forgetBefore = Instant.now().minusMillis(missedGraceMillis);
+    done.values().removeIf(at -> at.isBefore(forgetBefore));
+    return rows.size();
+  }
+
+  /**
+   * Reads one page of orders changed since {@code change-lag} before the newest change seen, applying
+   * those not seen with that {@code updated_at} yet; returns the rows read. A short page ends the sweep
+   * and the next call starts a new one.
+   */
+  int loadChanges() throws SQLException {
+    if (sweepAt == null) {
+      sweepAt = changedAt.minusMillis(changeLagMillis);
+      sweepId = -1;
+    }
+    List<ScheduledOrderSource.Row> rows = source.changedSince(sweepAt, sweepId, batchSize);
+    for (ScheduledOrderSource.Row r : rows) {
+      sweepAt = r.updatedAt();
+      sweepId = r.order().id();
+      if (r.updatedAt().isAfter(changedAt)) changedAt = r.updatedAt();
+      if (r.updatedAt().equals(changesSeen.put(r.order().id(), r.updatedAt()))) continue;
+      Instant at = r.order().scheduledAt();
+      // beyond the horizon: the window load will arm it when it gets there
+      if (dispatchable(r) && !at.isBefore(loadedAt)) disarm(r.order().id());
+      else apply(r);
+    }
+    if (rows.size() < batchSize) {
+      sweepAt = null;
+      Instant forgetBefore = changedAt.minusMillis(changeLagMillis);
+      changesSeen.values().removeIf(at -> at.isBefore(forgetBefore));
+    }
+    return rows.size();
+  }
+
+  private void apply(ScheduledOrderSource.Row r) {
+    if (dispatchable(r)) arm(r.order());
+    else disarm(r.order().id());
+  }
+
+  private boolean dispatchable(ScheduledOrderSource.Row r) {
+    return "SCHEDULED".equalsIgnoreCase(r.mode()) && r.order().scheduledAt() != null
+        && r.status() != null && statuses.contains(r.status().toUpperCase(Locale.ROOT));
+  }
+
+  /** Arms (or moves) the order's timer; an unchanged scheduled_at keeps the existing one. */
+  public void arm(ScheduledOrder o) {
+    long deadline = o.scheduledAt().toEpochMilli() - leadMillis;
+    // long past (an old order edited) or already sent out for this time
+    if (deadline < System.currentTimeMillis() - missedGraceMillis || o.scheduledAt().equals(done.get(o.id()))) {
+      disarm(o.id());
+      return;
+    }
+    arm(o, deadline);
+  }
+
+  private void arm(ScheduledOrder o, long deadlineMillis) {
+    timers.compute(o.id(), (id, cur) -> {
+      if (cur != null && cur.isPending() && cur.deadlineMillis() == deadlineMillis) return cur;
+      if (cur != null) cur.cancel();
+      return wheel.schedule(o, deadlineMillis);
+    });
+  }
+
+  public void disarm(long orderId) {
+    TimingWheel.Timeout<ScheduledOrder> t = timers.remove(orderId);
+    if (t != null) t.cancel();
+    attempts.remove(orderId);
+  }
+
+  /** On a virtual thread: re-reads the order and dispatches it if it is still due. */
+  private void due(ScheduledOrder o) {
+    timers.computeIfPresent(o.id(), (id, t) -> t.payload() == o ? null : t);
+    ScheduledOrderSource.Row row;
+    try {
+      row = source.get(o.id());
+    } catch (SQLException | RuntimeException e) {
+      log.warn("re-reading scheduled order {} failed, retrying: {}", o.id(), e.toString());
+      arm(o, System.currentTimeMillis() + retryMillis);
+      return;
+    }
+    if (row == null || !dispatchable(row)) {
+      attempts.remove(o.id());
+      dropped.increment();
+      return;
+    }
+    ScheduledOrder current = row.order();
+    long deadline = current.scheduledAt().toEpochMilli() - leadMillis;
+    long now = System.currentTimeMillis();
+    if (deadline > now + tickMillis) {
+      // moved later since it was armed
+      rearmed.increment();
+      arm(current, deadline);
+      return;
+    }
+    lateness.record(Duration.ofMillis(Math.max(0, now - deadline)));
+    try {
+      dispatcher.dispatch(current);
+      attempts.remove(current.id());
+      done.put(current.id(), current.scheduledAt());
+      dispatched.increment();
+    } catch (RuntimeException e) {
+      int n = attempts.merge(current.id(), 1, Integer::sum);
+      if (n < maxAttempts) {
+        log.warn("dispatch of scheduled order {} failed (attempt {}), retrying: {}", current.id(), n, e.toString());
+        arm(current, now + retryMillis);
+        return;
+      }
+      // done keeps the change feed from re-arming it; a new scheduled_at starts over
+      log.warn("giving up on scheduled order {} after {} attempts: {}", current.id(), n, e.toString());
+      attempts.remove(current.id());
+      done.put(current.id(), current.scheduledAt());
+      abandoned.increment();
+    }
+  }
+}
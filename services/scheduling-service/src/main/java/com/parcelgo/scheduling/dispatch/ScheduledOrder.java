@@ -0,0 +1,7 @@
+package com.parcelgo.scheduling.dispatch;
+
+import java.time.Instant;
+
+/** What dispatch needs to know about a scheduled order, as read from orderdb. */
+public record ScheduledOrder(long id, Instant scheduledAt, String vehicleType,
+                             Double pickupLat, Double pickupLng, Double dropLat, Double dropLng, Double weightKg) {}
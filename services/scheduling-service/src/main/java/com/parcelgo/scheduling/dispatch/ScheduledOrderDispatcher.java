@@ -0,0 +1,7 @@
+package com.parcelgo.scheduling.dispatch;
+
+/** Receives scheduled orders when their dispatch lead time is reached. Called on a virtual thread. */
+public interface ScheduledOrderDispatcher {
+
+  void dispatch(ScheduledOrder order);
+}
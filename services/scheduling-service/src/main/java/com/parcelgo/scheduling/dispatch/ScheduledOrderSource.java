@@ -0,0 +1,164 @@
+package com.parcelgo.scheduling.dispatch;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read-only access to scheduled orders in orderdb (which belongs to order-service, hence a pool of
+ * its own rather than the service's datasource). Disabled unless
+ * {@code parcelgo.scheduling.dispatch.jdbc-url} is set. orderdb stores local {@code TIMESTAMP}s, read
+ * and written here with {@code db-utc-offset}.
+ */
+@Component
+public class ScheduledOrderSource {
+
+  /** An order row with what decides whether it is (still) to be dispatched. */
+  public record Row(ScheduledOrder order, String status, String mode, Instant updatedAt) {}
+
+  private static final String COLUMNS =
+      "id, scheduled_at, vehicle_type, pickup_lat, pickup_lng, drop_lat, drop_lng, pkg_weight_kg, status, mode,"
+          + " updated_at";
+
+  private static final String WINDOW = "SELECT " + COLUMNS + """
+       FROM orders
+      WHERE mode = 'SCHEDULED' AND scheduled_at < ? AND (scheduled_at, id) > (?, ?)
+      ORDER BY scheduled_at, id
+      LIMIT ?""";
+
+  private static final String CHANGED = "SELECT " + COLUMNS + """
+       FROM orders
+      WHERE (updated_at, id) > (?, ?)
+      ORDER BY updated_at, id
+      LIMIT ?""";
+
+  private static final String PLANNED = "SELECT " + COLUMNS + """
+       FROM orders
+      WHERE mode = 'SCHEDULED' AND scheduled_at >= ? AND scheduled_at < ? AND LOWER(pickup_city) = LOWER(?)
+      ORDER BY scheduled_at, id""";
+
+  private static final String ONE = "SELECT " + COLUMNS + " FROM orders WHERE id = ?";
+
+  private final String jdbcUrl;
+  private final ZoneOffset dbOffset;
+  private final HikariDataSource pool;
+
+  public ScheduledOrderSource(@Value("${parcelgo.scheduling.dispatch.jdbc-url:}") String jdbcUrl,
+                              @Value("${parcelgo.scheduling.dispatch.username:postgres}") String username,
+                              @Value("${parcelgo.scheduling.dispatch.password:postgres}") String password,
+                              @Value("${parcelgo.scheduling.dispatch.pool-size:4}") int poolSize,
+                              @Value("${parcelgo.scheduling.dispatch.db-utc-offset:+05:30}") String dbOffset) {
+    this.jdbcUrl = jdbcUrl;
+    this.dbOffset = ZoneOffset.of(dbOffset);
+    if (jdbcUrl.isBlank()) {
+      this.pool = null;
+      return;
+    }
+    HikariConfig c = new HikariConfig();
+    c.setPoolName("orderdb-scheduled");
+    c.setJdbcUrl(jdbcUrl);
+    c.setUsername(username);
+    c.setPassword(password);
+    c.setMaximumPoolSize(poolSize);
+    c.setReadOnly(true);
+    // fail at first use rather than at startup, so orderdb being down doesn't stop slot booking
+    c.setInitializationFailTimeout(-1);
+    this.pool = new HikariDataSource(c);
+  }
+
+  public boolean enabled() {
+    return pool != null;
+  }
+
+  public String url() {
+    return jdbcUrl;
+  }
+
+  /** The offset orderdb's local timestamps are in. */
+  public ZoneOffset dbOffset() {
+    return dbOffset;
+  }
+
+  /** Scheduled orders after the keyset position (afterAt, afterId) with scheduled_at before {@code to}. */
+  public List<Row> window(Instant afterAt, long afterId, Instant to, int limit) throws SQLException {
+    try (Connection c = pool.getConnection(); PreparedStatement ps = c.prepareStatement(WINDOW)) {
+      ps.setTimestamp(1, local(to));
+      ps.setTimestamp(2, local(afterAt));
+      ps.setLong(3, afterId);
+      ps.setInt(4, limit);
+      return read(ps);
+    }
+  }
+
+  /** Orders of any mode updated after (afterAt, afterId), oldest change first. */
+  public List<Row> changedSince(Instant afterAt, long afterId, int limit) throws SQLException {
+    try (Connection c = pool.getConnection(); PreparedStatement ps = c.prepareStatement(CHANGED)) {
+      ps.setTimestamp(1, local(afterAt));
+      ps.setLong(2, afterId);
+      ps.setInt(3, limit);
+      return read(ps);
+    }
+  }
+
+  /** Scheduled orders picked up in {@code city} with scheduled_at in [from, to), for route planning. */
+  public List<Row> inCity(String city, Instant from, Instant to) throws SQLException {
+    try (Connection c = pool.getConnection(); PreparedStatement ps = c.prepareStatement(PLANNED)) {
+      ps.setTimestamp(1, local(from));
+      ps.setTimestamp(2, local(to));
+      ps.setString(3, city);
+      return read(ps);
+    }
+  }
+
+  public Row get(long orderId) throws SQLException {
+    try (Connection c = pool.getConnection(); PreparedStatement ps = c.prepareStatement(ONE)) {
+      ps.setLong(1, orderId);
+      List<Row> rows = read(ps);
+      return rows.isEmpty() ? null : rows.get(0);
+    }
+  }
+
+  private List<Row> read(PreparedStatement ps) throws SQLException {
+    ps.setFetchSize(1000);
+    List<Row> out = new ArrayList<>();
+    try (ResultSet rs = ps.executeQuery()) {
+      while (rs.next()) {
+        Timestamp at = rs.getTimestamp(2);
+        ScheduledOrder o = new ScheduledOrder(rs.getLong(1), at == null ? null : instant(at), rs.getString(3),
+            decimal(rs, 4), decimal(rs, 5), decimal(rs, 6), decimal(rs, 7), decimal(rs, 8));
+        out.add(new Row(o, rs.getString(9), rs.getString(10), instant(rs.getTimestamp(11))));
+      }
+    }
+    return out;
+  }
+
+  private static Double decimal(ResultSet rs, int column) throws SQLException {
+    return rs.getObject(column) == null ? null : rs.getDouble(column);
+  }
+
+  private Timestamp local(Instant t) {
+    return Timestamp.valueOf(LocalDateTime.ofInstant(t, dbOffset));
+  }
+
+  private Instant instant(Timestamp t) {
+    return t.toLocalDateTime().toInstant(dbOffset);
+  }
+
+  @PreDestroy
+  void stop() {
+    if (pool != null) pool.close();
+  }
+}
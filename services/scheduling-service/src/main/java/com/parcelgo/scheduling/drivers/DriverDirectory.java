@@ -0,0 +1,170 @@
+package com.parcelgo.scheduling.drivers;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Drivers as registered in userdb (owned by user-service, hence a small read-only pool of its own, like
+ * the other cross-database feeds). Reloaded every {@code refresh-ms} on a thread of its own; connect,
+ * socket and query timeouts bound how long a hung userdb can hold it. A failed reload keeps the last
+ * good copy. Disabled unless {@code parcelgo.scheduling.drivers.jdbc-url} is set.
+ */
+@Component
+public class DriverDirectory {
+
+  private static final Logger log = LoggerFactory.getLogger(DriverDirectory.class);
+
+  /**
+   * A driver's carrying limit ({@code max_weight_kg}, null when not set), start and end addresses
+   * (coordinates null when not geocoded) and enabled weekly shifts by day, 0 = Sunday as in userdb.
+   */
+  public record Driver(long id, Double maxWeightKg, String startCity, Double startLat, Double startLng,
+                       Double endLat, Double endLng, Map<Integer, Shift> shifts) {
+
+    /** The shift on that day, or null when off. */
+    public Shift shift(DayOfWeek day) {
+      return shifts.get(day.getValue() % 7);
+    }
+  }
+
+  public record Shift(LocalTime start, LocalTime end) {}
+
+  private static final String DRIVERS =
+      "SELECT id, max_weight_kg, start_city, start_lat, start_lng, end_lat, end_lng FROM drivers";
+
+  private static final String SHIFTS = """
+      SELECT driver_id, day_of_week, start_time, end_time
+        FROM driver_schedule
+       WHERE enabled AND start_time IS NOT NULL AND end_time IS NOT NULL""";
+
+  private final String jdbcUrl;
+  private final HikariDataSource pool;
+  private final long refreshMillis;
+  private final int queryTimeoutSeconds;
+  private volatile Map<Long, Driver> drivers = Map.of();
+  private volatile boolean running;
+  private Thread refresher;
+
+  public DriverDirectory(MeterRegistry registry,
+                         @Value("${parcelgo.scheduling.drivers.jdbc-url:}") String jdbcUrl,
+                         @Value("${parcelgo.scheduling.drivers.username:postgres}") String username,
+                         @Value("${parcelgo.scheduling.drivers.password:postgres}") String password,
+                         @Value("${parcelgo.scheduling.drivers.refresh-ms:300000}") long refreshMillis,
+                         @Value("${parcelgo.scheduling.drivers.connect-timeout-ms:5000}") long connectTimeoutMillis,
+                         @Value("${parcelgo.scheduling.drivers.query-timeout-ms:30000}") long queryTimeoutMillis) {
+    this.jdbcUrl = jdbcUrl;
+    this.refreshMillis = refreshMillis;
+    this.queryTimeoutSeconds = (int) Math.max(1, queryTimeoutMillis / 1000);
+    Gauge.builder("scheduling.drivers.known", this, d -> d.drivers.size()).register(registry);
+    if (jdbcUrl.isBlank()) {
+      this.pool = null;
+      return;
+    }
+    HikariConfig c = new HikariConfig();
+    c.setPoolName("userdb-drivers");
+    c.setJdbcUrl(jdbcUrl);
+    c.setUsername(username);
+    c.setPassword(password);
+    c.setMaximumPoolSize(1);
+    c.setMinimumIdle(0);
+    c.setReadOnly(true);
+    c.setConnectionTimeout(Math.max(250, connectTimeoutMillis));
+    // pgjdbc, seconds: a dead connection fails the reload instead of hanging the refresher
+    c.addDataSourceProperty("connectTimeout", Math.max(1, connectTimeoutMillis / 1000));
+    c.addDataSourceProperty("socketTimeout", queryTimeoutSeconds + 5);
+    c.setInitializationFailTimeout(-1);
+    this.pool = new HikariDataSource(c);
+  }
+
+  public boolean enabled() {
+    return pool != null;
+  }
+
+  public Driver get(long id) {
+    return drivers.get(id);
+  }
+
+  public Collection<Driver> all() {
+    return drivers.values();
+  }
+
+  @PostConstruct
+  void start() {
+    if (!enabled()) return;
+    running = true;
+    refresher = new Thread(this::refreshLoop, "drivers-refresh");
+    refresher.setDaemon(true);
+    refresher.start();
+  }
+
+  @PreDestroy
+  void stop() {
+    running = false;
+    if (refresher != null) refresher.interrupt();
+    if (pool != null) pool.close();
+  }
+
+  private void refreshLoop() {
+    while (running) {
+      refresh();
+      try {
+        Thread.sleep(refreshMillis);
+      } catch (InterruptedException e) {
+        break;
+      }
+    }
+  }
+
+  public void refresh() {
+    if (!enabled()) return;
+    try (Connection c = pool.getConnection()) {
+      Map<Long, Map<Integer, Shift>> shifts = new HashMap<>();
+      try (PreparedStatement ps = c.prepareStatement(SHIFTS)) {
+        ps.setQueryTimeout(queryTimeoutSeconds);
+        try (ResultSet rs = ps.executeQuery()) {
+          while (rs.next()) {
+            shifts.computeIfAbsent(rs.getLong(1), k -> new HashMap<>())
+                .put(rs.getInt(2), new Shift(rs.getTime(3).toLocalTime(), rs.getTime(4).toLocalTime()));
+          }
+        }
+      }
+      Map<Long, Driver> next = new HashMap<>();
+      try (PreparedStatement ps = c.prepareStatement(DRIVERS)) {
+        ps.setFetchSize(1000);
+        ps.setQueryTimeout(queryTimeoutSeconds);
+        try (ResultSet rs = ps.executeQuery()) {
+          while (rs.next()) {
+            long id = rs.getLong(1);
+            next.put(id, new Driver(id, number(rs, 2), rs.getString(3), number(rs, 4), number(rs, 5),
+                number(rs, 6), number(rs, 7), Map.copyOf(shifts.getOrDefault(id, Map.of()))));
+          }
+        }
+      }
+      drivers = Map.copyOf(next);
+    } catch (SQLException | RuntimeException e) {
+      log.warn("driver reload from {} failed, keeping {} known: {}", jdbcUrl, drivers.size(), e.toString());
+    }
+  }
+
+  private static Double number(ResultSet rs, int column) throws SQLException {
+    return rs.getObject(column) == null ? null : rs.getDouble(column);
+  }
+}
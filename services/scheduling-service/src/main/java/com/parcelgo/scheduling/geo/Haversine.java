@@ -0,0 +1,17 @@
+package com.parcelgo.scheduling.geo;
+
+/** Great-circle distances; scheduling has no road graph, so straight lines stand in for trips. */
+public final class Haversine {
+
+  public static final double EARTH_RADIUS_KM = 6371.0;
+
+  private Haversine() {}
+
+  public static double km(double fromLat, double fromLng, double toLat, double toLng) {
+    double dLat = Math.toRadians(toLat - fromLat);
+    double dLng = Math.toRadians(toLng - fromLng);
+    double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+        + Math.cos(Math.toRadians(fromLat)) * Math.cos(Math.toRadians(toLat)) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+    return 2 * EARTH_RADIUS_KM * Math.asin(Math.sqrt(Math.min(1.0, a)));
+  }
+}
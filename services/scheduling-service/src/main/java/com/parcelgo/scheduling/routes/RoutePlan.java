@@ -0,0 +1,21 @@
+package com.parcelgo.scheduling.routes;
+
+import java.util.List;
+
+/**
+ * A solved {@link RouteProblem}: per vehicle its pickups and drops in visiting order, plus the shipments
+ * no vehicle could fit in. Times are minutes on the problem's clock.
+ */
+public record RoutePlan(List<Route> routes, List<Long> unassigned, double totalKm, long solveMillis) {
+
+  public enum Action { PICKUP, DROP }
+
+  /** {@code peakLoadKg} is the most the vehicle carries at once along the route. */
+  public record Route(long vehicleId, List<Visit> visits, double km, double peakLoadKg, double returnAt) {}
+
+  /**
+   * {@code arriveAt} may be before {@code startAt} when the driver waits for the window to open;
+   * {@code loadKg} is on board when leaving.
+   */
+  public record Visit(long shipmentId, Action action, double arriveAt, double startAt, double loadKg) {}
+}
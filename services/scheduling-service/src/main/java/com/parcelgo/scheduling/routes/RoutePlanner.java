@@ -0,0 +1,154 @@
+package com.parcelgo.scheduling.routes;
+
+import com.parcelgo.scheduling.dispatch.ScheduledOrder;
+import com.parcelgo.scheduling.dispatch.ScheduledOrderSource;
+import com.parcelgo.scheduling.drivers.DriverDirectory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+/**
+ * Builds a city's multi-stop routes for one day's scheduled orders.
+ *
+ * Every scheduled order picked up in the city that day is a shipment: picked up between
+ * {@code window-before-ms} before and {@code window-after-ms} after its scheduled_at, and dropped by
+ * the same driver later on the route, at most {@code deliver-within-ms} after its scheduled_at. Orders
+ * missing pickup or drop coordinates can't be routed and are returned as unassigned. The vehicles are
+ * the drivers starting in the city with an enabled {@code driver_schedule} shift that day: they leave
+ * their start address at shift start, never carry more than {@code max_weight_kg} at once (no limit
+ * when unset) and must be at their end address by shift end. Both feeds come from other services' databases
+ * ({@link ScheduledOrderSource}, {@link DriverDirectory}); their local times are read at orderdb's
+ * offset. The {@link RouteSolver} does the rest.
+ */
+@Component
+public class RoutePlanner {
+
+  /**
+   * A driver's pickups and drops in order; {@code peakLoadKg} is the most they carry at once,
+   * {@code returnAt} when they reach their end address.
+   */
+  public record DriverRoute(long driverId, List<Visit> stops, double km, double peakLoadKg, Instant returnAt) {}
+
+  /** {@code loadKg} is on board when the driver leaves the stop. */
+  public record Visit(long orderId, RoutePlan.Action action, Instant arriveAt, Instant startAt, double loadKg) {}
+
+  public record Plan(String city, LocalDate date, List<DriverRoute> routes, List<Long> unassigned,
+                     double totalKm, long solveMillis) {}
+
+  private final ScheduledOrderSource orders;
+  private final DriverDirectory drivers;
+  private final RouteSolver solver;
+  private final ForkJoinPool pool;
+  private final long beforeMillis;
+  private final long afterMillis;
+  private final long deliverMillis;
+  private final long serviceMillis;
+  private final double speedKmph;
+  private final Set<String> statuses;
+  private final Timer solve;
+
+  public RoutePlanner(ScheduledOrderSource orders, DriverDirectory drivers, MeterRegistry registry,
+                      @Value("${parcelgo.scheduling.routes.window-before-ms:900000}") long beforeMillis,
+                      @Value("${parcelgo.scheduling.routes.window-after-ms:1800000}") long afterMillis,
+                      @Value("${parcelgo.scheduling.routes.deliver-within-ms:10800000}") long deliverMillis,
+                      @Value("${parcelgo.scheduling.routes.service-ms:300000}") long serviceMillis,
+                      @Value("${parcelgo.scheduling.routes.speed-kmph:25}") double speedKmph,
+                      @Value("${parcelgo.scheduling.routes.statuses:CREATED}") List<String> statuses,
+                      @Value("${parcelgo.scheduling.routes.neighbours:12}") int neighbours,
+                      @Value("${parcelgo.scheduling.routes.group-routes:6}") int groupRoutes,
+                      @Value("${parcelgo.scheduling.routes.kicks:25}") int kicks,
+                      @Value("${parcelgo.scheduling.routes.ruin:10}") int ruin,
+                      @Value("${parcelgo.scheduling.routes.parallelism:0}") int parallelism) {
+    this.orders = orders;
+    this.drivers = drivers;
+    this.beforeMillis = beforeMillis;
+    this.afterMillis = afterMillis;
+    this.deliverMillis = deliverMillis;
+    this.serviceMillis = serviceMillis;
+    this.speedKmph = speedKmph;
+    this.statuses = statuses.stream().map(s -> s.strip().toUpperCase(Locale.ROOT)).collect(Collectors.toSet());
+    this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    this.solver = new RouteSolver(pool, neighbours, groupRoutes, kicks, ruin);
+    this.solve = Timer.builder("scheduling.routes.solve").register(registry);
+  }
+
+  @PreDestroy
+  void stop() {
+    pool.shutdownNow();
+  }
+
+  public boolean enabled() {
+    return orders.enabled() && drivers.enabled();
+  }
+
+  public Plan plan(String city, LocalDate date, long budgetMillis) throws SQLException {
+    ZoneOffset offset = orders.dbOffset();
+    Instant origin = date.atStartOfDay().toInstant(offset);
+
+    List<RouteProblem.Shipment> shipments = new ArrayList<>();
+    List<Long> unroutable = new ArrayList<>();
+    double service = serviceMillis / 60_000.0;
+    for (ScheduledOrderSource.Row r : orders.inCity(city, origin, date.plusDays(1).atStartOfDay().toInstant(offset))) {
+      ScheduledOrder o = r.order();
+      if (r.status() == null || !statuses.contains(r.status().toUpperCase(Locale.ROOT))) continue;
+      if (o.pickupLat() == null || o.pickupLng() == null || o.dropLat() == null || o.dropLng() == null) {
+        unroutable.add(o.id());
+        continue;
+      }
+      double at = minutes(origin, o.scheduledAt());
+      double from = at - beforeMillis / 60_000.0;
+      shipments.add(new RouteProblem.Shipment(o.id(), o.weightKg() == null ? 0 : o.weightKg(),
+          new RouteProblem.Stop(o.pickupLat(), o.pickupLng(), from, at + afterMillis / 60_000.0, service),
+          new RouteProblem.Stop(o.dropLat(), o.dropLng(), from, at + deliverMillis / 60_000.0, service)));
+    }
+
+    List<RouteProblem.Vehicle> vehicles = new ArrayList<>();
+    for (DriverDirectory.Driver d : drivers.all()) {
+      DriverDirectory.Shift shift = d.shift(date.getDayOfWeek());
+      if (shift == null || d.startLat() == null || d.startLng() == null || !city.equalsIgnoreCase(d.startCity())) {
+        continue;
+      }
+      boolean hasEnd = d.endLat() != null && d.endLng() != null;
+      double end = shift.end().isAfter(shift.start()) ? shift.end().toSecondOfDay() / 60.0
+          : shift.end().toSecondOfDay() / 60.0 + 24 * 60;
+      vehicles.add(new RouteProblem.Vehicle(d.id(), d.startLat(), d.startLng(),
+          hasEnd ? d.endLat() : d.startLat(), hasEnd ? d.endLng() : d.startLng(),
+          d.maxWeightKg() == null ? Double.POSITIVE_INFINITY : d.maxWeightKg(),
+          shift.start().toSecondOfDay() / 60.0, end));
+    }
+
+    RoutePlan plan = solve.record(() -> solver.solve(new RouteProblem(shipments, vehicles, speedKmph), budgetMillis));
+    List<DriverRoute> routes = new ArrayList<>(plan.routes().size());
+    for (RoutePlan.Route r : plan.routes()) {
+      List<Visit> visits = new ArrayList<>(r.visits().size());
+      for (RoutePlan.Visit v : r.visits()) {
+        visits.add(new Visit(v.shipmentId(), v.action(), instant(origin, v.arriveAt()), instant(origin, v.startAt()),
+            v.loadKg()));
+      }
+      routes.add(new DriverRoute(r.vehicleId(), visits, r.km(), r.peakLoadKg(), instant(origin, r.returnAt())));
+    }
+    unroutable.addAll(plan.unassigned());
+    return new Plan(city, date, routes, unroutable, plan.totalKm(), plan.solveMillis());
+  }
+
+  private static double minutes(Instant origin, Instant t) {
+    return (t.toEpochMilli() - origin.toEpochMilli()) / 60_000.0;
+  }
+
+  private static Instant instant(Instant origin, double minutes) {
+    return origin.plusMillis(Math.round(minutes * 60_000));
+  }
+}
@@ -0,0 +1,106 @@
+package com.parcelgo.scheduling.routes;
+
+import java.util.List;
+
+/**
+ * One city's routing instance: shipments, each picked up at one place and dropped at another within
+ * time windows, and vehicles (drivers on shift) with a capacity, a shift and start and end addresses.
+ * Times are minutes from any common origin.
+ *
+ * The solver works on nodes: shipment {@code i} is picked up at node {@code 2i} and dropped at node
+ * {@code 2i + 1}, so a node's partner is {@code node ^ 1}. A shipment's weight is on board from its
+ * pickup to its drop, both of which must be on the same route, pickup first.
+ *
+ * Travel is straight-line at {@code speedKmph}, on an equirectangular projection around the instance's
+ * mean latitude: within a city that is as good as haversine and it keeps the local search's distance
+ * lookups to a multiply and a square root.
+ */
+public final class RouteProblem {
+
+  /** A visit to make: arrive in [earliest, latest] (waiting if early), stay {@code service} minutes. */
+  public record Stop(double lat, double lng, double earliest, double latest, double service) {}
+
+  /** One order: {@code weightKg} carried from {@code pickup} to {@code drop}. */
+  public record Shipment(long id, double weightKg, Stop pickup, Stop drop) {}
+
+  /** A driver on shift; {@code capacityKg} may be {@link Double#POSITIVE_INFINITY}. */
+  public record Vehicle(long id, double startLat, double startLng, double endLat, double endLng,
+                        double capacityKg, double shiftStart, double shiftEnd) {}
+
+  private static final double KM_PER_DEG_LAT = 110.574;
+  private static final double KM_PER_DEG_LNG_EQUATOR = 111.320;
+
+  final Shipment[] shipments;
+  final Vehicle[] vehicles;
+  /** Nodes that are stops: pickups and drops. */
+  final int n;
+  private final Stop[] stops;
+  /** Projected km: stops 0..n-1, then start and end of vehicle v at n + 2v and n + 2v + 1. */
+  private final double[] x;
+  private final double[] y;
+  private final double minutesPerKm;
+
+  public RouteProblem(List<Shipment> shipments, List<Vehicle> vehicles, double speedKmph) {
+    this.shipments = shipments.toArray(Shipment[]::new);
+    this.vehicles = vehicles.toArray(Vehicle[]::new);
+    this.n = 2 * this.shipments.length;
+    this.stops = new Stop[n];
+    for (int i = 0; i < this.shipments.length; i++) {
+      stops[2 * i] = this.shipments[i].pickup();
+      stops[2 * i + 1] = this.shipments[i].drop();
+    }
+    this.minutesPerKm = 60.0 / speedKmph;
+    int nodes = n + 2 * this.vehicles.length;
+    double latSum = 0;
+    for (Stop s : stops) latSum += s.lat();
+    for (Vehicle v : this.vehicles) latSum += v.startLat() + v.endLat();
+    double lat0 = nodes == 0 ? 0 : latSum / nodes;
+    double kmPerDegLng = KM_PER_DEG_LNG_EQUATOR * Math.cos(Math.toRadians(lat0));
+    x = new double[nodes];
+    y = new double[nodes];
+    for (int i = 0; i < n; i++) {
+      x[i] = stops[i].lng() * kmPerDegLng;
+      y[i] = stops[i].lat() * KM_PER_DEG_LAT;
+    }
+    for (int v = 0; v < this.vehicles.length; v++) {
+      Vehicle veh = this.vehicles[v];
+      x[start(v)] = veh.startLng() * kmPerDegLng;
+      y[start(v)] = veh.startLat() * KM_PER_DEG_LAT;
+      x[end(v)] = veh.endLng() * kmPerDegLng;
+      y[end(v)] = veh.endLat() * KM_PER_DEG_LAT;
+    }
+  }
+
+  public int shipmentCount() { return shipments.length; }
+
+  public int vehicleCount() { return vehicles.length; }
+
+  int start(int v) { return n + 2 * v; }
+
+  int end(int v) { return n + 2 * v + 1; }
+
+  Stop stop(int node) { return stops[node]; }
+
+  static boolean pickup(int node) { return (node & 1) == 0; }
+
+  /** Change in load when the node is served: the shipment's weight on at pickup, off at drop. */
+  double loadChange(int node) {
+    double w = shipments[node >> 1].weightKg();
+    return pickup(node) ? w : -w;
+  }
+
+  double km(int a, int b) {
+    double dx = x[a] - x[b], dy = y[a] - y[b];
+    return Math.sqrt(dx * dx + dy * dy);
+  }
+
+  double minutes(int a, int b) {
+    return km(a, b) * minutesPerKm;
+  }
+
+  double minutesPerKm() { return minutesPerKm; }
+
+  double x(int node) { return x[node]; }
+
+  double y(int node) { return y[node]; }
+}
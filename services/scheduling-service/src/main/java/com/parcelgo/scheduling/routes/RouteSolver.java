@@ -0,0 +1,695 @@
+package com.parcelgo.scheduling.routes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Pickup-and-delivery vehicle routing with capacities and time windows: cheapest feasible insertion,
+ * then local search under a time budget, minimising total kilometres.
+ *
+ * Construction inserts shipments by pickup opening time at the pair of positions (over every route)
+ * that adds the fewest kilometres and keeps the route feasible. Each route caches per position its
+ * service start, latest possible start and load, so the pickup position is checked in O(1) and the
+ * drop positions after it in one forward walk that stops as soon as a window, the shift or the
+ * capacity (with the shipment on board) is broken.
+ *
+ * Local search then applies first-improving moves between a stop and its {@code neighbours} nearest
+ * stops. Within a route: relocate one stop (before or after the neighbour) and 2-opt. Between routes,
+ * where a stop can't go without its partner: move the whole shipment into the neighbour's route (or an
+ * empty one), exchange the two shipments, and 2-opt* (tail swap). Each candidate is filtered by its
+ * distance change and only then checked in full (pairing and order, capacity at every stop, windows,
+ * shift end).
+ *
+ * The search runs in rounds. Each round sorts the routes by angle around the city centre, cuts them
+ * into groups of {@code groupRoutes} neighbouring routes and improves the groups in parallel on the
+ * fork/join pool; groups share no routes, so no locking is needed. Once a group is at a local optimum
+ * it spends up to {@code kicks} ruin-and-recreate tries on it: {@code ruin} nearby shipments are taken
+ * out, reinserted and descended from again, and the result is kept only if it is shorter. The next
+ * round shifts the cut by half a group so moves across the old boundaries get their turn. Shipments
+ * nobody could take are retried between rounds. The search stops at the budget or after two rounds
+ * without gain.
+ *
+ * The kicks draw from a random seeded by round and group, so a given instance solved to completion
+ * gives the same plan on any number of threads; under a budget it depends on how many rounds fit.
+ */
+public final class RouteSolver {
+
+  private static final double EPS = 1e-9;
+
+  private final ForkJoinPool pool;
+  private final int neighbours;
+  private final int groupRoutes;
+  private final int kicks;
+  private final int ruin;
+
+  public RouteSolver(ForkJoinPool pool, int neighbours, int groupRoutes, int kicks, int ruin) {
+    this.pool = pool;
+    this.neighbours = neighbours;
+    this.groupRoutes = Math.max(1, groupRoutes);
+    this.kicks = kicks;
+    this.ruin = ruin;
+  }
+
+  public RoutePlan solve(RouteProblem p, long budgetMillis) {
+    long t0 = System.nanoTime();
+    long deadline = t0 + budgetMillis * 1_000_000L;
+    Solution s = new Solution(p);
+    s.construct();
+    if (p.n > 0 && p.vehicles.length > 0) {
+      int[][] nbr = nearest(p);
+      int idle = 0;
+      for (int round = 0; System.nanoTime() < deadline && idle < 2; round++) {
+        boolean improved = round(s, nbr, round, deadline);
+        improved |= s.insertUnassigned();
+        idle = improved ? 0 : idle + 1;
+      }
+    }
+    return s.plan((System.nanoTime() - t0) / 1_000_000L);
+  }
+
+  /** One round of parallel group search; true when any group improved. */
+  private boolean round(Solution s, int[][] nbr, int round, long deadline) {
+    RouteProblem p = s.p;
+    int vCount = p.vehicles.length;
+    double cx = 0, cy = 0;
+    for (int i = 0; i < p.n; i++) {
+      cx += p.x(i);
+      cy += p.y(i);
+    }
+    cx /= p.n;
+    cy /= p.n;
+    double[] angle = new double[vCount];
+    for (int v = 0; v < vCount; v++) {
+      double mx = 0, my = 0;
+      if (s.len[v] == 0) {
+        mx = p.x(p.start(v));
+        my = p.y(p.start(v));
+      } else {
+        for (int k = 0; k < s.len[v]; k++) {
+          mx += p.x(s.seq[v][k]);
+          my += p.y(s.seq[v][k]);
+        }
+        mx /= s.len[v];
+        my /= s.len[v];
+      }
+      angle[v] = Math.atan2(my - cy, mx - cx);
+    }
+    Integer[] order = IntStream.range(0, vCount).boxed().toArray(Integer[]::new);
+    Arrays.sort(order, Comparator.<Integer>comparingDouble(v -> angle[v]).thenComparingInt(v -> v));
+    int offset = (int) ((long) round * Math.max(1, groupRoutes / 2) % vCount);
+    int[] groupOf = new int[vCount];
+    List<int[]> groups = new ArrayList<>();
+    for (int g = 0; g * groupRoutes < vCount; g++) {
+      int size = Math.min(groupRoutes, vCount - g * groupRoutes);
+      int[] routes = new int[size];
+      for (int k = 0; k < size; k++) {
+        routes[k] = order[(offset + g * groupRoutes + k) % vCount];
+        groupOf[routes[k]] = g;
+      }
+      groups.add(routes);
+    }
+    List<Callable<Boolean>> tasks = new ArrayList<>(groups.size());
+    for (int g = 0; g < groups.size(); g++) {
+      int gi = g;
+      tasks.add(() -> new Search(s, nbr, groupOf, gi, groups.get(gi), deadline, kicks, ruin,
+          round * 1_000_003L + gi).run());
+    }
+    boolean improved = false;
+    for (var f : pool.invokeAll(tasks)) {
+      try {
+        improved |= f.get();
+      } catch (Exception e) {
+        throw new IllegalStateException("route search failed", e);
+      }
+    }
+    return improved;
+  }
+
+  /** Per stop, its nearest other stops, nearest first. */
+  private int[][] nearest(RouteProblem p) {
+    int n = p.n, k = Math.min(neighbours, n - 1);
+    int[][] out = new int[n][];
+    if (k <= 0) {
+      Arrays.fill(out, new int[0]);
+      return out;
+    }
+    int chunk = Math.max(64, n / (4 * pool.getParallelism()) + 1);
+    List<Callable<Void>> tasks = new ArrayList<>();
+    for (int from = 0; from < n; from += chunk) {
+      int lo = from, hi = Math.min(n, from + chunk);
+      tasks.add(() -> {
+        int[] idx = new int[k];
+        double[] d = new double[k];
+        for (int i = lo; i < hi; i++) {
+          int size = 0;
+          for (int j = 0; j < n; j++) {
+            if (j == i) continue;
+            double dj = p.km(i, j);
+            if (size == k && dj >= d[k - 1]) continue;
+            int at = size < k ? size++ : k - 1;
+            while (at > 0 && d[at - 1] > dj) {
+              d[at] = d[at - 1];
+              idx[at] = idx[at - 1];
+              at--;
+            }
+            d[at] = dj;
+            idx[at] = j;
+          }
+          out[i] = Arrays.copyOf(idx, size);
+        }
+        return null;
+      });
+    }
+    pool.invokeAll(tasks);
+    return out;
+  }
+
+  /** Where a shipment goes: pickup before position {@code at}, drop before {@code dropAt} (>= at). */
+  private static final class Insertion {
+    int route;
+    int at;
+    int dropAt;
+    /** Kilometres added; only insertions below this are looked for. */
+    double added;
+
+    Insertion below(double limit) {
+      route = -1;
+      added = limit;
+      return this;
+    }
+  }
+
+  /** The routes being built; during a round each group's task owns its routes' entries. */
+  private static final class Solution {
+    final RouteProblem p;
+    final int[][] seq;
+    final int[] len;
+    final double[] km;
+    final double[] peak;
+    final int[] routeOf;
+    final int[] posOf;
+    /** Per route and position, kept current by every change: service start, latest start, load leaving. */
+    private final double[][] startAt;
+    private final double[][] latestAt;
+    private final double[][] loadAt;
+
+    Solution(RouteProblem p) {
+      this.p = p;
+      int v = p.vehicles.length;
+      seq = new int[v][];
+      len = new int[v];
+      km = new double[v];
+      peak = new double[v];
+      startAt = new double[v][];
+      latestAt = new double[v][];
+      loadAt = new double[v][];
+      for (int r = 0; r < v; r++) {
+        seq[r] = new int[8];
+        startAt[r] = new double[8];
+        latestAt[r] = new double[8];
+        loadAt[r] = new double[8];
+        km[r] = p.km(p.start(r), p.end(r));
+      }
+      routeOf = new int[p.n];
+      posOf = new int[p.n];
+      Arrays.fill(routeOf, -1);
+    }
+
+    void construct() {
+      int count = p.shipments.length;
+      Integer[] order = IntStream.range(0, count).boxed().toArray(Integer[]::new);
+      Arrays.sort(order, Comparator.<Integer>comparingDouble(i -> p.shipments[i].pickup().earliest())
+          .thenComparingDouble(i -> p.shipments[i].pickup().latest()).thenComparingInt(i -> i));
+      int[] all = IntStream.range(0, p.vehicles.length).toArray();
+      Insertion ins = new Insertion();
+      for (int sh : order) insertCheapest(sh, all, ins);
+    }
+
+    /** Retries every unassigned shipment; true when one found a place. */
+    boolean insertUnassigned() {
+      boolean any = false;
+      int[] all = IntStream.range(0, p.vehicles.length).toArray();
+      Insertion ins = new Insertion();
+      for (int sh = 0; sh < p.shipments.length; sh++) {
+        if (routeOf[2 * sh] < 0) any |= insertCheapest(sh, all, ins);
+      }
+      return any;
+    }
+
+    boolean insertCheapest(int sh, int[] routes, Insertion ins) {
+      ins.below(Double.POSITIVE_INFINITY);
+      for (int r : routes) cheapest(sh, r, ins);
+      if (ins.route < 0) return false;
+      insert(sh, ins);
+      return true;
+    }
+
+    /** Lowers {@code ins} to the cheapest feasible insertion of the shipment into route r, if cheaper. */
+    void cheapest(int sh, int r, Insertion ins) {
+      RouteProblem.Vehicle veh = p.vehicles[r];
+      double w = p.shipments[sh].weightKg(), cap = veh.capacityKg();
+      if (w > cap) return;
+      int u = 2 * sh, v = u + 1, n = len[r];
+      int[] q = seq[r];
+      RouteProblem.Stop su = p.stop(u), sv = p.stop(v);
+      for (int i = 0; i <= n; i++) {
+        int pred = i == 0 ? p.start(r) : q[i - 1];
+        int succ = i == n ? p.end(r) : q[i];
+        double addPickup = p.km(pred, u) + p.km(u, succ) - p.km(pred, succ);
+        // the drop can only add to this (triangle inequality)
+        if (addPickup >= ins.added) continue;
+        if ((i == 0 ? 0 : loadAt[r][i - 1]) + w > cap) continue;
+        double depart = i == 0 ? veh.shiftStart() : startAt[r][i - 1] + p.stop(pred).service();
+        double tu = Math.max(depart + p.minutes(pred, u), su.earliest());
+        if (tu > su.latest()) continue;
+        double t = tu + su.service();
+
+        double added = p.km(pred, u) + p.km(u, v) + p.km(v, succ) - p.km(pred, succ);
+        if (added < ins.added) {
+          double tv = Math.max(t + p.minutes(u, v), sv.earliest());
+          double latestSucc = i == n ? veh.shiftEnd() : latestAt[r][i];
+          if (tv <= sv.latest() && tv + sv.service() + p.minutes(v, succ) <= latestSucc) set(ins, r, i, i, added);
+        }
+        // carry the shipment past the following stops, dropping it after each in turn
+        int prev = u;
+        for (int k = i; k < n; k++) {
+          int x = q[k];
+          RouteProblem.Stop sx = p.stop(x);
+          double tx = Math.max(t + p.minutes(prev, x), sx.earliest());
+          if (tx > latestAt[r][k] || loadAt[r][k] + w > cap) break;
+          t = tx + sx.service();
+          prev = x;
+          int next = k + 1 == n ? p.end(r) : q[k + 1];
+          added = addPickup + p.km(x, v) + p.km(v, next) - p.km(x, next);
+          if (added >= ins.added) continue;
+          double tv = Math.max(t + p.minutes(x, v), sv.earliest());
+          double latestNext = k + 1 == n ? veh.shiftEnd() : latestAt[r][k + 1];
+          if (tv > sv.latest() || tv + sv.service() + p.minutes(v, next) > latestNext) continue;
+          set(ins, r, i, k + 1, added);
+        }
+      }
+    }
+
+    private static void set(Insertion ins, int r, int at, int dropAt, double added) {
+      ins.route = r;
+      ins.at = at;
+      ins.dropAt = dropAt;
+      ins.added = added;
+    }
+
+    void insert(int sh, Insertion ins) {
+      int r = ins.route, n = len[r];
+      int[] q = seq[r], out = new int[Math.max(n + 2, q.length)];
+      System.arraycopy(q, 0, out, 0, ins.at);
+      out[ins.at] = 2 * sh;
+      System.arraycopy(q, ins.at, out, ins.at + 1, ins.dropAt - ins.at);
+      out[ins.dropAt + 1] = 2 * sh + 1;
+      System.arraycopy(q, ins.dropAt, out, ins.dropAt + 2, n - ins.dropAt);
+      seq[r] = out;
+      len[r] = n + 2;
+      km[r] += ins.added;
+      for (int k = ins.at; k < n + 2; k++) {
+        routeOf[out[k]] = r;
+        posOf[out[k]] = k;
+      }
+      cache(r);
+    }
+
+    /** Takes the shipment off its route, which stays feasible: every later stop is reached no later. */
+    void remove(int sh, int[] buf) {
+      int u = 2 * sh, r = routeOf[u];
+      int n = 0;
+      for (int k = 0; k < len[r]; k++) if (seq[r][k] >> 1 != sh) buf[n++] = seq[r][k];
+      set(r, buf, n, length(r, buf, n));
+      routeOf[u] = routeOf[u + 1] = -1;
+    }
+
+    double length(int r, int[] route, int n) {
+      double total = 0;
+      int prev = p.start(r);
+      for (int k = 0; k < n; k++) {
+        total += p.km(prev, route[k]);
+        prev = route[k];
+      }
+      return total + p.km(prev, p.end(r));
+    }
+
+    private void cache(int r) {
+      RouteProblem.Vehicle veh = p.vehicles[r];
+      int[] s = seq[r];
+      if (startAt[r].length < s.length) {
+        startAt[r] = new double[s.length];
+        latestAt[r] = new double[s.length];
+        loadAt[r] = new double[s.length];
+      }
+      double t = veh.shiftStart(), load = 0, max = 0;
+      int prev = p.start(r);
+      for (int k = 0; k < len[r]; k++) {
+        RouteProblem.Stop st = p.stop(s[k]);
+        startAt[r][k] = Math.max(t + p.minutes(prev, s[k]), st.earliest());
+        t = startAt[r][k] + st.service();
+        load += p.loadChange(s[k]);
+        loadAt[r][k] = load;
+        max = Math.max(max, load);
+        prev = s[k];
+      }
+      peak[r] = max;
+      double latest = veh.shiftEnd();
+      int next = p.end(r);
+      for (int k = len[r] - 1; k >= 0; k--) {
+        RouteProblem.Stop st = p.stop(s[k]);
+        latest = Math.min(st.latest(), latest - p.minutes(s[k], next) - st.service());
+        latestAt[r][k] = latest;
+        next = s[k];
+      }
+    }
+
+    void set(int r, int[] route, int length, double routeKm) {
+      if (seq[r].length < length) seq[r] = new int[Math.max(length, seq[r].length * 2)];
+      System.arraycopy(route, 0, seq[r], 0, length);
+      len[r] = length;
+      km[r] = routeKm;
+      for (int k = 0; k < length; k++) {
+        routeOf[route[k]] = r;
+        posOf[route[k]] = k;
+      }
+      cache(r);
+    }
+
+    RoutePlan plan(long solveMillis) {
+      List<RoutePlan.Route> routes = new ArrayList<>(p.vehicles.length);
+      double total = 0;
+      for (int r = 0; r < p.vehicles.length; r++) {
+        RouteProblem.Vehicle veh = p.vehicles[r];
+        List<RoutePlan.Visit> visits = new ArrayList<>(len[r]);
+        double t = veh.shiftStart();
+        int prev = p.start(r);
+        for (int k = 0; k < len[r]; k++) {
+          int u = seq[r][k];
+          RouteProblem.Stop st = p.stop(u);
+          double arrive = t + p.minutes(prev, u);
+          double start = Math.max(arrive, st.earliest());
+          visits.add(new RoutePlan.Visit(p.shipments[u >> 1].id(),
+              RouteProblem.pickup(u) ? RoutePlan.Action.PICKUP : RoutePlan.Action.DROP, arrive, start, loadAt[r][k]));
+          t = start + st.service();
+          prev = u;
+        }
+        double back = len[r] == 0 ? veh.shiftStart() : t + p.minutes(prev, p.end(r));
+        double routeKm = len[r] == 0 ? 0 : km[r];
+        total += routeKm;
+        routes.add(new RoutePlan.Route(veh.id(), visits, routeKm, peak[r], back));
+      }
+      List<Long> unassigned = new ArrayList<>();
+      for (int sh = 0; sh < p.shipments.length; sh++) {
+        if (routeOf[2 * sh] < 0) unassigned.add(p.shipments[sh].id());
+      }
+      return new RoutePlan(routes, unassigned, total, solveMillis);
+    }
+  }
+
+  /** Local search over one group of routes, on one thread. */
+  private static final class Search {
+    private final Solution s;
+    private final RouteProblem p;
+    private final int[][] nbr;
+    private final int[] groupOf;
+    private final int group;
+    private final int[] routes;
+    private final long deadline;
+    private final int kicks;
+    private final int ruin;
+    private final SplittableRandom random;
+    private final int[] bufA;
+    private final int[] bufB;
+    /** eval's record of the pickups seen on the route it is checking. */
+    private final int[] seen;
+    private int stamp;
+    private final Insertion insA = new Insertion();
+    private final Insertion insB = new Insertion();
+
+    Search(Solution s, int[][] nbr, int[] groupOf, int group, int[] routes, long deadline, int kicks, int ruin,
+           long seed) {
+      this.s = s;
+      this.p = s.p;
+      this.nbr = nbr;
+      this.groupOf = groupOf;
+      this.group = group;
+      this.routes = routes;
+      this.deadline = deadline;
+      this.kicks = kicks;
+      this.ruin = ruin;
+      this.random = new SplittableRandom(seed);
+      this.bufA = new int[p.n + 1];
+      this.bufB = new int[p.n + 1];
+      this.seen = new int[p.n];
+    }
+
+    /** Descends to a local optimum, then spends up to {@code kicks} ruin-and-recreate tries. */
+    boolean run() {
+      boolean any = descend();
+      for (int k = 0; k < kicks && System.nanoTime() < deadline; k++) any |= kick();
+      return any;
+    }
+
+    private boolean descend() {
+      boolean any = false;
+      for (boolean improved = true; improved; ) {
+        improved = false;
+        for (int u : stops()) {
+          if (System.nanoTime() >= deadline) return any;
+          if (s.routeOf[u] >= 0 && improve(u)) improved = any = true;
+        }
+      }
+      return any;
+    }
+
+    private List<Integer> stops() {
+      List<Integer> out = new ArrayList<>();
+      for (int r : routes) for (int k = 0; k < s.len[r]; k++) out.add(s.seq[r][k]);
+      return out;
+    }
+
+    /**
+     * Takes the shipment of a random stop and those of its nearest neighbours out of the group's routes,
+     * puts them back by cheapest feasible insertion, descends again and keeps the result only if the
+     * group got shorter.
+     */
+    private boolean kick() {
+      List<Integer> stops = stops();
+      if (stops.size() < 4) return false;
+      double before = 0;
+      int[][] saved = new int[routes.length][];
+      double[] savedKm = new double[routes.length];
+      for (int g = 0; g < routes.length; g++) {
+        int r = routes[g];
+        saved[g] = Arrays.copyOf(s.seq[r], s.len[r]);
+        savedKm[g] = s.km[r];
+        before += s.km[r];
+      }
+
+      int seed = stops.get(random.nextInt(stops.size()));
+      List<Integer> out = new ArrayList<>();
+      out.add(seed >> 1);
+      for (int w : nbr[seed]) {
+        if (out.size() >= ruin) break;
+        if (mine(s.routeOf[w]) && !out.contains(w >> 1)) out.add(w >> 1);
+      }
+      for (int sh : out) s.remove(sh, bufA);
+      for (int i = out.size() - 1; i > 0; i--) {
+        int j = random.nextInt(i + 1);
+        int t = out.get(i);
+        out.set(i, out.get(j));
+        out.set(j, t);
+      }
+      boolean placed = true;
+      for (int sh : out) placed &= s.insertCheapest(sh, routes, insA);
+      if (placed) descend();
+
+      double after = 0;
+      for (int r : routes) after += s.km[r];
+      if (placed && after < before - EPS) return true;
+      for (int sh : out) s.routeOf[2 * sh] = s.routeOf[2 * sh + 1] = -1;
+      for (int g = 0; g < routes.length; g++) s.set(routes[g], saved[g], saved[g].length, savedKm[g]);
+      return false;
+    }
+
+    private boolean mine(int r) {
+      return r >= 0 && groupOf[r] == group;
+    }
+
+    private int node(int r, int pos) {
+      return pos < 0 ? p.start(r) : pos >= s.len[r] ? p.end(r) : s.seq[r][pos];
+    }
+
+    private boolean improve(int u) {
+      int r1 = s.routeOf[u], i = s.posOf[u];
+      for (int w : nbr[u]) {
+        int r2 = s.routeOf[w];
+        if (!mine(r2)) continue;
+        int j = s.posOf[w];
+        if (r1 == r2) {
+          if (relocate(u, r1, i, j + 1)) return true;
+          if (relocate(u, r1, i, j)) return true;
+          if (twoOpt(r1, Math.min(i, j), Math.max(i, j))) return true;
+        } else {
+          if (move(u >> 1, r1, r2)) return true;
+          if (exchange(u >> 1, r1, w >> 1, r2)) return true;
+          if (twoOptStar(r1, i, r2, j)) return true;
+        }
+      }
+      for (int r : routes) {
+        if (s.len[r] == 0 && move(u >> 1, r1, r)) return true;
+      }
+      return false;
+    }
+
+    /** Moves u (at r[i]) to position {@code at} of its own route, counted as the route is now. */
+    private boolean relocate(int u, int r, int i, int at) {
+      if (at == i || at == i + 1) return false;
+      double removal = p.km(node(r, i - 1), node(r, i + 1)) - p.km(node(r, i - 1), u) - p.km(u, node(r, i + 1));
+      int pred = node(r, at - 1), succ = node(r, at);
+      double delta = removal + p.km(pred, u) + p.km(u, succ) - p.km(pred, succ);
+      if (delta >= -EPS) return false;
+      int n = 0;
+      for (int k = 0; k <= s.len[r]; k++) {
+        if (k == at) bufA[n++] = u;
+        if (k < s.len[r] && k != i) bufA[n++] = s.seq[r][k];
+      }
+      return commitOne(r, n);
+    }
+
+    /** Kilometres saved by taking the shipment off route r (<= 0). */
+    private double removal(int sh, int r) {
+      int iu = s.posOf[2 * sh], iv = s.posOf[2 * sh + 1];
+      int u = 2 * sh, v = u + 1;
+      if (iv == iu + 1) {
+        int a = node(r, iu - 1), b = node(r, iv + 1);
+        return p.km(a, b) - p.km(a, u) - p.km(u, v) - p.km(v, b);
+      }
+      int a = node(r, iu - 1), b = node(r, iu + 1), c = node(r, iv - 1), d = node(r, iv + 1);
+      return p.km(a, b) - p.km(a, u) - p.km(u, b) + p.km(c, d) - p.km(c, v) - p.km(v, d);
+    }
+
+    /** Moves the whole shipment from r1 into r2, where it adds less than taking it off r1 saves. */
+    private boolean move(int sh, int r1, int r2) {
+      if (r1 == r2) return false;
+      s.cheapest(sh, r2, insA.below(-removal(sh, r1) - EPS));
+      if (insA.route < 0) return false;
+      s.remove(sh, bufA);
+      s.insert(sh, insA);
+      return true;
+    }
+
+    /** Swaps shipment a on r1 with shipment b on r2, each put where it fits best in the other route. */
+    private boolean exchange(int a, int r1, int b, int r2) {
+      double before = s.km[r1] + s.km[r2];
+      int[] savedA = Arrays.copyOf(s.seq[r1], s.len[r1]), savedB = Arrays.copyOf(s.seq[r2], s.len[r2]);
+      double kmA = s.km[r1], kmB = s.km[r2];
+      s.remove(a, bufA);
+      s.remove(b, bufA);
+      double base = s.km[r1] + s.km[r2];
+      if (base < before - EPS) {
+        s.cheapest(b, r1, insA.below(before - base - EPS));
+        if (insA.route >= 0) {
+          s.cheapest(a, r2, insB.below(before - base - insA.added - EPS));
+          if (insB.route >= 0) {
+            s.insert(b, insA);
+            s.insert(a, insB);
+            return true;
+          }
+        }
+      }
+      s.set(r1, savedA, savedA.length, kmA);
+      s.set(r2, savedB, savedB.length, kmB);
+      return false;
+    }
+
+    /** Reverses r[a+1..b]. */
+    private boolean twoOpt(int r, int a, int b) {
+      if (b - a < 2) return false;
+      int xa = node(r, a), xa1 = node(r, a + 1), xb = node(r, b), xb1 = node(r, b + 1);
+      double delta = p.km(xa, xb) + p.km(xa1, xb1) - p.km(xa, xa1) - p.km(xb, xb1);
+      if (delta >= -EPS) return false;
+      System.arraycopy(s.seq[r], 0, bufA, 0, s.len[r]);
+      for (int lo = a + 1, hi = b; lo < hi; lo++, hi--) {
+        int t = bufA[lo];
+        bufA[lo] = bufA[hi];
+        bufA[hi] = t;
+      }
+      return commitOne(r, s.len[r]);
+    }
+
+    /** Swaps the tails after r1[i] and r2[j]. */
+    private boolean twoOptStar(int r1, int i, int r2, int j) {
+      int u = node(r1, i), w = node(r2, j);
+      int tail1 = j + 1 < s.len[r2] ? s.seq[r2][j + 1] : p.end(r1);
+      int tail2 = i + 1 < s.len[r1] ? s.seq[r1][i + 1] : p.end(r2);
+      double delta = p.km(u, tail1) + p.km(w, tail2) - p.km(u, node(r1, i + 1)) - p.km(w, node(r2, j + 1));
+      if (delta >= -EPS) return false;
+      int na = 0, nb = 0;
+      for (int k = 0; k <= i; k++) bufA[na++] = s.seq[r1][k];
+      for (int k = j + 1; k < s.len[r2]; k++) bufA[na++] = s.seq[r2][k];
+      for (int k = 0; k <= j; k++) bufB[nb++] = s.seq[r2][k];
+      for (int k = i + 1; k < s.len[r1]; k++) bufB[nb++] = s.seq[r1][k];
+      return commitTwo(r1, na, r2, nb);
+    }
+
+    private boolean commitOne(int r, int n) {
+      double km = eval(r, bufA, n);
+      if (km >= s.km[r] - EPS) return false;
+      s.set(r, bufA, n, km);
+      return true;
+    }
+
+    private boolean commitTwo(int r1, int na, int r2, int nb) {
+      double a = eval(r1, bufA, na);
+      if (a == Double.POSITIVE_INFINITY) return false;
+      double b = eval(r2, bufB, nb);
+      if (a + b >= s.km[r1] + s.km[r2] - EPS) return false;
+      s.set(r1, bufA, na, a);
+      s.set(r2, bufB, nb, b);
+      return true;
+    }
+
+    /**
+     * Kilometres of the route, or infinity when it splits a shipment, drops one before its pickup, or
+     * breaks capacity, a window or the shift.
+     */
+    private double eval(int r, int[] route, int n) {
+      RouteProblem.Vehicle veh = p.vehicles[r];
+      double load = 0, km = 0, t = veh.shiftStart();
+      int prev = p.start(r), open = 0;
+      stamp++;
+      for (int k = 0; k < n; k++) {
+        int u = route[k];
+        if (RouteProblem.pickup(u)) {
+          seen[u] = stamp;
+          open++;
+        } else if (seen[u ^ 1] != stamp) {
+          return Double.POSITIVE_INFINITY;
+        } else {
+          open--;
+        }
+        RouteProblem.Stop st = p.stop(u);
+        load += p.loadChange(u);
+        if (load > veh.capacityKg() + EPS) return Double.POSITIVE_INFINITY;
+        double d = p.km(prev, u);
+        km += d;
+        t = Math.max(t + d * p.minutesPerKm(), st.earliest());
+        if (t > st.latest()) return Double.POSITIVE_INFINITY;
+        t += st.service();
+        prev = u;
+      }
+      if (open != 0) return Double.POSITIVE_INFINITY;
+      km += p.km(prev, p.end(r));
+      if (t + p.minutes(prev, p.end(r)) > veh.shiftEnd()) return Double.POSITIVE_INFINITY;
+      return km;
+    }
+  }
+}
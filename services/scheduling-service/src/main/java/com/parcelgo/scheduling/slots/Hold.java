@@ -0,0 +1,20 @@
+package com.parcelgo.scheduling.slots;
+
+/**
+ * Immutable snapshot of one claim on a slot. A HELD claim takes capacity until it is confirmed or its
+ * hold lapses; a BOOKED one until it is cancelled. RELEASED and EXPIRED are terminal and only ever
+ * returned to callers or handed to the store as deletions.
+ */
+public record Hold(String id, String slotId, Long orderId, Status status, long expiresAtMillis) {
+
+  public enum Status { HELD, BOOKED, RELEASED, EXPIRED }
+
+  /** Whether this claim still takes capacity at {@code now}. */
+  public boolean live(long now) {
+    return status == Status.BOOKED || (status == Status.HELD && expiresAtMillis > now);
+  }
+
+  Hold with(Status next) {
+    return new Hold(id, slotId, orderId, next, next == Status.BOOKED ? 0L : expiresAtMillis);
+  }
+}
@@ -0,0 +1,82 @@
+package com.parcelgo.scheduling.slots;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/** {@link SlotStore} on the {@code slots} / {@code slot_holds} tables of schedulingdb. */
+@Component
+public class JdbcSlotStore implements SlotStore {
+
+  private static final String UPSERT_SLOT = """
+      INSERT INTO slots (id, zone, start_at, end_at, capacity) VALUES (?, ?, ?, ?, ?)
+      ON CONFLICT (id) DO UPDATE SET zone = EXCLUDED.zone, start_at = EXCLUDED.start_at, end_at = EXCLUDED.end_at,
+                                     capacity = EXCLUDED.capacity""";
+
+  private static final String UPSERT_HOLD = """
+      INSERT INTO slot_holds (id, slot_id, order_id, status, expires_at, updated_at) VALUES (?, ?, ?, ?, ?, now())
+      ON CONFLICT (id) DO UPDATE SET status = EXCLUDED.status, expires_at = EXCLUDED.expires_at, updated_at = now()""";
+
+  private static final String DELETE_HOLD = "DELETE FROM slot_holds WHERE id = ?";
+
+  private final JdbcTemplate jdbc;
+  private final TransactionTemplate tx;
+
+  public JdbcSlotStore(JdbcTemplate jdbc, TransactionTemplate tx) {
+    this.jdbc = jdbc;
+    this.tx = tx;
+  }
+
+  @Override
+  public List<Slot> loadSlots(Instant endAfter) {
+    return jdbc.query("SELECT id, zone, start_at, end_at, capacity FROM slots WHERE end_at > ?", (rs, i) -> new Slot(
+        rs.getString(1), rs.getString(2), rs.getObject(3, OffsetDateTime.class), rs.getObject(4, OffsetDateTime.class),
+        rs.getInt(5)), utc(endAfter));
+  }
+
+  @Override
+  public List<Hold> loadHolds(Instant endAfter) {
+    String sql = """
+        SELECT h.id, h.slot_id, h.order_id, h.status, h.expires_at
+          FROM slot_holds h
+          JOIN slots s ON s.id = h.slot_id
+         WHERE s.end_at > ?""";
+    return jdbc.query(sql, (rs, i) -> {
+      OffsetDateTime expires = rs.getObject(5, OffsetDateTime.class);
+      return new Hold(rs.getString(1), rs.getString(2), (Long) rs.getObject(3, Long.class),
+          Hold.Status.valueOf(rs.getString(4)), expires == null ? 0L : expires.toInstant().toEpochMilli());
+    }, utc(endAfter));
+  }
+
+  @Override
+  public void write(List<Slot> slots, List<Hold> holds) {
+    List<Object[]> slotRows = new ArrayList<>(slots.size());
+    for (Slot s : slots) slotRows.add(new Object[] { s.id(), s.zone(), s.start(), s.end(), s.capacity() });
+    List<Object[]> upserts = new ArrayList<>();
+    List<Object[]> deletes = new ArrayList<>();
+    for (Hold h : holds) {
+      if (h.status() == Hold.Status.HELD || h.status() == Hold.Status.BOOKED) {
+        OffsetDateTime expires = h.status() == Hold.Status.HELD ? utc(Instant.ofEpochMilli(h.expiresAtMillis())) : null;
+        upserts.add(new Object[] { h.id(), h.slotId(), h.orderId(), h.status().name(), expires });
+      } else {
+        deletes.add(new Object[] { h.id() });
+      }
+    }
+    tx.executeWithoutResult(status -> {
+      // slots first: claims reference them
+      if (!slotRows.isEmpty()) jdbc.batchUpdate(UPSERT_SLOT, slotRows);
+      if (!upserts.isEmpty()) jdbc.batchUpdate(UPSERT_HOLD, upserts);
+      if (!deletes.isEmpty()) jdbc.batchUpdate(DELETE_HOLD, deletes);
+    });
+  }
+
+  private static OffsetDateTime utc(Instant t) {
+    return OffsetDateTime.ofInstant(t, ZoneOffset.UTC);
+  }
+}
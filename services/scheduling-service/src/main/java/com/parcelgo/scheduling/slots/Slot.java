@@ -0,0 +1,6 @@
+package com.parcelgo.scheduling.slots;
+
+import java.time.OffsetDateTime;
+
+/** A delivery window in one service zone and how many orders it can take. */
+public record Slot(String id, String zone, OffsetDateTime start, OffsetDateTime end, int capacity) {}
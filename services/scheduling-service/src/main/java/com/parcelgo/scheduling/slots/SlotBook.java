@@ -0,0 +1,481 @@
+package com.parcelgo.scheduling.slots;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.parcelgo.scheduling.slots.Hold.Status.*;
+
+/**
+ * Slot capacity: holds, confirmations and releases, never more claims than capacity.
+ *
+ * Each slot's occupancy is one {@link AtomicLong} packing {@code held} (high 32 bits) and
+ * {@code booked} (low 32 bits). Taking capacity is a compare-and-set on that word against the slot's
+ * capacity, so concurrent bookings of a popular slot contend only on its counter and exactly as many
+ * succeed as there are free places. Claims themselves are immutable {@link Hold} snapshots in a
+ * concurrent map; moving one (confirm, release, expire) is an atomic compute on its map entry, and
+ * only the transition that finds the claim in the expected state adjusts the counter, so nothing is
+ * given back twice.
+ *
+ * Changes are written behind: mutations mark slots and claims dirty, and every {@code flush-interval}
+ * the latest version of each dirty entry is written to the {@link SlotStore} in one transaction, on a
+ * flusher thread of its own so confirmations never wait behind the other scheduled jobs. With
+ * {@code sync-confirm} a confirmation answers only after the flush containing it succeeded (group
+ * commit), so bookings survive a crash; an unconfirmed hold written less than a flush ago may not, in
+ * which case its confirm gets a 404 and the customer picks the slot again. On startup slots and claims
+ * are read back and the counters rebuilt from them; holds that lapsed while the service was down are
+ * dropped.
+ *
+ * Listing goes through a {@link SlotIndex} (zone, start) so queries cost the size of the window asked
+ * for, not of the history. Slots that ended more than {@code retain-past} ago are retired from memory
+ * (their rows stay in the database) and are not loaded on startup.
+ */
+@Component
+public class SlotBook {
+
+  private static final Logger log = LoggerFactory.getLogger(SlotBook.class);
+
+  private static final long ONE_HELD = 1L << 32;
+  private static final long ONE_BOOKED = 1L;
+
+  /**
+   * Hold ids are what confirm and cancel are authorized by, so they stay unguessable, but
+   * UUID.randomUUID() (like any NativePRNG) funnels every caller through one lock: each thread draws
+   * from its own DRBG instead, a block at a time.
+   */
+  private static final ThreadLocal<IdSource> IDS = ThreadLocal.withInitial(IdSource::new);
+
+  private static final class IdSource {
+    final SecureRandom random;
+    final byte[] block = new byte[16 * 64];
+    int next = block.length;
+
+    IdSource() {
+      SecureRandom r;
+      try {
+        r = SecureRandom.getInstance("DRBG");
+      } catch (NoSuchAlgorithmException e) {
+        r = new SecureRandom();
+      }
+      random = r;
+    }
+
+    /** Random (version 4) UUID. */
+    String next() {
+      if (next == block.length) {
+        random.nextBytes(block);
+        next = 0;
+      }
+      long hi = 0, lo = 0;
+      for (int i = 0; i < 8; i++) hi = (hi << 8) | (block[next + i] & 0xff);
+      for (int i = 8; i < 16; i++) lo = (lo << 8) | (block[next + i] & 0xff);
+      next += 16;
+      hi = (hi & ~0xF000L) | 0x4000L;
+      lo = (lo & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+      return new UUID(hi, lo).toString();
+    }
+  }
+
+  /** PENDING_WRITE: booked, but the write did not complete within confirm-timeout; confirm again. */
+  public enum Outcome { OK, FULL, UNKNOWN, EXPIRED, PENDING_WRITE }
+
+  /** Outcome of an operation with the claim and the slot's occupancy after it. */
+  public record Result(Outcome outcome, Hold hold, SlotStatus slot) {
+    public boolean ok() { return outcome == Outcome.OK; }
+  }
+
+  private static final class Entry {
+    final Slot slot;
+    final AtomicLong counts = new AtomicLong();
+    Entry(Slot slot) { this.slot = slot; }
+  }
+
+  private final SlotStore store;
+  private final SlotIndex<Entry> index = new SlotIndex<>();
+  private final long defaultTtlMillis;
+  private final long maxTtlMillis;
+  private final boolean syncConfirm;
+  private final long confirmTimeoutMillis;
+  private final long retainPastMillis;
+
+  private final Map<String, Entry> slots = new ConcurrentHashMap<>();
+  private final Map<String, Hold> holds = new ConcurrentHashMap<>();
+  /** slotId/orderId -> hold id, so a retried hold for the same order gets the same claim. */
+  private final Map<String, String> byOrder = new ConcurrentHashMap<>();
+
+  private final Map<String, Slot> dirtySlots = new ConcurrentHashMap<>();
+  private final Map<String, Hold> dirtyHolds = new ConcurrentHashMap<>();
+  /** Completed by the next flush with whether it was written; confirmations wait on it. */
+  private final AtomicReference<CompletableFuture<Boolean>> nextFlush = new AtomicReference<>(new CompletableFuture<>());
+
+  private final Counter held;
+  private final Counter full;
+  private final Counter booked;
+  private final Counter released;
+  private final Counter expired;
+  private final Counter flushFailures;
+  private final Counter retired;
+
+  private final long flushMillis;
+  private volatile boolean running;
+  private Thread flusher;
+
+  public SlotBook(SlotStore store, MeterRegistry registry,
+                  @Value("${parcelgo.scheduling.slots.hold-ttl-ms:300000}") long defaultTtlMillis,
+                  @Value("${parcelgo.scheduling.slots.max-hold-ttl-ms:1800000}") long maxTtlMillis,
+                  @Value("${parcelgo.scheduling.slots.sync-confirm:true}") boolean syncConfirm,
+                  @Value("${parcelgo.scheduling.slots.confirm-timeout-ms:2000}") long confirmTimeoutMillis,
+                  @Value("${parcelgo.scheduling.slots.retain-past-ms:3600000}") long retainPastMillis,
+                  @Value("${parcelgo.scheduling.slots.flush-interval-ms:100}") long flushMillis) {
+    this.store = store;
+    this.defaultTtlMillis = defaultTtlMillis;
+    this.maxTtlMillis = maxTtlMillis;
+    this.syncConfirm = syncConfirm;
+    this.confirmTimeoutMillis = confirmTimeoutMillis;
+    this.retainPastMillis = retainPastMillis;
+    this.flushMillis = flushMillis;
+    this.held = Counter.builder("scheduling.slot.holds").tag("result", "held").register(registry);
+    this.full = Counter.builder("scheduling.slot.holds").tag("result", "full").register(registry);
+    this.booked = Counter.builder("scheduling.slot.holds").tag("result", "booked").register(registry);
+    this.released = Counter.builder("scheduling.slot.holds").tag("result", "released").register(registry);
+    this.expired = Counter.builder("scheduling.slot.holds").tag("result", "expired").register(registry);
+    this.flushFailures = Counter.builder("scheduling.slot.flush.failures").register(registry);
+    this.retired = Counter.builder("scheduling.slot.retired").register(registry);
+    Gauge.builder("scheduling.slot.slots", slots, Map::size).register(registry);
+    Gauge.builder("scheduling.slot.flush.pending", this, b -> b.dirtySlots.size() + b.dirtyHolds.size()).register(registry);
+  }
+
+  /** Rebuilds slots, claims and counters from the store, then starts the write-behind flusher. */
+  @PostConstruct
+  void start() {
+    recover();
+    running = true;
+    flusher = new Thread(this::flushLoop, "slot-flush");
+    flusher.setDaemon(true);
+    flusher.start();
+  }
+
+  public void recover() {
+    long now = System.currentTimeMillis();
+    Instant endAfter = Instant.ofEpochMilli(now - retainPastMillis);
+    for (Slot s : store.loadSlots(endAfter)) add(s);
+    int live = 0, lapsed = 0;
+    for (Hold h : store.loadHolds(endAfter)) {
+      Entry e = slots.get(h.slotId());
+      if (e == null) continue;
+      if (!h.live(now)) {
+        dirtyHolds.put(h.id(), h.with(EXPIRED));
+        lapsed++;
+        continue;
+      }
+      holds.put(h.id(), h);
+      if (h.orderId() != null) byOrder.put(orderKey(h.slotId(), h.orderId()), h.id());
+      e.counts.addAndGet(h.status() == BOOKED ? ONE_BOOKED : ONE_HELD);
+      live++;
+    }
+    log.info("slot book recovered: {} slots, {} claims, {} lapsed holds dropped", slots.size(), live, lapsed);
+  }
+
+  public Slot create(String zone, OffsetDateTime start, OffsetDateTime end, int capacity) {
+    Slot s = new Slot(UUID.randomUUID().toString(), zone, start, end, capacity);
+    add(s);
+    dirtySlots.put(s.id(), s);
+    return s;
+  }
+
+  private void add(Slot s) {
+    Entry e = new Entry(s);
+    slots.put(s.id(), e);
+    index.put(s, e);
+  }
+
+  /** The slot with its current occupancy, or null when there is no such slot. */
+  public SlotStatus find(String slotId) {
+    Entry e = slots.get(slotId);
+    return e == null ? null : status(e);
+  }
+
+  /**
+   * Up to {@code limit} slots of {@code zone} (every zone when null) starting in [from, to), in start
+   * order; with {@code availableOnly} just those with a free place.
+   */
+  public List<SlotStatus> query(String zone, Instant from, Instant to, boolean availableOnly, int limit) {
+    List<Entry> hits = index.range(zone, from.toEpochMilli(), to.toEpochMilli(),
+        availableOnly ? SlotBook::hasRoom : e -> true, limit);
+    List<SlotStatus> out = new ArrayList<>(hits.size());
+    for (Entry e : hits) out.add(status(e));
+    return out;
+  }
+
+  private static boolean hasRoom(Entry e) {
+    long c = e.counts.get();
+    return held(c) + booked(c) < e.slot.capacity();
+  }
+
+  public Hold claim(String holdId) {
+    return holds.get(holdId);
+  }
+
+  /**
+   * Takes one place in the slot for {@code ttlMillis} (default when null). Holding again for an order
+   * that already has a live claim on the slot returns that claim.
+   */
+  public Result hold(String slotId, Long orderId, Long ttlMillis) {
+    Entry e = slots.get(slotId);
+    if (e == null) return new Result(Outcome.UNKNOWN, null, null);
+    long ttl = (ttlMillis == null || ttlMillis <= 0) ? defaultTtlMillis : Math.min(ttlMillis, maxTtlMillis);
+    if (orderId == null) {
+      Hold h = tryHold(e, null, ttl);
+      return h == null ? fullResult(e) : new Result(Outcome.OK, h, status(e));
+    }
+    Hold[] out = new Hold[1];
+    // per-order dedupe: racing retries for the same order serialize on this key only
+    byOrder.compute(orderKey(slotId, orderId), (k, prevId) -> {
+      Hold prev = prevId == null ? null : holds.get(prevId);
+      if (prev != null && prev.live(System.currentTimeMillis())) {
+        out[0] = prev;
+        return prevId;
+      }
+      out[0] = tryHold(e, orderId, ttl);
+      return out[0] == null ? null : out[0].id();
+    });
+    if (out[0] == null) return fullResult(e);
+    return new Result(Outcome.OK, out[0], status(e));
+  }
+
+  private Hold tryHold(Entry e, Long orderId, long ttl) {
+    long cap = e.slot.capacity();
+    while (true) {
+      long c = e.counts.get();
+      if (held(c) + booked(c) >= cap) return null;
+      if (e.counts.compareAndSet(c, c + ONE_HELD)) break;
+    }
+    Hold h = new Hold(IDS.get().next(), e.slot.id(), orderId, HELD, System.currentTimeMillis() + ttl);
+    holds.put(h.id(), h);
+    dirtyHolds.put(h.id(), h);
+    held.increment();
+    return h;
+  }
+
+  private Result fullResult(Entry e) {
+    full.increment();
+    return new Result(Outcome.FULL, null, status(e));
+  }
+
+  /** HELD with a live hold -> BOOKED. Confirming a booking again is a no-op success. */
+  public Result confirm(String holdId) {
+    long now = System.currentTimeMillis();
+    Hold[] before = new Hold[1];
+    Hold after = holds.compute(holdId, (k, cur) -> {
+      before[0] = cur;
+      if (cur == null || cur.status() == BOOKED) return cur;
+      if (!cur.live(now)) return gone(cur, EXPIRED);
+      adjust(cur.slotId(), ONE_BOOKED - ONE_HELD);
+      Hold next = cur.with(BOOKED);
+      dirtyHolds.put(k, next);
+      return next;
+    });
+    Hold cur = before[0];
+    if (cur == null) return new Result(Outcome.UNKNOWN, null, null);
+    if (after == null) {
+      forgetOrder(cur);
+      expired.increment();
+      return new Result(Outcome.EXPIRED, cur.with(EXPIRED), status(cur.slotId()));
+    }
+    if (cur.status() == HELD) booked.increment();
+    return new Result(awaitFlush() ? Outcome.OK : Outcome.PENDING_WRITE, after, status(cur.slotId()));
+  }
+
+  /** Gives the place back, whether held or booked (cancellation). */
+  public Result release(String holdId) {
+    Hold[] before = new Hold[1];
+    holds.computeIfPresent(holdId, (k, cur) -> {
+      before[0] = cur;
+      return gone(cur, RELEASED);
+    });
+    Hold cur = before[0];
+    if (cur == null) return new Result(Outcome.UNKNOWN, null, null);
+    forgetOrder(cur);
+    released.increment();
+    return new Result(Outcome.OK, cur.with(RELEASED), status(cur.slotId()));
+  }
+
+  /** Gives back the places of holds that lapsed without being confirmed. */
+  @Scheduled(fixedDelayString = "${parcelgo.scheduling.slots.sweep-interval-ms:1000}")
+  public void sweepExpired() {
+    long now = System.currentTimeMillis();
+    for (Hold h : holds.values()) {
+      if (h.status() != HELD || h.expiresAtMillis() > now) continue;
+      boolean[] lapsed = new boolean[1];
+      holds.computeIfPresent(h.id(), (k, cur) -> {
+        if (cur.live(now)) return cur;
+        lapsed[0] = true;
+        return gone(cur, EXPIRED);
+      });
+      if (lapsed[0]) {
+        forgetOrder(h);
+        expired.increment();
+      }
+    }
+  }
+
+  /**
+   * Ends a claim from inside {@code holds.compute}: the counter and the dirty entry change while the
+   * claim's bin is locked, so concurrent transitions of one claim reach the store in order.
+   */
+  private Hold gone(Hold cur, Hold.Status terminal) {
+    adjust(cur.slotId(), cur.status() == BOOKED ? -ONE_BOOKED : -ONE_HELD);
+    dirtyHolds.put(cur.id(), cur.with(terminal));
+    return null;
+  }
+
+  /** Counter change for a claim's slot; a no-op once the slot is retired. */
+  private void adjust(String slotId, long delta) {
+    Entry e = slots.get(slotId);
+    if (e != null) e.counts.addAndGet(delta);
+  }
+
+  /**
+   * Retires slots that ended more than retain-past ago: they leave the index and the book, with their
+   * claims. Bookings stay in the database as history; holds that never became bookings are deleted.
+   */
+  @Scheduled(fixedDelayString = "${parcelgo.scheduling.slots.retire-interval-ms:60000}")
+  public void retirePast() {
+    long cutoff = System.currentTimeMillis() - retainPastMillis;
+    int n = 0;
+    for (Entry e : index.startingBefore(cutoff)) {
+      if (e.slot.end().toInstant().toEpochMilli() > cutoff) continue;
+      index.remove(e.slot);
+      slots.remove(e.slot.id());
+      n++;
+    }
+    if (n == 0) return;
+    for (Hold h : holds.values()) {
+      if (slots.containsKey(h.slotId())) continue;
+      holds.computeIfPresent(h.id(), (k, cur) -> {
+        if (cur.status() == HELD) dirtyHolds.put(k, cur.with(EXPIRED));
+        return null;
+      });
+      forgetOrder(h);
+    }
+    retired.increment(n);
+    log.debug("retired {} past slots", n);
+  }
+
+  private void forgetOrder(Hold h) {
+    if (h.orderId() != null) byOrder.remove(orderKey(h.slotId(), h.orderId()), h.id());
+  }
+
+  private void flushLoop() {
+    while (running) {
+      try {
+        Thread.sleep(flushMillis);
+      } catch (InterruptedException e) {
+        break;
+      }
+      try {
+        flush();
+      } catch (RuntimeException e) {
+        log.warn("slot write-behind flush failed", e);
+      }
+    }
+  }
+
+  /** Writes the latest version of everything dirty; a failed batch is put back for the next flush. */
+  public synchronized void flush() {
+    // swap first: whoever marked something dirty before reading the old future is in this batch
+    CompletableFuture<Boolean> done = nextFlush.getAndSet(new CompletableFuture<>());
+    // claims before slots, so every claim's slot is either already stored or in this batch
+    List<Hold> hs = drain(dirtyHolds);
+    List<Slot> ss = drain(dirtySlots);
+    if (hs.isEmpty() && ss.isEmpty()) {
+      done.complete(true);
+      return;
+    }
+    try {
+      store.write(ss, hs);
+      done.complete(true);
+    } catch (RuntimeException ex) {
+      flushFailures.increment();
+      log.warn("slot write-behind of {} slots / {} claims failed: {}", ss.size(), hs.size(), ex.toString());
+      // newer versions written meanwhile win over the failed ones
+      for (Hold h : hs) dirtyHolds.putIfAbsent(h.id(), h);
+      for (Slot s : ss) dirtySlots.putIfAbsent(s.id(), s);
+      done.complete(false);
+    }
+  }
+
+  @PreDestroy
+  void stop() {
+    running = false;
+    if (flusher != null) {
+      flusher.interrupt();
+      try {
+        flusher.join(5_000);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    flush();
+  }
+
+  private static <V> List<V> drain(Map<String, V> dirty) {
+    List<V> out = new ArrayList<>(dirty.size());
+    for (Map.Entry<String, V> d : dirty.entrySet()) {
+      if (dirty.remove(d.getKey(), d.getValue())) out.add(d.getValue());
+    }
+    return out;
+  }
+
+  /** With sync-confirm, waits for the flush that includes what the caller just changed. */
+  private boolean awaitFlush() {
+    if (!syncConfirm) return true;
+    try {
+      return nextFlush.get().get(confirmTimeoutMillis, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    } catch (Exception e) {
+      return false;
+    }
+  }
+
+  private SlotStatus status(String slotId) {
+    Entry e = slots.get(slotId);
+    return e == null ? null : status(e);
+  }
+
+  private static SlotStatus status(Entry e) {
+    long c = e.counts.get();
+    int h = held(c), b = booked(c);
+    Slot s = e.slot;
+    return new SlotStatus(s.id(), s.zone(), s.start(), s.end(), s.capacity(), h + b, b, h);
+  }
+
+  private static int held(long c) { return (int) (c >>> 32); }
+
+  private static int booked(long c) { return (int) c; }
+
+  private static String orderKey(String slotId, long orderId) { return slotId + '/' + orderId; }
+}
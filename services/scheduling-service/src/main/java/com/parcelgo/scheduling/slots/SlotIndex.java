@@ -0,0 +1,75 @@
+package com.parcelgo.scheduling.slots;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Predicate;
+
+/**
+ * Slots by zone and start instant: one {@link ConcurrentSkipListMap} per zone keyed by (start, id), so
+ * a window query is a log-time seek plus a walk over just the slots in the window, however much history
+ * the book holds. Readers never block writers; a query racing an insert may or may not see it.
+ */
+final class SlotIndex<E> {
+
+  private record Key(long start, String id) implements Comparable<Key> {
+    static final Comparator<Key> ORDER = Comparator.comparingLong(Key::start).thenComparing(Key::id);
+    @Override public int compareTo(Key o) { return ORDER.compare(this, o); }
+  }
+
+  private final Map<String, ConcurrentSkipListMap<Key, E>> zones = new ConcurrentHashMap<>();
+
+  void put(Slot s, E e) {
+    zones.computeIfAbsent(s.zone(), z -> new ConcurrentSkipListMap<>()).put(key(s), e);
+  }
+
+  void remove(Slot s) {
+    ConcurrentSkipListMap<Key, E> z = zones.get(s.zone());
+    if (z != null) z.remove(key(s));
+  }
+
+  /**
+   * Up to {@code limit} entries of {@code zone} (every zone when null) starting in [from, to) and
+   * accepted by {@code filter}, in start order.
+   */
+  List<E> range(String zone, long from, long to, Predicate<E> filter, int limit) {
+    List<Map.Entry<Key, E>> hits = new ArrayList<>();
+    if (zone != null) {
+      ConcurrentSkipListMap<Key, E> z = zones.get(zone);
+      if (z != null) collect(z, from, to, filter, limit, hits);
+    } else {
+      // each zone contributes at most limit, then the merged list is cut back to limit
+      for (ConcurrentSkipListMap<Key, E> z : zones.values()) collect(z, from, to, filter, limit, hits);
+      hits.sort(Map.Entry.comparingByKey());
+    }
+    List<E> out = new ArrayList<>(Math.min(limit, hits.size()));
+    for (int i = 0; i < hits.size() && i < limit; i++) out.add(hits.get(i).getValue());
+    return out;
+  }
+
+  private static <E> void collect(ConcurrentSkipListMap<Key, E> z, long from, long to, Predicate<E> filter,
+                                  int limit, List<Map.Entry<Key, E>> hits) {
+    if (from >= to) return;
+    int taken = 0;
+    // "" sorts before every id, so these bounds take every slot starting at from and none starting at to
+    for (Map.Entry<Key, E> e : z.subMap(new Key(from, ""), new Key(to, "")).entrySet()) {
+      if (!filter.test(e.getValue())) continue;
+      hits.add(e);
+      if (++taken >= limit) return;
+    }
+  }
+
+  /** Entries of every zone starting before {@code cutoff}, oldest first within a zone. */
+  List<E> startingBefore(long cutoff) {
+    List<E> out = new ArrayList<>();
+    for (ConcurrentSkipListMap<Key, E> z : zones.values()) out.addAll(z.headMap(new Key(cutoff, "")).values());
+    return out;
+  }
+
+  private static Key key(Slot s) {
+    return new Key(s.start().toInstant().toEpochMilli(), s.id());
+  }
+}
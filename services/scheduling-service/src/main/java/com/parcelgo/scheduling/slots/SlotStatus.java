@@ -0,0 +1,7 @@
+package com.parcelgo.scheduling.slots;
+
+import java.time.OffsetDateTime;
+
+/** A slot with its occupancy at the time of the read; {@code used} = booked + held. */
+public record SlotStatus(String id, String zone, OffsetDateTime start, OffsetDateTime end, int capacity,
+                         int used, int booked, int held) {}
@@ -0,0 +1,22 @@
+package com.parcelgo.scheduling.slots;
+
+import java.time.Instant;
+import java.util.List;
+
+/** Durable home of slots and claims, written behind by {@link SlotBook} and read back on startup. */
+public interface SlotStore {
+
+  /** Slots ending after {@code endAfter}; older ones are history the book no longer serves. */
+  List<Slot> loadSlots(Instant endAfter);
+
+  /**
+   * Every HELD or BOOKED claim on those slots; the book drops holds that lapsed while it was down.
+   */
+  List<Hold> loadHolds(Instant endAfter);
+
+  /**
+   * Writes one batch atomically: slots and live claims are upserted, RELEASED/EXPIRED claims deleted.
+   * Throws on failure; the book keeps the batch and retries it with the next flush.
+   */
+  void write(List<Slot> slots, List<Hold> holds);
+}
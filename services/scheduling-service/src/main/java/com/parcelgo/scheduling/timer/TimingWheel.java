@@ -0,0 +1,204 @@
+package com.parcelgo.scheduling.timer;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel (the classic cascading kernel timer wheel) for very many timers.
+ *
+ * Time advances in ticks of {@code tickMillis}. There are {@code levels} wheels of 2^{@code bits}
+ * buckets; a bucket of level {@code l} spans 2^(bits*l) ticks, so a timer goes into the lowest level
+ * whose range covers its deadline. When the level-0 wheel wraps, the current bucket of level 1 is
+ * cascaded (its timers re-placed, landing lower down), and so on upwards. Buckets are intrusive doubly
+ * linked lists, which makes placing and unlinking a timer O(1) whatever the number of timers; a timer
+ * is touched at most once per level before it fires.
+ *
+ * {@link #schedule} and {@link Timeout#cancel} are thread-safe and O(1): they only queue the change.
+ * Everything else, including {@link #advance}, belongs to one driving thread, which applies the queued
+ * changes and hands due payloads to its consumer.
+ */
+public final class TimingWheel<T> {
+
+  private static final int PENDING = 0, CANCELLED = 1, FIRED = 2;
+
+  /** Handle of one scheduled payload. */
+  public static final class Timeout<T> {
+    private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+        AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+    private final TimingWheel<T> wheel;
+    private final T payload;
+    private final long deadlineMillis;
+    private final long expiresTick;
+    private volatile int state;
+    // bucket links, driver thread only
+    private Timeout<T> prev, next;
+
+    private Timeout(TimingWheel<T> wheel, T payload, long deadlineMillis, long expiresTick) {
+      this.wheel = wheel;
+      this.payload = payload;
+      this.deadlineMillis = deadlineMillis;
+      this.expiresTick = expiresTick;
+    }
+
+    public T payload() { return payload; }
+
+    public long deadlineMillis() { return deadlineMillis; }
+
+    public boolean isPending() { return state == PENDING; }
+
+    /** Stops the timer unless it already fired; true when this call cancelled it. */
+    public boolean cancel() {
+      if (!STATE.compareAndSet(this, PENDING, CANCELLED)) return false;
+      wheel.pending.decrementAndGet();
+      wheel.cancelled.add(this);
+      return true;
+    }
+
+    private boolean fire() {
+      if (!STATE.compareAndSet(this, PENDING, FIRED)) return false;
+      wheel.pending.decrementAndGet();
+      return true;
+    }
+  }
+
+  private final long tickMillis;
+  private final int bits;
+  private final int mask;
+  private final int levels;
+  /** Per level, per bucket: a sentinel of a circular list. */
+  private final Timeout<T>[][] buckets;
+  private final Timeout<T> due;
+
+  private final Queue<Timeout<T>> added = new ConcurrentLinkedQueue<>();
+  private final Queue<Timeout<T>> cancelled = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger pending = new AtomicInteger();
+
+  /** Last tick processed: every timer expiring at or before it has fired. */
+  private long tick;
+
+  @SuppressWarnings("unchecked")
+  public TimingWheel(long tickMillis, int bits, int levels, long nowMillis) {
+    if (tickMillis <= 0 || bits < 1 || levels < 1 || (long) bits * levels > 62) {
+      throw new IllegalArgumentException("bad wheel geometry");
+    }
+    this.tickMillis = tickMillis;
+    this.bits = bits;
+    this.mask = (1 << bits) - 1;
+    this.levels = levels;
+    this.buckets = new Timeout[levels][1 << bits];
+    for (Timeout<T>[] level : buckets) {
+      for (int i = 0; i < level.length; i++) level[i] = sentinel();
+    }
+    this.due = sentinel();
+    this.tick = Math.floorDiv(nowMillis, tickMillis);
+  }
+
+  private Timeout<T> sentinel() {
+    Timeout<T> s = new Timeout<>(this, null, 0L, 0L);
+    s.prev = s.next = s;
+    return s;
+  }
+
+  /** Arms a timer firing {@code payload} at {@code deadlineMillis} (or on the next tick if that passed). */
+  public Timeout<T> schedule(T payload, long deadlineMillis) {
+    Timeout<T> t = new Timeout<>(this, payload, deadlineMillis, -Math.floorDiv(-deadlineMillis, tickMillis));
+    pending.incrementAndGet();
+    added.add(t);
+    return t;
+  }
+
+  /** Timers scheduled and neither fired nor cancelled yet. */
+  public int size() {
+    return pending.get();
+  }
+
+  /**
+   * Driver thread: applies queued schedules and cancellations, then moves time forward to
+   * {@code nowMillis}, passing every payload that came due to {@code fire}. Returns how many fired.
+   */
+  public int advance(long nowMillis, Consumer<? super T> fire) {
+    for (Timeout<T> t; (t = cancelled.poll()) != null; ) unlink(t);
+    for (Timeout<T> t; (t = added.poll()) != null; ) {
+      if (t.state == PENDING) place(t);
+    }
+    int fired = drain(due, fire);
+    long target = Math.floorDiv(nowMillis, tickMillis);
+    while (tick < target) {
+      tick++;
+      int idx = (int) (tick & mask);
+      if (idx == 0) cascade(1);
+      fired += drain(buckets[0][idx], fire);
+      // a cascade can re-place timers expiring at exactly this tick
+      fired += drain(due, fire);
+    }
+    return fired;
+  }
+
+  /** Re-places the bucket of {@code level} that the current tick has reached, and above when that wraps too. */
+  private void cascade(int level) {
+    if (level >= levels) return;
+    int idx = (int) ((tick >>> (bits * level)) & mask);
+    if (idx == 0) cascade(level + 1);
+    Timeout<T> head = buckets[level][idx];
+    Timeout<T> t = head.next;
+    head.prev = head.next = head;
+    while (t != head) {
+      Timeout<T> next = t.next;
+      t.prev = t.next = null;
+      if (t.state == PENDING) place(t);
+      t = next;
+    }
+  }
+
+  private void place(Timeout<T> t) {
+    long delta = t.expiresTick - tick;
+    if (delta <= 0) {
+      link(due, t);
+      return;
+    }
+    for (int l = 0; l < levels; l++) {
+      if (l == levels - 1 || delta < 1L << (bits * (l + 1))) {
+        // beyond the top level's range: park at its farthest bucket and re-place on each cascade
+        long at = delta < 1L << (bits * (l + 1)) ? t.expiresTick : tick + (1L << (bits * (l + 1))) - 1;
+        link(buckets[l][(int) ((at >>> (bits * l)) & mask)], t);
+        return;
+      }
+    }
+  }
+
+  private int drain(Timeout<T> head, Consumer<? super T> fire) {
+    int n = 0;
+    Timeout<T> t = head.next;
+    head.prev = head.next = head;
+    while (t != head) {
+      Timeout<T> next = t.next;
+      t.prev = t.next = null;
+      if (t.expiresTick > tick) {
+        place(t);
+      } else if (t.fire()) {
+        fire.accept(t.payload);
+        n++;
+      }
+      t = next;
+    }
+    return n;
+  }
+
+  private static <T> void link(Timeout<T> head, Timeout<T> t) {
+    t.prev = head.prev;
+    t.next = head;
+    head.prev.next = t;
+    head.prev = t;
+  }
+
+  private static <T> void unlink(Timeout<T> t) {
+    if (t.prev == null) return;
+    t.prev.next = t.next;
+    t.next.prev = t.prev;
+    t.prev = t.next = null;
+  }
+}
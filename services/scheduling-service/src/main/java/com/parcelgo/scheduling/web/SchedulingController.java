@@ -1,45 +1,212 @@
 package com.parcelgo.scheduling.web;
 
+import com.parcelgo.scheduling.assign.BatchAssigner;
+import com.parcelgo.scheduling.assign.CourierRoster;
+import com.parcelgo.scheduling.assign.Job;
+import com.parcelgo.scheduling.routes.RoutePlanner;
+import com.parcelgo.scheduling.slots.Hold;
+import com.parcelgo.scheduling.slots.SlotBook;
+import com.parcelgo.scheduling.slots.SlotStatus;
+import com.parcelgo.scheduling.web.dto.AssignRequest;
+import com.parcelgo.scheduling.web.dto.CourierUpdatesRequest;
+import com.parcelgo.scheduling.web.dto.HoldRequest;
+import com.parcelgo.scheduling.web.dto.SlotRequest;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.springframework.http.HttpStatus.*;
 
 @RestController
 @RequestMapping({"/scheduling","/slots","/assignments"})
 public class SchedulingController {
 
-  static class Slot {
-    public String id;
-    public String start;
-    public String end;
-    public int capacity;
-    public int used;
-  }
+  private static final Duration DEFAULT_WINDOW = Duration.ofDays(7);
+  private static final Duration MAX_WINDOW = Duration.ofDays(62);
+  private static final int DEFAULT_LIMIT = 200;
+  private static final int MAX_LIMIT = 1000;
+  private static final long DEFAULT_BUDGET_MS = 3000;
+  private static final long MAX_BUDGET_MS = 30000;
 
-  private final Map<String, Slot> slots = new ConcurrentHashMap<>();
+  private final SlotBook book;
+  private final BatchAssigner assigner;
+  private final CourierRoster roster;
+  private final RoutePlanner planner;
+
+  public SchedulingController(SlotBook book, BatchAssigner assigner, CourierRoster roster, RoutePlanner planner){
+    this.book = book;
+    this.assigner = assigner;
+    this.roster = roster;
+    this.planner = planner;
+  }
 
   @PostMapping("/slots")
   @ResponseStatus(HttpStatus.CREATED)
-  public Slot createSlot(@RequestBody Slot s){
-    s.id = UUID.randomUUID().toString();
-    slots.put(s.id, s);
-    return s;
+  public SlotStatus createSlot(@RequestBody SlotRequest s){
+    if (s == null || s.start == null || s.end == null || s.capacity == null) {
+      throw new ResponseStatusException(BAD_REQUEST, "start, end and capacity are required");
+    }
+    if (!s.end.isAfter(s.start)) throw new ResponseStatusException(BAD_REQUEST, "end must be after start");
+    if (s.capacity < 0) throw new ResponseStatusException(BAD_REQUEST, "capacity must be >= 0");
+    String zone = (s.zone == null || s.zone.isBlank()) ? "default" : s.zone.strip();
+    return book.find(book.create(zone, s.start, s.end, s.capacity).id());
   }
 
+  /**
+   * Slots starting in [from, to) (default: the next 7 days), in start order, at most {@code limit}.
+   * {@code zone} narrows to one zone, {@code available=true} to slots with a free place.
+   */
   @GetMapping("/slots")
-  public Collection<Slot> list(){ return slots.values(); }
+  public List<SlotStatus> list(@RequestParam(required = false) String zone,
+                               @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) OffsetDateTime from,
+                               @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) OffsetDateTime to,
+                               @RequestParam(defaultValue = "false") boolean available,
+                               @RequestParam(defaultValue = "" + DEFAULT_LIMIT) int limit){
+    Instant start = from == null ? Instant.now() : from.toInstant();
+    Instant end = to == null ? start.plus(DEFAULT_WINDOW) : to.toInstant();
+    if (!end.isAfter(start)) throw new ResponseStatusException(BAD_REQUEST, "to must be after from");
+    if (Duration.between(start, end).compareTo(MAX_WINDOW) > 0) {
+      throw new ResponseStatusException(BAD_REQUEST, "window is limited to " + MAX_WINDOW.toDays() + " days");
+    }
+    if (limit < 1 || limit > MAX_LIMIT) throw new ResponseStatusException(BAD_REQUEST, "limit must be 1.." + MAX_LIMIT);
+    return book.query(zone == null || zone.isBlank() ? null : zone.strip(), start, end, available, limit);
+  }
+
+  @GetMapping("/slots/{id}")
+  public SlotStatus slot(@PathVariable String id){
+    SlotStatus s = book.find(id);
+    if (s == null) throw new ResponseStatusException(NOT_FOUND, "no such slot");
+    return s;
+  }
+
+  /** 201 with the hold, or 409 with the slot's occupancy when it is full. */
+  @PostMapping("/slots/{id}/holds")
+  public ResponseEntity<SlotBook.Result> hold(@PathVariable String id, @RequestBody(required = false) HoldRequest req){
+    SlotBook.Result r = book.hold(id, req == null ? null : req.orderId, req == null ? null : req.ttlMs);
+    return r.ok() ? ResponseEntity.status(CREATED).body(r) : toResponse(r);
+  }
+
+  @GetMapping("/holds/{holdId}")
+  public Hold claim(@PathVariable String holdId){
+    Hold h = book.claim(holdId);
+    if (h == null) throw new ResponseStatusException(NOT_FOUND, "no such hold");
+    return h;
+  }
 
+  /** 200 once booked (and written, with sync-confirm); 410 when the hold lapsed first. */
+  @PostMapping("/holds/{holdId}/confirm")
+  public ResponseEntity<SlotBook.Result> confirm(@PathVariable String holdId){
+    return toResponse(book.confirm(holdId));
+  }
+
+  /** Releases a hold or cancels a booking. */
+  @DeleteMapping("/holds/{holdId}")
+  public ResponseEntity<SlotBook.Result> release(@PathVariable String holdId){
+    return toResponse(book.release(holdId));
+  }
+
+  private static ResponseEntity<SlotBook.Result> toResponse(SlotBook.Result r){
+    return switch (r.outcome()) {
+      case OK -> ResponseEntity.ok(r);
+      case FULL -> ResponseEntity.status(CONFLICT).body(r);
+      case EXPIRED -> ResponseEntity.status(GONE).body(r);
+      case PENDING_WRITE -> ResponseEntity.status(SERVICE_UNAVAILABLE).body(r);
+      case UNKNOWN -> throw new ResponseStatusException(NOT_FOUND, "no such slot or hold");
+    };
+  }
+
+  /**
+   * With a {@code courierId}, records that manual assignment as before. Otherwise, when batch assignment
+   * is enabled and the pickup point is given, the order joins the next batch and the answer comes once it
+   * has a courier, or {@code courierId "tbd"} when none was free for it within the batches it was given;
+   * in every other case the answer is {@code "tbd"} right away.
+   */
   @PostMapping("/assign")
-  public Map<String, Object> assign(@RequestBody Map<String,Object> body){
-    // naive: just echo assignment with ETA = now+30m
-    return Map.of(
-      "orderId", body.get("orderId"),
-      "courierId", body.getOrDefault("courierId","tbd"),
-      "eta", OffsetDateTime.now().plusMinutes(30).toString(),
-      "type", body.getOrDefault("type", "on-demand")
-    );
+  public CompletableFuture<Map<String, Object>> assign(@RequestBody AssignRequest req){
+    if (req == null || req.orderId == null) throw new ResponseStatusException(BAD_REQUEST, "orderId is required");
+    String type = req.type == null ? "on-demand" : req.type;
+    if (req.courierId != null || !assigner.enabled() || req.pickupLat == null || req.pickupLng == null) {
+      return CompletableFuture.completedFuture(Map.of(
+        "orderId", req.orderId,
+        "courierId", req.courierId == null ? "tbd" : req.courierId,
+        "eta", OffsetDateTime.now().plusMinutes(30).toString(),
+        "type", type
+      ));
+    }
+    CompletableFuture<BatchAssigner.Assignment> pending;
+    try {
+      pending = assigner.submit(new Job(req.orderId, req.pickupLat, req.pickupLng, req.vehicleType, req.weightKg));
+    } catch (RejectedExecutionException e) {
+      throw new ResponseStatusException(SERVICE_UNAVAILABLE, e.getMessage());
+    }
+    return pending.thenApply(a -> {
+      Map<String, Object> out = new LinkedHashMap<>();
+      out.put("orderId", a.orderId());
+      out.put("courierId", a.assigned() ? a.courierId() : "tbd");
+      out.put("eta", a.assigned() ? a.eta().atOffset(ZoneOffset.UTC).toString() : null);
+      out.put("type", type);
+      out.put("pickupKm", a.pickupKm());
+      out.put("zone", a.zone());
+      out.put("rounds", a.rounds());
+      return out;
+    });
+  }
+
+  /** Courier positions and availability for batch assignment, batched, pushed by whoever sees the heartbeats. */
+  @PostMapping("/couriers")
+  @ResponseStatus(HttpStatus.ACCEPTED)
+  public Map<String, Object> couriers(@RequestBody CourierUpdatesRequest req){
+    if (req == null || req.couriers == null || req.couriers.isEmpty()) {
+      throw new ResponseStatusException(BAD_REQUEST, "couriers must not be empty");
+    }
+    long now = System.currentTimeMillis();
+    int accepted = 0;
+    for (CourierUpdatesRequest.Item c : req.couriers) {
+      if (c == null || c.courierId == null || c.lat == null || c.lng == null) continue;
+      roster.update(c.courierId, c.vehicle, c.lat, c.lng, c.maxWeightKg, c.available == null || c.available,
+          c.ts == null ? now : c.ts);
+      accepted++;
+    }
+    return Map.of("accepted", accepted, "rejected", req.couriers.size() - accepted);
+  }
+
+  /** Frees a courier taken by an assignment (delivery done or assignment dropped). */
+  @PostMapping("/couriers/{courierId}/release")
+  public Map<String, Object> releaseCourier(@PathVariable long courierId){
+    if (!roster.release(courierId)) throw new ResponseStatusException(NOT_FOUND, "no such courier");
+    return Map.of("courierId", courierId, "released", true);
+  }
+
+  /**
+   * Multi-stop routes for a city's scheduled orders on {@code date}, one per driver on shift, each
+   * order picked up and then dropped by the same driver; found within {@code budgetMs} of search.
+   */
+  @GetMapping("/routes")
+  public RoutePlanner.Plan routes(@RequestParam String city,
+                                  @RequestParam @DateTimeFormat(iso = ISO.DATE) LocalDate date,
+                                  @RequestParam(defaultValue = "" + DEFAULT_BUDGET_MS) long budgetMs){
+    if (!planner.enabled()) throw new ResponseStatusException(SERVICE_UNAVAILABLE, "order or driver feed not configured");
+    if (city.isBlank()) throw new ResponseStatusException(BAD_REQUEST, "city is required");
+    if (budgetMs < 0 || budgetMs > MAX_BUDGET_MS) {
+      throw new ResponseStatusException(BAD_REQUEST, "budgetMs must be 0.." + MAX_BUDGET_MS);
+    }
+    try {
+      return planner.plan(city.strip(), date, budgetMs);
+    } catch (SQLException e) {
+      throw new ResponseStatusException(SERVICE_UNAVAILABLE, "reading orders failed: " + e.getMessage());
+    }
   }
 }
@@ -0,0 +1,11 @@
+package com.parcelgo.scheduling.web.dto;
+
+public class AssignRequest {
+  public Long orderId;
+  public Long courierId;     // optional; given = manual assignment, no batching
+  public Double pickupLat;
+  public Double pickupLng;
+  public String vehicleType; // optional; only couriers with this vehicle
+  public Double weightKg;    // optional; only couriers allowed to carry it
+  public String type;        // on-demand|scheduled
+}
@@ -0,0 +1,17 @@
+package com.parcelgo.scheduling.web.dto;
+
+import java.util.List;
+
+public class CourierUpdatesRequest {
+  public List<Item> couriers;
+
+  public static class Item {
+    public Long courierId;
+    public String vehicle;     // bike|scooter|car|van...
+    public Double lat;
+    public Double lng;
+    public Double maxWeightKg; // optional; the driver's max_weight_kg from userdb when absent
+    public Boolean available;  // default true
+    public Long ts;            // epoch millis of the fix; now when absent
+  }
+}
@@ -0,0 +1,6 @@
+package com.parcelgo.scheduling.web.dto;
+
+public class HoldRequest {
+  public Long orderId;     // optional; holding again for the same order returns the existing hold
+  public Long ttlMs;       // optional; server default when absent, capped at max-hold-ttl-ms
+}
@@ -0,0 +1,10 @@
+package com.parcelgo.scheduling.web.dto;
+
+import java.time.OffsetDateTime;
+
+public class SlotRequest {
+  public String zone;      // service zone; "default" when absent
+  public OffsetDateTime start;
+  public OffsetDateTime end;
+  public Integer capacity;
+}
@@ -0,0 +1,23 @@
+-- Delivery slots and the holds/bookings against them (written behind by SlotBook)
+
+CREATE TABLE slots (
+  id          VARCHAR(36) PRIMARY KEY,
+  start_at    TIMESTAMPTZ NOT NULL,
+  end_at      TIMESTAMPTZ NOT NULL,
+  capacity    INT         NOT NULL CHECK (capacity >= 0),
+  created_at  TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+CREATE INDEX idx_slots_start ON slots(start_at);
+
+-- HELD rows expire at expires_at; BOOKED rows stay until cancelled. Released/expired rows are deleted.
+CREATE TABLE slot_holds (
+  id          VARCHAR(36) PRIMARY KEY,
+  slot_id     VARCHAR(36) NOT NULL REFERENCES slots(id),
+  order_id    BIGINT,
+  status      VARCHAR(16) NOT NULL,
+  expires_at  TIMESTAMPTZ,
+  updated_at  TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+CREATE INDEX idx_slot_holds_slot ON slot_holds(slot_id);
@@ -0,0 +1,7 @@
+-- Slots are partitioned by service zone and queried by time window
+
+ALTER TABLE slots ADD COLUMN zone VARCHAR(64) NOT NULL DEFAULT 'default';
+
+DROP INDEX idx_slots_start;
+CREATE INDEX idx_slots_zone_start ON slots(zone, start_at);
+CREATE INDEX idx_slots_end ON slots(end_at);
@@ -1,21 +1,48 @@
 package com.parcelgo.tracking;
 
+import com.parcelgo.tracking.codec.BinaryLocationInterceptor;
+import com.parcelgo.tracking.codec.RawWebSocketHandshakeInterceptor;
+import com.parcelgo.tracking.fanout.WebSocketSessions;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class WsConfig implements WebSocketMessageBrokerConfigurer {
+  private final BinaryLocationInterceptor binaryLocations;
+  private final WebSocketSessions sessions;
+  public WsConfig(BinaryLocationInterceptor binaryLocations, WebSocketSessions sessions){
+    this.binaryLocations = binaryLocations;
+    this.sessions = sessions;
+  }
+
   @Override
   public void registerStompEndpoints(StompEndpointRegistry registry) {
-    registry.addEndpoint("/ws").setAllowedOriginPatterns("*").withSockJS();
+    // SockJS clients stay on JSON; raw WebSocket clients (/ws/websocket) may opt into binary location frames
+    registry.addEndpoint("/ws").setAllowedOriginPatterns("*")
+        .addInterceptors(new RawWebSocketHandshakeInterceptor("/ws"))
+        .withSockJS();
   }
   @Override
   public void configureMessageBroker(MessageBrokerRegistry registry) {
     registry.enableSimpleBroker("/topic");
     registry.setApplicationDestinationPrefixes("/app");
   }
+  @Override
+  public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+    // lets TopicBroadcaster write to subscriber sessions directly; BoundedSendSession never blocks, so the
+    // STOMP handler's own decorator only sees these limits if something bypasses the bounded queue
+    registration.addDecoratorFactory(sessions::decorate);
+    registration.setSendTimeLimit((int) sessions.limits().sendTimeLimitMillis());
+    registration.setSendBufferSizeLimit(sessions.limits().maxBytes());
+  }
+  @Override
+  public void configureClientInboundChannel(ChannelRegistration registration) {
+    registration.interceptors(binaryLocations);
+  }
 }
@@ -0,0 +1,96 @@
+package com.parcelgo.tracking.codec;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Opt-in binary location frames for STOMP subscribers.
+ *
+ * A client that connects over raw WebSocket and sends {@code x-location-format: pgl1} in its CONNECT
+ * frame gets {@code /topic/orders/*} updates encoded with {@link LocationFrameCodec} (one encoder per
+ * subscription, so deltas are relative to what that subscription last received). Such frames go out
+ * as {@code application/octet-stream} binary WebSocket messages carrying the {@code x-location-format}
+ * header. Everyone else keeps receiving JSON.
+ *
+ * Registered on the inbound channel to track CONNECT/UNSUBSCRIBE/DISCONNECT; the broadcaster asks
+ * {@link #encoder} for the per-subscription state.
+ */
+@Component
+public class BinaryLocationInterceptor implements ChannelInterceptor {
+
+  public static final String FORMAT_HEADER = "x-location-format";
+
+  private static final Logger log = LoggerFactory.getLogger(BinaryLocationInterceptor.class);
+
+  private final int baselineEvery;
+  // sessionId -> (subscriptionId -> encoder); present only for sessions that opted in
+  private final Map<String, Map<String, LocationFrameCodec.Encoder>> sessions = new ConcurrentHashMap<>();
+
+  private final DistributionSummary binaryBytes;
+
+  public BinaryLocationInterceptor(MeterRegistry registry,
+                                   @Value("${parcelgo.tracking.binary.baseline-every:64}") int baselineEvery) {
+    this.baselineEvery = baselineEvery;
+    this.binaryBytes = DistributionSummary.builder("tracking.frame.bytes").tag("format", LocationFrameCodec.FORMAT).register(registry);
+  }
+
+  public boolean isBinarySession(String sessionId) { return sessions.containsKey(sessionId); }
+
+  /**
+   * Encoder for this subscription, or null when the session did not opt in. Callers must hold the
+   * encoder's monitor from encoding until the frame is handed to the session, so deltas go out in the
+   * order they were computed.
+   */
+  public LocationFrameCodec.Encoder encoder(String sessionId, String subscriptionId) {
+    Map<String, LocationFrameCodec.Encoder> subs = sessions.get(sessionId);
+    if (subs == null) return null;
+    return subs.computeIfAbsent(subscriptionId, k -> new LocationFrameCodec.Encoder(baselineEvery));
+  }
+
+  public void recordFrame(int bytes) { binaryBytes.record(bytes); }
+
+  @Override
+  public Message<?> preSend(Message<?> message, MessageChannel channel) {
+    SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(message.getHeaders());
+    if (type == null) return message;
+    String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+    if (sessionId == null) return message;
+    switch (type) {
+      case CONNECT -> onConnect(message, sessionId);
+      case UNSUBSCRIBE -> {
+        Map<String, LocationFrameCodec.Encoder> subs = sessions.get(sessionId);
+        String subId = SimpMessageHeaderAccessor.getSubscriptionId(message.getHeaders());
+        if (subs != null && subId != null) subs.remove(subId);
+      }
+      case DISCONNECT -> sessions.remove(sessionId);
+      default -> { }
+    }
+    return message;
+  }
+
+  private void onConnect(Message<?> message, String sessionId) {
+    StompHeaderAccessor h = StompHeaderAccessor.wrap(message);
+    if (h.getCommand() != StompCommand.CONNECT && h.getCommand() != StompCommand.STOMP) return;
+    if (!LocationFrameCodec.FORMAT.equals(h.getFirstNativeHeader(FORMAT_HEADER))) return;
+    Map<String, Object> attrs = h.getSessionAttributes();
+    if (attrs == null || !Boolean.TRUE.equals(attrs.get(RawWebSocketHandshakeInterceptor.RAW_WEBSOCKET_ATTR))) {
+      log.debug("session {} asked for {} over SockJS; staying on JSON", sessionId, LocationFrameCodec.FORMAT);
+      return;
+    }
+    sessions.put(sessionId, new ConcurrentHashMap<>());
+  }
+}
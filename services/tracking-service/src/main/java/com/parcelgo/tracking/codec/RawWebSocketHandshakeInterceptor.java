@@ -0,0 +1,32 @@
+package com.parcelgo.tracking.codec;
+
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.util.Map;
+
+/**
+ * Marks sessions that connected over the endpoint's raw WebSocket URL ({@code /ws/websocket}) rather
+ * than a SockJS transport. Only those can carry binary frames; SockJS is text-only.
+ */
+public class RawWebSocketHandshakeInterceptor implements HandshakeInterceptor {
+
+  public static final String RAW_WEBSOCKET_ATTR = "parcelgo.rawWebSocket";
+
+  private final String rawPath;
+
+  public RawWebSocketHandshakeInterceptor(String endpoint) { this.rawPath = endpoint + "/websocket"; }
+
+  @Override
+  public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                 WebSocketHandler wsHandler, Map<String, Object> attributes) {
+    if (request.getURI().getPath().endsWith(rawPath)) attributes.put(RAW_WEBSOCKET_ATTR, Boolean.TRUE);
+    return true;
+  }
+
+  @Override
+  public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                             WebSocketHandler wsHandler, Exception exception) {}
+}
@@ -0,0 +1,216 @@
+package com.parcelgo.tracking.fanout;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Session decorator with a bounded, asynchronously drained send queue.
+ *
+ * Callers never write to the socket themselves: messages are queued and a sender thread drains the
+ * queue, so one stalled client cannot block the broadcaster or the broker. Sends block, so the sender is
+ * expected to hand out a virtual thread per drain; closes go to a separate executor so an eviction is
+ * never queued behind the write it is meant to abort. Location frames are queued
+ * as droppable; when the queue is over its frame or byte budget the oldest droppable frames are
+ * discarded (drop-oldest). Protocol frames (CONNECTED, RECEIPT, ERROR, heartbeats, pgl1 baselines) are
+ * never dropped. A session is evicted when a single write exceeds the send-time limit, when it has been
+ * continuously congested for longer than {@code evictAfterMillis}, or when undroppable frames alone
+ * exceed the byte budget.
+ */
+public class BoundedSendSession extends WebSocketSessionDecorator {
+
+  private static final Logger log = LoggerFactory.getLogger(BoundedSendSession.class);
+  private static final int DRAIN_BATCH = 64;
+
+  /** Limits shared by all sessions of a node. */
+  public record Limits(int maxFrames, int maxBytes, long sendTimeLimitMillis, long evictAfterMillis) {}
+
+  /** Callbacks into node-wide accounting. */
+  interface Listener {
+    void dropped(BoundedSendSession s, int frames);
+    void evicted(BoundedSendSession s, String reason);
+  }
+
+  private record Entry(WebSocketMessage<?> message, boolean droppable, int bytes) {}
+
+  private final Limits limits;
+  private final Executor sender;
+  private final Executor closer;
+  private final Listener listener;
+
+  private final ArrayDeque<Entry> queue = new ArrayDeque<>();
+  private int queuedBytes;
+  private final AtomicBoolean draining = new AtomicBoolean();
+  private final AtomicLong dropped = new AtomicLong();
+  private final AtomicLong sent = new AtomicLong();
+  private volatile long sendStartedAt;
+  private volatile long congestedSince;
+  private volatile boolean closing;
+  private CloseStatus pendingClose; // guarded by queue
+
+  BoundedSendSession(WebSocketSession delegate, Limits limits, Executor sender, Executor closer, Listener listener) {
+    super(delegate);
+    this.limits = limits;
+    this.sender = sender;
+    this.closer = closer;
+    this.listener = listener;
+  }
+
+  /** Protocol traffic from the STOMP handler: queued, never dropped. */
+  @Override
+  public void sendMessage(WebSocketMessage<?> message) {
+    enqueue(message, false);
+  }
+
+  /** Location traffic: may be discarded in favour of newer frames when the client falls behind. */
+  public boolean sendDroppable(WebSocketMessage<?> message) {
+    return enqueue(message, true);
+  }
+
+  public int queueDepth() {
+    synchronized (queue) { return queue.size(); }
+  }
+
+  public int queuedBytes() {
+    synchronized (queue) { return queuedBytes; }
+  }
+
+  public long droppedCount() { return dropped.get(); }
+
+  public long sentCount() { return sent.get(); }
+
+  private boolean enqueue(WebSocketMessage<?> message, boolean droppable) {
+    if (closing) return false;
+    int bytes = message.getPayloadLength();
+    int droppedNow = 0;
+    boolean accepted = true;
+    boolean overHardLimit = false;
+    synchronized (queue) {
+      if (droppable) {
+        Iterator<Entry> it = queue.iterator();
+        while ((queue.size() >= limits.maxFrames() || queuedBytes + bytes > limits.maxBytes()) && it.hasNext()) {
+          Entry e = it.next();
+          if (!e.droppable()) continue;
+          it.remove();
+          queuedBytes -= e.bytes();
+          droppedNow++;
+        }
+        if (queue.size() >= limits.maxFrames() || queuedBytes + bytes > limits.maxBytes()) {
+          accepted = false;
+          droppedNow++;
+        }
+      }
+      if (accepted) {
+        queue.addLast(new Entry(message, droppable, bytes));
+        queuedBytes += bytes;
+        overHardLimit = queuedBytes > limits.maxBytes();
+      }
+      if (droppedNow > 0 && congestedSince == 0) congestedSince = System.currentTimeMillis();
+    }
+    if (droppedNow > 0) {
+      dropped.addAndGet(droppedNow);
+      listener.dropped(this, droppedNow);
+    }
+    if (overHardLimit) {
+      evict("send buffer limit exceeded by undroppable frames");
+      return false;
+    }
+    if (accepted && draining.compareAndSet(false, true)) sender.execute(this::drain);
+    return accepted;
+  }
+
+  private void drain() {
+    int n = 0;
+    try {
+      while (!closing) {
+        Entry e;
+        synchronized (queue) {
+          e = queue.pollFirst();
+          if (e == null) {
+            congestedSince = 0;
+            if (pendingClose != null) {
+              closing = true;
+              CloseStatus status = pendingClose;
+              closer.execute(() -> closeDelegate(status));
+            }
+            break;
+          }
+          queuedBytes -= e.bytes();
+        }
+        sendStartedAt = System.currentTimeMillis();
+        try {
+          getDelegate().sendMessage(e.message());
+          sent.incrementAndGet();
+        } finally {
+          sendStartedAt = 0;
+        }
+        if (++n >= DRAIN_BATCH) {
+          // hand over to a fresh task so one busy session does not pin a sender; draining stays claimed
+          sender.execute(this::drain);
+          return;
+        }
+      }
+    } catch (IOException | RuntimeException ex) {
+      log.debug("send to session {} failed: {}", getId(), ex.toString());
+      evict("send failed");
+    }
+    draining.set(false);
+    boolean more;
+    synchronized (queue) { more = !queue.isEmpty() || pendingClose != null; }
+    if (more && !closing && draining.compareAndSet(false, true)) sender.execute(this::drain);
+  }
+
+  /** Called periodically by the registry so stalled sessions are evicted even when no new frames arrive. */
+  void checkHealth(long now) {
+    if (closing) return;
+    long started = sendStartedAt;
+    if (started != 0 && now - started > limits.sendTimeLimitMillis()) {
+      evict("send time limit exceeded");
+      return;
+    }
+    long since = congestedSince;
+    if (since != 0 && now - since > limits.evictAfterMillis()) evict("slow consumer");
+  }
+
+  private void evict(String reason) {
+    if (closing) return;
+    closing = true;
+    synchronized (queue) {
+      queue.clear();
+      queuedBytes = 0;
+    }
+    listener.evicted(this, reason);
+    closer.execute(() -> closeDelegate(CloseStatus.SESSION_NOT_RELIABLE.withReason(reason)));
+  }
+
+  /** Lets already queued frames (e.g. a STOMP ERROR) go out before the socket is closed. */
+  @Override
+  public void close(CloseStatus status) throws IOException {
+    synchronized (queue) {
+      if (!closing && (draining.get() || !queue.isEmpty())) {
+        pendingClose = status;
+        return;
+      }
+      closing = true;
+    }
+    super.close(status);
+  }
+
+  private void closeDelegate(CloseStatus status) {
+    try {
+      getDelegate().close(status);
+    } catch (IOException | RuntimeException e) {
+      log.debug("closing session {} failed: {}", getId(), e.toString());
+    }
+  }
+}
@@ -0,0 +1,167 @@
+package com.parcelgo.tracking.fanout;
+
+import com.parcelgo.tracking.relay.LocationRelay;
+import com.parcelgo.tracking.relay.RelayBatch;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latest-wins stage between {@code /app/locate} and {@code /topic/orders/{orderId}}.
+ *
+ * Incoming positions only overwrite the pending entry of their order; a single flusher thread sends
+ * whatever is pending every {@code flush-interval-ms}. Viewers therefore get at most one frame per order
+ * per interval no matter how fast the courier pings. Positions for orders nobody is subscribed to are
+ * dropped up front. An interval of 0 disables coalescing and forwards every message as it arrives.
+ * Sends go through {@link TopicBroadcaster} rather than the broker.
+ *
+ * With a {@link LocationRelay} configured, each flush is also published to the other nodes as one
+ * {@link RelayBatch} (split at {@code relay.max-batch} entries) and batches from other nodes are
+ * broadcast to the local subscribers. Subscriptions then live on any node, so positions are no longer
+ * dropped for lack of local subscribers; receivers skip topics nobody here watches.
+ */
+@Component
+public class LocationCoalescer {
+
+  public static final String ORDER_TOPIC_PREFIX = "/topic/orders/";
+
+  private static final Logger log = LoggerFactory.getLogger(LocationCoalescer.class);
+
+  private final TopicBroadcaster broadcaster;
+  private final TopicSubscriptions subscriptions;
+  private final long flushIntervalMillis;
+  private final Map<String, Map<String, Object>> pending = new ConcurrentHashMap<>();
+  private final LocationRelay relay;
+  private final String nodeId;
+  private final int relayMaxBatch;
+
+  private final Counter received;
+  private final Counter coalesced;
+  private final Counter droppedNoSubscribers;
+  private final Counter sent;
+  private final Counter relayBatchesOut;
+  private final Counter relayBatchesIn;
+  private final Counter relayFailures;
+
+  private ScheduledExecutorService flusher;
+
+  public LocationCoalescer(TopicBroadcaster broadcaster, TopicSubscriptions subscriptions, MeterRegistry registry,
+                           ObjectProvider<LocationRelay> relay,
+                           @Value("${parcelgo.tracking.coalesce.flush-interval-ms:1000}") long flushIntervalMillis,
+                           @Value("${parcelgo.tracking.relay.node-id:}") String nodeId,
+                           @Value("${parcelgo.tracking.relay.max-batch:500}") int relayMaxBatch) {
+    this.broadcaster = broadcaster;
+    this.subscriptions = subscriptions;
+    this.flushIntervalMillis = flushIntervalMillis;
+    this.relay = relay.getIfAvailable();
+    this.nodeId = nodeId.isBlank() ? UUID.randomUUID().toString() : nodeId;
+    this.relayMaxBatch = Math.max(1, relayMaxBatch);
+    this.received = Counter.builder("tracking.locations").tag("result", "received").register(registry);
+    this.coalesced = Counter.builder("tracking.locations").tag("result", "coalesced").register(registry);
+    this.droppedNoSubscribers = Counter.builder("tracking.locations").tag("result", "dropped_no_subscribers").register(registry);
+    this.sent = Counter.builder("tracking.locations").tag("result", "sent").register(registry);
+    this.relayBatchesOut = Counter.builder("tracking.relay.batches").tag("direction", "out").register(registry);
+    this.relayBatchesIn = Counter.builder("tracking.relay.batches").tag("direction", "in").register(registry);
+    this.relayFailures = Counter.builder("tracking.relay.batches").tag("direction", "failed").register(registry);
+    Gauge.builder("tracking.locations.pending", pending, Map::size).register(registry);
+    Gauge.builder("tracking.topics.subscribed", subscriptions, TopicSubscriptions::destinationCount).register(registry);
+  }
+
+  public void submit(String orderId, Map<String, Object> msg) {
+    received.increment();
+    String destination = ORDER_TOPIC_PREFIX + orderId;
+    if (relay == null && !subscriptions.hasSubscribers(destination)) {
+      droppedNoSubscribers.increment();
+      return;
+    }
+    if (flushIntervalMillis <= 0) {
+      send(destination, msg);
+      if (relay != null) publish(List.of(new RelayBatch.Entry(destination, msg)));
+      return;
+    }
+    if (pending.put(orderId, msg) != null) coalesced.increment();
+  }
+
+  void flush() {
+    List<RelayBatch.Entry> batch = relay == null ? null : new ArrayList<>();
+    for (String orderId : pending.keySet()) {
+      Map<String, Object> msg = pending.remove(orderId);
+      if (msg == null) continue;
+      String destination = ORDER_TOPIC_PREFIX + orderId;
+      try {
+        send(destination, msg);
+      } catch (RuntimeException ex) {
+        log.warn("location flush failed for order {}", orderId, ex);
+      }
+      if (batch == null) continue;
+      batch.add(new RelayBatch.Entry(destination, msg));
+      if (batch.size() >= relayMaxBatch) {
+        publish(batch);
+        batch = new ArrayList<>();
+      }
+    }
+    if (batch != null && !batch.isEmpty()) publish(batch);
+  }
+
+  private void publish(List<RelayBatch.Entry> locations) {
+    try {
+      relay.publish(new RelayBatch(nodeId, locations));
+      relayBatchesOut.increment();
+    } catch (RuntimeException ex) {
+      relayFailures.increment();
+      log.warn("relay publish of {} locations failed: {}", locations.size(), ex.toString());
+    }
+  }
+
+  private void onRelayed(RelayBatch batch) {
+    if (nodeId.equals(batch.node())) return;
+    relayBatchesIn.increment();
+    for (RelayBatch.Entry e : batch.locations()) {
+      if (e.destination() == null || e.payload() == null || !e.destination().startsWith(ORDER_TOPIC_PREFIX)) continue;
+      try {
+        send(e.destination(), e.payload());
+      } catch (RuntimeException ex) {
+        log.warn("relayed location delivery failed for {}", e.destination(), ex);
+      }
+    }
+  }
+
+  private void send(String destination, Map<String, Object> msg) {
+    if (broadcaster.broadcast(destination, msg) > 0) sent.increment();
+  }
+
+  @PostConstruct
+  void start() {
+    if (relay != null) relay.subscribe(this::onRelayed);
+    if (flushIntervalMillis <= 0) return;
+    flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "loc-coalesce-flush");
+      t.setDaemon(true);
+      return t;
+    });
+    flusher.scheduleAtFixedRate(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  void stop() {
+    if (flusher == null) return;
+    flusher.shutdown();
+    flush();
+  }
+}
@@ -0,0 +1,63 @@
+package com.parcelgo.tracking.fanout;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reusable byte buffer for building STOMP frames. Instances are pooled per thread by the broadcaster,
+ * so steady-state encoding does not allocate scratch space.
+ */
+final class StompFrameBuffer extends ByteArrayOutputStream {
+
+  private static final int MAX_RETAINED = 64 * 1024;
+
+  StompFrameBuffer() { super(1024); }
+
+  byte[] array() { return buf; }
+
+  /** Resets for reuse, dropping the backing array if a rare huge payload inflated it. */
+  StompFrameBuffer recycle() {
+    if (buf.length > MAX_RETAINED) buf = new byte[1024];
+    reset();
+    return this;
+  }
+
+  void writeAscii(String s) {
+    for (int i = 0; i < s.length(); i++) write(s.charAt(i));
+  }
+
+  /** Writes {@code name:value\n} with STOMP 1.2 header escaping. */
+  void header(String name, String value) {
+    writeEscaped(name);
+    write(':');
+    writeEscaped(value);
+    write('\n');
+  }
+
+  private void writeEscaped(String s) {
+    for (int i = 0; i < s.length(); i++) {
+      if (s.charAt(i) >= 0x80) {
+        writeEscapedUtf8(s);
+        return;
+      }
+    }
+    for (int i = 0; i < s.length(); i++) writeEscapedAscii(s.charAt(i));
+  }
+
+  private void writeEscapedAscii(char c) {
+    switch (c) {
+      case '\\' -> { write('\\'); write('\\'); }
+      case '\n' -> { write('\\'); write('n'); }
+      case '\r' -> { write('\\'); write('r'); }
+      case ':' -> { write('\\'); write('c'); }
+      default -> write(c);
+    }
+  }
+
+  private void writeEscapedUtf8(String s) {
+    for (byte b : s.getBytes(StandardCharsets.UTF_8)) {
+      if (b >= 0) writeEscapedAscii((char) b);
+      else write(b);
+    }
+  }
+}
@@ -0,0 +1,168 @@
+package com.parcelgo.tracking.fanout;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.parcelgo.tracking.codec.BinaryLocationInterceptor;
+import com.parcelgo.tracking.codec.LocationFrameCodec;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serialize-once fan-out of location payloads to a topic's local subscribers.
+ *
+ * The broker path converts a payload once but then builds a message and a STOMP frame per subscriber.
+ * Here the JSON body is written once into a thread-pooled {@link StompFrameBuffer}, and the complete
+ * STOMP MESSAGE frame is built once per distinct subscription id (STOMP clients mostly use
+ * {@code sub-0}, so one frame usually serves every viewer) and the same immutable {@link TextMessage}
+ * is handed to each session. The message is made from the frame's bytes, so it knows its UTF-8 length
+ * and the per-session queues don't re-encode it to measure it. Sessions that opted into binary frames
+ * get their per-subscription delta encoding instead.
+ *
+ * Location frames go through {@link BoundedSendSession#sendDroppable}, so a client that falls behind
+ * loses stale positions rather than stalling the flush thread.
+ */
+@Component
+public class TopicBroadcaster {
+
+  private static final Logger log = LoggerFactory.getLogger(TopicBroadcaster.class);
+
+  private final ObjectMapper mapper;
+  private final TopicSubscriptions subscriptions;
+  private final WebSocketSessions sessions;
+  private final BinaryLocationInterceptor binary;
+
+  private final String messageIdPrefix = UUID.randomUUID().toString().substring(0, 8) + "-";
+  private final AtomicLong messageSeq = new AtomicLong();
+  private final ThreadLocal<StompFrameBuffer> bodyBuffers = ThreadLocal.withInitial(StompFrameBuffer::new);
+  private final ThreadLocal<StompFrameBuffer> frameBuffers = ThreadLocal.withInitial(StompFrameBuffer::new);
+  private final ThreadLocal<byte[]> binaryBodies =
+      ThreadLocal.withInitial(() -> new byte[LocationFrameCodec.MAX_FRAME_BYTES]);
+
+  private final Counter framesBuilt;
+  private final Counter framesSent;
+  private final Counter sendFailures;
+
+  public TopicBroadcaster(ObjectMapper mapper, TopicSubscriptions subscriptions, WebSocketSessions sessions,
+                          BinaryLocationInterceptor binary, MeterRegistry registry) {
+    this.mapper = mapper;
+    this.subscriptions = subscriptions;
+    this.sessions = sessions;
+    this.binary = binary;
+    this.framesBuilt = Counter.builder("tracking.broadcast.frames").tag("stage", "built").register(registry);
+    this.framesSent = Counter.builder("tracking.broadcast.frames").tag("stage", "sent").register(registry);
+    this.sendFailures = Counter.builder("tracking.broadcast.frames").tag("stage", "failed").register(registry);
+  }
+
+  /** Sends {@code payload} to every local subscriber of {@code destination}; returns how many got it. */
+  public int broadcast(String destination, Map<String, Object> payload) {
+    Collection<TopicSubscriptions.Subscriber> subs = subscriptions.subscribers(destination);
+    if (subs.isEmpty()) return 0;
+
+    StompFrameBuffer body = bodyBuffers.get().recycle();
+    try {
+      mapper.writeValue(body, payload);
+    } catch (IOException e) {
+      log.warn("cannot serialize payload for {}", destination, e);
+      return 0;
+    }
+    String messageId = messageIdPrefix + messageSeq.incrementAndGet();
+
+    String lastSubId = null;
+    TextMessage lastFrame = null;
+    Map<String, TextMessage> frames = null;
+    int sent = 0;
+    for (TopicSubscriptions.Subscriber s : subs) {
+      BoundedSendSession ws = sessions.get(s.sessionId());
+      if (ws == null || !ws.isOpen()) continue;
+
+      LocationFrameCodec.Encoder enc = binary.encoder(s.sessionId(), s.subscriptionId());
+      if (enc != null) {
+        if (sendBinary(ws, enc, destination, s.subscriptionId(), messageId, payload)) sent++;
+        continue;
+      }
+
+      TextMessage msg;
+      if (s.subscriptionId().equals(lastSubId)) {
+        msg = lastFrame;
+      } else {
+        if (frames == null) frames = new HashMap<>(4);
+        msg = frames.get(s.subscriptionId());
+        if (msg == null) {
+          msg = textFrame(destination, s.subscriptionId(), messageId, body);
+          frames.put(s.subscriptionId(), msg);
+        }
+        lastSubId = s.subscriptionId();
+        lastFrame = msg;
+      }
+      if (send(ws, msg, true)) sent++;
+    }
+    framesSent.increment(sent);
+    return sent;
+  }
+
+  private TextMessage textFrame(String destination, String subscriptionId, String messageId, StompFrameBuffer body) {
+    StompFrameBuffer f = frameBuffers.get().recycle();
+    writeHeaders(f, destination, subscriptionId, messageId, "application/json;charset=UTF-8", body.size(), null);
+    f.write(body.array(), 0, body.size());
+    f.write(0);
+    framesBuilt.increment();
+    return new TextMessage(Arrays.copyOf(f.array(), f.size()));
+  }
+
+  private boolean sendBinary(BoundedSendSession ws, LocationFrameCodec.Encoder enc, String destination,
+                             String subscriptionId, String messageId, Map<String, Object> payload) {
+    if (!(payload.get("lat") instanceof Number lat) || !(payload.get("lng") instanceof Number lng)) return false;
+    long ts = payload.get("ts") instanceof Number n ? n.longValue() : System.currentTimeMillis();
+    StompFrameBuffer f = frameBuffers.get().recycle();
+    byte[] body = binaryBodies.get();
+    synchronized (enc) {
+      int len = enc.encode(ts, lat.doubleValue(), lng.doubleValue(), body, 0);
+      binary.recordFrame(len);
+      writeHeaders(f, destination, subscriptionId, messageId, "application/octet-stream", len, LocationFrameCodec.FORMAT);
+      // the frame's own array is the only allocation: headers, body and the NUL copied straight in
+      byte[] frame = new byte[f.size() + len + 1];
+      System.arraycopy(f.array(), 0, frame, 0, f.size());
+      System.arraycopy(body, 0, frame, f.size(), len);
+      framesBuilt.increment();
+      // deltas are relative to the last baseline, so any of them may be dropped but a baseline may not
+      return send(ws, new BinaryMessage(frame), !enc.lastWasBaseline());
+    }
+  }
+
+  private boolean send(BoundedSendSession ws, WebSocketMessage<?> msg, boolean droppable) {
+    try {
+      if (droppable) return ws.sendDroppable(msg);
+      ws.sendMessage(msg);
+      return true;
+    } catch (RuntimeException e) {
+      sendFailures.increment();
+      log.debug("send to session {} failed: {}", ws.getId(), e.toString());
+      return false;
+    }
+  }
+
+  private static void writeHeaders(StompFrameBuffer f, String destination, String subscriptionId, String messageId,
+                                   String contentType, int contentLength, String locationFormat) {
+    f.writeAscii("MESSAGE\n");
+    f.header("destination", destination);
+    f.header("content-type", contentType);
+    f.header("subscription", subscriptionId);
+    f.header("message-id", messageId);
+    if (locationFormat != null) f.header(BinaryLocationInterceptor.FORMAT_HEADER, locationFormat);
+    f.header("content-length", Integer.toString(contentLength));
+    f.write('\n');
+  }
+}
@@ -0,0 +1,84 @@
+package com.parcelgo.tracking.fanout;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Live view of which broker destinations have subscribers on this node, built from STOMP session
+ * events. Lets the fan-out stages skip work for topics nobody is watching and address subscribers
+ * directly without going through the broker.
+ */
+@Component
+public class TopicSubscriptions {
+
+  public record Subscriber(String sessionId, String subscriptionId) {}
+
+  // sessionId -> (subscriptionId -> destination)
+  private final Map<String, Map<String, String>> sessions = new ConcurrentHashMap<>();
+  // destination -> subscribers
+  private final Map<String, Map<Subscriber, Boolean>> byDestination = new ConcurrentHashMap<>();
+
+  public boolean hasSubscribers(String destination) {
+    return byDestination.containsKey(destination);
+  }
+
+  public int subscriberCount(String destination) {
+    Map<Subscriber, Boolean> subs = byDestination.get(destination);
+    return subs == null ? 0 : subs.size();
+  }
+
+  public Collection<Subscriber> subscribers(String destination) {
+    Map<Subscriber, Boolean> subs = byDestination.get(destination);
+    return subs == null ? List.of() : subs.keySet();
+  }
+
+  public int destinationCount() { return byDestination.size(); }
+
+  @EventListener
+  public void onSubscribe(SessionSubscribeEvent e) {
+    SimpMessageHeaderAccessor h = SimpMessageHeaderAccessor.wrap(e.getMessage());
+    String dest = h.getDestination();
+    if (h.getSessionId() == null || h.getSubscriptionId() == null || dest == null) return;
+    String prev = sessions.computeIfAbsent(h.getSessionId(), k -> new ConcurrentHashMap<>())
+        .put(h.getSubscriptionId(), dest);
+    Subscriber sub = new Subscriber(h.getSessionId(), h.getSubscriptionId());
+    if (prev != null) remove(prev, sub);
+    byDestination.compute(dest, (k, subs) -> {
+      if (subs == null) subs = new ConcurrentHashMap<>();
+      subs.put(sub, Boolean.TRUE);
+      return subs;
+    });
+  }
+
+  @EventListener
+  public void onUnsubscribe(SessionUnsubscribeEvent e) {
+    SimpMessageHeaderAccessor h = SimpMessageHeaderAccessor.wrap(e.getMessage());
+    Map<String, String> subs = h.getSessionId() == null ? null : sessions.get(h.getSessionId());
+    if (subs == null || h.getSubscriptionId() == null) return;
+    String dest = subs.remove(h.getSubscriptionId());
+    if (dest != null) remove(dest, new Subscriber(h.getSessionId(), h.getSubscriptionId()));
+  }
+
+  @EventListener
+  public void onDisconnect(SessionDisconnectEvent e) {
+    Map<String, String> subs = sessions.remove(e.getSessionId());
+    if (subs == null) return;
+    subs.forEach((subId, dest) -> remove(dest, new Subscriber(e.getSessionId(), subId)));
+  }
+
+  private void remove(String dest, Subscriber sub) {
+    byDestination.computeIfPresent(dest, (k, subs) -> {
+      subs.remove(sub);
+      return subs.isEmpty() ? null : subs;
+    });
+  }
+}
@@ -0,0 +1,135 @@
+package com.parcelgo.tracking.fanout;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registry of open WebSocket sessions by id (the same id STOMP uses as {@code simpSessionId}), so the
+ * broadcaster can write to subscribers directly.
+ *
+ * Every session is wrapped in a {@link BoundedSendSession} before the STOMP handler sees it, so broker
+ * traffic and broadcasts share one bounded queue per session, drained on a virtual thread of its own
+ * while it has frames queued, so a blocked write parks only that session's drain. Closes run on a
+ * separate executor. A sweeper evicts sessions that stay slow. Queue depth, drops and evictions are published
+ * in aggregate only: a tag per session id would add meters for every connection ever opened.
+ */
+@Component
+public class WebSocketSessions implements BoundedSendSession.Listener {
+
+  private static final Logger log = LoggerFactory.getLogger(WebSocketSessions.class);
+
+  private final Map<String, BoundedSendSession> sessions = new ConcurrentHashMap<>();
+  private final BoundedSendSession.Limits limits;
+  private final MeterRegistry registry;
+  private final ExecutorService sender;
+  private final ExecutorService closer;
+  private final ScheduledExecutorService sweeper;
+
+  private final Counter droppedFrames;
+
+  public WebSocketSessions(MeterRegistry registry,
+                           @Value("${parcelgo.tracking.ws.queue-frames:64}") int maxFrames,
+                           @Value("${parcelgo.tracking.ws.send-buffer-size-limit:524288}") int maxBytes,
+                           @Value("${parcelgo.tracking.ws.send-time-limit-ms:10000}") long sendTimeLimitMillis,
+                           @Value("${parcelgo.tracking.ws.evict-after-ms:15000}") long evictAfterMillis) {
+    this.registry = registry;
+    this.limits = new BoundedSendSession.Limits(maxFrames, maxBytes, sendTimeLimitMillis, evictAfterMillis);
+    this.sender = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ws-send-", 0).factory());
+    this.closer = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ws-close-", 0).factory());
+    this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "ws-sweep"));
+    this.sweeper.scheduleWithFixedDelay(this::sweep, 1, 1, TimeUnit.SECONDS);
+
+    this.droppedFrames = Counter.builder("tracking.ws.frames.dropped").register(registry);
+    Gauge.builder("tracking.ws.sessions", sessions, Map::size).register(registry);
+    Gauge.builder("tracking.ws.queue.depth.total", this, WebSocketSessions::totalQueueDepth).register(registry);
+    Gauge.builder("tracking.ws.queue.bytes.total", this, WebSocketSessions::totalQueuedBytes).register(registry);
+  }
+
+  public BoundedSendSession get(String sessionId) { return sessions.get(sessionId); }
+
+  public int size() { return sessions.size(); }
+
+  public BoundedSendSession.Limits limits() { return limits; }
+
+  public int totalQueueDepth() {
+    int n = 0;
+    for (BoundedSendSession s : sessions.values()) n += s.queueDepth();
+    return n;
+  }
+
+  public long totalQueuedBytes() {
+    long n = 0;
+    for (BoundedSendSession s : sessions.values()) n += s.queuedBytes();
+    return n;
+  }
+
+  /** For {@code WebSocketTransportRegistration#addDecoratorFactory}. */
+  public WebSocketHandler decorate(WebSocketHandler handler) {
+    return new WebSocketHandlerDecorator(handler) {
+      @Override
+      public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        BoundedSendSession bounded = new BoundedSendSession(session, limits, sender, closer, WebSocketSessions.this);
+        sessions.put(session.getId(), bounded);
+        super.afterConnectionEstablished(bounded);
+      }
+
+      @Override
+      public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+        sessions.remove(session.getId());
+        super.afterConnectionClosed(session, closeStatus);
+      }
+    };
+  }
+
+  @Override
+  public void dropped(BoundedSendSession s, int frames) {
+    droppedFrames.increment(frames);
+  }
+
+  @Override
+  public void evicted(BoundedSendSession s, String reason) {
+    Counter.builder("tracking.ws.evictions").tag("reason", reason).register(registry).increment();
+    log.info("evicting websocket session {}: {} (queued={}, dropped={})", s.getId(), reason, s.queueDepth(), s.droppedCount());
+  }
+
+  private void sweep() {
+    long now = System.currentTimeMillis();
+    for (BoundedSendSession s : sessions.values()) {
+      try {
+        s.checkHealth(now);
+      } catch (RuntimeException e) {
+        log.warn("health check of session {} failed", s.getId(), e);
+      }
+    }
+  }
+
+  @PreDestroy
+  void stop() {
+    sweeper.shutdownNow();
+    sender.shutdown();
+    closer.shutdown();
+  }
+
+  private static Thread daemon(Runnable r, String name) {
+    Thread t = new Thread(r, name);
+    t.setDaemon(true);
+    return t;
+  }
+}
@@ -0,0 +1,255 @@
+package com.parcelgo.tracking.history;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Append-only history of accepted {@code locate} messages, stored in memory-mapped {@link LogSegment}s.
+ *
+ * {@link #append} only offers to a bounded queue, so the STOMP inbound thread never waits on disk;
+ * a single writer thread drains the queue, appends to the active segment, rolls to a new one when it
+ * is full and applies retention. An in-memory per-order index of (segment, record) references is kept
+ * alongside and rebuilt from the segments at startup. {@link #track} returns read-only slices of the
+ * mapped records without decoding them.
+ *
+ * Retention and recovery go by the stored timestamps, so a client's {@code ts} is only kept when it is
+ * within {@code max-clock-skew} of the server clock; anything else (missing, in seconds, stale, far in
+ * the future) is stamped with the server time instead.
+ */
+@Component
+public class LocationHistoryLog {
+
+  private static final Logger log = LoggerFactory.getLogger(LocationHistoryLog.class);
+
+  private record Pending(long ts, long orderId, double lat, double lng) {}
+
+  /** Append-only list of packed (segmentId << 32 | record) refs. Writer appends; readers read size first. */
+  private static final class OrderTrack {
+    long[] refs;
+    volatile int size;
+
+    OrderTrack(long[] refs, int size) { this.refs = refs; this.size = size; }
+
+    void add(long ref) {
+      if (size == refs.length) refs = Arrays.copyOf(refs, Math.max(16, refs.length * 2));
+      refs[size] = ref;
+      size = size + 1;
+    }
+  }
+
+  private final Path dir;
+  private final int segmentRecords;
+  private final long retentionMillis;
+  private final int maxSegments;
+  private final long forceIntervalMillis;
+  private final long maxSkewMillis;
+
+  private final BlockingQueue<Pending> queue;
+  private final ConcurrentSkipListMap<Integer, LogSegment> segments = new ConcurrentSkipListMap<>();
+  private final Map<Long, OrderTrack> index = new ConcurrentHashMap<>();
+
+  private final Counter appended;
+  private final Counter droppedFull;
+  private final Counter restamped;
+
+  private LogSegment active;
+  private Thread writer;
+  private volatile boolean running;
+
+  public LocationHistoryLog(MeterRegistry registry,
+                            @Value("${parcelgo.tracking.history.dir:data/track-history}") String dir,
+                            @Value("${parcelgo.tracking.history.segment-records:1048576}") int segmentRecords,
+                            @Value("${parcelgo.tracking.history.retention:72h}") Duration retention,
+                            @Value("${parcelgo.tracking.history.max-segments:64}") int maxSegments,
+                            @Value("${parcelgo.tracking.history.queue-capacity:65536}") int queueCapacity,
+                            @Value("${parcelgo.tracking.history.force-interval-ms:1000}") long forceIntervalMillis,
+                            @Value("${parcelgo.tracking.history.max-clock-skew:5m}") Duration maxSkew) {
+    this.dir = Path.of(dir);
+    this.segmentRecords = segmentRecords;
+    this.retentionMillis = retention.toMillis();
+    this.maxSegments = Math.max(2, maxSegments);
+    this.forceIntervalMillis = forceIntervalMillis;
+    this.maxSkewMillis = maxSkew.toMillis();
+    this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    this.appended = Counter.builder("tracking.history.records").tag("result", "appended").register(registry);
+    this.droppedFull = Counter.builder("tracking.history.records").tag("result", "dropped_full").register(registry);
+    this.restamped = Counter.builder("tracking.history.records").tag("result", "restamped").register(registry);
+    Gauge.builder("tracking.history.queue.depth", queue, BlockingQueue::size).register(registry);
+    Gauge.builder("tracking.history.segments", segments, Map::size).register(registry);
+    Gauge.builder("tracking.history.orders", index, Map::size).register(registry);
+  }
+
+  /** Non-blocking. Returns false (and counts a drop) when the writer is behind and the queue is full. */
+  public boolean append(long orderId, long ts, double lat, double lng) {
+    long now = System.currentTimeMillis();
+    if (ts < now - maxSkewMillis || ts > now + maxSkewMillis) {
+      if (ts > 0) restamped.increment();
+      ts = now;
+    }
+    if (queue.offer(new Pending(ts, orderId, lat, lng))) return true;
+    droppedFull.increment();
+    return false;
+  }
+
+  /** Read-only record slices for {@code orderId} with {@code ts >= fromTs}, oldest first, at most {@code limit}. */
+  public List<ByteBuffer> track(long orderId, long fromTs, int limit) {
+    OrderTrack t = index.get(orderId);
+    if (t == null) return List.of();
+    int n = t.size;
+    long[] refs = t.refs;
+    List<ByteBuffer> out = new ArrayList<>(Math.min(n, limit));
+    for (int i = 0; i < n && out.size() < limit; i++) {
+      LogSegment seg = segments.get((int) (refs[i] >>> 32));
+      if (seg == null) continue; // expired by retention
+      int record = (int) refs[i];
+      if (seg.tsAt(record) < fromTs) continue;
+      out.add(seg.slice(record));
+    }
+    return out;
+  }
+
+  // ---------- lifecycle ----------
+
+  @PostConstruct
+  void start() throws IOException {
+    Files.createDirectories(dir);
+    List<Path> files;
+    try (Stream<Path> s = Files.list(dir)) {
+      files = s.filter(p -> p.getFileName().toString().matches("segment-\\d{10}\\.log")).sorted().toList();
+    }
+    for (Path p : files) {
+      int id = Integer.parseInt(p.getFileName().toString().substring(8, 18));
+      LogSegment seg = LogSegment.open(dir, id, segmentRecords);
+      segments.put(id, seg);
+      for (int r = 0; r < seg.count(); r++) indexRecord(seg.orderIdAt(r), seg.id, r);
+    }
+    active = segments.isEmpty() ? null : segments.lastEntry().getValue();
+    log.info("location history: {} segments, {} orders recovered from {}", segments.size(), index.size(), dir.toAbsolutePath());
+
+    running = true;
+    writer = new Thread(this::runWriter, "loc-history-writer");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  @PreDestroy
+  void stop() throws InterruptedException {
+    running = false;
+    writer.join(TimeUnit.SECONDS.toMillis(5));
+    for (LogSegment s : segments.values()) {
+      try {
+        s.force();
+        s.close();
+      } catch (IOException e) {
+        log.warn("closing {} failed", s.path, e);
+      }
+    }
+  }
+
+  // ---------- writer thread ----------
+
+  private void runWriter() {
+    List<Pending> batch = new ArrayList<>(1024);
+    long lastForce = System.currentTimeMillis();
+    long lastRetention = 0L;
+    while (running || !queue.isEmpty()) {
+      try {
+        Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first != null) {
+          batch.add(first);
+          queue.drainTo(batch, 1023);
+          for (Pending p : batch) write(p);
+          appended.increment(batch.size());
+          batch.clear();
+        }
+        long now = System.currentTimeMillis();
+        if (active != null && now - lastForce >= forceIntervalMillis) {
+          active.force();
+          lastForce = now;
+        }
+        if (now - lastRetention >= 60_000L) {
+          applyRetention(now);
+          lastRetention = now;
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (RuntimeException | IOException e) {
+        log.warn("location history write failed", e);
+        batch.clear();
+      }
+    }
+  }
+
+  private void write(Pending p) throws IOException {
+    if (active == null || active.isFull()) roll();
+    int record = active.append(p.ts(), p.orderId(), p.lat(), p.lng());
+    indexRecord(p.orderId(), active.id, record);
+  }
+
+  private void roll() throws IOException {
+    if (active != null) active.force();
+    int id = active == null ? 1 : active.id + 1;
+    active = LogSegment.open(dir, id, segmentRecords);
+    segments.put(id, active);
+    if (segments.size() > maxSegments) applyRetention(System.currentTimeMillis());
+  }
+
+  private void indexRecord(long orderId, int segmentId, int record) {
+    index.computeIfAbsent(orderId, k -> new OrderTrack(new long[16], 0)).add(((long) segmentId << 32) | record);
+  }
+
+  /** Drops whole segments that are past retention or beyond the segment budget, then prunes the index. */
+  private void applyRetention(long now) {
+    long cutoff = now - retentionMillis;
+    boolean removed = false;
+    for (LogSegment s : segments.values()) {
+      if (s == active) break;
+      boolean expired = s.lastTs() < cutoff;
+      boolean overBudget = segments.size() > maxSegments;
+      if (!expired && !overBudget) break;
+      segments.remove(s.id);
+      try {
+        s.delete();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      removed = true;
+    }
+    if (!removed) return;
+    int oldest = segments.firstKey();
+    for (Map.Entry<Long, OrderTrack> e : index.entrySet()) {
+      OrderTrack t = e.getValue();
+      int n = t.size;
+      int from = 0;
+      while (from < n && (int) (t.refs[from] >>> 32) < oldest) from++;
+      if (from == 0) continue;
+      if (from == n) index.remove(e.getKey());
+      else index.put(e.getKey(), new OrderTrack(Arrays.copyOfRange(t.refs, from, Math.max(from + 16, t.refs.length)), n - from));
+    }
+  }
+}
@@ -0,0 +1,94 @@
+package com.parcelgo.tracking.history;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * One fixed-size, memory-mapped file of {@link #RECORD_BYTES}-byte location records.
+ *
+ * Record layout (big endian): {@code ts:long | orderId:long | lat:double | lng:double}. A record with
+ * {@code ts == 0} marks the end of the written part, which is how {@link #open} recovers the record
+ * count after a restart. Only the history writer thread appends; readers take slices of records below
+ * the published {@link #count()}.
+ */
+final class LogSegment implements AutoCloseable {
+
+  static final int RECORD_BYTES = 32;
+  static final int TS = 0, ORDER_ID = 8, LAT = 16, LNG = 24;
+
+  final int id;
+  final Path path;
+  private final FileChannel channel;
+  private final MappedByteBuffer buffer;
+  private final int capacity;
+  private volatile int count;
+  private volatile long lastTs;
+
+  private LogSegment(int id, Path path, FileChannel channel, MappedByteBuffer buffer, int capacity) {
+    this.id = id;
+    this.path = path;
+    this.channel = channel;
+    this.buffer = buffer;
+    this.capacity = capacity;
+  }
+
+  static Path fileName(Path dir, int id) { return dir.resolve(String.format("segment-%010d.log", id)); }
+
+  /** Creates (or reopens) a segment and recovers how many records it already holds. */
+  static LogSegment open(Path dir, int id, int capacityRecords) throws IOException {
+    Path path = fileName(dir, id);
+    FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    long existing = ch.size();
+    int capacity = existing > 0 ? (int) (existing / RECORD_BYTES) : capacityRecords;
+    MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, (long) capacity * RECORD_BYTES);
+    LogSegment s = new LogSegment(id, path, ch, buf, capacity);
+    int n = 0;
+    while (n < capacity && buf.getLong(n * RECORD_BYTES + TS) != 0L) n++;
+    s.count = n;
+    s.lastTs = n == 0 ? 0L : buf.getLong((n - 1) * RECORD_BYTES + TS);
+    return s;
+  }
+
+  boolean isFull() { return count >= capacity; }
+
+  int count() { return count; }
+
+  long lastTs() { return lastTs; }
+
+  /** Writer thread only. Returns the record index written. */
+  int append(long ts, long orderId, double lat, double lng) {
+    int i = count;
+    int off = i * RECORD_BYTES;
+    buffer.putLong(off + ORDER_ID, orderId);
+    buffer.putDouble(off + LAT, lat);
+    buffer.putDouble(off + LNG, lng);
+    buffer.putLong(off + TS, ts); // written last: a non-zero ts marks the record complete
+    lastTs = ts;
+    count = i + 1;
+    return i;
+  }
+
+  long orderIdAt(int record) { return buffer.getLong(record * RECORD_BYTES + ORDER_ID); }
+
+  long tsAt(int record) { return buffer.getLong(record * RECORD_BYTES + TS); }
+
+  /** Read-only view of one record, sharing the mapped memory (no copy, no decoding). */
+  ByteBuffer slice(int record) {
+    return buffer.slice(record * RECORD_BYTES, RECORD_BYTES).asReadOnlyBuffer();
+  }
+
+  void force() { buffer.force(); }
+
+  @Override
+  public void close() throws IOException { channel.close(); }
+
+  void delete() throws IOException {
+    close();
+    Files.deleteIfExists(path);
+  }
+}
@@ -0,0 +1,72 @@
+package com.parcelgo.tracking.relay;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Stand-in for the Redis relay when several tracking nodes (application contexts) run in one JVM:
+ * channels live in a static map shared by every context. Each subscriber has its own delivery thread
+ * so, as with Redis pub/sub, publishing never runs the receivers on the caller's thread.
+ */
+@Component
+@ConditionalOnProperty(name = "parcelgo.tracking.relay.mode", havingValue = "local")
+public class InJvmLocationRelay implements LocationRelay {
+
+  private static final Logger log = LoggerFactory.getLogger(InJvmLocationRelay.class);
+  private static final Map<String, List<Subscriber>> CHANNELS = new ConcurrentHashMap<>();
+
+  private record Subscriber(Consumer<RelayBatch> sink, ExecutorService delivery) {}
+
+  private final String channel;
+  private final List<Subscriber> own = new CopyOnWriteArrayList<>();
+
+  public InJvmLocationRelay(@Value("${parcelgo.tracking.relay.channel:parcelgo:tracking:locations}") String channel) {
+    this.channel = channel;
+  }
+
+  @Override
+  public void publish(RelayBatch batch) {
+    for (Subscriber s : CHANNELS.getOrDefault(channel, List.of())) {
+      s.delivery().execute(() -> {
+        try {
+          s.sink().accept(batch);
+        } catch (RuntimeException e) {
+          log.warn("relay delivery failed", e);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void subscribe(Consumer<RelayBatch> sink) {
+    ExecutorService delivery = Executors.newSingleThreadExecutor(r -> {
+      Thread t = new Thread(r, "relay-local-" + channel);
+      t.setDaemon(true);
+      return t;
+    });
+    Subscriber s = new Subscriber(sink, delivery);
+    own.add(s);
+    CHANNELS.computeIfAbsent(channel, c -> new CopyOnWriteArrayList<>()).add(s);
+  }
+
+  @PreDestroy
+  void stop() {
+    List<Subscriber> subs = CHANNELS.get(channel);
+    for (Subscriber s : own) {
+      if (subs != null) subs.remove(s);
+      s.delivery().shutdown();
+    }
+  }
+}
@@ -0,0 +1,19 @@
+package com.parcelgo.tracking.relay;
+
+import java.util.function.Consumer;
+
+/**
+ * Cross-node fan-out of location batches, so viewers connected to any tracking-service instance see
+ * positions submitted on every other instance. Delivery is at-most-once and unordered across nodes;
+ * that is fine for latest-wins positions.
+ *
+ * Selected by {@code parcelgo.tracking.relay.mode}: {@code redis} ({@link RedisLocationRelay}),
+ * {@code local} ({@link InJvmLocationRelay}, several nodes in one JVM) or {@code none} (single node).
+ */
+public interface LocationRelay {
+
+  void publish(RelayBatch batch);
+
+  /** Registers the receiver of batches published by any node, this one included. */
+  void subscribe(Consumer<RelayBatch> sink);
+}
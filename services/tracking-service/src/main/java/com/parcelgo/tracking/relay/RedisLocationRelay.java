@@ -0,0 +1,74 @@
+package com.parcelgo.tracking.relay;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Redis pub/sub relay: every node publishes its flush batches as one JSON message to a single channel
+ * and every node subscribes to it. Per-node batching keeps the Redis message rate at
+ * nodes x (1000 / flush-interval-ms) per second regardless of how many orders are moving.
+ */
+@Component
+@ConditionalOnProperty(name = "parcelgo.tracking.relay.mode", havingValue = "redis")
+public class RedisLocationRelay implements LocationRelay {
+
+  private static final Logger log = LoggerFactory.getLogger(RedisLocationRelay.class);
+
+  private final RedisConnectionFactory connectionFactory;
+  private final ObjectMapper mapper;
+  private final byte[] channel;
+  private final RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+
+  public RedisLocationRelay(RedisConnectionFactory connectionFactory, ObjectMapper mapper,
+                            @Value("${parcelgo.tracking.relay.channel:parcelgo:tracking:locations}") String channel) {
+    this.connectionFactory = connectionFactory;
+    this.mapper = mapper;
+    this.channel = channel.getBytes(StandardCharsets.UTF_8);
+    this.container.setConnectionFactory(connectionFactory);
+  }
+
+  @Override
+  public void publish(RelayBatch batch) {
+    byte[] body;
+    try {
+      body = mapper.writeValueAsBytes(batch);
+    } catch (IOException e) {
+      throw new IllegalStateException("cannot serialize relay batch", e);
+    }
+    try (var connection = connectionFactory.getConnection()) {
+      connection.publish(channel, body);
+    }
+  }
+
+  @Override
+  public void subscribe(Consumer<RelayBatch> sink) {
+    container.addMessageListener((message, pattern) -> {
+      try {
+        sink.accept(mapper.readValue(message.getBody(), RelayBatch.class));
+      } catch (IOException | RuntimeException e) {
+        log.warn("dropping unreadable relay message", e);
+      }
+    }, new ChannelTopic(new String(channel, StandardCharsets.UTF_8)));
+    if (!container.isRunning()) {
+      container.afterPropertiesSet();
+      container.start();
+    }
+  }
+
+  @PreDestroy
+  void stop() throws Exception {
+    container.destroy();
+  }
+}
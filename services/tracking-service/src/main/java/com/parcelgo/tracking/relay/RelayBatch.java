@@ -0,0 +1,13 @@
+package com.parcelgo.tracking.relay;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One flush worth of location updates from a single node: the newest payload per order topic.
+ * Nodes ignore batches carrying their own {@code node} id, they already delivered those locally.
+ */
+public record RelayBatch(String node, List<Entry> locations) {
+
+  public record Entry(String destination, Map<String, Object> payload) {}
+}
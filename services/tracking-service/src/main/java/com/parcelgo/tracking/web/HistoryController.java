@@ -0,0 +1,75 @@
+package com.parcelgo.tracking.web;
+
+import com.parcelgo.tracking.history.LocationHistoryLog;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Replays an order's recorded track so a reconnecting viewer can draw the path so far.
+ *
+ * JSON is {@code [[ts,lat,lng],...]}, read field by field from the mapped records. With
+ * {@code Accept: application/octet-stream} the raw 32-byte records ({@code ts,orderId,lat,lng}, big
+ * endian) are written straight from the mapped slices.
+ */
+@RestController
+@RequestMapping("/tracking/orders/{orderId}")
+public class HistoryController {
+
+  private static final int MAX_POINTS = 100_000;
+
+  private final LocationHistoryLog history;
+  public HistoryController(LocationHistoryLog history){ this.history = history; }
+
+  @GetMapping(value = "/track", produces = MediaType.APPLICATION_JSON_VALUE)
+  public StreamingResponseBody trackJson(@PathVariable long orderId,
+                                         @RequestParam(defaultValue = "0") long fromTs,
+                                         @RequestParam(defaultValue = "10000") int limit){
+    List<ByteBuffer> records = history.track(orderId, fromTs, clamp(limit));
+    return out -> {
+      Writer w = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+      w.write('[');
+      for (int i = 0; i < records.size(); i++) {
+        ByteBuffer r = records.get(i);
+        if (i > 0) w.write(',');
+        w.write('[');
+        w.write(Long.toString(r.getLong(0)));
+        w.write(',');
+        w.write(Double.toString(r.getDouble(16)));
+        w.write(',');
+        w.write(Double.toString(r.getDouble(24)));
+        w.write(']');
+      }
+      w.write(']');
+      w.flush();
+    };
+  }
+
+  @GetMapping(value = "/track", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+  public StreamingResponseBody trackBinary(@PathVariable long orderId,
+                                           @RequestParam(defaultValue = "0") long fromTs,
+                                           @RequestParam(defaultValue = "10000") int limit){
+    List<ByteBuffer> records = history.track(orderId, fromTs, clamp(limit));
+    return out -> {
+      WritableByteChannel ch = Channels.newChannel(out);
+      for (ByteBuffer r : records) {
+        while (r.hasRemaining()) ch.write(r);
+      }
+      out.flush();
+    };
+  }
+
+  private static int clamp(int limit){ return Math.max(1, Math.min(limit, MAX_POINTS)); }
+}
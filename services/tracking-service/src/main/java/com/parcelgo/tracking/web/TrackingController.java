@@ -1,20 +1,50 @@
 package com.parcelgo.tracking.web;
 
+import com.parcelgo.tracking.fanout.LocationCoalescer;
+import com.parcelgo.tracking.history.LocationHistoryLog;
 import org.springframework.messaging.handler.annotation.MessageMapping;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.Map;
 
 @RestController
 public class TrackingController {
-  private final SimpMessagingTemplate template;
-  public TrackingController(SimpMessagingTemplate template){ this.template = template; }
+  private final LocationCoalescer coalescer;
+  private final LocationHistoryLog history;
+  public TrackingController(LocationCoalescer coalescer, LocationHistoryLog history){
+    this.coalescer = coalescer;
+    this.history = history;
+  }
 
   @MessageMapping("/locate")
   public void locate(Map<String,Object> msg){
-    // expects { orderId, lat, lng }
+    // expects { orderId, lat, lng, ts? }
     Object orderId = msg.get("orderId");
-    template.convertAndSend("/topic/orders/" + orderId, msg);
+    if (orderId == null) return;
+
+    Long id = asLong(orderId);
+    Double lat = asDouble(msg.get("lat"));
+    Double lng = asDouble(msg.get("lng"));
+    if (id != null && lat != null && lng != null) {
+      Long ts = asLong(msg.get("ts"));
+      history.append(id, ts == null ? 0L : ts, lat, lng);
+    }
+    coalescer.submit(orderId.toString(), msg);
+  }
+
+  private static Long asLong(Object v){
+    if (v instanceof Number n) return n.longValue();
+    if (v instanceof String s) {
+      try { return Long.parseLong(s.trim()); } catch (NumberFormatException e) { return null; }
+    }
+    return null;
+  }
+
+  private static Double asDouble(Object v){
+    if (v instanceof Number n) return n.doubleValue();
+    if (v instanceof String s) {
+      try { return Double.parseDouble(s.trim()); } catch (NumberFormatException e) { return null; }
+    }
+    return null;
   }
 }
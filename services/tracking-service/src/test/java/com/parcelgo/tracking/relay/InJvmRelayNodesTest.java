@@ -0,0 +1,126 @@
+package com.parcelgo.tracking.relay;
+
+import com.parcelgo.tracking.TrackingServiceApplication;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Three tracking-service nodes, each a full application context on its own port, joined by the in-JVM
+ * relay. A courier reports to node A over STOMP; viewers connected to B and C must see the position.
+ */
+class InJvmRelayNodesTest {
+
+  private static final String TOPIC = "/topic/orders/4242";
+
+  @TempDir
+  Path dir;
+
+  private final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+  private final List<StompSession> clients = new ArrayList<>();
+  private final WebSocketStompClient stomp = new WebSocketStompClient(new StandardWebSocketClient());
+
+  @AfterEach
+  void tearDown() {
+    clients.forEach(StompSession::disconnect);
+    nodes.forEach(ConfigurableApplicationContext::close);
+  }
+
+  @Test
+  void locationPostedOnOneNodeReachesViewersOnTheOthers() throws Exception {
+    String channel = "relay-test-" + System.nanoTime();
+    int a = start("node-a", channel);
+    int b = start("node-b", channel);
+    int c = start("node-c", channel);
+    stomp.setMessageConverter(new MappingJackson2MessageConverter());
+
+    BlockingQueue<Map<String, Object>> onB = subscribe(connect(b));
+    BlockingQueue<Map<String, Object>> onC = subscribe(connect(c));
+    StompSession courier = connect(a);
+
+    // subscriptions register asynchronously, so keep reporting like a courier until both viewers hear it
+    Map<String, Object> seenB = null, seenC = null;
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(20);
+    for (long ts = 1; (seenB == null || seenC == null) && System.nanoTime() < deadline; ts++) {
+      courier.send("/app/locate", Map.of("orderId", "4242", "lat", 12.9716, "lng", 77.5946, "ts", ts));
+      if (seenB == null) seenB = onB.poll(100, TimeUnit.MILLISECONDS);
+      if (seenC == null) seenC = onC.poll(100, TimeUnit.MILLISECONDS);
+    }
+
+    assertNotNull(seenB, "viewer on node B got nothing");
+    assertNotNull(seenC, "viewer on node C got nothing");
+    for (Map<String, Object> seen : List.of(seenB, seenC)) {
+      assertEquals("4242", seen.get("orderId"));
+      assertEquals(12.9716, ((Number) seen.get("lat")).doubleValue());
+      assertEquals(77.5946, ((Number) seen.get("lng")).doubleValue());
+      assertTrue(((Number) seen.get("ts")).longValue() >= 1);
+    }
+  }
+
+  private int start(String nodeId, String channel) {
+    ConfigurableApplicationContext ctx = new SpringApplicationBuilder(TrackingServiceApplication.class)
+        .web(WebApplicationType.SERVLET)
+        .run(
+            "--server.port=0",
+            "--spring.autoconfigure.exclude="
+                + "org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration,"
+                + "org.springframework.boot.autoconfigure.security.oauth2.resource.servlet.OAuth2ResourceServerAutoConfiguration,"
+                + "org.springframework.boot.actuate.autoconfigure.security.servlet.ManagementWebSecurityAutoConfiguration",
+            "--parcelgo.tracking.relay.mode=local",
+            "--parcelgo.tracking.relay.channel=" + channel,
+            "--parcelgo.tracking.relay.node-id=" + nodeId,
+            "--parcelgo.tracking.coalesce.flush-interval-ms=50",
+            "--parcelgo.tracking.history.dir=" + dir.resolve(nodeId),
+            "--parcelgo.tracking.history.segment-records=1024");
+    nodes.add(ctx);
+    return ((WebServerApplicationContext) ctx).getWebServer().getPort();
+  }
+
+  private StompSession connect(int port) throws Exception {
+    StompSession s = stomp.connectAsync("ws://localhost:" + port + "/ws/websocket", new StompSessionHandlerAdapter() {})
+        .get(10, TimeUnit.SECONDS);
+    clients.add(s);
+    return s;
+  }
+
+  private static BlockingQueue<Map<String, Object>> subscribe(StompSession s) {
+    BlockingQueue<Map<String, Object>> received = new LinkedBlockingQueue<>();
+    s.subscribe(TOPIC, new StompFrameHandler() {
+      @Override
+      public Type getPayloadType(StompHeaders headers) {
+        return Map.class;
+      }
+
+      @Override
+      @SuppressWarnings("unchecked")
+      public void handleFrame(StompHeaders headers, Object payload) {
+        received.add((Map<String, Object>) payload);
+      }
+    });
+    return received;
+  }
+}